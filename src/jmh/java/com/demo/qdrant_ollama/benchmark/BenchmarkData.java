@@ -0,0 +1,71 @@
+package com.demo.qdrant_ollama.benchmark;
+
+import com.demo.qdrant_ollama.dto.SearchResponse;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic documents and vectors shaped like the mock data set.
+ */
+final class BenchmarkData {
+
+    static final int DIMENSIONS = 1024;
+
+    private static final String[] WORDS = {"machine", "learning", "vector", "search", "cloud", "quantum", "health",
+            "education", "business", "climate", "genome", "startup", "funding", "remote", "nutrition", "fitness"};
+
+    private BenchmarkData() {
+    }
+
+    static List<Document> documents(int count, int contentChars) {
+        Random random = new Random(42);
+        List<Document> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("docId", "doc-" + i);
+            metadata.put("title", "Benchmark document " + i);
+            metadata.put("category", "Technology");
+            metadata.put("author", "Dr. Bench Mark");
+            metadata.put("tags", "benchmark, jmh");
+            documents.add(Document.builder()
+                    .id("00000000-0000-0000-0000-" + String.format("%012d", i))
+                    .text(text(random, contentChars))
+                    .metadata(metadata)
+                    .score(1.0 - i * 0.01)
+                    .build());
+        }
+        return documents;
+    }
+
+    static List<SearchResponse.DocumentResult> documentResults(int count, int contentChars) {
+        Random random = new Random(42);
+        List<SearchResponse.DocumentResult> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(new SearchResponse.DocumentResult("doc-" + i, "Benchmark document " + i, text(random, contentChars),
+                    "Technology", "Dr. Bench Mark", 1.0 - i * 0.01, 0));
+        }
+        return results;
+    }
+
+    static float[] vector(String text) {
+        Random random = new Random(text.hashCode());
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = random.nextFloat() * 2 - 1;
+        }
+        return vector;
+    }
+
+    private static String text(Random random, int chars) {
+        StringBuilder text = new StringBuilder(chars + 16);
+        while (text.length() < chars) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.substring(0, chars);
+    }
+}
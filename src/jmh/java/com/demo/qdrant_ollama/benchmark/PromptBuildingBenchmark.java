@@ -0,0 +1,39 @@
+package com.demo.qdrant_ollama.benchmark;
+
+import com.demo.qdrant_ollama.dto.SearchResponse;
+import com.demo.qdrant_ollama.service.PromptBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class PromptBuildingBenchmark {
+
+    @Param({"3", "10", "50"})
+    int topK;
+
+    @Param({"500", "4000"})
+    int documentChars;
+
+    @Param({"1500", "8000"})
+    int maxContextTokens;
+
+    private PromptBuilder promptBuilder;
+
+    private List<SearchResponse.DocumentResult> documents;
+
+    @Setup
+    public void setUp() {
+        promptBuilder = new PromptBuilder(maxContextTokens, 0.9);
+        documents = BenchmarkData.documentResults(topK, documentChars);
+    }
+
+    @Benchmark
+    public PromptBuilder.BuiltPrompt buildPrompt() {
+        return promptBuilder.build("What is machine learning and how does it work?", documents);
+    }
+}
@@ -0,0 +1,35 @@
+package com.demo.qdrant_ollama.benchmark;
+
+import com.demo.qdrant_ollama.dto.SearchResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+
+@State(Scope.Benchmark)
+public class SearchResponseSerializationBenchmark {
+
+    @Param({"3", "10", "50"})
+    int topK;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SearchResponse response;
+
+    @Setup
+    public void setUp() {
+        response = new SearchResponse("What is machine learning?", "Machine learning is a subset of artificial intelligence.",
+                BenchmarkData.documentResults(topK, 1000), 1250, false,
+                Map.of("embedding", 35.2, "vector_search", 4.1, "result_mapping", 0.02, "prompt_build", 0.05, "llm_generation", 1210.6), 1480);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
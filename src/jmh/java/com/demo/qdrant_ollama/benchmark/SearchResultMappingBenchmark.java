@@ -0,0 +1,33 @@
+package com.demo.qdrant_ollama.benchmark;
+
+import com.demo.qdrant_ollama.dto.SearchResponse;
+import com.demo.qdrant_ollama.service.SearchResultMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class SearchResultMappingBenchmark {
+
+    @Param({"3", "10", "50"})
+    int topK;
+
+    private final SearchResultMapper mapper = new SearchResultMapper();
+
+    private List<Document> documents;
+
+    @Setup
+    public void setUp() {
+        documents = BenchmarkData.documents(topK, 1000);
+    }
+
+    @Benchmark
+    public List<SearchResponse.DocumentResult> toDocumentResults() {
+        return mapper.toDocumentResults(documents);
+    }
+}
@@ -0,0 +1,90 @@
+package com.demo.qdrant_ollama.benchmark;
+
+import com.demo.qdrant_ollama.config.RerankProperties;
+import com.demo.qdrant_ollama.dto.SearchRequest;
+import com.demo.qdrant_ollama.dto.SearchResponse;
+import com.demo.qdrant_ollama.embedding.TimedEmbeddingModel;
+import com.demo.qdrant_ollama.lexical.LexicalIndex;
+import com.demo.qdrant_ollama.rerank.RerankStage;
+import com.demo.qdrant_ollama.rerank.StubReranker;
+import com.demo.qdrant_ollama.service.AnswerCache;
+import com.demo.qdrant_ollama.service.DownstreamLimits;
+import com.demo.qdrant_ollama.service.DownstreamResilience;
+import com.demo.qdrant_ollama.service.GenerationScheduler;
+import com.demo.qdrant_ollama.service.PromptBuilder;
+import com.demo.qdrant_ollama.service.SearchMetrics;
+import com.demo.qdrant_ollama.service.SearchResultMapper;
+import com.demo.qdrant_ollama.service.SearchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.document.Document;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * End-to-end {@link SearchService#search} against in-process stubs, measuring the application's own overhead
+ * on the request path without Ollama or a vector database.
+ */
+@State(Scope.Benchmark)
+public class SearchServiceBenchmark {
+
+    @Param({"3", "10"})
+    int topK;
+
+    @Param({"false", "true"})
+    boolean hybrid;
+
+    @Param({"false", "true"})
+    boolean rerank;
+
+    private SearchService searchService;
+
+    private SearchRequest request;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StubEmbeddingModel embeddingModel = new StubEmbeddingModel();
+        DownstreamLimits downstreamLimits = new DownstreamLimits(
+                8, 64, Duration.ofSeconds(5),
+                2, 64, Duration.ofSeconds(60),
+                32, 256, Duration.ofSeconds(2),
+                meterRegistry);
+        GenerationScheduler generationScheduler = new GenerationScheduler(4, 32, Duration.ofSeconds(10), 2, Duration.ofSeconds(60),
+                meterRegistry);
+        DownstreamResilience resilience = new DownstreamResilience(50, 20, 10, Duration.ofSeconds(30),
+                3, Duration.ofMillis(50), Duration.ofSeconds(1), meterRegistry);
+        AnswerCache answerCache = new AnswerCache(embeddingModel, false, 0.05, 1000, Duration.ofHours(1), meterRegistry);
+        SearchMetrics searchMetrics = new SearchMetrics(meterRegistry, "stub", true);
+        List<Document> documents = BenchmarkData.documents(50, 1000);
+        LexicalIndex lexicalIndex = new LexicalIndex(hybrid, 20, 60, 1.2f, 0.75f, 0.5f, meterRegistry);
+        lexicalIndex.upsert(documents);
+        RerankProperties rerankProperties = new RerankProperties(rerank, "stub", 20, 8, 0, Duration.ofSeconds(1),
+                new RerankProperties.Onnx("", "", 256));
+        RerankStage rerankStage = new RerankStage(rerankProperties, rerank ? new StubReranker() : null, meterRegistry);
+        searchService = new SearchService(
+                new StubVectorStore(new TimedEmbeddingModel(embeddingModel, searchMetrics), documents),
+                new StubChatModel(),
+                answerCache,
+                downstreamLimits,
+                generationScheduler,
+                resilience,
+                new SearchResultMapper(),
+                new PromptBuilder(1500, 0.9),
+                searchMetrics,
+                lexicalIndex,
+                rerankStage,
+                0.7);
+        request = new SearchRequest("What is machine learning and how does it work?", topK);
+    }
+
+    @Benchmark
+    public SearchResponse search() {
+        return searchService.search(request);
+    }
+}
@@ -0,0 +1,30 @@
+package com.demo.qdrant_ollama.benchmark;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * In-process chat model answering instantly with a fixed text.
+ */
+class StubChatModel implements ChatModel {
+
+    private static final String ANSWER = "Machine learning is a subset of artificial intelligence that enables computers "
+            + "to learn from data without being explicitly programmed.";
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(ANSWER))));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.fromArray(ANSWER.split("(?<= )"))
+                .map(token -> new ChatResponse(List.of(new Generation(new AssistantMessage(token)))));
+    }
+}
@@ -0,0 +1,45 @@
+package com.demo.qdrant_ollama.benchmark;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+
+/**
+ * In-process vector store that embeds the query like a real store would and returns a fixed result list.
+ */
+class StubVectorStore implements VectorStore {
+
+    private final EmbeddingModel embeddingModel;
+
+    private final List<Document> documents;
+
+    StubVectorStore(EmbeddingModel embeddingModel, List<Document> documents) {
+        this.embeddingModel = embeddingModel;
+        this.documents = documents;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        embeddingModel.embed(request.getQuery());
+        return documents.subList(0, Math.min(request.getTopK(), documents.size()));
+    }
+}
@@ -0,0 +1,142 @@
+package com.demo.qdrant_ollama.benchmark;
+
+import com.demo.qdrant_ollama.vectorstore.EmbeddedHnswVectorStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Search latency of the embedded store per quantization mode, for exact scans and graph searches. The recall@10
+ * of each configuration against an exact full-precision scan is printed during setup, so latency can be read
+ * against the accuracy it costs.
+ */
+@State(Scope.Benchmark)
+public class VectorQuantizationBenchmark {
+
+    private static final int TOP_K = 10;
+
+    private static final int QUERIES = 200;
+
+    @Param({"NONE", "INT8", "BINARY"})
+    String quantization;
+
+    @Param({"scan", "hnsw"})
+    String mode;
+
+    @Param({"5000"})
+    int documents;
+
+    private EmbeddedHnswVectorStore store;
+
+    private List<SearchRequest> queries;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ClusteredEmbeddingModel embeddingModel = new ClusteredEmbeddingModel();
+        store = EmbeddedHnswVectorStore.builder(embeddingModel, new ObjectMapper())
+                .dimensions(BenchmarkData.DIMENSIONS)
+                .quantization(EmbeddedHnswVectorStore.Quantization.valueOf(quantization))
+                .exactSearchThreshold("scan".equals(mode) ? Integer.MAX_VALUE : 0)
+                .build();
+        EmbeddedHnswVectorStore groundTruth = EmbeddedHnswVectorStore.builder(embeddingModel, new ObjectMapper())
+                .dimensions(BenchmarkData.DIMENSIONS)
+                .exactSearchThreshold(Integer.MAX_VALUE)
+                .build();
+
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < documents; i++) {
+            batch.add(Document.builder().id("doc-" + i).text("document " + i).metadata(Map.of()).build());
+            if (batch.size() == 500 || i == documents - 1) {
+                store.add(batch);
+                groundTruth.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+
+        queries = new ArrayList<>(QUERIES);
+        int found = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            SearchRequest query = SearchRequest.builder().query("query " + i).topK(TOP_K).build();
+            queries.add(query);
+            Set<String> expected = new HashSet<>(groundTruth.similaritySearch(query).stream().map(Document::getId).toList());
+            found += (int) store.similaritySearch(query).stream().filter(document -> expected.contains(document.getId())).count();
+        }
+        System.out.printf("%nrecall@%d quantization=%s mode=%s: %.3f, off-heap vectors: %d MB%n",
+                TOP_K, quantization, mode, (double) found / (QUERIES * TOP_K), store.offHeapBytes() >> 20);
+        groundTruth.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public List<Document> search() {
+        SearchRequest query = queries.get(next);
+        next = (next + 1) % queries.size();
+        return store.similaritySearch(query);
+    }
+
+    /**
+     * Vectors scattered around 64 cluster centres, closer to real embeddings than uniform noise, where every
+     * point is almost equally far from every other and recall says little.
+     */
+    private static class ClusteredEmbeddingModel implements EmbeddingModel {
+
+        private final float[][] centres = new float[64][BenchmarkData.DIMENSIONS];
+
+        ClusteredEmbeddingModel() {
+            Random random = new Random(42);
+            for (float[] centre : centres) {
+                for (int i = 0; i < centre.length; i++) {
+                    centre[i] = (float) random.nextGaussian();
+                }
+            }
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+            for (String text : request.getInstructions()) {
+                Random random = new Random(text.hashCode());
+                float[] centre = centres[random.nextInt(centres.length)];
+                float[] vector = new float[centre.length];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = centre[i] + (float) random.nextGaussian();
+                }
+                embeddings.add(new Embedding(vector, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return BenchmarkData.DIMENSIONS;
+        }
+    }
+}
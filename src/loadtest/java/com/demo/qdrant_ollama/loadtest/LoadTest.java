@@ -0,0 +1,217 @@
+package com.demo.qdrant_ollama.loadtest;
+
+import com.demo.qdrant_ollama.QdrantOllamaApplication;
+import com.demo.qdrant_ollama.dto.ReadinessStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test of the search endpoint against local stand-ins for Ollama, Qdrant and Milvus, runnable offline.
+ * <p>
+ * Starts the stubs, starts the application in-process wired to them (or uses {@code --target}), warms it up and
+ * then runs one open-model step per rate in {@code --rates}, printing throughput, latency percentiles and error
+ * rates per step and writing them to {@code --report}. With {@code --max-p99} or {@code --max-error-rate} the run
+ * fails when a step exceeds them, so it can gate performance changes; so does a startup phase that failed. Options not listed below are passed on to
+ * the application, e.g. {@code --search.hybrid.enabled=false}.
+ */
+public final class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("provider", "qdrant");
+        DEFAULTS.put("rates", "5,10,20,40");
+        DEFAULTS.put("step-duration", "30s");
+        DEFAULTS.put("warmup", "10s");
+        DEFAULTS.put("arrivals", "poisson");
+        DEFAULTS.put("max-results", "5");
+        DEFAULTS.put("generate-answer", "true");
+        DEFAULTS.put("query-pool", "10000");
+        DEFAULTS.put("request-timeout", "30s");
+        DEFAULTS.put("target", "");
+        DEFAULTS.put("app-port", "18080");
+        DEFAULTS.put("ollama-port", "21434");
+        DEFAULTS.put("qdrant-port", "26334");
+        DEFAULTS.put("milvus-port", "29530");
+        DEFAULTS.put("ollama-models", "llama3.1,mxbai-embed-large,hf.co/mixedbread-ai/mxbai-embed-large-v1");
+        DEFAULTS.put("ollama-parallel", "4");
+        DEFAULTS.put("embed-latency", "15ms");
+        DEFAULTS.put("embed-latency-per-text", "2ms");
+        DEFAULTS.put("prompt-tokens-per-second", "2000");
+        DEFAULTS.put("tokens-per-second", "200");
+        DEFAULTS.put("answer-tokens", "60");
+        DEFAULTS.put("vector-latency", "3ms");
+        DEFAULTS.put("corpus-size", "500");
+        DEFAULTS.put("max-p99", "");
+        DEFAULTS.put("max-error-rate", "");
+        DEFAULTS.put("report", "build/loadtest/report.json");
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            String name = arg.startsWith("--") && arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : null;
+            if (name != null && DEFAULTS.containsKey(name)) {
+                options.put(name, arg.substring(arg.indexOf('=') + 1));
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+
+        StubCorpus corpus = new StubCorpus(Integer.parseInt(options.get("corpus-size")));
+        Duration vectorLatency = duration(options.get("vector-latency"));
+        StubOllamaServer.Settings ollamaSettings = new StubOllamaServer.Settings(
+                Integer.parseInt(options.get("ollama-port")),
+                Arrays.asList(options.get("ollama-models").split(",")),
+                Integer.parseInt(options.get("ollama-parallel")),
+                duration(options.get("embed-latency")),
+                duration(options.get("embed-latency-per-text")),
+                Double.parseDouble(options.get("prompt-tokens-per-second")),
+                Double.parseDouble(options.get("tokens-per-second")),
+                Integer.parseInt(options.get("answer-tokens")));
+
+        try (StubOllamaServer ollama = new StubOllamaServer(ollamaSettings);
+             StubQdrantServer qdrant = new StubQdrantServer(Integer.parseInt(options.get("qdrant-port")), corpus, vectorLatency);
+             StubMilvusServer milvus = new StubMilvusServer(Integer.parseInt(options.get("milvus-port")), corpus, vectorLatency)) {
+            System.out.printf("Stubs: Ollama %s, Qdrant localhost:%d, Milvus localhost:%d%n", ollama.baseUrl(), qdrant.port(), milvus.port());
+
+            String target = options.get("target");
+            ConfigurableApplicationContext application = null;
+            if (target.isBlank()) {
+                String port = options.get("app-port");
+                applicationArgs.addAll(List.of(
+                        "--server.port=" + port,
+                        "--vector-store.provider=" + options.get("provider"),
+                        "--spring.ai.ollama.base-url=" + ollama.baseUrl(),
+                        "--clients.ollama.base-url=" + ollama.baseUrl(),
+                        "--clients.qdrant.host=localhost",
+                        "--clients.qdrant.port=" + qdrant.port(),
+                        "--clients.milvus.uri=http://localhost:" + milvus.port(),
+                        // nothing is persisted between runs, every run starts from the same state
+                        "--startup.seed-mock-data=false",
+                        "--embedding.cache.persistence-file=",
+                        "--vector-store.embedded.snapshot-file="));
+                application = SpringApplication.run(QdrantOllamaApplication.class, applicationArgs.toArray(String[]::new));
+                target = "http://localhost:" + port;
+            }
+            try {
+                awaitReady(target);
+                run(target, options);
+            } finally {
+                if (application != null) {
+                    application.close();
+                }
+            }
+        }
+    }
+
+    private static void run(String target, Map<String, String> options) throws Exception {
+        OpenLoadGenerator generator = new OpenLoadGenerator(target,
+                Integer.parseInt(options.get("query-pool")),
+                Integer.parseInt(options.get("max-results")),
+                Boolean.parseBoolean(options.get("generate-answer")),
+                "poisson".equalsIgnoreCase(options.get("arrivals")),
+                duration(options.get("request-timeout")));
+        List<Double> rates = Arrays.stream(options.get("rates").split(",")).map(String::trim).map(Double::parseDouble).toList();
+
+        // JIT compilation, connection pools and caches settle before anything is recorded
+        System.out.printf("Warming up at %.1f req/s for %s%n", rates.getFirst(), options.get("warmup"));
+        generator.run(rates.getFirst(), duration(options.get("warmup")));
+
+        Duration stepDuration = duration(options.get("step-duration"));
+        List<OpenLoadGenerator.StepResult> results = new ArrayList<>();
+        System.out.printf("%n%8s %7s %8s %7s %9s %10s %9s %9s %9s %9s %9s%n", "rate/s", "sent", "done/s", "errors",
+                "degraded", "in-flight", "p50 ms", "p95 ms", "p99 ms", "max ms", "err %");
+        for (double rate : rates) {
+            OpenLoadGenerator.StepResult result = generator.run(rate, stepDuration);
+            results.add(result);
+            System.out.printf("%8.1f %7d %8.1f %7d %9d %10d %9.1f %9.1f %9.1f %9.1f %9.2f%n", result.rate(), result.sent(),
+                    result.throughput(), result.errors(), result.degraded(), result.maxInFlight(), result.p50Ms(),
+                    result.p95Ms(), result.p99Ms(), result.maxMs(), result.errorRate() * 100);
+        }
+
+        Path report = Path.of(options.get("report"));
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("options", options);
+        document.put("steps", results);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), document);
+        System.out.println("\nReport written to " + report);
+
+        List<String> violations = violations(results, options);
+        if (!violations.isEmpty()) {
+            violations.forEach(violation -> System.out.println("FAILED: " + violation));
+            throw new IllegalStateException("Load test failed: " + String.join("; ", violations));
+        }
+    }
+
+    private static List<String> violations(List<OpenLoadGenerator.StepResult> results, Map<String, String> options) {
+        List<String> violations = new ArrayList<>();
+        for (OpenLoadGenerator.StepResult result : results) {
+            if (!options.get("max-p99").isBlank() && result.p99Ms() > duration(options.get("max-p99")).toMillis()) {
+                violations.add("p99 of %.1f ms at %.1f req/s exceeds %s".formatted(result.p99Ms(), result.rate(), options.get("max-p99")));
+            }
+            if (!options.get("max-error-rate").isBlank() && result.errorRate() > Double.parseDouble(options.get("max-error-rate"))) {
+                violations.add("error rate of %.4f at %.1f req/s exceeds %s".formatted(result.errorRate(), result.rate(), options.get("max-error-rate")));
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Waits for the background startup phases (vector index setup, lexical index load, ...). A phase skipped because
+     * it failed, e.g. a stub missing an RPC, fails the run: the application would serve, but not the way it does
+     * in production.
+     */
+    private static void awaitReady(String target) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/api/search/ready")).build();
+        long deadline = System.nanoTime() + Duration.ofSeconds(120).toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    ReadinessStatus status = new ObjectMapper().readValue(response.body(), ReadinessStatus.class);
+                    List<String> failed = status.phases().entrySet().stream()
+                            .filter(phase -> "SKIPPED".equals(phase.getValue().state())
+                                    && phase.getValue().message() != null && phase.getValue().message().startsWith("not loaded"))
+                            .map(phase -> phase.getKey() + " (" + phase.getValue().message() + ")")
+                            .toList();
+                    if (!failed.isEmpty()) {
+                        throw new IllegalStateException("Startup phases failed: " + String.join(", ", failed));
+                    }
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IOException(target + " did not become ready within 120s");
+    }
+
+    private static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value);
+    }
+}
@@ -0,0 +1,162 @@
+package com.demo.qdrant_ollama.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load against {@code POST /api/search}: requests are started on a schedule (Poisson or evenly spaced
+ * arrivals at a fixed rate), whether or not earlier ones have finished, the way independent users arrive. Latency
+ * is measured from the scheduled start, so a stalled generator or a queue in front of the service shows up in
+ * the percentiles instead of silently lowering the load (coordinated omission). Every request is in the
+ * percentiles, including errors and requests that timed out after {@code requestTimeout}; error rates are
+ * reported separately.
+ */
+final class OpenLoadGenerator {
+
+    private static final String[] TOPICS = {"machine learning", "neural networks", "climate change", "renewable energy",
+            "startup funding", "customer retention", "mental health", "sleep quality", "online learning", "quantum computing",
+            "gene editing", "supply chains", "cloud security", "vector search", "remote work", "nutrition"};
+
+    private static final String[] QUESTIONS = {"What is %s and how does it relate to %s?", "How can %s improve %s?",
+            "Explain the impact of %s on %s", "What are best practices for %s in %s?"};
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final URI searchUri;
+
+    private final List<String> queries;
+
+    private final int maxResults;
+
+    private final boolean generateAnswer;
+
+    private final boolean poisson;
+
+    private final Duration requestTimeout;
+
+    OpenLoadGenerator(String baseUrl, int queryPool, int maxResults, boolean generateAnswer, boolean poisson,
+                      Duration requestTimeout) {
+        this.searchUri = URI.create(baseUrl + "/api/search");
+        this.queries = queries(queryPool);
+        this.maxResults = maxResults;
+        this.generateAnswer = generateAnswer;
+        this.poisson = poisson;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Starts requests at {@code rate} per second for {@code duration}, then waits for the outstanding ones.
+     */
+    StepResult run(double rate, Duration duration) throws InterruptedException {
+        Random random = new Random(7);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger degraded = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        int sent = 0;
+        long meanIntervalNanos = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long scheduled = start;
+            while (scheduled < end) {
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                long scheduledAt = scheduled;
+                String query = queries.get(random.nextInt(queries.size()));
+                executor.execute(() -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        HttpResponse<String> response = httpClient.send(request(query), HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        } else if (response.body().contains("\"degraded\":true")) {
+                            degraded.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        // failed and timed-out requests count too, dropping them would hide the slowest ones
+                        latencies.add(System.nanoTime() - scheduledAt);
+                        inFlight.decrementAndGet();
+                    }
+                });
+                sent++;
+                scheduled += poisson
+                        ? (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos)
+                        : meanIntervalNanos;
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(requestTimeout.toMillis() + 1000, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new StepResult(rate, sent, sorted.length, errors.get(), degraded.get(), (sorted.length - errors.get()) / elapsedSeconds,
+                percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.95), percentileMillis(sorted, 0.99),
+                sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0, maxInFlight.get());
+    }
+
+    private HttpRequest request(String query) {
+        String body = "{\"query\":\"" + query + "\",\"maxResults\":" + maxResults + ",\"generateAnswer\":" + generateAnswer + "}";
+        return HttpRequest.newBuilder(searchUri)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // nearest-rank percentile
+    static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    // distinct questions, so the embedding and answer caches see a realistic mix of repeats
+    private static List<String> queries(int count) {
+        Random random = new Random(11);
+        String[] queries = new String[Math.max(1, count)];
+        for (int i = 0; i < queries.length; i++) {
+            String question = QUESTIONS[random.nextInt(QUESTIONS.length)];
+            queries[i] = question.formatted(TOPICS[random.nextInt(TOPICS.length)], TOPICS[random.nextInt(TOPICS.length)])
+                    + " (" + i + ")";
+        }
+        return Arrays.asList(queries);
+    }
+
+    /**
+     * @param completed  requests that got a response or failed, as opposed to being still outstanding at the end
+     * @param throughput successful requests per second
+     * @param maxInFlight most requests outstanding at once, the concurrency the service had to absorb
+     */
+    record StepResult(double rate, int sent, int completed, int errors, int degraded, double throughput,
+                      double p50Ms, double p95Ms, double p99Ms, double maxMs, int maxInFlight) {
+
+        double errorRate() {
+            return sent == 0 ? 0 : (double) errors / sent;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.demo.qdrant_ollama.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Synthetic documents the stub vector databases answer searches with, and deterministic embeddings for the stub
+ * Ollama. Hits are picked from the query vector, so the same query always gets the same documents.
+ */
+final class StubCorpus {
+
+    static final int DIMENSIONS = 1024;
+
+    private static final String[] CATEGORIES = {"Technology", "Science", "Business", "Health", "Education"};
+
+    private static final String[] WORDS = ("machine learning model data network cloud security energy climate market "
+            + "growth health nutrition sleep exercise learning students research quantum physics biology startup "
+            + "finance strategy customer product software system performance latency storage index vector search").split(" ");
+
+    private final List<StubDocument> documents;
+
+    StubCorpus(int size) {
+        Random random = new Random(42);
+        List<StubDocument> documents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int w = 0; w < 150; w++) {
+                content.append(WORDS[random.nextInt(WORDS.length)]).append(w % 15 == 14 ? ". " : " ");
+            }
+            String docId = "doc-" + i;
+            documents.add(new StubDocument(
+                    UUID.nameUUIDFromBytes(docId.getBytes(StandardCharsets.UTF_8)).toString(),
+                    docId,
+                    "Document " + i,
+                    CATEGORIES[i % CATEGORIES.length],
+                    "Author " + (i % 17),
+                    List.of(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]),
+                    content.toString().trim()));
+        }
+        this.documents = List.copyOf(documents);
+    }
+
+    /**
+     * Unit-length pseudo-random vector derived from the text.
+     */
+    static float[] vector(String text) {
+        Random random = new Random(text.hashCode());
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    /**
+     * The {@code limit} best hits for a query vector, with similarities descending from 0.95.
+     */
+    List<Hit> search(List<Float> queryVector, int limit) {
+        int seed = queryVector.isEmpty() ? 0 : Float.floatToIntBits(queryVector.getFirst());
+        int start = Math.floorMod(seed, documents.size());
+        List<Hit> hits = new ArrayList<>(limit);
+        for (int i = 0; i < Math.min(limit, documents.size()); i++) {
+            hits.add(new Hit(documents.get((start + i * 7) % documents.size()), 0.95f - 0.01f * i));
+        }
+        return hits;
+    }
+
+    record StubDocument(String id, String docId, String title, String category, String author, List<String> tags,
+                        String content) {
+    }
+
+    record Hit(StubDocument document, float score) {
+    }
+}
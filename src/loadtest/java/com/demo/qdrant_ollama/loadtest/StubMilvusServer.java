@@ -0,0 +1,254 @@
+package com.demo.qdrant_ollama.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.milvus.grpc.BoolResponse;
+import io.milvus.grpc.CollectionSchema;
+import io.milvus.grpc.ConnectRequest;
+import io.milvus.grpc.ConnectResponse;
+import io.milvus.grpc.CreateIndexRequest;
+import io.milvus.grpc.DataType;
+import io.milvus.grpc.DescribeCollectionRequest;
+import io.milvus.grpc.DescribeCollectionResponse;
+import io.milvus.grpc.DescribeIndexRequest;
+import io.milvus.grpc.DescribeIndexResponse;
+import io.milvus.grpc.DropIndexRequest;
+import io.milvus.grpc.FieldData;
+import io.milvus.grpc.FieldSchema;
+import io.milvus.grpc.GetLoadingProgressRequest;
+import io.milvus.grpc.GetLoadingProgressResponse;
+import io.milvus.grpc.GetVersionRequest;
+import io.milvus.grpc.GetVersionResponse;
+import io.milvus.grpc.HasCollectionRequest;
+import io.milvus.grpc.IDs;
+import io.milvus.grpc.IndexDescription;
+import io.milvus.grpc.IndexState;
+import io.milvus.grpc.JSONArray;
+import io.milvus.grpc.LoadCollectionRequest;
+import io.milvus.grpc.KeyValuePair;
+import io.milvus.grpc.MilvusServiceGrpc;
+import io.milvus.grpc.QueryRequest;
+import io.milvus.grpc.QueryResults;
+import io.milvus.grpc.ReleaseCollectionRequest;
+import io.milvus.grpc.ScalarField;
+import io.milvus.grpc.SearchRequest;
+import io.milvus.grpc.SearchResultData;
+import io.milvus.grpc.SearchResults;
+import io.milvus.grpc.Status;
+import io.milvus.grpc.StringArray;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.demo.qdrant_ollama.loadtest.StubQdrantServer.reply;
+import static com.demo.qdrant_ollama.loadtest.StubQdrantServer.sleep;
+
+/**
+ * Stand-in for the Milvus gRPC API. The {@code documents} collection exists and loads instantly, indexes are
+ * built as soon as they are created, searches return hits from the {@link StubCorpus} after {@code latency}.
+ * Queries return no rows, like scrolling the Qdrant stub: nothing is stored, so the lexical index starts empty.
+ */
+final class StubMilvusServer implements AutoCloseable {
+
+    private final Server server;
+
+    StubMilvusServer(int port, StubCorpus corpus, Duration latency) throws IOException {
+        this.server = ServerBuilder.forPort(port)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .addService(new MilvusService(corpus, latency))
+                .build()
+                .start();
+    }
+
+    int port() {
+        return server.getPort();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static final class MilvusService extends MilvusServiceGrpc.MilvusServiceImplBase {
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+
+        private final Map<String, IndexDescription> indexes = new ConcurrentHashMap<>();
+
+        private final StubCorpus corpus;
+
+        private final Duration latency;
+
+        private MilvusService(StubCorpus corpus, Duration latency) {
+            this.corpus = corpus;
+            this.latency = latency;
+        }
+
+        @Override
+        public void connect(ConnectRequest request, StreamObserver<ConnectResponse> responseObserver) {
+            reply(responseObserver, ConnectResponse.newBuilder().setStatus(Status.getDefaultInstance()).build());
+        }
+
+        @Override
+        public void getVersion(GetVersionRequest request, StreamObserver<GetVersionResponse> responseObserver) {
+            reply(responseObserver, GetVersionResponse.newBuilder().setVersion("v2.5.0").build());
+        }
+
+        @Override
+        public void hasCollection(HasCollectionRequest request, StreamObserver<BoolResponse> responseObserver) {
+            reply(responseObserver, BoolResponse.newBuilder().setValue(true).build());
+        }
+
+        // the schema Spring AI's MilvusVectorStore creates, the query iterator reads the primary key from it
+        @Override
+        public void describeCollection(DescribeCollectionRequest request, StreamObserver<DescribeCollectionResponse> responseObserver) {
+            reply(responseObserver, DescribeCollectionResponse.newBuilder()
+                    .setStatus(Status.getDefaultInstance())
+                    .setCollectionName(request.getCollectionName())
+                    .setSchema(CollectionSchema.newBuilder()
+                            .setName(request.getCollectionName())
+                            .addFields(FieldSchema.newBuilder()
+                                    .setFieldID(100)
+                                    .setName("doc_id")
+                                    .setIsPrimaryKey(true)
+                                    .setDataType(DataType.VarChar)
+                                    .addTypeParams(KeyValuePair.newBuilder().setKey("max_length").setValue("36")))
+                            .addFields(FieldSchema.newBuilder()
+                                    .setFieldID(101)
+                                    .setName("content")
+                                    .setDataType(DataType.VarChar)
+                                    .addTypeParams(KeyValuePair.newBuilder().setKey("max_length").setValue("65535")))
+                            .addFields(FieldSchema.newBuilder()
+                                    .setFieldID(102)
+                                    .setName("metadata")
+                                    .setDataType(DataType.JSON))
+                            .addFields(FieldSchema.newBuilder()
+                                    .setFieldID(103)
+                                    .setName("embedding")
+                                    .setDataType(DataType.FloatVector)
+                                    .addTypeParams(KeyValuePair.newBuilder().setKey("dim").setValue(String.valueOf(StubCorpus.DIMENSIONS)))))
+                    .build());
+        }
+
+        @Override
+        public void query(QueryRequest request, StreamObserver<QueryResults> responseObserver) {
+            reply(responseObserver, QueryResults.newBuilder()
+                    .setStatus(Status.getDefaultInstance())
+                    .setCollectionName(request.getCollectionName())
+                    .addAllOutputFields(request.getOutputFieldsList())
+                    .build());
+        }
+
+        @Override
+        public void createIndex(CreateIndexRequest request, StreamObserver<Status> responseObserver) {
+            indexes.put(request.getIndexName(), IndexDescription.newBuilder()
+                    .setIndexName(request.getIndexName())
+                    .setFieldName(request.getFieldName())
+                    .addAllParams(request.getExtraParamsList())
+                    .setState(IndexState.Finished)
+                    .build());
+            reply(responseObserver, Status.getDefaultInstance());
+        }
+
+        @Override
+        public void describeIndex(DescribeIndexRequest request, StreamObserver<DescribeIndexResponse> responseObserver) {
+            DescribeIndexResponse.Builder response = DescribeIndexResponse.newBuilder().setStatus(Status.getDefaultInstance());
+            IndexDescription index = indexes.get(request.getIndexName());
+            if (index != null) {
+                response.addIndexDescriptions(index);
+            }
+            reply(responseObserver, response.build());
+        }
+
+        @Override
+        public void dropIndex(DropIndexRequest request, StreamObserver<Status> responseObserver) {
+            indexes.remove(request.getIndexName());
+            reply(responseObserver, Status.getDefaultInstance());
+        }
+
+        @Override
+        public void releaseCollection(ReleaseCollectionRequest request, StreamObserver<Status> responseObserver) {
+            reply(responseObserver, Status.getDefaultInstance());
+        }
+
+        @Override
+        public void loadCollection(LoadCollectionRequest request, StreamObserver<Status> responseObserver) {
+            reply(responseObserver, Status.getDefaultInstance());
+        }
+
+        @Override
+        public void getLoadingProgress(GetLoadingProgressRequest request, StreamObserver<GetLoadingProgressResponse> responseObserver) {
+            reply(responseObserver, GetLoadingProgressResponse.newBuilder()
+                    .setStatus(Status.getDefaultInstance())
+                    .setProgress(100)
+                    .build());
+        }
+
+        @Override
+        public void search(SearchRequest request, StreamObserver<SearchResults> responseObserver) {
+            sleep(latency);
+            int topK = request.getSearchParamsList().stream()
+                    .filter(param -> "topk".equals(param.getKey()))
+                    .map(param -> Integer.parseInt(param.getValue()))
+                    .findFirst()
+                    .orElse(10);
+            List<StubCorpus.Hit> hits = corpus.search(List.of((float) request.getPlaceholderGroup().hashCode()), topK);
+
+            StringArray.Builder ids = StringArray.newBuilder();
+            StringArray.Builder contents = StringArray.newBuilder();
+            JSONArray.Builder metadata = JSONArray.newBuilder();
+            SearchResultData.Builder data = SearchResultData.newBuilder()
+                    .setNumQueries(1)
+                    .setTopK(topK)
+                    .addTopks(hits.size());
+            for (StubCorpus.Hit hit : hits) {
+                StubCorpus.StubDocument document = hit.document();
+                ids.addData(document.id());
+                contents.addData(document.content());
+                metadata.addData(ByteString.copyFromUtf8(json(Map.of(
+                        "docId", document.docId(),
+                        "title", document.title(),
+                        "category", document.category(),
+                        "author", document.author(),
+                        "tags", document.tags(),
+                        "chunkIndex", 0))));
+                data.addScores(hit.score());
+            }
+            data.setIds(IDs.newBuilder().setStrId(ids));
+            if (request.getOutputFieldsList().contains("content")) {
+                data.addFieldsData(FieldData.newBuilder()
+                        .setFieldName("content")
+                        .setType(DataType.VarChar)
+                        .setScalars(ScalarField.newBuilder().setStringData(contents)));
+            }
+            if (request.getOutputFieldsList().contains("metadata")) {
+                data.addFieldsData(FieldData.newBuilder()
+                        .setFieldName("metadata")
+                        .setType(DataType.JSON)
+                        .setScalars(ScalarField.newBuilder().setJsonData(metadata)));
+            }
+            reply(responseObserver, SearchResults.newBuilder()
+                    .setStatus(Status.getDefaultInstance())
+                    .setResults(data)
+                    .setCollectionName(request.getCollectionName())
+                    .build());
+        }
+
+        private String json(Map<String, Object> value) {
+            try {
+                return objectMapper.writeValueAsString(value);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.demo.qdrant_ollama.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Stand-in for the Ollama HTTP API: {@code /api/embed}, {@code /api/chat} (streamed and not), {@code /api/tags}
+ * and {@code /api/pull}.
+ * <p>
+ * Like Ollama, each model serves at most {@code parallel} requests at a time and queues the rest. An embedding
+ * call takes {@code embedLatency} plus {@code embedLatencyPerText} per input; a chat call reads the prompt at
+ * {@code promptTokensPerSecond} and then generates {@code answerTokens} at {@code tokensPerSecond}.
+ */
+final class StubOllamaServer implements AutoCloseable {
+
+    record Settings(int port, List<String> models, int parallel, Duration embedLatency, Duration embedLatencyPerText,
+                    double promptTokensPerSecond, double tokensPerSecond, int answerTokens) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Settings settings;
+
+    private final Semaphore chatSlots;
+
+    private final Semaphore embeddingSlots;
+
+    private final HttpServer server;
+
+    StubOllamaServer(Settings settings) throws IOException {
+        this.settings = settings;
+        this.chatSlots = new Semaphore(settings.parallel(), true);
+        this.embeddingSlots = new Semaphore(settings.parallel(), true);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", settings.port()), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/tags", this::tags);
+        server.createContext("/api/pull", this::pull);
+        server.createContext("/api/embed", this::embed);
+        server.createContext("/api/chat", this::chat);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void tags(HttpExchange exchange) throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode models = response.putArray("models");
+        for (String model : settings.models()) {
+            String name = model.contains(":") ? model : model + ":latest";
+            models.addObject().put("name", name).put("model", name).put("size", 0);
+        }
+        respond(exchange, response);
+    }
+
+    private void pull(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        respond(exchange, objectMapper.createObjectNode().put("status", "success"));
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        JsonNode input = request.path("input");
+        List<String> texts = input.isArray()
+                ? objectMapper.convertValue(input, objectMapper.getTypeFactory().constructCollectionType(List.class, String.class))
+                : List.of(input.asText());
+
+        long startNanos = System.nanoTime();
+        withSlot(embeddingSlots, () -> sleep(settings.embedLatency().plus(settings.embedLatencyPerText().multipliedBy(texts.size()))));
+
+        ObjectNode response = objectMapper.createObjectNode()
+                .put("model", request.path("model").asText())
+                .put("total_duration", System.nanoTime() - startNanos)
+                .put("prompt_eval_count", texts.stream().mapToInt(StubOllamaServer::tokens).sum());
+        ArrayNode embeddings = response.putArray("embeddings");
+        for (String text : texts) {
+            ArrayNode vector = embeddings.addArray();
+            for (float value : StubCorpus.vector(text)) {
+                vector.add(value);
+            }
+        }
+        respond(exchange, response);
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        String model = request.path("model").asText();
+        boolean stream = request.path("stream").asBoolean(true);
+        int promptTokens = 0;
+        for (JsonNode message : request.path("messages")) {
+            promptTokens += tokens(message.path("content").asText());
+        }
+        int prompt = promptTokens;
+
+        if (!stream) {
+            withSlot(chatSlots, () -> {
+                sleep(seconds(prompt / settings.promptTokensPerSecond()));
+                sleep(seconds(settings.answerTokens() / settings.tokensPerSecond()));
+            });
+            respond(exchange, chatChunk(model, "token ".repeat(settings.answerTokens()).trim(), true, prompt));
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody()) {
+            withSlot(chatSlots, () -> {
+                sleep(seconds(prompt / settings.promptTokensPerSecond()));
+                Duration perToken = seconds(1 / settings.tokensPerSecond());
+                for (int i = 0; i < settings.answerTokens(); i++) {
+                    sleep(perToken);
+                    write(body, chatChunk(model, i == 0 ? "token" : " token", false, prompt));
+                }
+                write(body, chatChunk(model, "", true, prompt));
+            });
+        }
+    }
+
+    private ObjectNode chatChunk(String model, String content, boolean done, int promptTokens) {
+        ObjectNode chunk = objectMapper.createObjectNode()
+                .put("model", model)
+                .put("created_at", Instant.now().toString())
+                .put("done", done);
+        chunk.putObject("message").put("role", "assistant").put("content", content);
+        if (done) {
+            chunk.put("done_reason", "stop")
+                    .put("prompt_eval_count", promptTokens)
+                    .put("eval_count", settings.answerTokens());
+        }
+        return chunk;
+    }
+
+    private void respond(HttpExchange exchange, JsonNode response) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void write(OutputStream body, JsonNode chunk) {
+        try {
+            body.write(objectMapper.writeValueAsBytes(chunk));
+            body.write('\n');
+            body.flush();
+        } catch (IOException e) {
+            // the client went away, e.g. the application cancelled the stream
+            throw new ClientGoneException(e);
+        }
+    }
+
+    private static void withSlot(Semaphore slots, Runnable work) {
+        slots.acquireUninterruptibly();
+        try {
+            work.run();
+        } catch (ClientGoneException e) {
+            // nothing to answer anymore
+        } finally {
+            slots.release();
+        }
+    }
+
+    // about four characters per token, close enough for pacing
+    private static int tokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private static Duration seconds(double seconds) {
+        return Duration.ofNanos((long) (seconds * 1_000_000_000L));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static final class ClientGoneException extends RuntimeException {
+
+        private ClientGoneException(IOException cause) {
+            super(cause);
+        }
+    }
+}
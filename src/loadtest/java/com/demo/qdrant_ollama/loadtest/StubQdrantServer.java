@@ -0,0 +1,176 @@
+package com.demo.qdrant_ollama.loadtest;
+
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.qdrant.client.grpc.Collections;
+import io.qdrant.client.grpc.CollectionsGrpc;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.Points;
+import io.qdrant.client.grpc.PointsGrpc;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the Qdrant gRPC API. The {@code documents} collection always exists with its payload indexes,
+ * writes are acknowledged and dropped, searches return hits from the {@link StubCorpus} after {@code latency}.
+ */
+final class StubQdrantServer implements AutoCloseable {
+
+    private static final List<String> INDEXED_FIELDS = List.of("category", "author", "tags", "docId");
+
+    private final Server server;
+
+    StubQdrantServer(int port, StubCorpus corpus, Duration latency) throws IOException {
+        this.server = ServerBuilder.forPort(port)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .addService(new CollectionsService())
+                .addService(new PointsService(corpus, latency))
+                .build()
+                .start();
+    }
+
+    int port() {
+        return server.getPort();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static final class CollectionsService extends CollectionsGrpc.CollectionsImplBase {
+
+        @Override
+        public void collectionExists(Collections.CollectionExistsRequest request,
+                                     StreamObserver<Collections.CollectionExistsResponse> responseObserver) {
+            reply(responseObserver, Collections.CollectionExistsResponse.newBuilder()
+                    .setResult(Collections.CollectionExists.newBuilder().setExists(true))
+                    .build());
+        }
+
+        @Override
+        public void get(Collections.GetCollectionInfoRequest request,
+                        StreamObserver<Collections.GetCollectionInfoResponse> responseObserver) {
+            Collections.CollectionInfo.Builder info = Collections.CollectionInfo.newBuilder()
+                    .setStatus(Collections.CollectionStatus.Green)
+                    .setConfig(Collections.CollectionConfig.newBuilder()
+                            .setParams(Collections.CollectionParams.newBuilder().setShardNumber(1)));
+            for (String field : INDEXED_FIELDS) {
+                info.putPayloadSchema(field, Collections.PayloadSchemaInfo.newBuilder()
+                        .setDataType(Collections.PayloadSchemaType.Keyword)
+                        .build());
+            }
+            reply(responseObserver, Collections.GetCollectionInfoResponse.newBuilder().setResult(info).build());
+        }
+
+        @Override
+        public void create(Collections.CreateCollection request, StreamObserver<Collections.CollectionOperationResponse> responseObserver) {
+            reply(responseObserver, Collections.CollectionOperationResponse.newBuilder().setResult(true).build());
+        }
+
+        @Override
+        public void update(Collections.UpdateCollection request, StreamObserver<Collections.CollectionOperationResponse> responseObserver) {
+            reply(responseObserver, Collections.CollectionOperationResponse.newBuilder().setResult(true).build());
+        }
+    }
+
+    private static final class PointsService extends PointsGrpc.PointsImplBase {
+
+        private final StubCorpus corpus;
+
+        private final Duration latency;
+
+        private PointsService(StubCorpus corpus, Duration latency) {
+            this.corpus = corpus;
+            this.latency = latency;
+        }
+
+        @Override
+        public void search(Points.SearchPoints request, StreamObserver<Points.SearchResponse> responseObserver) {
+            sleep(latency);
+            Points.SearchResponse.Builder response = Points.SearchResponse.newBuilder();
+            for (StubCorpus.Hit hit : corpus.search(request.getVectorList(), (int) request.getLimit())) {
+                Points.ScoredPoint.Builder point = Points.ScoredPoint.newBuilder()
+                        .setId(Points.PointId.newBuilder().setUuid(hit.document().id()))
+                        .setScore(hit.score());
+                if (request.getWithPayload().getEnable()) {
+                    point.putAllPayload(payload(hit.document()));
+                }
+                response.addResult(point);
+            }
+            reply(responseObserver, response.build());
+        }
+
+        @Override
+        public void scroll(Points.ScrollPoints request, StreamObserver<Points.ScrollResponse> responseObserver) {
+            // nothing is stored, so the lexical index and document sync start empty
+            reply(responseObserver, Points.ScrollResponse.getDefaultInstance());
+        }
+
+        @Override
+        public void count(Points.CountPoints request, StreamObserver<Points.CountResponse> responseObserver) {
+            reply(responseObserver, Points.CountResponse.newBuilder()
+                    .setResult(Points.CountResult.newBuilder().setCount(0))
+                    .build());
+        }
+
+        @Override
+        public void upsert(Points.UpsertPoints request, StreamObserver<Points.PointsOperationResponse> responseObserver) {
+            reply(responseObserver, completed());
+        }
+
+        @Override
+        public void delete(Points.DeletePoints request, StreamObserver<Points.PointsOperationResponse> responseObserver) {
+            reply(responseObserver, completed());
+        }
+
+        @Override
+        public void createFieldIndex(Points.CreateFieldIndexCollection request,
+                                     StreamObserver<Points.PointsOperationResponse> responseObserver) {
+            reply(responseObserver, completed());
+        }
+
+        private static Points.PointsOperationResponse completed() {
+            return Points.PointsOperationResponse.newBuilder()
+                    .setResult(Points.UpdateResult.newBuilder().setStatus(Points.UpdateStatus.Completed))
+                    .build();
+        }
+
+        // the payload layout Spring AI's QdrantVectorStore writes: the text plus the metadata as top-level fields
+        private static Map<String, JsonWithInt.Value> payload(StubCorpus.StubDocument document) {
+            JsonWithInt.ListValue.Builder tags = JsonWithInt.ListValue.newBuilder();
+            document.tags().forEach(tag -> tags.addValues(string(tag)));
+            return Map.of(
+                    "doc_content", string(document.content()),
+                    "docId", string(document.docId()),
+                    "title", string(document.title()),
+                    "category", string(document.category()),
+                    "author", string(document.author()),
+                    "tags", JsonWithInt.Value.newBuilder().setListValue(tags).build(),
+                    "chunkIndex", JsonWithInt.Value.newBuilder().setIntegerValue(0).build());
+        }
+
+        private static JsonWithInt.Value string(String value) {
+            return JsonWithInt.Value.newBuilder().setStringValue(value).build();
+        }
+    }
+
+    static <T> void reply(StreamObserver<T> responseObserver, T response) {
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.demo.qdrant_ollama;
 
+import com.demo.qdrant_ollama.config.NativeImageHints;
 import org.springframework.ai.vectorstore.milvus.autoconfigure.MilvusVectorStoreAutoConfiguration;
 import org.springframework.ai.vectorstore.qdrant.autoconfigure.QdrantVectorStoreAutoConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication( exclude = {
 		QdrantVectorStoreAutoConfiguration.class,
 		MilvusVectorStoreAutoConfiguration.class
 })
+@ImportRuntimeHints(NativeImageHints.class)
 public class QdrantOllamaApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,141 @@
+package com.demo.qdrant_ollama.config;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.milvus.client.MilvusServiceClient;
+import io.milvus.param.ConnectParam;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.QdrantGrpcClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downstream clients, configured from {@link ClientProperties}.
+ * <p>
+ * Pool usage is exposed as {@code client.pool.connections}, {@code client.pool.active} (calls or leased
+ * connections) and, for Ollama, {@code client.pool.pending} (calls waiting for a connection), tagged with {@code client}.
+ */
+@Configuration
+@EnableConfigurationProperties(ClientProperties.class)
+public class ClientConfig {
+
+    // the vector database clients only exist for the providers in use, see VectorStoreConfig
+
+    @Bean
+    @ConditionalOnVectorStoreProvider("qdrant")
+    public QdrantClient qdrantClient(ClientProperties properties, MeterRegistry meterRegistry) {
+        ClientProperties.Qdrant qdrant = properties.qdrant();
+        List<ManagedChannel> channels = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, qdrant.channels()); i++) {
+            ManagedChannelBuilder<?> channelBuilder = ManagedChannelBuilder.forAddress(qdrant.host(), qdrant.port())
+                    .keepAliveTime(qdrant.keepAliveTime().toMillis(), TimeUnit.MILLISECONDS)
+                    .keepAliveTimeout(qdrant.keepAliveTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .keepAliveWithoutCalls(true);
+            if (qdrant.useTls()) {
+                channelBuilder.useTransportSecurity();
+            } else {
+                channelBuilder.usePlaintext();
+            }
+            channels.add(channelBuilder.build());
+        }
+        PooledManagedChannel channel = new PooledManagedChannel(channels);
+        Gauge.builder("client.pool.connections", channel, PooledManagedChannel::size).tag("client", "qdrant").register(meterRegistry);
+        Gauge.builder("client.pool.active", channel, PooledManagedChannel::inFlight).tag("client", "qdrant").register(meterRegistry);
+
+        // the deadline applies to every call made through the client, including the ones Spring AI makes
+        QdrantGrpcClient.Builder grpcClientBuilder = QdrantGrpcClient.newBuilder(channel, true)
+                .withTimeout(qdrant.deadline());
+        if (!qdrant.apiKey().isBlank()) {
+            grpcClientBuilder.withApiKey(qdrant.apiKey());
+        }
+        return new QdrantClient(grpcClientBuilder.build());
+    }
+
+    @Bean
+    @ConditionalOnVectorStoreProvider("milvus")
+    public MilvusServiceClient milvusClient(ClientProperties properties) {
+        ClientProperties.Milvus milvus = properties.milvus();
+        return new MilvusServiceClient(ConnectParam.newBuilder()
+                .withUri(milvus.uri())
+                .withAuthorization(milvus.username(), milvus.password())
+                .withConnectTimeout(milvus.connectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .withKeepAliveTime(milvus.keepAliveTime().toMillis(), TimeUnit.MILLISECONDS)
+                .withKeepAliveTimeout(milvus.keepAliveTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .keepAliveWithoutCalls(true)
+                .withRpcDeadline(milvus.deadline().toMillis(), TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    /**
+     * Blocking calls (embeddings, non-streamed chat) go through a pooled Apache HttpClient; streamed answers through
+     * the JDK client, with the read timeout applied between chunks.
+     */
+    @Bean
+    public OllamaApi ollamaApi(ClientProperties properties, MeterRegistry meterRegistry) {
+        ClientProperties.Ollama ollama = properties.ollama();
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(ollama.maxConnections())
+                .setMaxConnPerRoute(ollama.maxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(ollama.connectTimeout()))
+                        .setSocketTimeout(Timeout.of(ollama.readTimeout()))
+                        .build())
+                .build();
+        Gauge.builder("client.pool.connections", connectionManager, manager -> manager.getTotalStats().getMax())
+                .tag("client", "ollama").register(meterRegistry);
+        Gauge.builder("client.pool.active", connectionManager, manager -> manager.getTotalStats().getLeased())
+                .tag("client", "ollama").register(meterRegistry);
+        Gauge.builder("client.pool.pending", connectionManager, manager -> manager.getTotalStats().getPending())
+                .tag("client", "ollama").register(meterRegistry);
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(ollama.poolTimeout()))
+                        .setResponseTimeout(Timeout.of(ollama.readTimeout()))
+                        .build())
+                .evictIdleConnections(TimeValue.of(ollama.idleTimeout()))
+                // retries are applied to idempotent calls only, see DownstreamResilience
+                .disableAutomaticRetries()
+                .build();
+
+        HttpClient streamingClient = HttpClient.newBuilder()
+                .connectTimeout(ollama.connectTimeout())
+                .build();
+        Duration readTimeout = ollama.readTimeout();
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .clientConnector(new JdkClientHttpConnector(streamingClient))
+                // fails a stream that stalls: no response, or no chunk within the read timeout
+                .filter((request, next) -> next.exchange(request)
+                        .timeout(readTimeout)
+                        .map(response -> response.mutate().body(body -> body.timeout(readTimeout)).build()));
+
+        return new OllamaApi.Builder()
+                .baseUrl(ollama.baseUrl())
+                .restClientBuilder(RestClient.builder().requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient)))
+                .webClientBuilder(webClientBuilder)
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.demo.qdrant_ollama.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Connection settings of the downstream clients ({@code clients.*}): where the services run, how many connections
+ * are kept, keep-alive, and how long a single call may take.
+ */
+@ConfigurationProperties(prefix = "clients")
+public record ClientProperties(
+        @DefaultValue Qdrant qdrant,
+        @DefaultValue Milvus milvus,
+        @DefaultValue Ollama ollama) {
+
+    /**
+     * @param channels         gRPC channels (HTTP/2 connections) calls are spread over, each multiplexes many calls
+     * @param keepAliveTime    ping interval on idle connections, so dead connections are noticed before a call
+     * @param keepAliveTimeout how long to wait for the ping's answer before the connection is closed
+     * @param deadline         maximum duration of a single call
+     */
+    public record Qdrant(
+            @DefaultValue("localhost") String host,
+            @DefaultValue("6334") int port,
+            @DefaultValue("false") boolean useTls,
+            @DefaultValue("") String apiKey,
+            @DefaultValue("2") int channels,
+            @DefaultValue("30s") Duration keepAliveTime,
+            @DefaultValue("10s") Duration keepAliveTimeout,
+            @DefaultValue("5s") Duration deadline) {
+    }
+
+    /**
+     * @param deadline maximum duration of a single call; index builds and loads are polled, so no call runs long
+     */
+    public record Milvus(
+            @DefaultValue("http://localhost:19530") String uri,
+            @DefaultValue("minioadmin") String username,
+            @DefaultValue("minioadmin") String password,
+            @DefaultValue("5s") Duration connectTimeout,
+            @DefaultValue("30s") Duration keepAliveTime,
+            @DefaultValue("10s") Duration keepAliveTimeout,
+            @DefaultValue("10s") Duration deadline) {
+    }
+
+    /**
+     * @param maxConnections pooled HTTP connections, sized for the chat and embedding bulkheads combined
+     * @param poolTimeout    how long a call waits for a free connection
+     * @param readTimeout    maximum silence on a connection; a non-streamed answer arrives in one piece, so this
+     *                       bounds the whole generation
+     * @param idleTimeout    idle connections are closed after this, before Ollama or a proxy drops them
+     */
+    public record Ollama(
+            @DefaultValue("http://localhost:11434") String baseUrl,
+            @DefaultValue("16") int maxConnections,
+            @DefaultValue("2s") Duration connectTimeout,
+            @DefaultValue("5s") Duration poolTimeout,
+            @DefaultValue("120s") Duration readTimeout,
+            @DefaultValue("30s") Duration idleTimeout) {
+    }
+}
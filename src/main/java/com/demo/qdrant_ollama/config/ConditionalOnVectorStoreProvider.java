@@ -0,0 +1,25 @@
+package com.demo.qdrant_ollama.config;
+
+import org.springframework.context.annotation.Conditional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Matches when the given backend is in use, either as {@code vector-store.provider} (default {@code qdrant}) or as
+ * {@code vector-store.shadow.provider}.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Conditional(OnVectorStoreProviderCondition.class)
+public @interface ConditionalOnVectorStoreProvider {
+
+    /**
+     * {@code qdrant}, {@code milvus} or {@code embedded}
+     */
+    String value();
+}
@@ -0,0 +1,277 @@
+package com.demo.qdrant_ollama.config;
+
+import com.demo.qdrant_ollama.service.StartupProgress;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.milvus.client.MilvusServiceClient;
+import io.milvus.grpc.DataType;
+import io.milvus.grpc.DescribeIndexResponse;
+import io.milvus.grpc.IndexDescription;
+import io.milvus.grpc.IndexState;
+import io.milvus.grpc.KeyValuePair;
+import io.milvus.param.IndexType;
+import io.milvus.param.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.RpcStatus;
+import io.milvus.param.collection.*;
+import io.milvus.param.index.CreateIndexParam;
+import io.milvus.param.index.DescribeIndexParam;
+import io.milvus.param.index.DropIndexParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates, indexes and loads the Milvus {@code documents} collection.
+ * <p>
+ * Index build and collection load are started asynchronously and polled, so progress can be reported while
+ * the application is already serving requests. The index type is configurable ({@code IVF_FLAT}, the quantized
+ * {@code IVF_SQ8} and {@code IVF_PQ}, or {@code HNSW}) together with its build parameters, see
+ * {@link VectorIndexProperties.Milvus}; an existing index of another type or with other build parameters is
+ * dropped and rebuilt. Shard count and mmap only apply when the collection is created. The filterable metadata fields get INVERTED JSON path indexes.
+ */
+@Component
+public class MilvusCollectionInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MilvusCollectionInitializer.class);
+
+    private static final long POLL_INTERVAL_MS = 500;
+
+    private final StartupProgress progress;
+
+    private final VectorIndexProperties.Milvus properties;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public MilvusCollectionInitializer(StartupProgress progress, VectorIndexProperties properties, ObjectMapper objectMapper) {
+        this.progress = progress;
+        this.properties = properties.milvus();
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return whether the collection is indexed and loaded
+     */
+    public boolean initialize(MilvusServiceClient client) {
+        String collectionName = "documents";
+        String vectorFieldName = "embedding";
+        String indexName = "embedding_index";
+        int dimension = 1024; // match your Ollama embeddings
+        MetricType metricType = MetricType.COSINE;
+        IndexType indexType = properties.indexType();
+
+        try {
+            progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.RUNNING, 0, "creating collection");
+
+            // 1. Create collection if it doesn't exist
+            if (!client.hasCollection(HasCollectionParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .build()).getData()) {
+
+                // Define fields using CollectionSchemaParam
+                CollectionSchemaParam schema = CollectionSchemaParam.newBuilder()
+                        .withFieldTypes(
+                                List.of(
+                                        FieldType.newBuilder()
+                                                .withName("doc_id")
+                                                .withDataType(DataType.VarChar)
+                                                .withMaxLength(255)
+                                                .withPrimaryKey(true)
+                                                .withAutoID(false)
+                                                .build(),
+                                        FieldType.newBuilder()
+                                                .withName("content")
+                                                .withDataType(DataType.VarChar)
+                                                .withMaxLength(65535)
+                                                .build(),
+                                        FieldType.newBuilder()
+                                                .withName("metadata")
+                                                .withDataType(DataType.JSON)
+                                                .withMaxLength(65535)
+                                                .build(),
+                                        FieldType.newBuilder()
+                                                .withName(vectorFieldName)
+                                                .withDataType(DataType.FloatVector)
+                                                .withDimension(dimension)
+                                                .build()
+                                )
+                        )
+                        .build();
+
+                client.createCollection(CreateCollectionParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .withDescription("Collection for document embeddings")
+                        .withSchema(schema)
+                        .withShardsNum(properties.shards())
+                        .build());
+                if (properties.mmap()) {
+                    // raw data and index are memory-mapped instead of loaded into RAM; has to be set before the load
+                    client.alterCollection(AlterCollectionParam.newBuilder()
+                            .withCollectionName(collectionName)
+                            .withProperty("mmap.enabled", "true")
+                            .build());
+                }
+            }
+
+            // 2. Create index on the vector field only if it doesn't exist, without waiting for the build
+            IndexDescription existingIndex = describeIndex(client, collectionName, indexName);
+            boolean typeChanged = existingIndex != null && !indexType.name().equalsIgnoreCase(indexTypeOf(existingIndex));
+            List<String> changedParams = existingIndex != null && !typeChanged ? changedIndexParams(existingIndex) : List.of();
+            if (typeChanged || !changedParams.isEmpty()) {
+                if (typeChanged) {
+                    logger.info("Replacing {} index '{}' with {}", indexTypeOf(existingIndex), indexName, indexType);
+                } else {
+                    logger.info("Rebuilding {} index '{}' with changed build parameters: {}", indexType, indexName, String.join(", ", changedParams));
+                }
+                progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.RUNNING, 0, "dropping " + indexTypeOf(existingIndex) + " index");
+                // an index can only be dropped while the collection is released
+                client.releaseCollection(ReleaseCollectionParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .build());
+                client.dropIndex(DropIndexParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .withIndexName(indexName)
+                        .build());
+                existingIndex = null;
+            }
+            if (existingIndex == null) {
+                client.createIndex(CreateIndexParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .withFieldName(vectorFieldName)
+                        .withIndexName(indexName)
+                        .withIndexType(indexType)
+                        .withMetricType(metricType)
+                        .withExtraParam(properties.indexParams())
+                        .withSyncMode(false)
+                        .build());
+            }
+            awaitIndex(client, collectionName, indexName);
+            createMetadataIndexes(client, collectionName);
+
+            // 3. Load collection into memory
+            client.loadCollection(LoadCollectionParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withSyncLoad(false)
+                    .build());
+            awaitLoad(client, collectionName);
+
+            progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.DONE, 100, "collection loaded");
+            return true;
+        } catch (Exception e) {
+            // Log the error but don't fail the application startup
+            logger.error("Failed to initialize Milvus collection", e);
+            progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.FAILED, 0, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * INVERTED indexes on the JSON paths of the filterable metadata fields, so filter expressions don't scan the
+     * {@code metadata} JSON of every row. JSON path indexes need Milvus 2.5.11 or newer; on older servers filters
+     * still work, just without the index.
+     */
+    private void createMetadataIndexes(MilvusServiceClient client, String collectionName) {
+        Map<String, String> castTypes = Map.of("category", "VARCHAR", "author", "VARCHAR", "tags", "ARRAY_VARCHAR", "docId", "VARCHAR");
+        castTypes.forEach((field, castType) -> {
+            String indexName = "metadata_" + field;
+            if (describeIndex(client, collectionName, indexName) != null) {
+                return;
+            }
+            R<RpcStatus> response = client.createIndex(CreateIndexParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withFieldName("metadata")
+                    .withIndexName(indexName)
+                    .withIndexType(IndexType.INVERTED)
+                    .withExtraParam("{\"json_path\":\"metadata[\\\"" + field + "\\\"]\",\"json_cast_type\":\"" + castType + "\"}")
+                    .withSyncMode(false)
+                    .build());
+            if (response.getException() != null) {
+                logger.warn("Could not index metadata field '{}': {}", field, response.getException().getMessage());
+            } else {
+                logger.info("Created INVERTED index on metadata field '{}'", field);
+            }
+        });
+    }
+
+    private IndexDescription describeIndex(MilvusServiceClient client, String collectionName, String indexName) {
+        R<DescribeIndexResponse> response = client.describeIndex(DescribeIndexParam.newBuilder()
+                .withCollectionName(collectionName)
+                .withIndexName(indexName)
+                .build());
+        if (response.getData() == null || response.getData().getIndexDescriptionsCount() == 0) {
+            return null;
+        }
+        return response.getData().getIndexDescriptions(0);
+    }
+
+    private static String indexTypeOf(IndexDescription index) {
+        return index.getParamsList().stream()
+                .filter(param -> "index_type".equals(param.getKey()))
+                .map(KeyValuePair::getValue)
+                .findFirst()
+                .orElse("");
+    }
+
+    /**
+     * The configured build parameters the existing index was built with other values of, as
+     * {@code name stored -> configured}. Parameters the server does not report are not compared.
+     */
+    List<String> changedIndexParams(IndexDescription index) {
+        Map<String, String> stored = new HashMap<>();
+        for (KeyValuePair param : index.getParamsList()) {
+            if ("params".equals(param.getKey())) {
+                // older servers report the build parameters as one JSON object, e.g. {"nlist":"128"}
+                try {
+                    objectMapper.readTree(param.getValue()).properties()
+                            .forEach(entry -> stored.put(entry.getKey(), entry.getValue().asText()));
+                } catch (JsonProcessingException e) {
+                    logger.warn("Could not read the build parameters of the existing index: {}", param.getValue());
+                }
+            } else {
+                stored.put(param.getKey(), param.getValue());
+            }
+        }
+        return properties.indexParamValues().entrySet().stream()
+                .filter(param -> stored.containsKey(param.getKey()) && !stored.get(param.getKey()).equals(param.getValue()))
+                .map(param -> param.getKey() + " " + stored.get(param.getKey()) + " -> " + param.getValue())
+                .toList();
+    }
+
+    private void awaitIndex(MilvusServiceClient client, String collectionName, String indexName) throws InterruptedException {
+        while (true) {
+            IndexDescription index = describeIndex(client, collectionName, indexName);
+            if (index == null) {
+                throw new IllegalStateException("Index " + indexName + " was not created");
+            }
+            if (index.getState() == IndexState.Finished) {
+                return;
+            }
+            if (index.getState() == IndexState.Failed) {
+                throw new IllegalStateException("Index build failed: " + index.getIndexStateFailReason());
+            }
+            int percent = index.getTotalRows() > 0 ? (int) (index.getIndexedRows() * 100 / index.getTotalRows()) : 0;
+            // index build is reported as the first half of the phase, loading as the second
+            progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.RUNNING, percent / 2, "building index");
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+    }
+
+    private void awaitLoad(MilvusServiceClient client, String collectionName) throws InterruptedException {
+        while (true) {
+            long percent = client.getLoadingProgress(GetLoadingProgressParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .build()).getData().getProgress();
+            if (percent >= 100) {
+                return;
+            }
+            progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.RUNNING, 50 + (int) percent / 2, "loading collection");
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.demo.qdrant_ollama.config;
+
+import com.demo.qdrant_ollama.model.Document;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Reflection hints for the native image that Spring's AOT processing can't infer from the bean definitions.
+ * <p>
+ * The Qdrant and Milvus clients talk gRPC with protobuf messages; protobuf looks up the generated accessors of
+ * every message and builder reflectively, so all generated classes of both APIs are registered (scanned at build
+ * time, the packages hold a few thousand classes). The gRPC transport itself ships its own native-image
+ * configuration. Ingestion files are read into {@link Document} with Jackson outside of any controller binding.
+ */
+public class NativeImageHints implements RuntimeHintsRegistrar {
+
+    private static final String[] PROTOBUF_PACKAGES = {"io/qdrant/client/grpc", "io/milvus/grpc"};
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+        for (String packagePath : PROTOBUF_PACKAGES) {
+            try {
+                for (Resource resource : resolver.getResources("classpath*:" + packagePath + "/*.class")) {
+                    String fileName = resource.getFilename();
+                    if (fileName == null) {
+                        continue;
+                    }
+                    String className = packagePath.replace('/', '.') + "." + fileName.substring(0, fileName.length() - ".class".length());
+                    hints.reflection().registerType(TypeReference.of(className),
+                            MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.DECLARED_FIELDS);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not scan " + packagePath + " for protobuf messages", e);
+            }
+        }
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), Document.class);
+    }
+}
@@ -0,0 +1,26 @@
+package com.demo.qdrant_ollama.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.Map;
+
+class OnVectorStoreProviderCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(ConditionalOnVectorStoreProvider.class.getName());
+        String provider = attributes != null ? (String) attributes.get("value") : "";
+        Environment environment = context.getEnvironment();
+        if (provider.equalsIgnoreCase(environment.getProperty("vector-store.provider", "qdrant"))) {
+            return ConditionOutcome.match("vector-store.provider is " + provider);
+        }
+        if (provider.equalsIgnoreCase(environment.getProperty("vector-store.shadow.provider", ""))) {
+            return ConditionOutcome.match("vector-store.shadow.provider is " + provider);
+        }
+        return ConditionOutcome.noMatch("neither vector-store.provider nor vector-store.shadow.provider is " + provider);
+    }
+}
@@ -0,0 +1,123 @@
+package com.demo.qdrant_ollama.config;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads calls over several channels to the same server, each new call going to the channel with the fewest
+ * calls in flight. One HTTP/2 connection multiplexes calls, but the server caps its concurrent streams and all
+ * of them share one TCP window, so under load a few connections carry more than one.
+ */
+final class PooledManagedChannel extends ManagedChannel {
+
+    private final List<ManagedChannel> channels;
+
+    private final AtomicInteger[] inFlight;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    PooledManagedChannel(List<ManagedChannel> channels) {
+        this.channels = List.copyOf(channels);
+        this.inFlight = new AtomicInteger[channels.size()];
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlight[i] = new AtomicInteger();
+        }
+    }
+
+    int size() {
+        return channels.size();
+    }
+
+    int inFlight() {
+        int total = 0;
+        for (AtomicInteger calls : inFlight) {
+            total += calls.get();
+        }
+        return total;
+    }
+
+    @Override
+    public <Q, R> ClientCall<Q, R> newCall(MethodDescriptor<Q, R> method, CallOptions callOptions) {
+        int index = leastLoaded();
+        AtomicInteger calls = inFlight[index];
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(channels.get(index).newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<R> listener, Metadata headers) {
+                calls.incrementAndGet();
+                try {
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(listener) {
+                        @Override
+                        public void onClose(Status status, Metadata trailers) {
+                            calls.decrementAndGet();
+                            super.onClose(status, trailers);
+                        }
+                    }, headers);
+                } catch (RuntimeException e) {
+                    calls.decrementAndGet();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    // starts at a rotating offset, so idle channels are used in turn instead of always the first one
+    private int leastLoaded() {
+        int start = Math.floorMod(next.getAndIncrement(), channels.size());
+        int best = start;
+        for (int i = 1; i < channels.size(); i++) {
+            int candidate = (start + i) % channels.size();
+            if (inFlight[candidate].get() < inFlight[best].get()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public String authority() {
+        return channels.getFirst().authority();
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        channels.forEach(ManagedChannel::shutdown);
+        return this;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        channels.forEach(ManagedChannel::shutdownNow);
+        return this;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return channels.stream().allMatch(ManagedChannel::isShutdown);
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return channels.stream().allMatch(ManagedChannel::isTerminated);
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ManagedChannel channel : channels) {
+            if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
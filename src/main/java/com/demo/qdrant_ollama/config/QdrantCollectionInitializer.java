@@ -0,0 +1,161 @@
+package com.demo.qdrant_ollama.config;
+
+import com.demo.qdrant_ollama.service.StartupProgress;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Collections;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the Qdrant {@code documents} collection with the configured HNSW, shard, storage and quantization
+ * settings, or applies them to an existing collection.
+ * <p>
+ * {@code m} and {@code ef-construct} trade index size and build time for recall; {@code on-disk} and
+ * {@code hnsw-on-disk} move the original vectors and the graph to memory-mapped files. {@code scalar} quantization
+ * keeps an int8 copy of every vector in RAM (4x smaller) and {@code binary} a one-bit copy (32x smaller); Qdrant
+ * searches the quantized copy and rescores the best candidates with the original vectors. The shard count can only
+ * be set when the collection is created. Keyword payload indexes are created on the filterable metadata fields.
+ */
+@Component
+public class QdrantCollectionInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(QdrantCollectionInitializer.class);
+
+    private static final String COLLECTION_NAME = "documents";
+
+    private static final int DIMENSIONS = 1024;
+
+    // keyword payload indexes for the filterable fields and the docId used by document sync
+    private static final List<String> INDEXED_FIELDS = List.of("category", "author", "tags", "docId");
+
+    private final StartupProgress progress;
+
+    private final VectorIndexProperties.Qdrant properties;
+
+    private final String quantization;
+
+    @Autowired
+    public QdrantCollectionInitializer(StartupProgress progress, VectorIndexProperties properties) {
+        this.progress = progress;
+        this.properties = properties.qdrant();
+        this.quantization = this.properties.quantization().toLowerCase();
+    }
+
+    /**
+     * @return whether the collection exists with the configured settings
+     */
+    public boolean initialize(QdrantClient client) {
+        try {
+            if (!client.collectionExistsAsync(COLLECTION_NAME).get()) {
+                progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.RUNNING, 0, "creating collection");
+                Collections.CreateCollection.Builder createCollection = Collections.CreateCollection.newBuilder()
+                        .setCollectionName(COLLECTION_NAME)
+                        .setVectorsConfig(Collections.VectorsConfig.newBuilder()
+                                .setParams(Collections.VectorParams.newBuilder()
+                                        .setSize(DIMENSIONS)
+                                        .setDistance(Collections.Distance.Cosine)
+                                        .setOnDisk(properties.onDisk())
+                                        .build())
+                                .build())
+                        .setHnswConfig(hnswConfig())
+                        .setShardNumber(properties.shards());
+                if (!"none".equals(quantization)) {
+                    createCollection.setQuantizationConfig(quantizationConfig());
+                }
+                client.createCollectionAsync(createCollection.build()).get();
+                logger.info("Created collection '{}' with {} shard(s), HNSW m={} ef_construct={} and {} quantization",
+                        COLLECTION_NAME, properties.shards(), properties.m(), properties.efConstruct(), quantization);
+            } else {
+                progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.RUNNING, 0, "updating collection");
+                Collections.CollectionInfo info = client.getCollectionInfoAsync(COLLECTION_NAME).get();
+                int shards = info.getConfig().getParams().getShardNumber();
+                if (shards != properties.shards()) {
+                    logger.warn("Collection '{}' has {} shard(s), vector-store.qdrant.shards={} only applies to new collections",
+                            COLLECTION_NAME, shards, properties.shards());
+                }
+                // changed HNSW parameters make Qdrant rebuild the graph in the background, searches keep working meanwhile
+                client.updateCollectionAsync(Collections.UpdateCollection.newBuilder()
+                        .setCollectionName(COLLECTION_NAME)
+                        .setHnswConfig(hnswConfig())
+                        .setVectorsConfig(Collections.VectorsConfigDiff.newBuilder()
+                                .setParams(Collections.VectorParamsDiff.newBuilder()
+                                        .setOnDisk(properties.onDisk())
+                                        .build())
+                                .build())
+                        .setQuantizationConfig(quantizationConfigDiff())
+                        .build()).get();
+                logger.info("Applied HNSW m={} ef_construct={} and {} quantization to collection '{}'",
+                        properties.m(), properties.efConstruct(), quantization, COLLECTION_NAME);
+            }
+            createPayloadIndexes(client);
+            progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.DONE, 100, quantization + " quantization");
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to initialize Qdrant collection '{}'", COLLECTION_NAME, e);
+            progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.FAILED, 0, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Without a payload index Qdrant evaluates a filter point by point; with one, filtered searches use the index to
+     * pick the candidates (and Qdrant adds extra HNSW links per indexed value, so filtered graphs stay connected).
+     */
+    private void createPayloadIndexes(QdrantClient client) throws Exception {
+        Map<String, Collections.PayloadSchemaInfo> existing = client.getCollectionInfoAsync(COLLECTION_NAME).get().getPayloadSchemaMap();
+        for (String field : INDEXED_FIELDS) {
+            if (existing.containsKey(field)) {
+                continue;
+            }
+            progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.RUNNING, 50, "indexing payload field " + field);
+            client.createPayloadIndexAsync(COLLECTION_NAME, field, Collections.PayloadSchemaType.Keyword, null, true, null, null).get();
+            logger.info("Created keyword payload index on '{}' in collection '{}'", field, COLLECTION_NAME);
+        }
+    }
+
+    private Collections.HnswConfigDiff hnswConfig() {
+        return Collections.HnswConfigDiff.newBuilder()
+                .setM(properties.m())
+                .setEfConstruct(properties.efConstruct())
+                .setOnDisk(properties.hnswOnDisk())
+                .build();
+    }
+
+    private Collections.QuantizationConfig quantizationConfig() {
+        return switch (quantization) {
+            case "scalar" -> Collections.QuantizationConfig.newBuilder().setScalar(scalarQuantization()).build();
+            case "binary" -> Collections.QuantizationConfig.newBuilder().setBinary(binaryQuantization()).build();
+            default -> throw new IllegalArgumentException("Unknown vector-store.qdrant.quantization: " + quantization);
+        };
+    }
+
+    private Collections.QuantizationConfigDiff quantizationConfigDiff() {
+        return switch (quantization) {
+            case "scalar" -> Collections.QuantizationConfigDiff.newBuilder().setScalar(scalarQuantization()).build();
+            case "binary" -> Collections.QuantizationConfigDiff.newBuilder().setBinary(binaryQuantization()).build();
+            case "none" -> Collections.QuantizationConfigDiff.newBuilder()
+                    .setDisabled(Collections.Disabled.getDefaultInstance())
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown vector-store.qdrant.quantization: " + quantization);
+        };
+    }
+
+    private static Collections.ScalarQuantization scalarQuantization() {
+        return Collections.ScalarQuantization.newBuilder()
+                .setType(Collections.QuantizationType.Int8)
+                .setQuantile(0.99f)
+                .setAlwaysRam(true)
+                .build();
+    }
+
+    private static Collections.BinaryQuantization binaryQuantization() {
+        return Collections.BinaryQuantization.newBuilder()
+                .setAlwaysRam(true)
+                .build();
+    }
+}
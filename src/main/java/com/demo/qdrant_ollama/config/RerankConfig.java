@@ -0,0 +1,33 @@
+package com.demo.qdrant_ollama.config;
+
+import com.demo.qdrant_ollama.rerank.OnnxCrossEncoderReranker;
+import com.demo.qdrant_ollama.rerank.Reranker;
+import com.demo.qdrant_ollama.rerank.StubReranker;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(RerankProperties.class)
+public class RerankConfig {
+
+    // only loaded when reranking is enabled, the ONNX session holds the model weights in native memory
+    @Bean
+    @ConditionalOnProperty(prefix = "search.rerank", name = "enabled", havingValue = "true")
+    public Reranker reranker(RerankProperties properties) throws Exception {
+        return switch (properties.provider().toLowerCase()) {
+            case "onnx" -> {
+                RerankProperties.Onnx onnx = properties.onnx();
+                if (onnx.model().isBlank() || onnx.tokenizer().isBlank()) {
+                    throw new IllegalStateException("search.rerank.onnx.model and search.rerank.onnx.tokenizer must be set");
+                }
+                yield new OnnxCrossEncoderReranker(Path.of(onnx.model()), Path.of(onnx.tokenizer()), onnx.maxLength());
+            }
+            case "stub" -> new StubReranker();
+            default -> throw new IllegalArgumentException("Unknown search.rerank.provider: " + properties.provider());
+        };
+    }
+}
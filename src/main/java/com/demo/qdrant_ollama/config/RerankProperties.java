@@ -0,0 +1,42 @@
+package com.demo.qdrant_ollama.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Reranking stage settings ({@code search.rerank.*}).
+ *
+ * @param provider   {@code onnx} for the cross-encoder, {@code stub} for term-overlap scoring without a model
+ * @param candidates how many retrieved chunks are scored; the best {@code maxResults} of them are kept
+ * @param batchSize  query/passage pairs per model call
+ * @param threads    batches scored in parallel, 0 for one per available core
+ * @param budget     time after which the search continues with the retrieval order
+ */
+@ConfigurationProperties(prefix = "search.rerank")
+public record RerankProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("onnx") String provider,
+        @DefaultValue("20") int candidates,
+        @DefaultValue("8") int batchSize,
+        @DefaultValue("0") int threads,
+        @DefaultValue("200ms") Duration budget,
+        @DefaultValue Onnx onnx) {
+
+    /**
+     * A sequence classification model exported to ONNX (e.g. {@code cross-encoder/ms-marco-MiniLM-L-6-v2}) and its
+     * Hugging Face {@code tokenizer.json}.
+     *
+     * @param maxLength query and passage tokens per pair, longer passages are truncated
+     */
+    public record Onnx(
+            @DefaultValue("") String model,
+            @DefaultValue("") String tokenizer,
+            @DefaultValue("256") int maxLength) {
+    }
+
+    public int effectiveThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,128 @@
+package com.demo.qdrant_ollama.config;
+
+import com.demo.qdrant_ollama.vectorstore.EmbeddedHnswVectorStore;
+import io.milvus.param.IndexType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Vector store and index settings ({@code vector-store.*}).
+ * <p>
+ * Build parameters ({@code nlist}, {@code m}, {@code ef-construction}, shards, placement) apply when the collection
+ * or index is created; search parameters ({@code hnsw-ef}, {@code nprobe}, {@code ef}) apply to every search and
+ * can be tuned at runtime through {@code POST /api/search/index/tune}.
+ */
+@ConfigurationProperties(prefix = "vector-store")
+public record VectorIndexProperties(
+        @DefaultValue("qdrant") String provider,
+        @DefaultValue Qdrant qdrant,
+        @DefaultValue Milvus milvus,
+        @DefaultValue Embedded embedded) {
+
+    /**
+     * @param onDisk     keep the original vectors memory-mapped on disk instead of in RAM
+     * @param hnswOnDisk keep the HNSW graph on disk instead of in RAM
+     * @param hnswEf     search-time beam width
+     * @param oversampling how many more candidates than {@code topK} are rescored when quantization is enabled
+     */
+    public record Qdrant(
+            @DefaultValue("1") int shards,
+            @DefaultValue("16") int m,
+            @DefaultValue("100") int efConstruct,
+            @DefaultValue("64") int hnswEf,
+            @DefaultValue("false") boolean onDisk,
+            @DefaultValue("false") boolean hnswOnDisk,
+            @DefaultValue("none") String quantization,
+            @DefaultValue("2.0") double oversampling) {
+    }
+
+    /**
+     * @param nlist  IVF cluster count
+     * @param pqM    IVF_PQ sub-vector count, must divide the dimension
+     * @param m      HNSW links per node
+     * @param nprobe IVF clusters searched per query
+     * @param ef     HNSW search-time beam width
+     * @param mmap   memory-map the collection's data instead of loading it into RAM
+     */
+    public record Milvus(
+            @DefaultValue("2") int shards,
+            @DefaultValue("IVF_FLAT") IndexType indexType,
+            @DefaultValue("128") int nlist,
+            @DefaultValue("16") int pqM,
+            @DefaultValue("8") int nbits,
+            @DefaultValue("16") int m,
+            @DefaultValue("200") int efConstruction,
+            @DefaultValue("16") int nprobe,
+            @DefaultValue("64") int ef,
+            @DefaultValue("false") boolean mmap) {
+
+        public String indexParams() {
+            return indexParamValues().entrySet().stream()
+                    .map(param -> "\"" + param.getKey() + "\":" + param.getValue())
+                    .collect(Collectors.joining(",", "{", "}"));
+        }
+
+        /**
+         * Build parameters of the index type, under the names Milvus stores them by.
+         */
+        public Map<String, String> indexParamValues() {
+            Map<String, String> params = new LinkedHashMap<>();
+            switch (indexType) {
+                case IVF_FLAT, IVF_SQ8 -> params.put("nlist", String.valueOf(nlist));
+                case IVF_PQ -> {
+                    params.put("nlist", String.valueOf(nlist));
+                    params.put("m", String.valueOf(pqM));
+                    params.put("nbits", String.valueOf(nbits));
+                }
+                case HNSW -> {
+                    params.put("M", String.valueOf(m));
+                    params.put("efConstruction", String.valueOf(efConstruction));
+                }
+                default -> {
+                }
+            }
+            return params;
+        }
+
+        /**
+         * Name of the search-time accuracy parameter of the index type, or {@code null} if it has none.
+         */
+        public String searchParamName() {
+            return switch (indexType) {
+                case IVF_FLAT, IVF_SQ8, IVF_PQ -> "nprobe";
+                case HNSW -> "ef";
+                default -> null;
+            };
+        }
+
+        public int searchParam() {
+            return indexType == IndexType.HNSW ? ef : nprobe;
+        }
+
+        public List<Integer> searchParamCandidates(int k) {
+            if (indexType == IndexType.HNSW) {
+                // Milvus requires ef >= topK
+                return List.of(16, 32, 64, 128, 256, 512).stream().filter(ef -> ef >= k).toList();
+            }
+            return List.of(1, 2, 4, 8, 16, 32, 64, 128, 256).stream().filter(nprobe -> nprobe <= nlist).toList();
+        }
+    }
+
+    public record Embedded(
+            @DefaultValue("cosine") EmbeddedHnswVectorStore.Metric metric,
+            @DefaultValue("16") int m,
+            @DefaultValue("100") int efConstruction,
+            @DefaultValue("64") int efSearch,
+            @DefaultValue("1000") int exactSearchThreshold,
+            @DefaultValue("none") EmbeddedHnswVectorStore.Quantization quantization,
+            @DefaultValue("4") int rescoreFactor,
+            @DefaultValue("data/embedded-vector-store.snapshot") String snapshotFile,
+            @DefaultValue("30s") Duration snapshotInterval) {
+    }
+}
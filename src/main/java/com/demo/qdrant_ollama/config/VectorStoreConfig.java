@@ -1,17 +1,26 @@
 package com.demo.qdrant_ollama.config;
 
+import com.demo.qdrant_ollama.embedding.BulkheadEmbeddingModel;
+import com.demo.qdrant_ollama.embedding.CachingEmbeddingModel;
+import com.demo.qdrant_ollama.embedding.CoalescingEmbeddingModel;
+import com.demo.qdrant_ollama.embedding.EmbeddingCache;
+import com.demo.qdrant_ollama.embedding.PrecomputedEmbeddingModel;
+import com.demo.qdrant_ollama.embedding.ResilientEmbeddingModel;
+import com.demo.qdrant_ollama.embedding.TimedEmbeddingModel;
+import com.demo.qdrant_ollama.service.DownstreamLimits;
+import com.demo.qdrant_ollama.service.DownstreamResilience;
+import com.demo.qdrant_ollama.service.SearchMetrics;
+import com.demo.qdrant_ollama.vectorstore.EmbeddedHnswVectorStore;
+import com.demo.qdrant_ollama.vectorstore.MilvusVectorSearcher;
+import com.demo.qdrant_ollama.vectorstore.NativeSearchVectorStore;
+import com.demo.qdrant_ollama.vectorstore.QdrantVectorSearcher;
+import com.demo.qdrant_ollama.vectorstore.ResilientVectorSearcher;
+import com.demo.qdrant_ollama.vectorstore.ShadowVectorStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.milvus.client.MilvusServiceClient;
-import io.milvus.grpc.DataType;
-import io.milvus.param.ConnectParam;
-import io.milvus.param.IndexType;
 import io.milvus.param.MetricType;
-import io.milvus.param.collection.*;
-import io.milvus.param.index.CreateIndexParam;
-import io.milvus.param.index.DescribeIndexParam;
 import io.qdrant.client.QdrantClient;
-import io.qdrant.client.QdrantGrpcClient;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.ollama.OllamaEmbeddingModel;
 import org.springframework.ai.ollama.api.OllamaApi;
@@ -21,172 +30,146 @@ import org.springframework.ai.ollama.management.PullModelStrategy;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
 import org.springframework.ai.vectorstore.qdrant.QdrantVectorStore;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
-import java.util.List;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
 
 @Configuration
+@EnableConfigurationProperties(VectorIndexProperties.class)
 public class VectorStoreConfig {
 
-    private final Logger logger = LoggerFactory.getLogger(VectorStoreConfig.class);
-
-    @Value("${vector-store.provider:qdrant}")
-    private String vectorStoreProvider;
-
-    @Bean(name = "customVectorStore")
-    public VectorStore vectorStore(QdrantClient qdrantClient, MilvusServiceClient milvusClient, EmbeddingModel embeddingModel) {
-        if ("milvus".equalsIgnoreCase(vectorStoreProvider)) {
-            // Initialize Milvus collection before creating the vector store
-            initializeMilvusCollection(milvusClient);
-            
-            return MilvusVectorStore.builder(milvusClient, embeddingModel)
-                    .embeddingDimension(1024) // Adjust the dimension based on your embedding model
-                    .collectionName("documents")
-                    .databaseName("default")
-                    .indexType(IndexType.IVF_FLAT)
-                    .metricType(MetricType.COSINE)
-                    .initializeSchema(true)
-                    .build();
-        } else {
-            return QdrantVectorStore.builder(qdrantClient, embeddingModel)
-                    .collectionName("documents")
-                    .initializeSchema(true)
-                    .build();
+    private static final String EMBEDDING_MODEL = "mxbai-embed-large";
+
+    /**
+     * The store the application reads from and writes to: the selected provider's store, or, with
+     * {@code vector-store.shadow.provider} set, that store with the shadow provider's store running alongside it.
+     * The provider stores are closed as beans of their own.
+     */
+    @Bean(name = "customVectorStore", destroyMethod = "")
+    @Primary
+    public VectorStore customVectorStore(BeanFactory beanFactory, EmbeddingModel embeddingModel, MeterRegistry meterRegistry,
+                                         @Value("${vector-store.provider:qdrant}") String provider,
+                                         @Value("${vector-store.shadow.provider:}") String shadowProvider,
+                                         @Value("${vector-store.shadow.sample-rate:0.1}") double shadowSampleRate,
+                                         @Value("${vector-store.shadow.max-concurrent:4}") int shadowMaxConcurrent,
+                                         @Value("${vector-store.shadow.queue-capacity:100}") int shadowQueueCapacity) {
+        VectorStore primary = providerStore(beanFactory, provider);
+        if (shadowProvider.isBlank() || shadowProvider.equalsIgnoreCase(provider)) {
+            return primary;
         }
+        return new ShadowVectorStore(primary, provider, providerStore(beanFactory, shadowProvider), shadowProvider,
+                embeddingModel, shadowSampleRate, shadowMaxConcurrent, shadowQueueCapacity, meterRegistry);
     }
 
+    private static VectorStore providerStore(BeanFactory beanFactory, String provider) {
+        String beanName = provider.toLowerCase(Locale.ROOT) + "VectorStore";
+        if (!beanFactory.containsBean(beanName)) {
+            throw new IllegalArgumentException("Unknown vector store provider '" + provider + "', expected qdrant, milvus or embedded");
+        }
+        return beanFactory.getBean(beanName, VectorStore.class);
+    }
+
+    // only the stores of the primary and shadow providers are created, so no other backend's client and channels exist
+
     @Bean
-    public QdrantClient qdrantClient() {
-        QdrantGrpcClient.Builder grpcClientBuilder =
-                QdrantGrpcClient.newBuilder(
-                        "localhost",
-                        6334,
-            false);
-
-        return new QdrantClient(grpcClientBuilder.build());
+    @ConditionalOnVectorStoreProvider("embedded")
+    public VectorStore embeddedVectorStore(EmbeddingModel embeddingModel, ObjectMapper objectMapper, VectorIndexProperties properties) {
+        VectorIndexProperties.Embedded embedded = properties.embedded();
+        // in-process HNSW index, no vector database needed; closed (and snapshotted) on shutdown
+        return EmbeddedHnswVectorStore.builder(embeddingModel, objectMapper)
+                .dimensions(1024)
+                .metric(embedded.metric())
+                .m(embedded.m())
+                .efConstruction(embedded.efConstruction())
+                .efSearch(embedded.efSearch())
+                .exactSearchThreshold(embedded.exactSearchThreshold())
+                .quantization(embedded.quantization())
+                .rescoreFactor(embedded.rescoreFactor())
+                .snapshotFile(embedded.snapshotFile().isBlank() ? null : Path.of(embedded.snapshotFile()))
+                .snapshotInterval(embedded.snapshotInterval())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnVectorStoreProvider("milvus")
+    public VectorStore milvusVectorStore(MilvusServiceClient milvusClient, EmbeddingModel embeddingModel, ObjectMapper objectMapper,
+                                         VectorIndexProperties properties, DownstreamResilience resilience) {
+        VectorIndexProperties.Milvus milvus = properties.milvus();
+        // the collection is created, indexed and loaded in the background by MilvusCollectionInitializer
+        VectorStore milvusVectorStore = MilvusVectorStore.builder(milvusClient, embeddingModel)
+                .embeddingDimension(1024) // Adjust the dimension based on your embedding model
+                .collectionName("documents")
+                .databaseName("default")
+                .indexType(milvus.indexType())
+                .metricType(MetricType.COSINE)
+                .initializeSchema(false)
+                .build();
+        // Spring AI neither exposes nprobe/ef nor matches JSON arrays in filters, so searches go through the native client
+        return new NativeSearchVectorStore(milvusVectorStore, embeddingModel,
+                new ResilientVectorSearcher(new MilvusVectorSearcher(milvusClient, milvus, objectMapper), resilience, "milvus"),
+                milvus.searchParam());
     }
 
     @Bean
-    public MilvusServiceClient milvusClient() {
-        return new MilvusServiceClient(ConnectParam.newBuilder()
-                .withAuthorization("minioadmin", "minioadmin")
-                .withUri("http://localhost:19530")
-                .build());
+    @ConditionalOnVectorStoreProvider("qdrant")
+    public VectorStore qdrantVectorStore(QdrantClient qdrantClient, EmbeddingModel embeddingModel, VectorIndexProperties properties,
+                                         DownstreamResilience resilience) {
+        VectorIndexProperties.Qdrant qdrant = properties.qdrant();
+        // the collection is created with the configured HNSW, shard and storage settings by QdrantCollectionInitializer
+        VectorStore qdrantVectorStore = QdrantVectorStore.builder(qdrantClient, embeddingModel)
+                .collectionName("documents")
+                .initializeSchema(false)
+                .build();
+        boolean quantized = !"none".equalsIgnoreCase(qdrant.quantization());
+        return new NativeSearchVectorStore(qdrantVectorStore, embeddingModel,
+                new ResilientVectorSearcher(new QdrantVectorSearcher(qdrantClient, quantized, qdrant.oversampling()), resilience, "qdrant"),
+                qdrant.hnswEf());
     }
 
     @Bean
-    public EmbeddingModel embeddingModel(OllamaApi ollamaApi) {
-        return OllamaEmbeddingModel.builder()
+    public EmbeddingModel embeddingModel(OllamaApi ollamaApi, EmbeddingCache embeddingCache, DownstreamLimits downstreamLimits,
+                                         DownstreamResilience resilience, SearchMetrics searchMetrics, MeterRegistry meterRegistry,
+                                         @Value("${embedding.batching.enabled:true}") boolean batchingEnabled,
+                                         @Value("${embedding.batching.window:2ms}") Duration batchingWindow,
+                                         @Value("${embedding.batching.max-size:16}") int batchingMaxSize) {
+        OllamaEmbeddingModel ollamaEmbeddingModel = OllamaEmbeddingModel.builder()
                 .ollamaApi(ollamaApi)
                 .modelManagementOptions(
                         ModelManagementOptions.builder()
                                 .pullModelStrategy(PullModelStrategy.WHEN_MISSING)
                                 .build()
                 )
-                .defaultOptions(OllamaOptions.builder().model("mxbai-embed-large").build())
+                .defaultOptions(OllamaOptions.builder().model(EMBEDDING_MODEL).build())
                 .build();
-    }
 
-    @Bean
-    public OllamaApi ollamaApi() {
-        return new OllamaApi.Builder().build(); // Uses default base URL (http://localhost:11434)
-        // Or specify a custom base URL if needed:
-        // return new OllamaApi.Builder().baseUrl("http://your-ollama-server-host:port").build();
-    }
+        // ingestion embeds in its own bulkhead, so it can't take the slots query embeddings need
+        EmbeddingModel limitedEmbeddingModel = new BulkheadEmbeddingModel(ollamaEmbeddingModel, downstreamLimits.embedding(),
+                downstreamLimits.ingestEmbedding());
 
-    private void initializeMilvusCollection(MilvusServiceClient client) {
-        String collectionName = "documents";
-        String vectorFieldName = "embedding";
-        int dimension = 1024; // match your Ollama embeddings
-        MetricType metricType = MetricType.COSINE;
-
-        try {
-            // 1. Create collection if it doesn't exist
-            if (!client.hasCollection(HasCollectionParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .build()).getData()) {
-
-                // Define fields using CollectionSchemaParam
-                CollectionSchemaParam schema = CollectionSchemaParam.newBuilder()
-                        .withFieldTypes(
-                                List.of(
-                                        FieldType.newBuilder()
-                                                .withName("doc_id")
-                                                .withDataType(DataType.VarChar)
-                                                .withMaxLength(255)
-                                                .withPrimaryKey(true)
-                                                .withAutoID(false)
-                                                .build(),
-                                        FieldType.newBuilder()
-                                                .withName("content")
-                                                .withDataType(DataType.VarChar)
-                                                .withMaxLength(65535)
-                                                .build(),
-                                        FieldType.newBuilder()
-                                                .withName("metadata")
-                                                .withDataType(DataType.JSON)
-                                                .withMaxLength(65535)
-                                                .build(),
-                                        FieldType.newBuilder()
-                                                .withName(vectorFieldName)
-                                                .withDataType(DataType.FloatVector)
-                                                .withDimension(dimension)
-                                                .build()
-                                )
-                        )
-                        .build();
-
-                client.createCollection(CreateCollectionParam.newBuilder()
-                        .withCollectionName(collectionName)
-                        .withDescription("Collection for document embeddings")
-                        .withSchema(schema)
-                        .withShardsNum(2)
-                        .build());
-            }
-
-            // 2. Create index on the vector field only if it doesn't exist
-            String indexName = "embedding_index";
-            try {
-                // Check if index already exists
-                boolean indexExists = client.describeIndex(DescribeIndexParam.newBuilder()
-                        .withCollectionName(collectionName)
-                        .withFieldName(indexName)
-                        .build()).getData().getIndexDescriptionsCount() > 0;
-                
-                if (!indexExists) {
-                    client.createIndex(CreateIndexParam.newBuilder()
-                            .withCollectionName(collectionName)
-                            .withFieldName(vectorFieldName)
-                            .withIndexName(indexName)
-                            .withIndexType(IndexType.IVF_FLAT) // good balance of speed + accuracy
-                            .withMetricType(metricType)
-                            .withExtraParam("{\"nlist\":128}") // tune for data size
-                            .withSyncMode(true)
-                            .build());
-                }
-            } catch (Exception e) {
-                // If describeIndex fails, try to create the index anyway
-                logger.error("Could not check if index exists, attempting to create", e);
-                client.createIndex(CreateIndexParam.newBuilder()
-                        .withCollectionName(collectionName)
-                        .withFieldName(vectorFieldName)
-                        .withIndexName(indexName)
-                        .withIndexType(IndexType.IVF_FLAT)
-                        .withMetricType(metricType)
-                        .withExtraParam("{\"nlist\":128}")
-                        .withSyncMode(true)
-                        .build());
-            }
-
-            // 3. Load collection into memory
-            client.loadCollection(LoadCollectionParam.newBuilder()
-                    .withCollectionName(collectionName)
-                    .build());
-        } catch (Exception e) {
-            // Log the error but don't fail the application startup
-            logger.error("Failed to initialize Milvus collection", e);
-        }
+        // retried outside the bulkhead, so a retry waiting for its backoff doesn't hold a slot
+        EmbeddingModel resilientEmbeddingModel = new ResilientEmbeddingModel(limitedEmbeddingModel, resilience);
+
+        // concurrent query embeddings that miss the cache share one Ollama call and one bulkhead slot
+        EmbeddingModel batchingEmbeddingModel = batchingEnabled
+                ? new CoalescingEmbeddingModel(resilientEmbeddingModel, batchingWindow, batchingMaxSize, meterRegistry)
+                : resilientEmbeddingModel;
+
+        // repeated queries are served from the cache instead of being re-embedded by Ollama
+        EmbeddingModel cachedEmbeddingModel = embeddingCache.isEnabled()
+                ? new CachingEmbeddingModel(batchingEmbeddingModel, embeddingCache, EMBEDDING_MODEL)
+                : batchingEmbeddingModel;
+
+        // batch searches embed all queries up front, the vector store then picks up the precomputed vectors
+        EmbeddingModel precomputedEmbeddingModel = new PrecomputedEmbeddingModel(cachedEmbeddingModel);
+
+        // outermost, so the embedding stage of a search includes cache hits and bulkhead waits
+        return new TimedEmbeddingModel(precomputedEmbeddingModel, searchMetrics);
     }
 }
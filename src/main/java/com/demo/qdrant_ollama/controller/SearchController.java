@@ -1,13 +1,40 @@
 package com.demo.qdrant_ollama.controller;
 
+import com.demo.qdrant_ollama.dto.BatchSearchRequest;
+import com.demo.qdrant_ollama.dto.BatchSearchResponse;
+import com.demo.qdrant_ollama.dto.ExportRequest;
+import com.demo.qdrant_ollama.dto.IndexTuningReport;
+import com.demo.qdrant_ollama.dto.IndexTuningRequest;
+import com.demo.qdrant_ollama.dto.IngestionRequest;
+import com.demo.qdrant_ollama.dto.IngestionStatus;
+import com.demo.qdrant_ollama.dto.ReadinessStatus;
 import com.demo.qdrant_ollama.dto.SearchRequest;
 import com.demo.qdrant_ollama.dto.SearchResponse;
+import com.demo.qdrant_ollama.dto.TransferResult;
+import com.demo.qdrant_ollama.export.ChunkFormat;
+import com.demo.qdrant_ollama.export.CollectionTransferService;
+import com.demo.qdrant_ollama.ingest.IngestionService;
+import com.demo.qdrant_ollama.service.BatchSearchService;
+import com.demo.qdrant_ollama.service.DownstreamUnavailableException;
+import com.demo.qdrant_ollama.service.IndexTuningService;
 import com.demo.qdrant_ollama.service.SearchService;
+import com.demo.qdrant_ollama.service.StartupProgress;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 
 @RestController
 @RequestMapping("/api/search")
@@ -18,9 +45,26 @@ public class SearchController {
     
     private final SearchService searchService;
 
+    private final BatchSearchService batchSearchService;
+
+    private final IngestionService ingestionService;
+
+    private final IndexTuningService indexTuningService;
+
+    private final StartupProgress startupProgress;
+
+    private final CollectionTransferService transferService;
+
     @Autowired
-    public SearchController(SearchService searchService) {
+    public SearchController(SearchService searchService, BatchSearchService batchSearchService, IngestionService ingestionService,
+                            IndexTuningService indexTuningService, StartupProgress startupProgress,
+                            CollectionTransferService transferService) {
         this.searchService = searchService;
+        this.batchSearchService = batchSearchService;
+        this.ingestionService = ingestionService;
+        this.indexTuningService = indexTuningService;
+        this.startupProgress = startupProgress;
+        this.transferService = transferService;
     }
     
     @PostMapping
@@ -30,25 +74,166 @@ public class SearchController {
         try {
             SearchResponse response = searchService.search(request);
             return ResponseEntity.ok(response);
+        } catch (DownstreamUnavailableException e) {
+            logger.warn("Rejecting search request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
         } catch (Exception e) {
             logger.error("Error processing search request: ", e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    @PostMapping("/batch")
+    public ResponseEntity<BatchSearchResponse> searchBatch(@RequestBody BatchSearchRequest request) {
+        logger.info("Received batch search request with {} queries", request.queries() == null ? 0 : request.queries().size());
+
+        try {
+            return ResponseEntity.ok(batchSearchService.search(request));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejecting batch search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (DownstreamUnavailableException e) {
+            logger.warn("Rejecting batch search request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (Exception e) {
+            logger.error("Error processing batch search request: ", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> searchStream(@RequestBody SearchRequest request) {
+        logger.info("Received streaming search request: {}", request.query());
+        return searchService.searchStream(request);
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Search service is running");
     }
     
+    @GetMapping("/ready")
+    public ResponseEntity<ReadinessStatus> ready() {
+        ReadinessStatus status = startupProgress.status();
+        return status.ready()
+                ? ResponseEntity.ok(status)
+                : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(status);
+    }
+    
     @PostMapping("/initialize")
-    public ResponseEntity<String> initializeData() {
+    public ResponseEntity<IngestionStatus> initializeData(@RequestBody(required = false) IngestionRequest request) {
         try {
-            searchService.initializeData();
-            return ResponseEntity.ok("Data initialized successfully");
+            IngestionStatus status = ingestionService.start(request);
+            logger.info("Started ingestion job {} for '{}'", status.jobId(), status.source());
+            return ResponseEntity.accepted().body(status);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejecting ingestion request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error initializing data: ", e);
-            return ResponseEntity.internalServerError().body("Failed to initialize data: " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/index/tune")
+    public ResponseEntity<IndexTuningReport> tuneIndex(@RequestBody(required = false) IndexTuningRequest request) {
+        try {
+            IndexTuningReport report = indexTuningService.tune(request);
+            logger.info("Index tuning recommends {}={}", report.searchParam(), report.recommended());
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejecting index tuning request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error tuning index: ", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Streams the whole collection, written to the response as it is read.
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(required = false) String format, @RequestParam(defaultValue = "true") boolean vectors,
+                       HttpServletResponse response) throws Exception {
+        ChunkFormat chunkFormat;
+        try {
+            chunkFormat = ChunkFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        }
+        response.setContentType(chunkFormat.mediaType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"documents." + chunkFormat.extension() + "\"");
+        try {
+            transferService.export(response.getOutputStream(), chunkFormat, vectors);
+        } catch (Exception e) {
+            logger.error("Error exporting the collection: ", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+            // otherwise the export is cut short, which the binary format's missing end marker reveals
+        }
+    }
+
+    @PostMapping("/export")
+    public ResponseEntity<TransferResult> exportToFile(@RequestBody ExportRequest request) {
+        if (request == null || request.path() == null || request.path().isBlank()) {
+            return ResponseEntity.badRequest().build();
         }
+        try {
+            Path path = transferService.resolve(request.path());
+            return ResponseEntity.ok(transferService.exportToFile(path, ChunkFormat.of(request.format(), path),
+                    !Boolean.FALSE.equals(request.vectors()), Boolean.TRUE.equals(request.overwrite())));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejecting export request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (FileAlreadyExistsException e) {
+            logger.warn("Rejecting export request, file exists: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            logger.error("Error exporting the collection: ", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Loads an export from the request body, or from {@code path} in {@code export.dir} on the server.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<TransferResult> importChunks(@RequestParam(required = false) String path,
+                                                       @RequestParam(required = false) String format,
+                                                       HttpServletRequest request) {
+        try {
+            if (path != null && !path.isBlank()) {
+                Path file = transferService.resolve(path);
+                return ResponseEntity.ok(transferService.importFromFile(file, ChunkFormat.of(format, file)));
+            }
+            String contentType = request.getContentType();
+            ChunkFormat chunkFormat = format == null && contentType != null && contentType.startsWith(ChunkFormat.BINARY.mediaType())
+                    ? ChunkFormat.BINARY
+                    : ChunkFormat.of(format);
+            return ResponseEntity.ok(transferService.importFrom(request.getInputStream(), chunkFormat, "request body"));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejecting import request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (NoSuchFileException e) {
+            logger.warn("Rejecting import request, no such file: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (DownstreamUnavailableException e) {
+            logger.warn("Rejecting import request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (Exception e) {
+            logger.error("Error importing chunks: ", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/initialize/{jobId}")
+    public ResponseEntity<IngestionStatus> initializationStatus(@PathVariable String jobId) {
+        return ingestionService.status(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 } 
\ No newline at end of file
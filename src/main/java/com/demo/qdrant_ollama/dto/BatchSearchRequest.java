@@ -0,0 +1,6 @@
+package com.demo.qdrant_ollama.dto;
+
+import java.util.List;
+
+// queries: generateAnswer defaults to false here, answers are only generated for queries that set it to true
+public record BatchSearchRequest(List<SearchRequest> queries) {}
@@ -0,0 +1,10 @@
+package com.demo.qdrant_ollama.dto;
+
+import java.util.List;
+
+// embeddingTimeMs: the single batched embedding call for all distinct queries
+public record BatchSearchResponse(List<Result> results, long embeddingTimeMs, long totalTimeMs) {
+
+    // response is null and error is set when this query failed, the other queries are unaffected
+    public record Result(int index, SearchResponse response, String error) {}
+}
@@ -0,0 +1,8 @@
+package com.demo.qdrant_ollama.dto;
+
+/**
+ * Export of the collection to a file in {@code export.dir} on the server. {@code format} is {@code ndjson} or
+ * {@code binary} and defaults to the file extension ({@code .bin} for binary); vectors are included unless
+ * {@code vectors} is false. An existing file is only replaced with {@code overwrite} set.
+ */
+public record ExportRequest(String path, String format, Boolean vectors, Boolean overwrite) {}
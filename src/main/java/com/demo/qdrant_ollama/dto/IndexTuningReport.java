@@ -0,0 +1,12 @@
+package com.demo.qdrant_ollama.dto;
+
+import java.util.List;
+
+// recommended: cheapest candidate reaching the target recall, or the one with the best recall if none does
+// applied: whether the recommended value is now used by all searches (until restart)
+public record IndexTuningReport(String provider, String searchParam, int sampleSize, int k, double targetRecall,
+                                long exactSearchTimeMs, List<Candidate> candidates, int recommended, int previous,
+                                boolean applied) {
+
+    public record Candidate(int value, double recall, double p50Ms, double p95Ms) {}
+}
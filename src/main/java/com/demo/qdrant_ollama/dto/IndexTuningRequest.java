@@ -0,0 +1,4 @@
+package com.demo.qdrant_ollama.dto;
+
+// all fields are optional: 100 sampled queries, recall@10, target recall 0.95, report only (apply=false)
+public record IndexTuningRequest(Integer sampleSize, Integer k, Double targetRecall, Boolean apply) {}
@@ -0,0 +1,7 @@
+package com.demo.qdrant_ollama.dto;
+
+/**
+ * Source for an ingestion job. Without a {@code path} the built-in mock documents are ingested; a {@code path} is
+ * resolved against {@code ingest.dir}. {@code format} is {@code jsonl} or {@code csv} and defaults to the file extension.
+ */
+public record IngestionRequest(String path, String format) {}
@@ -0,0 +1,14 @@
+package com.demo.qdrant_ollama.dto;
+
+public record IngestionStatus(
+        String jobId,
+        String source,
+        String state,
+        long documentsIngested,
+        long chunksIngested,
+        long resumedFrom,
+        double documentsPerSecond,
+        int queueDepth,
+        long elapsedMs,
+        String error
+) {}
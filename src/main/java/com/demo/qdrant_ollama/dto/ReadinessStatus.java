@@ -0,0 +1,8 @@
+package com.demo.qdrant_ollama.dto;
+
+import java.util.Map;
+
+public record ReadinessStatus(boolean ready, Map<String, Phase> phases) {
+
+    public record Phase(String state, int progressPercent, String message) {}
+}
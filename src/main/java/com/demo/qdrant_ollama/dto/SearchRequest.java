@@ -1,3 +1,23 @@
 package com.demo.qdrant_ollama.dto;
 
-public record SearchRequest(String query, int maxResults){}
+import java.util.List;
+
+// generateAnswer: null or true generates an AI answer, false only retrieves documents (in a batch only true generates)
+// filters: optional, only documents matching all given fields are returned
+public record SearchRequest(String query, int maxResults, Boolean generateAnswer, Filters filters) {
+
+    public SearchRequest(String query, int maxResults) {
+        this(query, maxResults, null, null);
+    }
+
+    public SearchRequest(String query, int maxResults, Boolean generateAnswer) {
+        this(query, maxResults, generateAnswer, null);
+    }
+
+    public boolean answerRequested() {
+        return generateAnswer == null || generateAnswer;
+    }
+
+    // tags: matches documents carrying at least one of the tags
+    public record Filters(String category, String author, List<String> tags) {}
+}
@@ -1,9 +1,16 @@
 package com.demo.qdrant_ollama.dto;
 
 import java.util.List;
+import java.util.Map;
 
-public record SearchResponse(String query, String aiAnswer, List<DocumentResult> similarDocuments, long searchTimeMs) {
+// degraded: the answer was skipped because the LLM was saturated, aiAnswer is null
+// stageTimingsMs: time spent per search stage (embedding, vector_search, ...), null if disabled
+// promptTokens: size of the prompt sent to the chat model, null if no answer was generated (or it came from the cache)
+public record SearchResponse(String query, String aiAnswer, List<DocumentResult> similarDocuments, long searchTimeMs, boolean degraded,
+                             Map<String, Double> stageTimingsMs, Integer promptTokens) {
 
     // Statischer innerer Record für DocumentResult
-    public record DocumentResult(String id, String title, String content, String category, String author, double similarity) {}
+    // id is the parent document, chunkIndex the matching chunk of it (null for documents stored without chunk metadata)
+    public record DocumentResult(String id, String title, String content, String category, String author, double similarity,
+                                 Integer chunkIndex) {}
 }
@@ -0,0 +1,10 @@
+package com.demo.qdrant_ollama.dto;
+
+// embedded: imported chunks that carried no vector and were embedded again
+public record TransferResult(
+        String format,
+        String path,
+        long chunks,
+        long embedded,
+        long elapsedMs
+) {}
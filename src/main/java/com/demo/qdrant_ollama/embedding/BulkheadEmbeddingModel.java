@@ -0,0 +1,45 @@
+package com.demo.qdrant_ollama.embedding;
+
+import com.demo.qdrant_ollama.service.Bulkhead;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator that runs every embedding call inside a {@link Bulkhead}: calls made inside
+ * {@link IngestEmbeddings#activate()} in {@code ingestBulkhead}, all others (query embeddings) in {@code bulkhead}.
+ */
+public class BulkheadEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    private final Bulkhead bulkhead;
+
+    private final Bulkhead ingestBulkhead;
+
+    public BulkheadEmbeddingModel(EmbeddingModel delegate, Bulkhead bulkhead, Bulkhead ingestBulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+        this.ingestBulkhead = ingestBulkhead;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return bulkhead().execute(() -> delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return bulkhead().execute(() -> delegate.embed(document));
+    }
+
+    private Bulkhead bulkhead() {
+        return IngestEmbeddings.active() ? ingestBulkhead : bulkhead;
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
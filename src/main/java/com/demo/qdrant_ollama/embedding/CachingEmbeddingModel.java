@@ -0,0 +1,76 @@
+package com.demo.qdrant_ollama.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link EmbeddingModel} decorator that serves repeated inputs from an {@link EmbeddingCache} and only sends
+ * the missing texts of a request to the delegate model. Ingestion calls ({@link IngestEmbeddings#activate()}) bypass
+ * the cache: their chunks are embedded once and would only evict the query embeddings.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    private final EmbeddingCache cache;
+
+    private final String defaultModel;
+
+    public CachingEmbeddingModel(EmbeddingModel delegate, EmbeddingCache cache, String defaultModel) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.defaultModel = defaultModel;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        if (IngestEmbeddings.active()) {
+            return delegate.call(request);
+        }
+        String model = request.getOptions() != null && request.getOptions().getModel() != null
+                ? request.getOptions().getModel()
+                : defaultModel;
+        List<String> texts = request.getInstructions();
+
+        float[][] vectors = new float[texts.size()][];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            vectors[i] = cache.get(model, texts.get(i));
+            if (vectors[i] == null) {
+                missing.add(i);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<String> missingTexts = missing.stream().map(texts::get).toList();
+            List<Embedding> computed = delegate.call(new EmbeddingRequest(missingTexts, request.getOptions())).getResults();
+            for (int j = 0; j < computed.size(); j++) {
+                float[] vector = computed.get(j).getOutput();
+                vectors[missing.get(j)] = vector;
+                cache.put(model, missingTexts.get(j), vector);
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,195 @@
+package com.demo.qdrant_ollama.embedding;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link EmbeddingModel} decorator that coalesces concurrent single-text requests (the query embeddings of
+ * searches) into one batched call to the delegate, so Ollama pays one round trip and one model invocation for
+ * all of them.
+ * <p>
+ * The first caller of a batch becomes its leader: it waits up to {@code window} for others to join, or until
+ * the batch holds {@code maxBatchSize} texts, then embeds the batch on its own thread and hands each caller its
+ * vector. Requests with several texts, explicit options or made inside {@link IngestEmbeddings#activate()} are
+ * passed through unchanged.
+ * <p>
+ * Texts per delegate call are recorded as {@code embedding.batch.size}, the time each text waited for its
+ * batch to be sent as {@code embedding.batch.wait}.
+ */
+public class CoalescingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition batchFull = lock.newCondition();
+
+    private final DistributionSummary batchSize;
+
+    private final Timer batchWait;
+
+    // the batch new texts join, null until the next text arrives
+    private Batch open;
+
+    public CoalescingEmbeddingModel(EmbeddingModel delegate, Duration window, int maxBatchSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSize = DistributionSummary.builder("embedding.batch.size")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.batchWait = Timer.builder("embedding.batch.wait")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        // an ingestion call leading a batch would take the queries along into the ingestion bulkhead
+        if (request.getInstructions().size() != 1 || !hasDefaultOptions(request.getOptions()) || IngestEmbeddings.active()) {
+            return delegate.call(request);
+        }
+        float[] vector = embedCoalesced(request.getInstructions().getFirst(), request.getOptions());
+        return new EmbeddingResponse(List.of(new Embedding(vector, 0)));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private float[] embedCoalesced(String text, EmbeddingOptions options) {
+        Batch batch;
+        CompletableFuture<float[]> result;
+        boolean leader = false;
+        lock.lock();
+        try {
+            if (open == null) {
+                open = new Batch(options);
+                leader = true;
+            }
+            batch = open;
+            result = batch.add(text);
+            if (batch.size() >= maxBatchSize) {
+                open = null;
+                batchFull.signalAll();
+            }
+            if (leader) {
+                awaitBatch(batch);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (leader) {
+            send(batch);
+        }
+        return await(result);
+    }
+
+    // called with the lock held; closes the batch once the window has passed or it was filled up
+    private void awaitBatch(Batch batch) {
+        long remaining = windowNanos;
+        try {
+            while (open == batch && remaining > 0) {
+                remaining = batchFull.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            // send what was collected, the callers who joined are waiting for it
+            Thread.currentThread().interrupt();
+        }
+        if (open == batch) {
+            open = null;
+        }
+    }
+
+    private void send(Batch batch) {
+        long sentAt = System.nanoTime();
+        for (long enqueuedAt : batch.enqueuedAt) {
+            batchWait.record(sentAt - enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(batch.size());
+        try {
+            List<Embedding> results = delegate.call(new EmbeddingRequest(batch.texts, batch.options)).getResults();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.results.get(i).complete(results.get(i).getOutput());
+            }
+        } catch (RuntimeException | Error e) {
+            batch.results.forEach(result -> result.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    private static float[] await(CompletableFuture<float[]> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Embedding failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the embedding", e);
+        }
+    }
+
+    private static boolean hasDefaultOptions(EmbeddingOptions options) {
+        return options == null || (options.getModel() == null && options.getDimensions() == null);
+    }
+
+    private static final class Batch {
+
+        private final EmbeddingOptions options;
+
+        private final List<String> texts = new ArrayList<>();
+
+        private final List<Long> enqueuedAt = new ArrayList<>();
+
+        private final List<CompletableFuture<float[]>> results = new ArrayList<>();
+
+        private Batch(EmbeddingOptions options) {
+            this.options = options;
+        }
+
+        private CompletableFuture<float[]> add(String text) {
+            CompletableFuture<float[]> result = new CompletableFuture<>();
+            texts.add(text);
+            enqueuedAt.add(System.nanoTime());
+            results.add(result);
+            return result;
+        }
+
+        private int size() {
+            return texts.size();
+        }
+    }
+}
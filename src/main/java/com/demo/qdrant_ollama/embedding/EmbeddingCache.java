@@ -0,0 +1,241 @@
+package com.demo.qdrant_ollama.embedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Size and TTL bounded LRU cache of embedding vectors, keyed by model name and normalized input text.
+ * <p>
+ * Vectors are kept as plain {@code float[]} (4 bytes per dimension, no boxing) and can be persisted to a
+ * memory-mapped file on shutdown, so a restarted instance starts with a warm cache.
+ */
+@Component
+public class EmbeddingCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingCache.class);
+
+    private static final int FILE_MAGIC = 0x454D4243; // "EMBC"
+
+    private static final int FILE_VERSION = 1;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final boolean enabled;
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    private final Path persistenceFile;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter sizeEvictions;
+
+    private final Counter expiredEvictions;
+
+    @Autowired
+    public EmbeddingCache(@Value("${embedding.cache.enabled:true}") boolean enabled,
+                          @Value("${embedding.cache.max-entries:10000}") int maxEntries,
+                          @Value("${embedding.cache.ttl:24h}") Duration ttl,
+                          @Value("${embedding.cache.persistence-file:}") String persistenceFile,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.persistenceFile = persistenceFile.isBlank() ? null : Path.of(persistenceFile);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > EmbeddingCache.this.maxEntries) {
+                    sizeEvictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = Counter.builder("embedding.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("embedding.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.sizeEvictions = Counter.builder("embedding.cache.evictions").tag("cause", "size").register(meterRegistry);
+        this.expiredEvictions = Counter.builder("embedding.cache.evictions").tag("cause", "expired").register(meterRegistry);
+        Gauge.builder("embedding.cache.size", this, EmbeddingCache::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached vector or {@code null}. The returned array is shared with the cache and must not be modified.
+     */
+    public float[] get(String model, String text) {
+        String key = key(model, text);
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && isExpired(entry, now)) {
+                entries.remove(key);
+                expiredEvictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.vector();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String model, String text, float[] vector) {
+        put(key(model, text), new Entry(vector, System.currentTimeMillis()));
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        lock.lock();
+        try {
+            entries.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAtMillis() > ttlMillis;
+    }
+
+    static String key(String model, String text) {
+        String normalized = WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFKC).strip()).replaceAll(" ");
+        return model + '\n' + normalized;
+    }
+
+    @PostConstruct
+    void load() {
+        if (!enabled || persistenceFile == null || !Files.exists(persistenceFile)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (FileChannel channel = FileChannel.open(persistenceFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+                logger.warn("Ignoring embedding cache file '{}' with unknown format", persistenceFile);
+                return;
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] keyBytes = new byte[buffer.getInt()];
+                buffer.get(keyBytes);
+                long createdAt = buffer.getLong();
+                float[] vector = new float[buffer.getInt()];
+                buffer.asFloatBuffer().get(vector);
+                buffer.position(buffer.position() + vector.length * Float.BYTES);
+
+                Entry entry = new Entry(vector, createdAt);
+                if (!isExpired(entry, now)) {
+                    put(new String(keyBytes, StandardCharsets.UTF_8), entry);
+                    loaded++;
+                }
+            }
+            logger.info("Loaded {} cached embeddings from '{}'", loaded, persistenceFile);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load embedding cache from '{}', starting cold", persistenceFile, e);
+        }
+    }
+
+    @PreDestroy
+    void persist() {
+        if (!enabled || persistenceFile == null) {
+            return;
+        }
+        List<Map.Entry<byte[], Entry>> snapshot = new ArrayList<>();
+        long size = 3L * Integer.BYTES;
+        lock.lock();
+        try {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                byte[] keyBytes = e.getKey().getBytes(StandardCharsets.UTF_8);
+                snapshot.add(Map.entry(keyBytes, e.getValue()));
+                size += Integer.BYTES + keyBytes.length + Long.BYTES + Integer.BYTES + (long) e.getValue().vector().length * Float.BYTES;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            Path parent = persistenceFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, persistenceFile.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(snapshot.size());
+                for (Map.Entry<byte[], Entry> e : snapshot) {
+                    float[] vector = e.getValue().vector();
+                    buffer.putInt(e.getKey().length).put(e.getKey()).putLong(e.getValue().createdAtMillis()).putInt(vector.length);
+                    buffer.asFloatBuffer().put(vector);
+                    buffer.position(buffer.position() + vector.length * Float.BYTES);
+                }
+                buffer.force();
+            }
+            Files.move(tmp, persistenceFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Persisted {} cached embeddings to '{}'", snapshot.size(), persistenceFile);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to persist embedding cache to '{}'", persistenceFile, e);
+        }
+    }
+
+    private record Entry(float[] vector, long createdAtMillis) {
+    }
+}
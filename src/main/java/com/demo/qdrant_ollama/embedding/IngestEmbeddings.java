@@ -0,0 +1,36 @@
+package com.demo.qdrant_ollama.embedding;
+
+/**
+ * Marks the embedding calls made inside {@link #activate()} as bulk ingestion, so {@link BulkheadEmbeddingModel}
+ * runs them in the ingestion bulkhead and {@link CoalescingEmbeddingModel} keeps them out of query batches.
+ * A large ingest then queues behind its own limit instead of filling the one searches embed through.
+ */
+public final class IngestEmbeddings {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private IngestEmbeddings() {
+    }
+
+    public static Scope activate() {
+        Boolean previous = ACTIVE.get();
+        ACTIVE.set(Boolean.TRUE);
+        return () -> {
+            if (previous != null) {
+                ACTIVE.set(previous);
+            } else {
+                ACTIVE.remove();
+            }
+        };
+    }
+
+    static boolean active() {
+        return ACTIVE.get() != null;
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,51 @@
+package com.demo.qdrant_ollama.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link EmbeddingModel} decorator that answers from {@link PrecomputedEmbeddings} when every text of a request
+ * has been embedded ahead of time, so {@code VectorStore.similaritySearch} does not embed the query again.
+ */
+public class PrecomputedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    public PrecomputedEmbeddingModel(EmbeddingModel delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            float[] vector = PrecomputedEmbeddings.lookup(texts.get(i));
+            if (vector == null) {
+                EmbeddingResponse response = delegate.call(request);
+                for (int j = 0; j < texts.size(); j++) {
+                    PrecomputedEmbeddings.remember(texts.get(j), response.getResults().get(j).getOutput());
+                }
+                return response;
+            }
+            embeddings.add(new Embedding(vector, i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
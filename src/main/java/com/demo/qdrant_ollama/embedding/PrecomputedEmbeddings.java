@@ -0,0 +1,67 @@
+package com.demo.qdrant_ollama.embedding;
+
+import java.util.Map;
+
+/**
+ * Query embeddings computed ahead of time (e.g. in one batched call for a batch search), made visible to
+ * {@link PrecomputedEmbeddingModel} for the code running inside {@link #activate(Map)}. Inside {@link #record(Map)},
+ * embeddings computed by the model are added as well, so writing the same documents twice embeds them once.
+ */
+public final class PrecomputedEmbeddings {
+
+    private static final ThreadLocal<Active> CURRENT = new ThreadLocal<>();
+
+    private PrecomputedEmbeddings() {
+    }
+
+    public static Scope activate(Map<String, float[]> embeddings) {
+        return open(embeddings, false);
+    }
+
+    /**
+     * Embeddings of an enclosing scope stay visible.
+     *
+     * @param embeddings mutable, receives every embedding computed inside the scope
+     */
+    public static Scope record(Map<String, float[]> embeddings) {
+        return open(embeddings, true);
+    }
+
+    private static Scope open(Map<String, float[]> embeddings, boolean recording) {
+        Active previous = CURRENT.get();
+        CURRENT.set(new Active(embeddings, recording, recording ? previous : null));
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    static float[] lookup(String text) {
+        for (Active active = CURRENT.get(); active != null; active = active.enclosing()) {
+            float[] vector = active.embeddings().get(text);
+            if (vector != null) {
+                return vector;
+            }
+        }
+        return null;
+    }
+
+    static void remember(String text, float[] vector) {
+        Active active = CURRENT.get();
+        if (active != null && active.recording()) {
+            active.embeddings().put(text, vector);
+        }
+    }
+
+    private record Active(Map<String, float[]> embeddings, boolean recording, Active enclosing) {
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,38 @@
+package com.demo.qdrant_ollama.embedding;
+
+import com.demo.qdrant_ollama.service.DownstreamResilience;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator that retries failed embedding calls and stops calling Ollama while its
+ * circuit breaker is open, see {@link DownstreamResilience}. Embedding the same text twice is harmless.
+ */
+public class ResilientEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    private final DownstreamResilience resilience;
+
+    public ResilientEmbeddingModel(EmbeddingModel delegate, DownstreamResilience resilience) {
+        this.delegate = delegate;
+        this.resilience = resilience;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return resilience.embeddingRead(() -> delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return resilience.embeddingRead(() -> delegate.embed(document));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,47 @@
+package com.demo.qdrant_ollama.embedding;
+
+import com.demo.qdrant_ollama.service.SearchMetrics;
+import com.demo.qdrant_ollama.service.SearchTrace;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator that attributes embedding time to the search that triggered it. Calls made
+ * outside a search (ingestion) are passed through untimed so they don't skew the query embedding stage.
+ */
+public class TimedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    private final SearchMetrics metrics;
+
+    public TimedEmbeddingModel(EmbeddingModel delegate, SearchMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        SearchTrace trace = SearchTrace.current();
+        if (trace == null) {
+            return delegate.call(request);
+        }
+        return metrics.time(trace, SearchMetrics.EMBEDDING, () -> delegate.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        SearchTrace trace = SearchTrace.current();
+        if (trace == null) {
+            return delegate.embed(document);
+        }
+        return metrics.time(trace, SearchMetrics.EMBEDDING, () -> delegate.embed(document));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,173 @@
+package com.demo.qdrant_ollama.export;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the chunks written by {@link ChunkWriter} one at a time, so an import of any size needs constant memory.
+ * Malformed or truncated input is reported as an {@link IllegalArgumentException}.
+ */
+public abstract class ChunkReader implements Iterator<StoredChunk>, Closeable {
+
+    protected final ObjectMapper objectMapper;
+
+    private StoredChunk next;
+
+    protected ChunkReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public static ChunkReader open(InputStream in, ChunkFormat format, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case NDJSON -> new JsonLines(in, objectMapper);
+            case BINARY -> new Binary(in, objectMapper);
+        };
+    }
+
+    /**
+     * Returns the next chunk or {@code null} at the end of the input.
+     */
+    protected abstract StoredChunk read() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public StoredChunk next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        StoredChunk chunk = next;
+        next = null;
+        return chunk;
+    }
+
+    private static final class JsonLines extends ChunkReader {
+
+        private final BufferedReader reader;
+
+        private long line;
+
+        JsonLines(InputStream in, ObjectMapper objectMapper) {
+            super(objectMapper);
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        @Override
+        protected StoredChunk read() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+            try {
+                return objectMapper.readValue(text, StoredChunk.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed chunk on line " + line + ": " + e.getOriginalMessage(), e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class Binary extends ChunkReader {
+
+        private final DataInputStream in;
+
+        private byte[] vectorBytes = new byte[4096];
+
+        Binary(InputStream in, ObjectMapper objectMapper) throws IOException {
+            super(objectMapper);
+            this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            try {
+                if (this.in.readInt() != ChunkFormat.BINARY_MAGIC) {
+                    throw new IllegalArgumentException("Not a binary chunk export");
+                }
+                int version = this.in.readInt();
+                if (version != ChunkFormat.BINARY_VERSION) {
+                    throw new IllegalArgumentException("Unsupported binary chunk export version " + version);
+                }
+            } catch (EOFException e) {
+                this.in.close();
+                throw new IllegalArgumentException("Not a binary chunk export", e);
+            } catch (IOException | IllegalArgumentException e) {
+                this.in.close();
+                throw e;
+            }
+        }
+
+        @Override
+        protected StoredChunk read() throws IOException {
+            try {
+                if (in.readByte() == 0) {
+                    return null;
+                }
+                String id = readString();
+                String content = readString();
+                Map<String, Object> metadata = objectMapper.readValue(readString(), new TypeReference<>() {
+                });
+                int dimensions = in.readInt();
+                float[] vector = null;
+                if (dimensions > 0) {
+                    if (vectorBytes.length < dimensions * Float.BYTES) {
+                        vectorBytes = new byte[dimensions * Float.BYTES];
+                    }
+                    in.readFully(vectorBytes, 0, dimensions * Float.BYTES);
+                    vector = new float[dimensions];
+                    ByteBuffer.wrap(vectorBytes, 0, dimensions * Float.BYTES).asFloatBuffer().get(vector);
+                }
+                return new StoredChunk(id, content, metadata, vector);
+            } catch (EOFException e) {
+                throw new IllegalArgumentException("Binary chunk export is truncated", e);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed chunk metadata: " + e.getOriginalMessage(), e);
+            }
+        }
+
+        private String readString() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                throw new IllegalArgumentException("Malformed binary chunk export");
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
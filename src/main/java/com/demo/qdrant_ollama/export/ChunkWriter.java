@@ -0,0 +1,112 @@
+package com.demo.qdrant_ollama.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes chunks one at a time in a {@link ChunkFormat}, so an export holds no more than one chunk in memory.
+ * {@link #finish()} marks the export complete; a writer closed without it leaves a binary export detectably
+ * truncated.
+ */
+public abstract class ChunkWriter implements Closeable {
+
+    protected final DataOutputStream out;
+
+    protected final ObjectMapper objectMapper;
+
+    private long written;
+
+    protected ChunkWriter(OutputStream out, ObjectMapper objectMapper) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.objectMapper = objectMapper;
+    }
+
+    public static ChunkWriter open(OutputStream out, ChunkFormat format, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case NDJSON -> new JsonLines(out, objectMapper);
+            case BINARY -> new Binary(out, objectMapper);
+        };
+    }
+
+    public void write(StoredChunk chunk) throws IOException {
+        writeChunk(chunk);
+        written++;
+    }
+
+    protected abstract void writeChunk(StoredChunk chunk) throws IOException;
+
+    public long written() {
+        return written;
+    }
+
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private static final class JsonLines extends ChunkWriter {
+
+        JsonLines(OutputStream out, ObjectMapper objectMapper) {
+            super(out, objectMapper);
+        }
+
+        @Override
+        protected void writeChunk(StoredChunk chunk) throws IOException {
+            out.write(objectMapper.writeValueAsBytes(chunk));
+            out.write('\n');
+        }
+    }
+
+    private static final class Binary extends ChunkWriter {
+
+        private ByteBuffer vectorBytes = ByteBuffer.allocate(4096);
+
+        Binary(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            super(out, objectMapper);
+            this.out.writeInt(ChunkFormat.BINARY_MAGIC);
+            this.out.writeInt(ChunkFormat.BINARY_VERSION);
+        }
+
+        @Override
+        protected void writeChunk(StoredChunk chunk) throws IOException {
+            out.writeByte(1);
+            writeString(chunk.id());
+            writeString(chunk.content());
+            writeString(objectMapper.writeValueAsString(chunk.metadata()));
+            float[] vector = chunk.vector();
+            int dimensions = vector != null ? vector.length : 0;
+            out.writeInt(dimensions);
+            if (dimensions > 0) {
+                if (vectorBytes.capacity() < dimensions * Float.BYTES) {
+                    vectorBytes = ByteBuffer.allocate(dimensions * Float.BYTES);
+                }
+                vectorBytes.clear();
+                vectorBytes.asFloatBuffer().put(vector);
+                out.write(vectorBytes.array(), 0, dimensions * Float.BYTES);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.writeByte(0);
+            super.finish();
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
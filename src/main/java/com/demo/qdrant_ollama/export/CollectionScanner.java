@@ -0,0 +1,227 @@
+package com.demo.qdrant_ollama.export;
+
+import com.demo.qdrant_ollama.vectorstore.EmbeddedHnswVectorStore;
+import com.demo.qdrant_ollama.vectorstore.QdrantPayloads;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.milvus.client.MilvusClient;
+import io.milvus.orm.iterator.QueryIterator;
+import io.milvus.param.R;
+import io.milvus.param.dml.QueryIteratorParam;
+import io.milvus.response.QueryResultsWrapper;
+import io.qdrant.client.ConditionFactory;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.WithPayloadSelectorFactory;
+import io.qdrant.client.WithVectorsSelectorFactory;
+import io.qdrant.client.grpc.Points;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the whole {@code documents} collection, or the chunks of some documents, page by page through the
+ * backend's own cursor (Qdrant scroll, Milvus query iterator), so a full scan holds one page in memory whatever
+ * the size of the collection.
+ */
+@Component
+public class CollectionScanner {
+
+    private static final String COLLECTION_NAME = "documents";
+
+    private static final String MILVUS_VECTOR_FIELD = "embedding";
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${export.page-size:1000}")
+    private int pageSize;
+
+    @Autowired
+    public CollectionScanner(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @FunctionalInterface
+    public interface PageHandler {
+
+        void accept(List<StoredChunk> page) throws Exception;
+    }
+
+    public boolean supports(VectorStore store) {
+        return store.getNativeClient().isPresent() && (store.getNativeClient().get() instanceof QdrantClient
+                || store.getNativeClient().get() instanceof MilvusClient
+                || store.getNativeClient().get() instanceof EmbeddedHnswVectorStore);
+    }
+
+    /**
+     * Hands every stored chunk, with its vector if {@code withVectors}, to {@code handler} in pages.
+     *
+     * @return the number of chunks read
+     * @throws IllegalArgumentException if the store is not {@link #supports(VectorStore) supported}
+     */
+    public long scan(VectorStore store, boolean withVectors, PageHandler handler) throws Exception {
+        return scan(store, null, withVectors, handler);
+    }
+
+    /**
+     * Like {@link #scan(VectorStore, boolean, PageHandler)}, but only reads the chunks whose {@code docId} is one of
+     * {@code docIds}, filtered by the backend; {@code null} reads every chunk.
+     */
+    public long scan(VectorStore store, Collection<String> docIds, boolean withVectors, PageHandler handler) throws Exception {
+        if (docIds != null && docIds.isEmpty()) {
+            return 0;
+        }
+        if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof QdrantClient qdrantClient) {
+            return scanQdrant(qdrantClient, docIds, withVectors, handler);
+        } else if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof MilvusClient milvusClient) {
+            return scanMilvus(milvusClient, docIds, withVectors, handler);
+        } else if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof EmbeddedHnswVectorStore embeddedStore) {
+            return scanEmbedded(embeddedStore, docIds, withVectors, handler);
+        }
+        throw new IllegalArgumentException("Scanning is not supported for " + store.getName());
+    }
+
+    private long scanQdrant(QdrantClient client, Collection<String> docIds, boolean withVectors, PageHandler handler) throws Exception {
+        Points.ScrollPoints.Builder request = Points.ScrollPoints.newBuilder()
+                .setCollectionName(COLLECTION_NAME)
+                .setLimit(pageSize)
+                .setWithPayload(WithPayloadSelectorFactory.enable(true))
+                .setWithVectors(WithVectorsSelectorFactory.enable(withVectors));
+        if (docIds != null) {
+            request.setFilter(Points.Filter.newBuilder().addMust(ConditionFactory.matchKeywords("docId", List.copyOf(docIds))));
+        }
+        long scanned = 0;
+        while (true) {
+            Points.ScrollResponse response = client.scrollAsync(request.build()).get();
+            List<StoredChunk> page = new ArrayList<>(response.getResultCount());
+            for (Points.RetrievedPoint point : response.getResultList()) {
+                Document document = QdrantPayloads.toDocument(point.getId().getUuid(), point.getPayloadMap(), null);
+                page.add(StoredChunk.of(document, withVectors ? toArray(point.getVectors().getVector().getDataList()) : null));
+            }
+            if (!page.isEmpty()) {
+                handler.accept(page);
+                scanned += page.size();
+            }
+            if (!response.hasNextPageOffset()) {
+                return scanned;
+            }
+            request.setOffset(response.getNextPageOffset());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long scanMilvus(MilvusClient client, Collection<String> docIds, boolean withVectors, PageHandler handler) throws Exception {
+        List<String> fields = withVectors
+                ? List.of("doc_id", "content", "metadata", MILVUS_VECTOR_FIELD)
+                : List.of("doc_id", "content", "metadata");
+        R<QueryIterator> iteratorResponse = client.queryIterator(QueryIteratorParam.newBuilder()
+                .withCollectionName(COLLECTION_NAME)
+                .withExpr(docIds != null ? "metadata[\"docId\"] in " + milvusStringList(docIds) : "doc_id != ''")
+                .withOutFields(fields)
+                .withBatchSize((long) pageSize)
+                .build());
+        if (iteratorResponse.getException() != null) {
+            throw iteratorResponse.getException();
+        }
+        QueryIterator iterator = iteratorResponse.getData();
+        long scanned = 0;
+        try {
+            List<QueryResultsWrapper.RowRecord> records;
+            while (!(records = iterator.next()).isEmpty()) {
+                List<StoredChunk> page = new ArrayList<>(records.size());
+                for (QueryResultsWrapper.RowRecord record : records) {
+                    float[] vector = withVectors ? toArray((List<Float>) record.get(MILVUS_VECTOR_FIELD)) : null;
+                    page.add(new StoredChunk(record.get("doc_id").toString(), String.valueOf(record.get("content")),
+                            parseMilvusMetadata(record.get("metadata")), vector));
+                }
+                handler.accept(page);
+                scanned += page.size();
+            }
+        } finally {
+            iterator.close();
+        }
+        return scanned;
+    }
+
+    private long scanEmbedded(EmbeddedHnswVectorStore store, Collection<String> docIds, boolean withVectors, PageHandler handler)
+            throws Exception {
+        Set<String> wanted = docIds != null ? Set.copyOf(docIds) : null;
+        List<StoredChunk> page = new ArrayList<>(pageSize);
+        long[] scanned = {0};
+        try {
+            store.forEach(withVectors, (document, vector) -> {
+                if (wanted != null && !wanted.contains(String.valueOf(document.getMetadata().get("docId")))) {
+                    return;
+                }
+                page.add(StoredChunk.of(document, vector));
+                if (page.size() == pageSize) {
+                    scanned[0] += flush(handler, page);
+                }
+            });
+        } catch (HandlerFailedException e) {
+            throw e.getCause();
+        }
+        if (!page.isEmpty()) {
+            handler.accept(page);
+            scanned[0] += page.size();
+        }
+        return scanned[0];
+    }
+
+    private static int flush(PageHandler handler, List<StoredChunk> page) {
+        try {
+            handler.accept(List.copyOf(page));
+        } catch (Exception e) {
+            throw new HandlerFailedException(e);
+        }
+        int flushed = page.size();
+        page.clear();
+        return flushed;
+    }
+
+    private Map<String, Object> parseMilvusMetadata(Object value) throws Exception {
+        if (value == null) {
+            return Map.of();
+        }
+        String json = value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : value.toString();
+        return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+        });
+    }
+
+    private static String milvusStringList(Collection<String> values) {
+        return new HashSet<>(values).stream()
+                .map(value -> "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private static float[] toArray(List<Float> values) {
+        float[] vector = new float[values.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = values.get(i);
+        }
+        return vector;
+    }
+
+    // carries a page handler's exception out of the store's visitor
+    private static final class HandlerFailedException extends RuntimeException {
+
+        private HandlerFailedException(Exception cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.demo.qdrant_ollama.export;
+
+import com.demo.qdrant_ollama.dto.TransferResult;
+import com.demo.qdrant_ollama.embedding.PrecomputedEmbeddings;
+import com.demo.qdrant_ollama.lexical.LexicalIndex;
+import com.demo.qdrant_ollama.service.DocumentsChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the collection as a stream of {@link StoredChunk}s and loads such an export back.
+ * <p>
+ * An export pages through the collection with {@link CollectionScanner} and writes each chunk as it is read, so
+ * memory use does not grow with the collection. It is not a point-in-time snapshot: chunks written while it runs
+ * may or may not be included. An import writes batches of {@code export.import-batch-size} chunks through the
+ * vector store; a chunk that carries a vector is stored with it instead of being embedded again, one without (an
+ * export made with {@code vectors=false}, e.g. to re-index with another embedding model) is embedded.
+ * <p>
+ * Files on the server are only read and written inside {@code export.dir}; see {@link #resolve(String)}.
+ */
+@Service
+public class CollectionTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CollectionTransferService.class);
+
+    private final VectorStore vectorStore;
+
+    private final CollectionScanner collectionScanner;
+
+    private final LexicalIndex lexicalIndex;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${export.import-batch-size:256}")
+    private int importBatchSize;
+
+    @Value("${export.dir:exports}")
+    private Path exportDir;
+
+    @Autowired
+    public CollectionTransferService(@Qualifier("customVectorStore") VectorStore vectorStore, CollectionScanner collectionScanner,
+                                     LexicalIndex lexicalIndex, ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
+        this.vectorStore = vectorStore;
+        this.collectionScanner = collectionScanner;
+        this.lexicalIndex = lexicalIndex;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Writes every stored chunk to {@code out} and closes it.
+     *
+     * @return the number of chunks written
+     */
+    public long export(OutputStream out, ChunkFormat format, boolean withVectors) throws Exception {
+        long startTime = System.currentTimeMillis();
+        try (ChunkWriter writer = ChunkWriter.open(out, format, objectMapper)) {
+            collectionScanner.scan(vectorStore, withVectors, page -> {
+                for (StoredChunk chunk : page) {
+                    writer.write(chunk);
+                }
+            });
+            writer.finish();
+            logger.info("Exported {} chunks as {} in {} ms", writer.written(), format, System.currentTimeMillis() - startTime);
+            return writer.written();
+        }
+    }
+
+    /**
+     * Resolves a file name given by a client against {@code export.dir}.
+     *
+     * @throws IllegalArgumentException if the path leads outside {@code export.dir}, e.g. through {@code ..}, an
+     *                                  absolute path or a symbolic link
+     */
+    public Path resolve(String path) throws IOException {
+        Path dir = exportDir.toAbsolutePath().normalize();
+        Path resolved = dir.resolve(path).normalize();
+        if (!resolved.startsWith(dir) || resolved.equals(dir)) {
+            throw new IllegalArgumentException("Path '" + path + "' is outside of export.dir");
+        }
+        if (Files.exists(dir)) {
+            // a symbolic link inside the directory must not lead out of it either
+            Path existing = resolved;
+            while (!Files.exists(existing)) {
+                existing = existing.getParent();
+            }
+            if (!existing.toRealPath().startsWith(dir.toRealPath())) {
+                throw new IllegalArgumentException("Path '" + path + "' is outside of export.dir");
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Writes the export to {@code path}, replacing an existing file only if {@code overwrite} is set.
+     *
+     * @throws FileAlreadyExistsException if the file exists and {@code overwrite} is not set
+     */
+    public TransferResult exportToFile(Path path, ChunkFormat format, boolean withVectors, boolean overwrite) throws Exception {
+        long startTime = System.currentTimeMillis();
+        if (!overwrite && Files.exists(path)) {
+            throw new FileAlreadyExistsException(path.toString());
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // written next to the target and moved into place, so a failed export never replaces a complete one
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            long chunks = export(Files.newOutputStream(tmp), format, withVectors);
+            if (overwrite) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                // fails if the file was created while the export ran
+                Files.move(tmp, path);
+            }
+            return new TransferResult(format.name().toLowerCase(), path.toString(), chunks, 0, System.currentTimeMillis() - startTime);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Stores every chunk read from {@code in}, replacing stored chunks with the same id, and closes it.
+     */
+    public TransferResult importFrom(InputStream in, ChunkFormat format, String source) throws Exception {
+        long startTime = System.currentTimeMillis();
+        long imported = 0;
+        long embedded = 0;
+        try (ChunkReader reader = ChunkReader.open(in, format, objectMapper)) {
+            List<StoredChunk> batch = new ArrayList<>(importBatchSize);
+            while (reader.hasNext()) {
+                batch.add(reader.next());
+                if (batch.size() == importBatchSize || !reader.hasNext()) {
+                    embedded += write(batch);
+                    imported += batch.size();
+                    batch.clear();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (imported > 0) {
+                eventPublisher.publishEvent(new DocumentsChangedEvent("imported " + imported + " chunks"));
+            }
+        }
+        logger.info("Imported {} chunks ({} embedded) from {} in {} ms", imported, embedded, source, System.currentTimeMillis() - startTime);
+        return new TransferResult(format.name().toLowerCase(), source, imported, embedded, System.currentTimeMillis() - startTime);
+    }
+
+    public TransferResult importFromFile(Path path, ChunkFormat format) throws Exception {
+        return importFrom(Files.newInputStream(path), format, path.toString());
+    }
+
+    /**
+     * @return the number of chunks that had to be embedded
+     */
+    private int write(List<StoredChunk> batch) {
+        List<Document> documents = new ArrayList<>(batch.size());
+        List<String> ids = new ArrayList<>(batch.size());
+        Map<String, float[]> vectors = new HashMap<>();
+        int withoutVector = 0;
+        for (StoredChunk chunk : batch) {
+            documents.add(chunk.toDocument());
+            ids.add(chunk.id());
+            if (chunk.vector() != null) {
+                vectors.put(chunk.content(), chunk.vector());
+            } else {
+                withoutVector++;
+            }
+        }
+        // Milvus inserts rather than upserts, so chunks that are already stored are removed first
+        vectorStore.delete(ids);
+        // the vector store embeds through PrecomputedEmbeddingModel, which hands back the imported vectors
+        try (PrecomputedEmbeddings.Scope scope = PrecomputedEmbeddings.activate(vectors)) {
+            vectorStore.add(documents);
+        }
+        lexicalIndex.upsert(documents);
+        return withoutVector;
+    }
+}
@@ -0,0 +1,22 @@
+package com.demo.qdrant_ollama.export;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.ai.document.Document;
+
+import java.util.Map;
+
+/**
+ * One chunk as stored in the collection: id, text and metadata as written by the vector store, plus its vector
+ * when it was exported with one ({@code null} otherwise).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StoredChunk(String id, String content, Map<String, Object> metadata, float[] vector) {
+
+    public static StoredChunk of(Document document, float[] vector) {
+        return new StoredChunk(document.getId(), document.getText(), document.getMetadata(), vector);
+    }
+
+    public Document toDocument() {
+        return new Document(id, content, metadata != null ? metadata : Map.of());
+    }
+}
@@ -0,0 +1,136 @@
+package com.demo.qdrant_ollama.ingest;
+
+import com.demo.qdrant_ollama.model.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Splits documents into overlapping chunks and converts them into Spring AI documents.
+ * <p>
+ * Chunk IDs are derived from the document ID and chunk index, so writing a new version of a document overwrites
+ * the chunks it has in common with the old one. That alone would leave the old chunks past the end of a shorter
+ * version behind: it is {@link com.demo.qdrant_ollama.service.DocumentSyncService}, through which every write goes,
+ * that deletes them and so guarantees no stale or duplicate chunks. The original document ID is kept in the
+ * {@code docId} metadata and a hash of the document content in {@code contentHash}, which lets a sync skip
+ * unchanged documents. Tags are stored as a list so they can be filtered on one by one.
+ */
+@Component
+public class DocumentChunker {
+
+    // bump when the stored chunk layout changes, so existing documents are rewritten on the next sync
+    // v2: tags are stored as a list instead of a comma separated string
+    public static final String CONTENT_HASH_VERSION = "v2";
+
+    private final int chunkSize;
+
+    private final int chunkOverlap;
+
+    @Autowired
+    public DocumentChunker(@Value("${ingest.chunk-size:2000}") int chunkSize,
+                           @Value("${ingest.chunk-overlap:200}") int chunkOverlap) {
+        if (chunkOverlap >= chunkSize) {
+            throw new IllegalArgumentException("ingest.chunk-overlap must be smaller than ingest.chunk-size");
+        }
+        this.chunkSize = chunkSize;
+        this.chunkOverlap = chunkOverlap;
+    }
+
+    public List<org.springframework.ai.document.Document> toAiDocuments(Document doc) {
+        String docId = docIdOf(doc);
+        String contentHash = contentHash(doc);
+        List<String> chunks = split(doc.content());
+
+        List<org.springframework.ai.document.Document> aiDocuments = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("docId", docId);
+            metadata.put("chunkIndex", i);
+            metadata.put("contentHash", contentHash);
+            metadata.put("title", doc.title());
+            metadata.put("category", doc.category());
+            metadata.put("author", doc.author());
+            metadata.put("tags", tagsOf(doc));
+            metadata.put("createdAt", (doc.createdAt() != null ? doc.createdAt() : LocalDateTime.now()).toString());
+            metadata.values().removeIf(value -> value == null);
+
+            aiDocuments.add(new org.springframework.ai.document.Document(chunkId(docId, i), chunks.get(i), metadata));
+        }
+        return aiDocuments;
+    }
+
+    /**
+     * Tags as a list, so the vector stores can filter on single tags; {@code null} if the document has none.
+     */
+    public static List<String> tagsOf(Document doc) {
+        if (doc.tags() == null) {
+            return null;
+        }
+        List<String> tags = Arrays.stream(doc.tags().split(","))
+                .map(String::strip)
+                .filter(tag -> !tag.isEmpty())
+                .toList();
+        return tags.isEmpty() ? null : tags;
+    }
+
+    public static String docIdOf(Document doc) {
+        return doc.id() != null
+                ? doc.id()
+                : UUID.nameUUIDFromBytes(doc.content().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Hash over the fields that end up in the vector store; {@code createdAt} is excluded as it is not content.
+     */
+    public static String contentHash(Document doc) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String fields = String.join("\0", CONTENT_HASH_VERSION, Objects.toString(doc.title(), ""), doc.content(),
+                    Objects.toString(doc.category(), ""), Objects.toString(doc.author(), ""), Objects.toString(doc.tags(), ""));
+            return HexFormat.of().formatHex(digest.digest(fields.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String chunkId(String docId, int chunkIndex) {
+        return UUID.nameUUIDFromBytes((docId + "#" + chunkIndex).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    List<String> split(String content) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < content.length()) {
+            int end = Math.min(start + chunkSize, content.length());
+            if (end < content.length()) {
+                // prefer to cut at a whitespace in the second half of the window
+                int cut = content.lastIndexOf(' ', end);
+                if (cut > start + chunkSize / 2) {
+                    end = cut;
+                }
+            }
+            chunks.add(content.substring(start, end).strip());
+            if (end == content.length()) {
+                break;
+            }
+            start = Math.max(end - chunkOverlap, start + 1);
+        }
+        if (chunks.isEmpty()) {
+            chunks.add("");
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,163 @@
+package com.demo.qdrant_ollama.ingest;
+
+import com.demo.qdrant_ollama.model.Document;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads documents one at a time from a JSONL or CSV file, so arbitrarily large files can be ingested with
+ * constant memory. CSV files need a header row naming the {@link Document} fields (id, title, content,
+ * category, author, tags).
+ */
+public abstract class DocumentReader implements Iterator<Document>, Closeable {
+
+    protected final BufferedReader reader;
+
+    private Document next;
+
+    protected DocumentReader(Path path) throws IOException {
+        this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+
+    public static DocumentReader open(Path path, String format, ObjectMapper objectMapper) throws IOException {
+        String effectiveFormat = format != null ? format : path.getFileName().toString().replaceAll("^.*\\.", "");
+        return switch (effectiveFormat.toLowerCase()) {
+            case "jsonl", "ndjson" -> new JsonLines(path, objectMapper);
+            case "csv" -> new Csv(path);
+            default -> throw new IllegalArgumentException("Unsupported ingestion format: " + effectiveFormat);
+        };
+    }
+
+    /**
+     * Returns the next document or {@code null} at the end of the input.
+     */
+    protected abstract Document read() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Document document = next;
+        next = null;
+        return document;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static final class JsonLines extends DocumentReader {
+
+        private final ObjectMapper objectMapper;
+
+        JsonLines(Path path, ObjectMapper objectMapper) throws IOException {
+            super(path);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        protected Document read() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.isBlank());
+            return line != null ? objectMapper.readValue(line, Document.class) : null;
+        }
+    }
+
+    private static final class Csv extends DocumentReader {
+
+        private final List<String> header;
+
+        Csv(Path path) throws IOException {
+            super(path);
+            List<String> columns = readRecord();
+            if (columns == null) {
+                throw new IOException("CSV file " + path + " has no header row");
+            }
+            this.header = columns.stream().map(column -> column.strip().toLowerCase()).toList();
+        }
+
+        @Override
+        protected Document read() throws IOException {
+            List<String> values = readRecord();
+            if (values == null) {
+                return null;
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size() && i < values.size(); i++) {
+                row.put(header.get(i), values.get(i));
+            }
+            return new Document(row.get("id"), row.get("title"), row.getOrDefault("content", ""),
+                    row.get("category"), row.get("author"), row.get("tags"));
+        }
+
+        // RFC 4180 record: quoted fields may contain separators, doubled quotes and line breaks
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            while (c == '\r' || c == '\n') {
+                c = reader.read();
+            }
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.demo.qdrant_ollama.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.TreeMap;
+
+/**
+ * Tracks how many documents of a source have been durably ingested.
+ * <p>
+ * Batches complete out of order, so the checkpoint only advances over a contiguous prefix of finished
+ * batches. After a crash, resuming from {@link #committed()} may revisit a few batches, which is cheap
+ * because documents that are already stored unchanged are skipped without being embedded.
+ */
+final class IngestionCheckpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionCheckpoint.class);
+
+    private final Path file;
+
+    private final TreeMap<Long, Long> finishedBatches = new TreeMap<>();
+
+    private long committed;
+
+    private IngestionCheckpoint(Path file, long committed) {
+        this.file = file;
+        this.committed = committed;
+    }
+
+    static IngestionCheckpoint inMemory() {
+        return new IngestionCheckpoint(null, 0);
+    }
+
+    static IngestionCheckpoint load(Path file) {
+        try {
+            long committed = Files.exists(file) ? Long.parseLong(Files.readString(file).strip()) : 0;
+            return new IngestionCheckpoint(file, committed);
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Ignoring unreadable ingestion checkpoint '{}'", file, e);
+            return new IngestionCheckpoint(file, 0);
+        }
+    }
+
+    synchronized long committed() {
+        return committed;
+    }
+
+    /**
+     * Records that documents {@code [from, to)} have been ingested.
+     */
+    synchronized void markDone(long from, long to) {
+        finishedBatches.put(from, to);
+        long before = committed;
+        while (finishedBatches.containsKey(committed)) {
+            committed = finishedBatches.remove(committed);
+        }
+        if (committed != before) {
+            write();
+        }
+    }
+
+    synchronized void delete() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete ingestion checkpoint '{}'", file, e);
+        }
+    }
+
+    private void write() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tmp, Long.toString(committed));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write ingestion checkpoint " + file, e);
+        }
+    }
+}
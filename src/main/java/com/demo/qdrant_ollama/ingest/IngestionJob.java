@@ -0,0 +1,92 @@
+package com.demo.qdrant_ollama.ingest;
+
+import com.demo.qdrant_ollama.dto.IngestionStatus;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mutable progress of one ingestion run, shared between the reader thread and the batch workers.
+ */
+final class IngestionJob {
+
+    enum State { RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+
+    private final String source;
+
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicLong documents = new AtomicLong();
+
+    private final AtomicLong chunks = new AtomicLong();
+
+    private volatile State state = State.RUNNING;
+
+    private volatile long finishedAt;
+
+    private volatile long resumedFrom;
+
+    private volatile String error;
+
+    private volatile Queue<?> workQueue;
+
+    IngestionJob(String id, String source) {
+        this.id = id;
+        this.source = source;
+    }
+
+    String id() {
+        return id;
+    }
+
+    String source() {
+        return source;
+    }
+
+    boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    boolean isFailed() {
+        return state == State.FAILED;
+    }
+
+    void resumedFrom(long position) {
+        this.resumedFrom = position;
+    }
+
+    void workQueue(Queue<?> workQueue) {
+        this.workQueue = workQueue;
+    }
+
+    void recordBatch(int documentCount, int chunkCount) {
+        documents.addAndGet(documentCount);
+        chunks.addAndGet(chunkCount);
+    }
+
+    void complete() {
+        finish(State.COMPLETED, null);
+    }
+
+    synchronized void fail(Exception e) {
+        if (state == State.RUNNING) {
+            finish(State.FAILED, e.getMessage());
+        }
+    }
+
+    private void finish(State finalState, String errorMessage) {
+        this.error = errorMessage;
+        this.finishedAt = System.currentTimeMillis();
+        this.state = finalState;
+    }
+
+    IngestionStatus status() {
+        long elapsed = (state == State.RUNNING ? System.currentTimeMillis() : finishedAt) - startedAt;
+        long ingested = documents.get();
+        Queue<?> queue = workQueue;
+        return new IngestionStatus(id, source, state.name(), ingested, chunks.get(), resumedFrom,
+                elapsed > 0 ? ingested * 1000.0 / elapsed : 0, queue != null ? queue.size() : 0, elapsed, error);
+    }
+}
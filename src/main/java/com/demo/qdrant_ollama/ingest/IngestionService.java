@@ -0,0 +1,241 @@
+package com.demo.qdrant_ollama.ingest;
+
+import com.demo.qdrant_ollama.dto.IngestionRequest;
+import com.demo.qdrant_ollama.dto.IngestionStatus;
+import com.demo.qdrant_ollama.model.Document;
+import com.demo.qdrant_ollama.service.DocumentSyncService;
+import com.demo.qdrant_ollama.service.DocumentsChangedEvent;
+import com.demo.qdrant_ollama.service.MockDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk ingestion pipeline: streams documents from a JSONL/CSV file (or the mock data set), chunks them and
+ * embeds + upserts new or changed documents in batches on a bounded worker pool, checkpointing progress so
+ * that an interrupted file ingestion resumes where it stopped. Batches are written through
+ * {@link DocumentSyncService#upsert}, which also deletes what is left of a changed document's previous version,
+ * so re-ingesting a file never duplicates chunks.
+ * <p>
+ * Files are only read inside {@code ingest.dir}; see {@link #resolve(String)}.
+ */
+@Service
+public class IngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestionService.class);
+
+    private static final String MOCK_SOURCE = "mock";
+
+    private final DocumentSyncService documentSync;
+
+    private final MockDataService mockDataService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Counter ingestedDocuments;
+
+    private final Path ingestDir;
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${ingest.batch-size:64}")
+    private int batchSize;
+
+    @Value("${ingest.concurrency:4}")
+    private int concurrency;
+
+    @Value("${ingest.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${ingest.checkpoint-dir:./data/ingest-checkpoints}")
+    private String checkpointDir;
+
+    @Autowired
+    public IngestionService(DocumentSyncService documentSync, MockDataService mockDataService, ObjectMapper objectMapper,
+                            ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                            @Value("${ingest.dir:./data/ingest}") Path ingestDir) {
+        this.documentSync = documentSync;
+        this.mockDataService = mockDataService;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.ingestedDocuments = Counter.builder("ingest.documents").register(meterRegistry);
+        this.ingestDir = ingestDir;
+    }
+
+    /**
+     * Starts an ingestion job in the background and returns its initial status. If a job for the same
+     * source is already running, that job's status is returned instead.
+     *
+     * @throws IllegalArgumentException if the path leads outside {@code ingest.dir}
+     */
+    public synchronized IngestionStatus start(IngestionRequest request) throws IOException {
+        String source = request == null || request.path() == null
+                ? MOCK_SOURCE
+                : resolve(request.path()).toString();
+        Optional<IngestionJob> running = jobs.values().stream()
+                .filter(job -> job.isRunning() && job.source().equals(source))
+                .findFirst();
+        if (running.isPresent()) {
+            return running.get().status();
+        }
+
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), source);
+        jobs.put(job.id(), job);
+        String format = request != null ? request.format() : null;
+        Thread.ofVirtual().name("ingest-" + job.id()).start(() -> run(job, format));
+        return job.status();
+    }
+
+    /**
+     * Resolves a file name given by a client against {@code ingest.dir}.
+     *
+     * @throws IllegalArgumentException if the path leads outside {@code ingest.dir}, e.g. through {@code ..}, an
+     *                                  absolute path or a symbolic link
+     */
+    Path resolve(String path) throws IOException {
+        Path dir = ingestDir.toAbsolutePath().normalize();
+        Path resolved = dir.resolve(path).normalize();
+        if (!resolved.startsWith(dir) || resolved.equals(dir)) {
+            throw new IllegalArgumentException("Path '" + path + "' is outside of ingest.dir");
+        }
+        if (Files.exists(dir)) {
+            // a symbolic link inside the directory must not lead out of it either
+            Path existing = resolved;
+            while (!Files.exists(existing)) {
+                existing = existing.getParent();
+            }
+            if (!existing.toRealPath().startsWith(dir.toRealPath())) {
+                throw new IllegalArgumentException("Path '" + path + "' is outside of ingest.dir");
+            }
+        }
+        return resolved;
+    }
+
+    public Optional<IngestionStatus> status(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(IngestionJob::status);
+    }
+
+    private void run(IngestionJob job, String format) {
+        boolean mock = MOCK_SOURCE.equals(job.source());
+        IngestionCheckpoint checkpoint = mock ? IngestionCheckpoint.inMemory() : IngestionCheckpoint.load(checkpointFile(job.source()));
+        long skip = checkpoint.committed();
+        job.resumedFrom(skip);
+        logger.info("Starting ingestion job {} for '{}' (resuming after {} documents)", job.id(), job.source(), skip);
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        // bounds the batches held in memory: the reader blocks once all workers are busy and the queue is full
+        Semaphore permits = new Semaphore(concurrency + queueCapacity);
+        job.workQueue(workers.getQueue());
+
+        Iterator<Document> documents = null;
+        try {
+            documents = mock
+                    ? mockDataService.generateMockDocuments().iterator()
+                    : DocumentReader.open(Path.of(job.source()), format, objectMapper);
+
+            long position = 0;
+            List<Document> batch = new ArrayList<>(batchSize);
+            while (documents.hasNext() && !job.isFailed()) {
+                Document document = documents.next();
+                if (position++ < skip) {
+                    continue;
+                }
+                batch.add(document);
+                if (batch.size() == batchSize) {
+                    submit(job, workers, permits, checkpoint, position - batch.size(), batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty() && !job.isFailed()) {
+                submit(job, workers, permits, checkpoint, position - batch.size(), batch);
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            if (!job.isFailed()) {
+                job.complete();
+                checkpoint.delete();
+            }
+        } catch (Exception e) {
+            logger.error("Ingestion job {} failed", job.id(), e);
+            job.fail(e);
+            workers.shutdownNow();
+        } finally {
+            if (documents instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Failed to close ingestion source '{}'", job.source(), e);
+                }
+            }
+            logger.info("Ingestion job {} finished: {}", job.id(), job.status());
+        }
+    }
+
+    private void submit(IngestionJob job, ThreadPoolExecutor workers, Semaphore permits, IngestionCheckpoint checkpoint,
+                        long from, List<Document> batch) throws InterruptedException {
+        permits.acquire();
+        workers.execute(() -> {
+            try {
+                if (job.isFailed()) {
+                    return;
+                }
+                // unchanged documents are skipped, the rest is embedded and written in a single vector store call
+                DocumentSyncService.SyncResult result = documentSync.upsert(batch);
+                if (result.changed()) {
+                    // per batch, so answers built from the old version of a document are dropped once it is
+                    // rewritten rather than when the job ends
+                    publishChanged(job, from, batch);
+                }
+                job.recordBatch(batch.size(), result.chunksWritten());
+                ingestedDocuments.increment(batch.size());
+                checkpoint.markDone(from, from + batch.size());
+            } catch (Exception e) {
+                logger.error("Ingestion job {} failed on documents [{}, {})", job.id(), from, from + batch.size(), e);
+                job.fail(e);
+                // the batch may have been written in part
+                publishChanged(job, from, batch);
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private void publishChanged(IngestionJob job, long from, List<Document> batch) {
+        Set<String> docIds = batch.stream().map(DocumentChunker::docIdOf).collect(Collectors.toSet());
+        eventPublisher.publishEvent(new DocumentsChangedEvent(
+                "ingestion job " + job.id() + " wrote documents [" + from + ", " + (from + batch.size()) + ")", docIds));
+    }
+
+    private Path checkpointFile(String source) {
+        return Path.of(checkpointDir, DigestUtils.md5DigestAsHex(source.getBytes(StandardCharsets.UTF_8)) + ".checkpoint");
+    }
+}
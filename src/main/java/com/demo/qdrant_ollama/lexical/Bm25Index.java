@@ -0,0 +1,415 @@
+package com.demo.qdrant_ollama.lexical;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory BM25 index over the title, tags and content of stored chunks.
+ * <p>
+ * Each term has one postings list: a byte array of variable-length encoded {@code (ordinal delta, term frequency)}
+ * pairs. Ordinals are handed out in insertion order and never reused, so adding a chunk only appends to the
+ * postings of its terms. An upsert tombstones the previous version of the chunk; tombstoned entries are skipped
+ * while scoring and dropped by a compaction once they make up a quarter of all ordinals. Until then they still
+ * count towards document frequencies, which shifts IDF slightly but keeps deletes O(1).
+ * <p>
+ * Title and tag terms count twice, so a keyword in the title outranks one in passing.
+ * Tokens joined by {@code - _ . /} (product codes, versions) are indexed both as a whole and as their parts.
+ * <p>
+ * Queries are matched without English stopwords, and a chunk is only a hit if it contains at least
+ * {@code minTermCoverage} of the remaining query terms, so a question doesn't match every chunk that shares one
+ * common word with it.
+ */
+public final class Bm25Index {
+
+    private static final int TITLE_WEIGHT = 2;
+
+    private static final int TAGS_WEIGHT = 2;
+
+    private static final int CONTENT_WEIGHT = 1;
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+(?:[-_./][\\p{L}\\p{N}]+)*");
+
+    private static final Pattern SEPARATOR = Pattern.compile("[-_./]");
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "about", "after", "all", "also", "am", "an", "and", "any", "are", "as", "at", "be", "been", "before",
+            "but", "by", "can", "could", "did", "do", "does", "for", "from", "get", "had", "has", "have", "how", "i",
+            "if", "in", "into", "is", "it", "its", "me", "my", "no", "not", "of", "on", "or", "our", "should", "so",
+            "some", "than", "that", "the", "their", "them", "then", "there", "these", "they", "this", "those", "to",
+            "was", "we", "were", "what", "when", "where", "which", "who", "why", "will", "with", "would", "you", "your");
+
+    private final float k1;
+
+    private final float b;
+
+    private final float minTermCoverage;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term dictionary; postings, statistics and the last appended ordinal are indexed by term id
+    private final Map<String, Integer> termIds = new HashMap<>();
+
+    private byte[][] postings = new byte[INITIAL_CAPACITY][];
+
+    private int[] postingsLength = new int[INITIAL_CAPACITY];
+
+    private int[] lastOrdinal = new int[INITIAL_CAPACITY];
+
+    private int[] docFreq = new int[INITIAL_CAPACITY];
+
+    // per ordinal, null / 0 once tombstoned
+    private Document[] documents = new Document[INITIAL_CAPACITY];
+
+    private int[] docLengths = new int[INITIAL_CAPACITY];
+
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+
+    private int nextOrdinal;
+
+    private int tombstones;
+
+    private long liveLength;
+
+    public record Hit(Document document, float score) {
+    }
+
+    /**
+     * @param minTermCoverage share of the query's terms (stopwords aside) a chunk has to contain, 0 for any one
+     */
+    public Bm25Index(float k1, float b, float minTermCoverage) {
+        this.k1 = k1;
+        this.b = b;
+        this.minTermCoverage = minTermCoverage;
+    }
+
+    /**
+     * Adds chunks, replacing chunks with the same id.
+     */
+    public void upsert(Collection<Document> chunks) {
+        lock.writeLock().lock();
+        try {
+            for (Document chunk : chunks) {
+                remove(chunk.getId());
+                add(chunk);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::remove);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes every chunk whose metadata value for {@code key} is one of {@code values}, e.g. all chunks of a document.
+     */
+    public void deleteWhere(String key, Collection<String> values) {
+        Set<String> wanted = new HashSet<>(values);
+        deleteWhere(document -> wanted.contains(String.valueOf(document.getMetadata().get(key))));
+    }
+
+    /**
+     * Deletes every chunk {@code condition} accepts.
+     */
+    public void deleteWhere(Predicate<Document> condition) {
+        lock.writeLock().lock();
+        try {
+            List<String> ids = new ArrayList<>();
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                Document document = documents[ordinal];
+                if (document != null && condition.test(document)) {
+                    ids.add(document.getId());
+                }
+            }
+            ids.forEach(this::remove);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Hit> search(String query, int k) {
+        return search(query, k, document -> true);
+    }
+
+    /**
+     * @param accept chunks it rejects are skipped before ranking, so a filter doesn't shrink the result below {@code k}
+     */
+    public List<Hit> search(String query, int k, Predicate<Document> accept) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        terms.removeAll(STOPWORDS);
+        int requiredTerms = Math.max(1, (int) Math.ceil(minTermCoverage * terms.size()));
+        lock.readLock().lock();
+        try {
+            int live = ordinalsById.size();
+            if (live == 0 || terms.isEmpty() || k <= 0) {
+                return List.of();
+            }
+            float averageLength = (float) liveLength / live;
+            float[] scores = new float[nextOrdinal];
+            int[] matchedTerms = new int[nextOrdinal];
+            int[] touched = new int[16];
+            int touchedCount = 0;
+            for (String term : terms) {
+                Integer termId = termIds.get(term);
+                if (termId == null) {
+                    continue;
+                }
+                // document frequencies include tombstones, so the collection size has to as well
+                float idf = (float) Math.log(1 + (nextOrdinal - docFreq[termId] + 0.5) / (docFreq[termId] + 0.5));
+                byte[] bytes = postings[termId];
+                int end = postingsLength[termId];
+                int position = 0;
+                int ordinal = -1;
+                while (position < end) {
+                    int delta = 0;
+                    int shift = 0;
+                    byte next;
+                    do {
+                        next = bytes[position++];
+                        delta |= (next & 0x7F) << shift;
+                        shift += 7;
+                    } while (next < 0);
+                    int frequency = 0;
+                    shift = 0;
+                    do {
+                        next = bytes[position++];
+                        frequency |= (next & 0x7F) << shift;
+                        shift += 7;
+                    } while (next < 0);
+                    ordinal += delta;
+                    if (documents[ordinal] == null) {
+                        continue;
+                    }
+                    float norm = k1 * (1 - b + b * docLengths[ordinal] / averageLength);
+                    if (scores[ordinal] == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = ordinal;
+                    }
+                    scores[ordinal] += idf * frequency * (k1 + 1) / (frequency + norm);
+                    matchedTerms[ordinal]++;
+                }
+            }
+
+            PriorityQueue<Hit> best = new PriorityQueue<>(k + 1, (x, y) -> Float.compare(x.score(), y.score()));
+            for (int i = 0; i < touchedCount; i++) {
+                int ordinal = touched[i];
+                if (matchedTerms[ordinal] < requiredTerms || !accept.test(documents[ordinal])) {
+                    continue;
+                }
+                if (best.size() < k) {
+                    best.add(new Hit(documents[ordinal], scores[ordinal]));
+                } else if (scores[ordinal] > best.peek().score()) {
+                    best.poll();
+                    best.add(new Hit(documents[ordinal], scores[ordinal]));
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort((x, y) -> Float.compare(y.score(), x.score()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return termIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes used by the encoded postings.
+     */
+    public long postingsBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (int termId = 0; termId < termIds.size(); termId++) {
+                bytes += postings[termId].length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            String token = matcher.group();
+            tokens.add(token);
+            if (SEPARATOR.matcher(token).find()) {
+                tokens.addAll(Arrays.asList(SEPARATOR.split(token)));
+            }
+        }
+        return tokens;
+    }
+
+    private void add(Document chunk) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addTerms(frequencies, chunk.getMetadata().get("title"), TITLE_WEIGHT)
+                + addTerms(frequencies, chunk.getMetadata().get("tags"), TAGS_WEIGHT)
+                + addTerms(frequencies, chunk.getText(), CONTENT_WEIGHT);
+
+        int ordinal = nextOrdinal++;
+        if (ordinal == documents.length) {
+            documents = Arrays.copyOf(documents, ordinal * 2);
+            docLengths = Arrays.copyOf(docLengths, ordinal * 2);
+        }
+        documents[ordinal] = chunk;
+        docLengths[ordinal] = length;
+        ordinalsById.put(chunk.getId(), ordinal);
+        liveLength += length;
+
+        frequencies.forEach((term, frequency) -> append(termId(term), ordinal, frequency));
+    }
+
+    private static int addTerms(Map<String, Integer> frequencies, Object field, int weight) {
+        if (field == null) {
+            return 0;
+        }
+        // tags are stored either as a comma separated string or as a list
+        String text = field instanceof Collection<?> values
+                ? String.join(" ", values.stream().map(String::valueOf).toList())
+                : field.toString();
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private int termId(String term) {
+        Integer existing = termIds.get(term);
+        if (existing != null) {
+            return existing;
+        }
+        int termId = termIds.size();
+        if (termId == postings.length) {
+            postings = Arrays.copyOf(postings, termId * 2);
+            postingsLength = Arrays.copyOf(postingsLength, termId * 2);
+            lastOrdinal = Arrays.copyOf(lastOrdinal, termId * 2);
+            docFreq = Arrays.copyOf(docFreq, termId * 2);
+        }
+        postings[termId] = new byte[8];
+        postingsLength[termId] = 0;
+        lastOrdinal[termId] = -1;
+        docFreq[termId] = 0;
+        termIds.put(term, termId);
+        return termId;
+    }
+
+    private void append(int termId, int ordinal, int frequency) {
+        // at most 5 bytes per varint
+        if (postingsLength[termId] + 10 > postings[termId].length) {
+            postings[termId] = Arrays.copyOf(postings[termId], Math.max(postings[termId].length * 3 / 2, postingsLength[termId] + 10));
+        }
+        writeVarInt(termId, ordinal - lastOrdinal[termId]);
+        writeVarInt(termId, frequency);
+        lastOrdinal[termId] = ordinal;
+        docFreq[termId]++;
+    }
+
+    private void writeVarInt(int termId, int value) {
+        byte[] bytes = postings[termId];
+        int position = postingsLength[termId];
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        postingsLength[termId] = position;
+    }
+
+    private void remove(String id) {
+        Integer ordinal = ordinalsById.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        liveLength -= docLengths[ordinal];
+        documents[ordinal] = null;
+        docLengths[ordinal] = 0;
+        tombstones++;
+    }
+
+    private void compactIfNeeded() {
+        if (tombstones * 4 <= nextOrdinal) {
+            return;
+        }
+        List<Document> live = new ArrayList<>(ordinalsById.size());
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (documents[ordinal] != null) {
+                live.add(documents[ordinal]);
+            }
+        }
+        reset();
+        live.forEach(this::add);
+    }
+
+    private void reset() {
+        termIds.clear();
+        postings = new byte[INITIAL_CAPACITY][];
+        postingsLength = new int[INITIAL_CAPACITY];
+        lastOrdinal = new int[INITIAL_CAPACITY];
+        docFreq = new int[INITIAL_CAPACITY];
+        documents = new Document[INITIAL_CAPACITY];
+        docLengths = new int[INITIAL_CAPACITY];
+        ordinalsById.clear();
+        nextOrdinal = 0;
+        tombstones = 0;
+        liveLength = 0;
+    }
+}
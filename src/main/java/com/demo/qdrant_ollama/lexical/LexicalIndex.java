@@ -0,0 +1,119 @@
+package com.demo.qdrant_ollama.lexical;
+
+import com.demo.qdrant_ollama.vectorstore.FilterEvaluator;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyword side of hybrid retrieval: a {@link Bm25Index} over every chunk in the vector store, kept in sync by
+ * {@code DocumentSyncService} and loaded from the vector store on startup.
+ * <p>
+ * Also holds the fusion settings: how many candidates each retriever contributes and the RRF constant {@code k}.
+ */
+@Component
+public class LexicalIndex {
+
+    private final boolean enabled;
+
+    private final int candidates;
+
+    private final int rrfK;
+
+    private final Bm25Index index;
+
+    @Autowired
+    public LexicalIndex(@Value("${search.hybrid.enabled:true}") boolean enabled,
+                        @Value("${search.hybrid.candidates:20}") int candidates,
+                        @Value("${search.hybrid.rrf-k:60}") int rrfK,
+                        @Value("${search.hybrid.bm25.k1:1.2}") float k1,
+                        @Value("${search.hybrid.bm25.b:0.75}") float b,
+                        @Value("${search.hybrid.bm25.min-term-coverage:0.5}") float minTermCoverage,
+                        MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.candidates = candidates;
+        this.rrfK = rrfK;
+        this.index = new Bm25Index(k1, b, minTermCoverage);
+        Gauge.builder("search.lexical.chunks", index, Bm25Index::size)
+                .description("Chunks in the lexical index")
+                .register(meterRegistry);
+        Gauge.builder("search.lexical.terms", index, Bm25Index::terms)
+                .description("Distinct terms in the lexical index")
+                .register(meterRegistry);
+        Gauge.builder("search.lexical.postings", index, Bm25Index::postingsBytes)
+                .description("Size of the encoded postings lists")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int candidates() {
+        return candidates;
+    }
+
+    public int rrfK() {
+        return rrfK;
+    }
+
+    public void upsert(Collection<Document> chunks) {
+        if (enabled) {
+            index.upsert(chunks);
+        }
+    }
+
+    public void delete(Collection<String> chunkIds) {
+        if (enabled) {
+            index.delete(chunkIds);
+        }
+    }
+
+    public void deleteByDocIds(Collection<String> docIds) {
+        if (enabled) {
+            index.deleteWhere("docId", docIds);
+        }
+    }
+
+    /**
+     * Deletes the chunks of the given documents that don't carry their current content hash.
+     *
+     * @param contentHashes docId -> current content hash
+     */
+    public void deleteStale(Map<String, String> contentHashes) {
+        if (enabled) {
+            index.deleteWhere(document -> {
+                String contentHash = contentHashes.get(String.valueOf(document.getMetadata().get("docId")));
+                return contentHash != null && !contentHash.equals(document.getMetadata().get("contentHash"));
+            });
+        }
+    }
+
+    public void clear() {
+        index.clear();
+    }
+
+    /**
+     * Best matching chunks, highest BM25 score first.
+     *
+     * @param filter only chunks whose metadata matches are returned, may be null
+     */
+    public List<Document> search(String query, int k, Filter.Expression filter) {
+        if (!enabled) {
+            return List.of();
+        }
+        List<Bm25Index.Hit> hits = filter == null
+                ? index.search(query, k)
+                : index.search(query, k, document -> FilterEvaluator.matches(filter, document.getMetadata()));
+        return hits.stream().map(Bm25Index.Hit::document).toList();
+    }
+}
@@ -0,0 +1,109 @@
+package com.demo.qdrant_ollama.rerank;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.djl.util.PairList;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cross-encoder running in-process on the CPU with ONNX Runtime: query and passage are tokenized as one pair
+ * ({@code [CLS] query [SEP] passage [SEP]}) and the model's relevance logit is the score.
+ * <p>
+ * One batch is one {@link OrtSession#run} call, padded to its longest pair. The session runs each call on a single
+ * thread; {@link RerankStage} gets the parallelism by scoring several batches at once, which keeps small batches
+ * from paying for intra-op synchronization.
+ */
+public class OnnxCrossEncoderReranker implements Reranker, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OnnxCrossEncoderReranker.class);
+
+    private final OrtEnvironment environment;
+
+    private final OrtSession session;
+
+    private final HuggingFaceTokenizer tokenizer;
+
+    private final Set<String> inputNames;
+
+    public OnnxCrossEncoderReranker(Path model, Path tokenizerFile, int maxLength) throws OrtException, IOException {
+        this.environment = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setIntraOpNumThreads(1);
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            this.session = environment.createSession(model.toString(), options);
+        }
+        this.tokenizer = HuggingFaceTokenizer.builder()
+                .optTokenizerPath(tokenizerFile)
+                .optMaxLength(maxLength)
+                // long passages lose their tail, the query is always kept whole
+                .optTruncateSecondOnly()
+                .optPadding(true)
+                .build();
+        this.inputNames = session.getInputNames();
+        logger.info("Loaded cross-encoder '{}' with inputs {}", model, inputNames);
+    }
+
+    @Override
+    public float[] score(String query, List<String> passages) {
+        PairList<String, String> pairs = new PairList<>(passages.size());
+        for (String passage : passages) {
+            pairs.add(query, passage);
+        }
+        Encoding[] encodings = tokenizer.batchEncode(pairs);
+
+        long[][] inputIds = new long[encodings.length][];
+        long[][] attentionMask = new long[encodings.length][];
+        long[][] tokenTypeIds = new long[encodings.length][];
+        for (int i = 0; i < encodings.length; i++) {
+            inputIds[i] = encodings[i].getIds();
+            attentionMask[i] = encodings[i].getAttentionMask();
+            tokenTypeIds[i] = encodings[i].getTypeIds();
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, inputIds));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, attentionMask));
+            // DistilBERT-style exports have no segment input
+            if (inputNames.contains("token_type_ids")) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, tokenTypeIds));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][] logits = (float[][]) result.get(0).getValue();
+                float[] scores = new float[logits.length];
+                for (int i = 0; i < logits.length; i++) {
+                    // a single relevance logit, or [irrelevant, relevant] for two-label models
+                    scores[i] = logits[i][logits[i].length - 1];
+                }
+                return scores;
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("Cross-encoder inference failed: " + e.getMessage(), e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "onnx";
+    }
+
+    @Override
+    public void close() throws OrtException {
+        tokenizer.close();
+        session.close();
+    }
+}
@@ -0,0 +1,165 @@
+package com.demo.qdrant_ollama.rerank;
+
+import com.demo.qdrant_ollama.config.RerankProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional stage between retrieval and generation: the search over-fetches {@link #candidates()} chunks, the
+ * {@link Reranker} scores each of them against the query and only the best {@code maxResults} go into the prompt.
+ * <p>
+ * Pairs are scored in batches of {@code batch-size}, the batches in parallel on a pool with one platform thread
+ * per core (scoring is CPU bound, virtual threads would not add anything). If scoring takes longer than
+ * {@code budget} or fails, the search continues with the retrieval order, counted in {@code search.rerank.fallbacks}.
+ */
+@Component
+public class RerankStage {
+
+    public static final String RERANK_SCORE = "rerankScore";
+
+    private static final Logger logger = LoggerFactory.getLogger(RerankStage.class);
+
+    private final Reranker reranker;
+
+    private final int candidates;
+
+    private final int batchSize;
+
+    private final Duration budget;
+
+    private final ExecutorService executor;
+
+    private final Counter timeouts;
+
+    private final Counter errors;
+
+    @Autowired
+    public RerankStage(RerankProperties properties, ObjectProvider<Reranker> reranker, MeterRegistry meterRegistry) {
+        this(properties, reranker.getIfAvailable(), meterRegistry);
+    }
+
+    /**
+     * @param reranker null to disable reranking
+     */
+    public RerankStage(RerankProperties properties, Reranker reranker, MeterRegistry meterRegistry) {
+        this.reranker = reranker;
+        this.candidates = properties.candidates();
+        this.batchSize = properties.batchSize();
+        this.budget = properties.budget();
+        this.executor = reranker == null ? null : Executors.newFixedThreadPool(properties.effectiveThreads(),
+                Thread.ofPlatform().name("rerank-", 0).daemon().factory());
+        this.timeouts = Counter.builder("search.rerank.fallbacks").tag("cause", "timeout").register(meterRegistry);
+        this.errors = Counter.builder("search.rerank.fallbacks").tag("cause", "error").register(meterRegistry);
+        if (reranker != null) {
+            logger.info("Reranking {} candidates with the {} reranker, budget {}", candidates, reranker.name(), budget);
+        }
+    }
+
+    public boolean isEnabled() {
+        return reranker != null;
+    }
+
+    public int candidates() {
+        return candidates;
+    }
+
+    /**
+     * The {@code k} best documents by reranker score, each with its score in the {@code rerankScore} metadata;
+     * the first {@code k} in their original order if reranking is disabled, too slow or failed.
+     */
+    public List<Document> rerank(String query, List<Document> documents, int k) {
+        if (reranker == null || documents.size() <= 1) {
+            return head(documents, k);
+        }
+        List<String> passages = documents.stream().map(RerankStage::passage).toList();
+        List<Future<float[]>> batches = new ArrayList<>();
+        for (int from = 0; from < passages.size(); from += batchSize) {
+            List<String> batch = passages.subList(from, Math.min(from + batchSize, passages.size()));
+            batches.add(executor.submit(() -> reranker.score(query, batch)));
+        }
+
+        long deadline = System.nanoTime() + budget.toNanos();
+        float[] scores = new float[passages.size()];
+        try {
+            for (int i = 0; i < batches.size(); i++) {
+                float[] batchScores = batches.get(i).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                System.arraycopy(batchScores, 0, scores, i * batchSize, batchScores.length);
+            }
+        } catch (TimeoutException e) {
+            logger.warn("Reranking {} candidates exceeded the budget of {}, keeping the retrieval order", documents.size(), budget);
+            timeouts.increment();
+            return fallback(batches, documents, k);
+        } catch (ExecutionException e) {
+            logger.warn("Reranking failed, keeping the retrieval order", e.getCause());
+            errors.increment();
+            return fallback(batches, documents, k);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback(batches, documents, k);
+        }
+
+        List<Integer> order = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            order.add(i);
+        }
+        // stable, so equally scored documents keep their retrieval order
+        order.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+
+        List<Document> reranked = new ArrayList<>(Math.min(k, order.size()));
+        for (int i : order.subList(0, Math.min(k, order.size()))) {
+            Document document = documents.get(i);
+            Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+            metadata.put(RERANK_SCORE, (double) scores[i]);
+            reranked.add(Document.builder()
+                    .id(document.getId())
+                    .text(document.getText())
+                    .metadata(metadata)
+                    .score(document.getScore())
+                    .build());
+        }
+        return reranked;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Document> fallback(List<Future<float[]>> batches, List<Document> documents, int k) {
+        // batches that haven't started yet are dropped, running ones are interrupted
+        batches.forEach(batch -> batch.cancel(true));
+        return head(documents, k);
+    }
+
+    private static List<Document> head(List<Document> documents, int k) {
+        return documents.size() <= k ? documents : documents.subList(0, k);
+    }
+
+    private static String passage(Document document) {
+        Object title = document.getMetadata().get("title");
+        String text = document.getText() == null ? "" : document.getText();
+        return title == null ? text : title + "\n" + text;
+    }
+}
@@ -0,0 +1,17 @@
+package com.demo.qdrant_ollama.rerank;
+
+import java.util.List;
+
+/**
+ * Scores how well each passage answers the query, looking at query and passage together (unlike the embedding,
+ * which encodes both separately). Implementations must be thread-safe, {@link RerankStage} scores batches in parallel.
+ */
+public interface Reranker {
+
+    /**
+     * @return one score per passage, in passage order; higher is more relevant, the scale is model specific
+     */
+    float[] score(String query, List<String> passages);
+
+    String name();
+}
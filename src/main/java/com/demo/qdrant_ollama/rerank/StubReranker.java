@@ -0,0 +1,34 @@
+package com.demo.qdrant_ollama.rerank;
+
+import com.demo.qdrant_ollama.lexical.Bm25Index;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Model-free reranker for tests and local runs: scores a passage by the fraction of distinct query terms it
+ * contains. Deterministic and fast, but no better than the retrieval it reorders.
+ */
+public class StubReranker implements Reranker {
+
+    @Override
+    public float[] score(String query, List<String> passages) {
+        Set<String> queryTerms = new HashSet<>(Bm25Index.tokenize(query));
+        float[] scores = new float[passages.size()];
+        if (queryTerms.isEmpty()) {
+            return scores;
+        }
+        for (int i = 0; i < passages.size(); i++) {
+            Set<String> passageTerms = new HashSet<>(Bm25Index.tokenize(passages.get(i)));
+            passageTerms.retainAll(queryTerms);
+            scores[i] = (float) passageTerms.size() / queryTerms.size();
+        }
+        return scores;
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+}
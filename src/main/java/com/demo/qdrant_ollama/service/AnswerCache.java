@@ -0,0 +1,334 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in semantic cache for generated answers.
+ * <p>
+ * A cached answer is reused when the new query retrieved the same documents (same IDs, same order) and its
+ * embedding is within {@code search.answer-cache.max-distance} cosine distance of the cached query.
+ * Concurrent identical requests share a single generation. A {@link DocumentsChangedEvent} drops the answers
+ * built from the changed documents, or the whole cache if it does not name them.
+ */
+@Component
+public class AnswerCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnswerCache.class);
+
+    private final EmbeddingModel embeddingModel;
+
+    private final boolean enabled;
+
+    private final double maxDistance;
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    // bumped on invalidation so generations started against old content are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    // leaders still generating, so an invalidation of some documents can mark the ones built from them
+    private final Set<Flight> leaders = ConcurrentHashMap.newKeySet();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter sharedGenerations;
+
+    @Autowired
+    public AnswerCache(EmbeddingModel embeddingModel,
+                       @Value("${search.answer-cache.enabled:false}") boolean enabled,
+                       @Value("${search.answer-cache.max-distance:0.05}") double maxDistance,
+                       @Value("${search.answer-cache.max-entries:1000}") int maxEntries,
+                       @Value("${search.answer-cache.ttl:1h}") Duration ttl,
+                       MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled;
+        this.maxDistance = maxDistance;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AnswerCache.this.maxEntries;
+            }
+        };
+        this.hits = Counter.builder("search.answer-cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("search.answer-cache.requests").tag("result", "miss").register(meterRegistry);
+        this.sharedGenerations = Counter.builder("search.answer-cache.shared-generations").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns a cached answer for the query and retrieved documents, or generates one. While a generation for
+     * the same query and documents is running, other callers wait for its result instead of starting their own.
+     */
+    public String getOrCompute(String query, List<String> documentIds, Supplier<String> generator) {
+        if (!enabled) {
+            return generator.get();
+        }
+        Optional<String> cached = lookup(query, documentIds);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        Flight flight = join(query, documentIds);
+        if (!flight.leader()) {
+            return join(flight.answer());
+        }
+        try {
+            String answer = generator.get();
+            flight.complete(answer);
+            return answer;
+        } catch (RuntimeException e) {
+            flight.abandon(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Joins the generation running for the same query and documents, or starts one, for a caller that found no
+     * cached answer. The {@link Flight#leader() leader} must {@link Flight#complete(String) complete} or
+     * {@link Flight#abandon(Throwable) abandon} it; everyone else waits for {@link Flight#answer()}.
+     */
+    public Flight join(String query, List<String> documentIds) {
+        if (!enabled) {
+            return new Flight(null, query, documentIds, true, new CompletableFuture<>(), generation.get());
+        }
+        String key = key(query, documentIds);
+        long startedAt = generation.get();
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            sharedGenerations.increment();
+            return new Flight(key, query, documentIds, false, running, startedAt);
+        }
+        // a generation may have finished between the caller's lookup and now, it stays in flight until cached
+        Entry exact = exactEntry(key, System.currentTimeMillis());
+        if (exact != null) {
+            mine.complete(exact.answer());
+            inFlight.remove(key, mine);
+            return new Flight(key, query, documentIds, false, mine, startedAt);
+        }
+        Flight leader = new Flight(key, query, documentIds, true, mine, startedAt);
+        leaders.add(leader);
+        return leader;
+    }
+
+    public Optional<String> lookup(String query, List<String> documentIds) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        Entry exact = exactEntry(key(query, documentIds), now);
+        if (exact != null) {
+            hits.increment();
+            return Optional.of(exact.answer());
+        }
+
+        float[] vector = normalize(embeddingModel.embed(query));
+        lock.lock();
+        try {
+            entries.values().removeIf(entry -> now - entry.createdAtMillis() > ttlMillis);
+            for (Entry entry : entries.values()) {
+                if (entry.documentIds().equals(documentIds) && 1.0 - dot(vector, entry.queryVector()) <= maxDistance) {
+                    hits.increment();
+                    return Optional.of(entry.answer());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    private Entry exactEntry(String key, long now) {
+        lock.lock();
+        try {
+            Entry exact = entries.get(key);
+            return exact != null && now - exact.createdAtMillis() <= ttlMillis ? exact : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches an answer; embeds the query, so it blocks.
+     */
+    public void put(String query, List<String> documentIds, String answer) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = new Entry(normalize(embeddingModel.embed(query)), List.copyOf(documentIds), answer, System.currentTimeMillis());
+        lock.lock();
+        try {
+            entries.put(key(query, documentIds), entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener
+    public void onDocumentsChanged(DocumentsChangedEvent event) {
+        if (event.docIds() == null) {
+            generation.incrementAndGet();
+        } else {
+            leaders.stream().filter(flight -> event.affects(flight.documentIds)).forEach(flight -> flight.stale = true);
+        }
+        lock.lock();
+        try {
+            if (event.docIds() == null) {
+                entries.clear();
+            } else {
+                entries.values().removeIf(entry -> event.affects(entry.documentIds()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (event.docIds() == null) {
+            logger.info("Invalidated answer cache: {}", event.reason());
+        } else {
+            logger.debug("Invalidated cached answers for {} documents: {}", event.docIds().size(), event.reason());
+        }
+    }
+
+    private static String key(String query, List<String> documentIds) {
+        return String.join(",", documentIds) + '\n' + query.strip().replaceAll("\\s+", " ").toLowerCase();
+    }
+
+    private static String join(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * A generation of one answer that concurrent identical requests share.
+     */
+    public final class Flight {
+
+        private final String key;
+
+        private final String query;
+
+        private final List<String> documentIds;
+
+        private final boolean leader;
+
+        private final CompletableFuture<String> answer;
+
+        private final long startedAt;
+
+        private volatile boolean stale;
+
+        private Flight(String key, String query, List<String> documentIds, boolean leader, CompletableFuture<String> answer,
+                       long startedAt) {
+            this.key = key;
+            this.query = query;
+            this.documentIds = documentIds;
+            this.leader = leader;
+            this.answer = answer;
+            this.startedAt = startedAt;
+        }
+
+        /**
+         * Whether this caller generates the answer.
+         */
+        public boolean leader() {
+            return leader;
+        }
+
+        /**
+         * The answer, completed exceptionally if the leader abandoned the generation.
+         */
+        public CompletableFuture<String> answer() {
+            return answer;
+        }
+
+        /**
+         * Hands the answer to the waiting callers, then caches it unless the documents changed in the meantime.
+         * Embeds the query, so it blocks.
+         */
+        public void complete(String answer) {
+            this.answer.complete(answer);
+            try {
+                if (key != null && generation.get() == startedAt && !stale) {
+                    put(query, documentIds, answer);
+                }
+            } finally {
+                if (key != null) {
+                    inFlight.remove(key, this.answer);
+                    leaders.remove(this);
+                }
+            }
+        }
+
+        /**
+         * Ends a generation that produced no answer; has no effect once the answer is complete.
+         */
+        public void abandon(Throwable cause) {
+            if (this.answer.completeExceptionally(cause) && key != null) {
+                inFlight.remove(key, this.answer);
+                leaders.remove(this);
+            }
+        }
+    }
+
+    private record Entry(float[] queryVector, List<String> documentIds, String answer, long createdAtMillis) {
+    }
+}
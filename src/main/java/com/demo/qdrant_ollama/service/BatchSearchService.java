@@ -0,0 +1,110 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.dto.BatchSearchRequest;
+import com.demo.qdrant_ollama.dto.BatchSearchResponse;
+import com.demo.qdrant_ollama.dto.SearchRequest;
+import com.demo.qdrant_ollama.embedding.PrecomputedEmbeddings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many searches in one request: all distinct queries are embedded in a single batched call, then the
+ * searches run concurrently on virtual threads with the precomputed embeddings, so the vector store does not
+ * embed each query again. Concurrency towards the downstreams is still bounded by {@link DownstreamLimits}. Answers
+ * are only generated for queries that explicitly ask for one, in the {@link GenerationScheduler}'s batch lane,
+ * behind interactive searches.
+ */
+@Service
+public class BatchSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchSearchService.class);
+
+    private final SearchService searchService;
+
+    private final EmbeddingModel embeddingModel;
+
+    private final SearchMetrics metrics;
+
+    private final int maxQueries;
+
+    @Autowired
+    public BatchSearchService(SearchService searchService, EmbeddingModel embeddingModel, SearchMetrics metrics,
+                              @Value("${search.batch.max-queries:500}") int maxQueries) {
+        this.searchService = searchService;
+        this.embeddingModel = embeddingModel;
+        this.metrics = metrics;
+        this.maxQueries = maxQueries;
+    }
+
+    public BatchSearchResponse search(BatchSearchRequest request) {
+        List<SearchRequest> queries = request == null || request.queries() == null ? List.of() : request.queries();
+        if (queries.size() > maxQueries) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxQueries + " queries, got " + queries.size());
+        }
+        if (queries.stream().anyMatch(query -> query == null || query.query() == null || query.query().isBlank())) {
+            throw new IllegalArgumentException("Every query of a batch must have a non-blank query text");
+        }
+        long startTime = System.currentTimeMillis();
+
+        List<String> distinctTexts = new ArrayList<>(new LinkedHashSet<>(queries.stream().map(SearchRequest::query).toList()));
+        long embeddingStart = System.nanoTime();
+        List<float[]> vectors = distinctTexts.isEmpty() ? List.of() : embeddingModel.embed(distinctTexts);
+        long embeddingNanos = System.nanoTime() - embeddingStart;
+        metrics.record(null, SearchMetrics.BATCH_EMBEDDING, embeddingNanos);
+
+        Map<String, float[]> embeddings = new HashMap<>();
+        for (int i = 0; i < distinctTexts.size(); i++) {
+            embeddings.put(distinctTexts.get(i), vectors.get(i));
+        }
+
+        List<BatchSearchResponse.Result> results = new ArrayList<>(queries.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<BatchSearchResponse.Result>> futures = new ArrayList<>(queries.size());
+            for (int i = 0; i < queries.size(); i++) {
+                int index = i;
+                SearchRequest query = queries.get(i);
+                futures.add(executor.submit(() -> searchOne(index, query, embeddings)));
+            }
+            for (Future<BatchSearchResponse.Result> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Batch search failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        long totalTime = System.currentTimeMillis() - startTime;
+        logger.info("Batch search of {} queries ({} distinct) took {} ms", queries.size(), distinctTexts.size(), totalTime);
+        return new BatchSearchResponse(results, embeddingNanos / 1_000_000, totalTime);
+    }
+
+    private BatchSearchResponse.Result searchOne(int index, SearchRequest query, Map<String, float[]> embeddings) {
+        // unlike a single search, a batch query without generateAnswer only retrieves documents
+        SearchRequest request = Boolean.TRUE.equals(query.generateAnswer())
+                ? query
+                : new SearchRequest(query.query(), query.maxResults(), false, query.filters());
+        try (PrecomputedEmbeddings.Scope ignored = PrecomputedEmbeddings.activate(embeddings)) {
+            return new BatchSearchResponse.Result(index, searchService.search(request, GenerationScheduler.Lane.BATCH), null);
+        } catch (Exception e) {
+            // one failing query (e.g. a saturated vector store) must not fail the whole batch
+            logger.warn("Query {} of batch failed: {}", index, e.getMessage());
+            return new BatchSearchResponse.Result(index, null, e.getMessage());
+        }
+    }
+}
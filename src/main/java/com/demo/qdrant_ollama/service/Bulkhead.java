@@ -0,0 +1,93 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent calls to one downstream service. Callers beyond the limit queue in FIFO
+ * order for at most {@code maxWait}; when the queue is full or the wait times out the call is rejected.
+ */
+public class Bulkhead {
+
+    private final String name;
+
+    private final int maxConcurrent;
+
+    private final int maxWaiting;
+
+    private final long maxWaitMillis;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Counter rejected;
+
+    public Bulkhead(String name, int maxConcurrent, int maxWaiting, Duration maxWait, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.maxWaitMillis = maxWait.toMillis();
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        this.rejected = Counter.builder("downstream.rejected").tag("downstream", name).register(meterRegistry);
+        Gauge.builder("downstream.active", this, bulkhead -> bulkhead.maxConcurrent - bulkhead.permits.availablePermits())
+                .tag("downstream", name).register(meterRegistry);
+        Gauge.builder("downstream.waiting", waiting, AtomicInteger::get).tag("downstream", name).register(meterRegistry);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Waits for a slot; every successful call must be paired with {@link #release()}.
+     */
+    public boolean tryAcquire() {
+        try {
+            // the untimed tryAcquire() would barge past queued callers even on a fair semaphore
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            if (waiting.incrementAndGet() > maxWaiting) {
+                waiting.decrementAndGet();
+                rejected.increment();
+                return false;
+            }
+            try {
+                if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                rejected.increment();
+                return false;
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        if (!tryAcquire()) {
+            throw new BulkheadFullException(name);
+        }
+        try {
+            return call.get();
+        } finally {
+            release();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.demo.qdrant_ollama.service;
+
+/**
+ * Thrown when a call to a downstream service can't get a slot within the configured queueing limits.
+ */
+public class BulkheadFullException extends DownstreamUnavailableException {
+
+    public BulkheadFullException(String downstream) {
+        super("Too many concurrent calls to " + downstream);
+    }
+}
@@ -0,0 +1,126 @@
+package com.demo.qdrant_ollama.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the chat model loaded in Ollama, so no search pays for loading it (seconds for llama3.1).
+ * <p>
+ * The model is loaded at startup, and readiness waits for it (the {@code chat-model} phase). Ollama unloads a
+ * model {@code keep_alive} after its last request ({@code spring.ai.ollama.chat.options.keep-alive}), so while no
+ * generation has run for {@code generation.warm-up.interval} the model is loaded again, which keeps it in memory
+ * through quiet periods. A load request carries the chat options, as a runner started with other options (e.g.
+ * {@code num_ctx}) would be replaced by the next search.
+ */
+@Component
+public class ChatModelKeepAlive {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatModelKeepAlive.class);
+
+    private final OllamaApi ollamaApi;
+
+    private final ChatModel chatModel;
+
+    private final GenerationScheduler generationScheduler;
+
+    private final StartupProgress progress;
+
+    private final boolean enabled;
+
+    private final Duration interval;
+
+    private volatile ScheduledExecutorService refresher;
+
+    @Autowired
+    public ChatModelKeepAlive(OllamaApi ollamaApi, ChatModel chatModel, GenerationScheduler generationScheduler,
+                              StartupProgress progress,
+                              @Value("${generation.warm-up.enabled:true}") boolean enabled,
+                              @Value("${generation.warm-up.interval:4m}") Duration interval) {
+        this.ollamaApi = ollamaApi;
+        this.chatModel = chatModel;
+        this.generationScheduler = generationScheduler;
+        this.progress = progress;
+        this.enabled = enabled;
+        this.interval = interval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpInBackground() {
+        if (!enabled) {
+            progress.update(StartupProgress.CHAT_MODEL, StartupProgress.State.SKIPPED, 100, "generation.warm-up.enabled=false");
+            return;
+        }
+        if (!(chatModel.getDefaultOptions() instanceof OllamaOptions options)) {
+            progress.update(StartupProgress.CHAT_MODEL, StartupProgress.State.SKIPPED, 100, "not an Ollama chat model");
+            return;
+        }
+        Thread.ofVirtual().name("chat-model-warm-up").start(() -> {
+            progress.update(StartupProgress.CHAT_MODEL, StartupProgress.State.RUNNING, 0, "loading " + options.getModel());
+            try {
+                long loadMillis = load(options);
+                logger.info("Loaded chat model {} in {} ms (keep-alive {})", options.getModel(), loadMillis,
+                        options.getKeepAlive() != null ? options.getKeepAlive() : "Ollama's default");
+                progress.update(StartupProgress.CHAT_MODEL, StartupProgress.State.DONE, 100, options.getModel() + " loaded");
+            } catch (Exception e) {
+                // searches still return documents, answers wait for the first generation to load the model
+                logger.error("Failed to load chat model {}: {}", options.getModel(), e.getMessage());
+                progress.update(StartupProgress.CHAT_MODEL, StartupProgress.State.SKIPPED, 100, "not loaded: " + e.getMessage());
+            }
+            if (interval.toMillis() > 0) {
+                refresher = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("chat-model-keep-alive").factory());
+                refresher.scheduleWithFixedDelay(() -> refreshIfIdle(options), interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private void refreshIfIdle(OllamaOptions options) {
+        // while searches are generating, they keep the model loaded themselves
+        if (!generationScheduler.idleFor(interval)) {
+            return;
+        }
+        try {
+            long loadMillis = load(options);
+            logger.debug("Refreshed keep-alive of chat model {} in {} ms", options.getModel(), loadMillis);
+        } catch (Exception e) {
+            logger.warn("Failed to refresh keep-alive of chat model {}: {}", options.getModel(), e.getMessage());
+        }
+    }
+
+    /**
+     * A chat request without messages, which Ollama answers by loading the model and resetting its keep-alive.
+     *
+     * @return how long the request took
+     */
+    private long load(OllamaOptions options) {
+        long start = System.currentTimeMillis();
+        ollamaApi.chat(OllamaApi.ChatRequest.builder(options.getModel())
+                .messages(List.of())
+                .stream(false)
+                .keepAlive(options.getKeepAlive())
+                .options(options)
+                .build());
+        return System.currentTimeMillis() - start;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Stops calling a downstream service that keeps failing. The outcomes of the last {@code windowSize} calls are
+ * kept; once at least {@code minimumCalls} were recorded and the failure rate reaches the threshold the circuit
+ * opens and calls fail fast with {@link CircuitOpenException}. After {@code openDuration} a single trial call is
+ * let through (half-open): its success closes the circuit, its failure opens it again.
+ * <p>
+ * Calls rejected locally ({@link DownstreamUnavailableException}, e.g. by a bulkhead) don't count as failures.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final String name;
+
+    private final double failureRateThreshold;
+
+    private final int minimumCalls;
+
+    private final long openNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // ring buffer of the last outcomes, true for a failure
+    private final boolean[] outcomes;
+
+    private int next;
+
+    private int recorded;
+
+    private int failures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private boolean trialInFlight;
+
+    private final Counter rejected;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int windowSize, int minimumCalls, Duration openDuration,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openNanos = openDuration.toNanos();
+        this.outcomes = new boolean[windowSize];
+
+        this.rejected = Counter.builder("downstream.circuit.rejected").tag("downstream", name).register(meterRegistry);
+        // 0 closed, 1 open, 2 half-open
+        Gauge.builder("downstream.circuit.state", this, breaker -> breaker.state().ordinal())
+                .tag("downstream", name).register(meterRegistry);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether a call may be made now; every permitted call must be followed by {@link #onSuccess()},
+     * {@link #onFailure()} or {@link #onIgnored()}.
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.OPEN || (state == State.HALF_OPEN && trialInFlight)) {
+                rejected.increment();
+                return false;
+            }
+            if (state == State.HALF_OPEN) {
+                trialInFlight = true;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                transition(State.CLOSED);
+            } else {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                transition(State.OPEN);
+                return;
+            }
+            record(true);
+            if (state == State.CLOSED && recorded >= minimumCalls && failures * 100.0 / recorded >= failureRateThreshold) {
+                transition(State.OPEN);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The call was not made after all, e.g. rejected by a bulkhead.
+     */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            trialInFlight = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        if (!tryAcquire()) {
+            throw new CircuitOpenException(name);
+        }
+        T result;
+        try {
+            result = call.get();
+        } catch (DownstreamUnavailableException e) {
+            onIgnored();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            onFailure();
+            throw e;
+        }
+        onSuccess();
+        return result;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void transition(State newState) {
+        logger.info("Circuit breaker for {} changed from {} to {}", name, state, newState);
+        state = newState;
+        trialInFlight = false;
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (newState == State.CLOSED) {
+            // start over, the failures before the circuit opened say nothing about the recovered service
+            next = 0;
+            recorded = 0;
+            failures = 0;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.demo.qdrant_ollama.service;
+
+/**
+ * Thrown instead of calling a downstream service whose circuit breaker is open.
+ */
+public class CircuitOpenException extends DownstreamUnavailableException {
+
+    public CircuitOpenException(String downstream) {
+        super("Circuit breaker for " + downstream + " is open");
+    }
+}
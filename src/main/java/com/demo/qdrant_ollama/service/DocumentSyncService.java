@@ -0,0 +1,477 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.embedding.IngestEmbeddings;
+import com.demo.qdrant_ollama.embedding.PrecomputedEmbeddings;
+import com.demo.qdrant_ollama.export.CollectionScanner;
+import com.demo.qdrant_ollama.export.StoredChunk;
+import com.demo.qdrant_ollama.ingest.DocumentChunker;
+import com.demo.qdrant_ollama.lexical.LexicalIndex;
+import com.demo.qdrant_ollama.model.Document;
+import com.demo.qdrant_ollama.vectorstore.EmbeddedHnswVectorStore;
+import com.demo.qdrant_ollama.vectorstore.ShadowVectorStore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.milvus.client.MilvusClient;
+import io.milvus.orm.iterator.QueryIterator;
+import io.milvus.param.R;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.QueryIteratorParam;
+import io.milvus.response.QueryResultsWrapper;
+import io.qdrant.client.ConditionFactory;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.WithPayloadSelectorFactory;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.Points;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Writes documents to the vector store incrementally.
+ * <p>
+ * Every chunk carries the {@code docId} and {@code contentHash} of its document. Before writing, the stored
+ * hashes are read back from the collection and only new or changed documents are embedded, in the ingestion
+ * embedding bulkhead ({@link IngestEmbeddings}); unchanged documents cost no embedding call. Chunk ids are derived from the document id and chunk index, so the new
+ * version of a changed document overwrites the old one in place and only the old chunks past its new end are
+ * deleted afterwards: searches never see the document without chunks, and a failed write leaves the old version
+ * intact. Milvus inserts rather than upserts, so there the old chunks are deleted right before the new ones are
+ * written. Every write and delete is mirrored to the {@link LexicalIndex}, and in shadow mode to the
+ * {@link ShadowVectorStore#shadow() shadow store}.
+ * <p>
+ * In shadow mode the primary store alone decides what is written. Afterwards the shadow is compared with the
+ * primary and documents it lacks or holds in another version are copied over from the primary, stored vectors
+ * included, so an empty shadow is backfilled without embedding anything and without touching the primary. Only
+ * the chunks of those documents are read from the primary, through a {@code docId} filter.
+ */
+@Service
+public class DocumentSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentSyncService.class);
+
+    private static final String COLLECTION_NAME = "documents";
+
+    private static final int PAGE_SIZE = 1000;
+
+    // documents per stale chunk delete, each one adds a condition to the filter
+    private static final int DELETE_BATCH_SIZE = 100;
+
+    // documents per filtered read of the primary when copying to the shadow
+    private static final int COPY_BATCH_SIZE = 500;
+
+    // stored hash of a document whose chunks carry different content hashes, e.g. after an interrupted write;
+    // never equal to a real hash, so the document counts as changed and is rewritten
+    private static final String MIXED_VERSIONS = "mixed";
+
+    private final VectorStore vectorStore;
+
+    private final DocumentChunker chunker;
+
+    private final ObjectMapper objectMapper;
+
+    private final LexicalIndex lexicalIndex;
+
+    private final CollectionScanner collectionScanner;
+
+    @Autowired
+    public DocumentSyncService(@Qualifier("customVectorStore") VectorStore vectorStore, DocumentChunker chunker, ObjectMapper objectMapper,
+                               LexicalIndex lexicalIndex, CollectionScanner collectionScanner) {
+        this.vectorStore = vectorStore;
+        this.chunker = chunker;
+        this.objectMapper = objectMapper;
+        this.lexicalIndex = lexicalIndex;
+        this.collectionScanner = collectionScanner;
+    }
+
+    public record SyncResult(int added, int updated, int unchanged, int removed, int chunksWritten) {
+
+        public boolean changed() {
+            return added + updated + removed > 0;
+        }
+    }
+
+    /**
+     * Makes the collection hold exactly the given documents: new and changed documents are written and
+     * documents that are no longer present are deleted.
+     */
+    public SyncResult sync(List<Document> documents) {
+        StoredState stored = readStoredState(primaryStore(), null);
+        SyncResult result = write(documents, stored.hashes());
+
+        Set<String> wanted = documents.stream().map(DocumentChunker::docIdOf).collect(Collectors.toSet());
+        List<String> removed = stored.hashes().keySet().stream().filter(docId -> !wanted.contains(docId)).toList();
+        deleteByDocIds(removed);
+        if (!stored.unversionedChunkIds().isEmpty()) {
+            // chunks written before documents carried a docId can't be matched, drop them
+            vectorStore.delete(stored.unversionedChunkIds());
+            lexicalIndex.delete(stored.unversionedChunkIds());
+        }
+
+        backfillShadow(null);
+
+        SyncResult synced = new SyncResult(result.added(), result.updated(), result.unchanged(), removed.size(), result.chunksWritten());
+        logger.info("Synchronized collection '{}': {}", COLLECTION_NAME, synced);
+        return synced;
+    }
+
+    /**
+     * Writes new and changed documents without touching documents that are not part of the batch.
+     */
+    public SyncResult upsert(List<Document> documents) {
+        List<String> docIds = documents.stream().map(DocumentChunker::docIdOf).toList();
+        SyncResult result = write(documents, readStoredState(primaryStore(), docIds).hashes());
+        backfillShadow(docIds);
+        return result;
+    }
+
+    private SyncResult write(List<Document> documents, Map<String, String> storedHashes) {
+        int added = 0;
+        int unchanged = 0;
+        // docId -> content hash of the new version
+        Map<String, String> changed = new HashMap<>();
+        List<org.springframework.ai.document.Document> chunks = new ArrayList<>();
+        for (Document document : documents) {
+            String docId = DocumentChunker.docIdOf(document);
+            String storedHash = storedHashes.get(docId);
+            String contentHash = DocumentChunker.contentHash(document);
+            if (storedHash == null) {
+                added++;
+            } else if (storedHash.equals(contentHash)) {
+                unchanged++;
+                continue;
+            } else {
+                changed.put(docId, contentHash);
+            }
+            chunks.addAll(chunker.toAiDocuments(document));
+        }
+
+        if (!changed.isEmpty()) {
+            onEachStore(store -> {
+                if (insertsOnly(store)) {
+                    deleteByDocIds(store, List.copyOf(changed.keySet()));
+                }
+            });
+        }
+        if (!chunks.isEmpty()) {
+            try (IngestEmbeddings.Scope scope = IngestEmbeddings.activate()) {
+                vectorStore.add(chunks);
+            }
+            lexicalIndex.upsert(chunks);
+        }
+        if (!changed.isEmpty()) {
+            onEachStore(store -> {
+                if (!insertsOnly(store)) {
+                    deleteStaleChunks(store, changed);
+                }
+            });
+            lexicalIndex.deleteStale(changed);
+        }
+        return new SyncResult(added, changed.size(), unchanged, 0, chunks.size());
+    }
+
+    /**
+     * Loads every stored chunk into the lexical index, which only lives in memory.
+     *
+     * @return the number of chunks loaded
+     */
+    public int loadLexicalIndex() {
+        if (!collectionScanner.supports(vectorStore)) {
+            logger.warn("Vector store client not available. The lexical index only holds documents written from now on");
+            return 0;
+        }
+        long loaded;
+        try {
+            loaded = collectionScanner.scan(vectorStore, false,
+                    page -> lexicalIndex.upsert(page.stream().map(StoredChunk::toDocument).toList()));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load the lexical index from collection '" + COLLECTION_NAME + "'", e);
+        }
+        logger.info("Loaded {} chunks from collection '{}' into the lexical index", loaded, COLLECTION_NAME);
+        return (int) loaded;
+    }
+
+    /**
+     * @param hashes docId -> content hash of the stored chunks, {@link #MIXED_VERSIONS} if they disagree
+     */
+    private record StoredState(Map<String, String> hashes, List<String> unversionedChunkIds) {
+    }
+
+    private VectorStore primaryStore() {
+        return vectorStore instanceof ShadowVectorStore shadowStore ? shadowStore.primary() : vectorStore;
+    }
+
+    /**
+     * Makes the shadow store hold the primary's version of the given documents, or of the whole collection if
+     * {@code docIds} is null: documents the shadow lacks or holds in another version are copied from the primary,
+     * documents only the shadow holds are deleted. A failure leaves the shadow to the next sync.
+     */
+    private void backfillShadow(Collection<String> docIds) {
+        if (!(vectorStore instanceof ShadowVectorStore shadowStore)) {
+            return;
+        }
+        shadowStore.mirror("backfill", () -> {
+            Map<String, String> primaryHashes = readStoredState(shadowStore.primary(), docIds).hashes();
+            StoredState shadow = readStoredState(shadowStore.shadow(), docIds);
+            Set<String> stale = primaryHashes.entrySet().stream()
+                    .filter(entry -> MIXED_VERSIONS.equals(entry.getValue()) || !entry.getValue().equals(shadow.hashes().get(entry.getKey())))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            List<String> obsolete = new ArrayList<>(stale);
+            shadow.hashes().keySet().stream().filter(docId -> !primaryHashes.containsKey(docId)).forEach(obsolete::add);
+            if (obsolete.isEmpty() && shadow.unversionedChunkIds().isEmpty()) {
+                return;
+            }
+
+            // the shadow may insert rather than upsert (Milvus), so its old versions go first
+            deleteByDocIds(shadowStore.shadow(), obsolete);
+            if (!shadow.unversionedChunkIds().isEmpty()) {
+                shadowStore.shadow().delete(shadow.unversionedChunkIds());
+            }
+            long copied = stale.isEmpty() ? 0 : copyToShadow(shadowStore, stale);
+            logger.info("Backfilled shadow store: copied {} chunks of {} documents, removed {} documents",
+                    copied, stale.size(), obsolete.size() - stale.size());
+        });
+    }
+
+    private long copyToShadow(ShadowVectorStore shadowStore, Set<String> docIds) {
+        if (!collectionScanner.supports(shadowStore.primary())) {
+            throw new IllegalStateException("The primary store can't be scanned, its documents can't be copied");
+        }
+        List<String> stale = List.copyOf(docIds);
+        long copied = 0;
+        try {
+            // only the chunks of these documents are read, vectors included, not the whole primary
+            for (int from = 0; from < stale.size(); from += COPY_BATCH_SIZE) {
+                List<String> batch = stale.subList(from, Math.min(from + COPY_BATCH_SIZE, stale.size()));
+                copied += collectionScanner.scan(shadowStore.primary(), batch, true, page -> {
+                    List<org.springframework.ai.document.Document> chunks = new ArrayList<>(page.size());
+                    Map<String, float[]> vectors = new HashMap<>();
+                    for (StoredChunk chunk : page) {
+                        chunks.add(chunk.toDocument());
+                        if (chunk.vector() != null) {
+                            vectors.put(chunk.content(), chunk.vector());
+                        }
+                    }
+                    // the shadow store embeds through PrecomputedEmbeddingModel, which hands back the primary's vectors
+                    try (PrecomputedEmbeddings.Scope scope = PrecomputedEmbeddings.activate(vectors)) {
+                        shadowStore.shadow().add(chunks);
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to copy documents from the primary store", e);
+        }
+        return copied;
+    }
+
+    private StoredState readStoredState(VectorStore store, Collection<String> docIds) {
+        Map<String, String> hashes = new HashMap<>();
+        List<String> unversioned = new ArrayList<>();
+        if (docIds != null && docIds.isEmpty()) {
+            return new StoredState(hashes, unversioned);
+        }
+
+        try {
+            if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof QdrantClient nativeClient) {
+                Points.ScrollPoints.Builder request = Points.ScrollPoints.newBuilder()
+                        .setCollectionName(COLLECTION_NAME)
+                        .setLimit(PAGE_SIZE)
+                        .setWithPayload(WithPayloadSelectorFactory.include(List.of("docId", "contentHash")));
+                if (docIds != null) {
+                    request.setFilter(Points.Filter.newBuilder().addMust(ConditionFactory.matchKeywords("docId", List.copyOf(docIds))));
+                }
+                while (true) {
+                    Points.ScrollResponse response = nativeClient.scrollAsync(request.build()).get();
+                    for (Points.RetrievedPoint point : response.getResultList()) {
+                        Map<String, JsonWithInt.Value> payload = point.getPayloadMap();
+                        if (payload.containsKey("docId")) {
+                            putStoredHash(hashes, payload.get("docId").getStringValue(),
+                                    payload.containsKey("contentHash") ? payload.get("contentHash").getStringValue() : "");
+                        } else {
+                            unversioned.add(point.getId().getUuid());
+                        }
+                    }
+                    if (!response.hasNextPageOffset()) {
+                        break;
+                    }
+                    request.setOffset(response.getNextPageOffset());
+                }
+            } else if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof MilvusClient milvusClient) {
+                R<QueryIterator> iteratorResponse = milvusClient.queryIterator(QueryIteratorParam.newBuilder()
+                        .withCollectionName(COLLECTION_NAME)
+                        .withExpr(docIds != null ? "metadata[\"docId\"] in " + milvusStringList(docIds) : "doc_id != ''")
+                        .withOutFields(List.of("doc_id", "metadata"))
+                        .withBatchSize((long) PAGE_SIZE)
+                        .build());
+                if (iteratorResponse.getException() != null) {
+                    throw iteratorResponse.getException();
+                }
+                QueryIterator iterator = iteratorResponse.getData();
+                try {
+                    List<QueryResultsWrapper.RowRecord> page;
+                    while (!(page = iterator.next()).isEmpty()) {
+                        for (QueryResultsWrapper.RowRecord record : page) {
+                            Map<String, Object> metadata = parseMilvusMetadata(record.get("metadata"));
+                            if (metadata.containsKey("docId")) {
+                                putStoredHash(hashes, metadata.get("docId").toString(), String.valueOf(metadata.getOrDefault("contentHash", "")));
+                            } else {
+                                unversioned.add(record.get("doc_id").toString());
+                            }
+                        }
+                    }
+                } finally {
+                    iterator.close();
+                }
+            } else if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof EmbeddedHnswVectorStore embeddedStore) {
+                List<org.springframework.ai.document.Document> chunks = embeddedStore.findAll(
+                        docIds != null ? new FilterExpressionBuilder().in("docId", List.copyOf(docIds).toArray()).build() : null);
+                for (org.springframework.ai.document.Document chunk : chunks) {
+                    Map<String, Object> metadata = chunk.getMetadata();
+                    if (metadata.containsKey("docId")) {
+                        putStoredHash(hashes, metadata.get("docId").toString(), String.valueOf(metadata.getOrDefault("contentHash", "")));
+                    } else {
+                        unversioned.add(chunk.getId());
+                    }
+                }
+            } else {
+                logger.warn("Vector store client not available. Treating all documents as new");
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to read stored document hashes from " + store.getName() + " collection '" + COLLECTION_NAME + "'", e);
+        }
+        return new StoredState(hashes, unversioned);
+    }
+
+    private static void putStoredHash(Map<String, String> hashes, String docId, String contentHash) {
+        hashes.merge(docId, contentHash, (stored, hash) -> stored.equals(hash) ? stored : MIXED_VERSIONS);
+    }
+
+    private void deleteByDocIds(List<String> docIds) {
+        if (docIds.isEmpty()) {
+            return;
+        }
+        onEachStore(store -> deleteByDocIds(store, docIds));
+        lexicalIndex.deleteByDocIds(docIds);
+        logger.info("Deleted chunks of {} documents from collection '{}'", docIds.size(), COLLECTION_NAME);
+    }
+
+    /**
+     * Applies a write to the store, and in shadow mode to both stores.
+     */
+    private void onEachStore(Consumer<VectorStore> write) {
+        if (vectorStore instanceof ShadowVectorStore shadowStore) {
+            write.accept(shadowStore.primary());
+            shadowStore.mirror("delete", () -> write.accept(shadowStore.shadow()));
+        } else {
+            write.accept(vectorStore);
+        }
+    }
+
+    private static boolean insertsOnly(VectorStore store) {
+        return store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof MilvusClient;
+    }
+
+    /**
+     * Deletes the chunks of the given documents that don't carry their current content hash, i.e. what is left of
+     * the previous version after the new one overwrote it. Only for stores that upsert.
+     *
+     * @param contentHashes docId -> current content hash
+     */
+    private void deleteStaleChunks(VectorStore store, Map<String, String> contentHashes) {
+        List<Map.Entry<String, String>> documents = List.copyOf(contentHashes.entrySet());
+        try {
+            for (int from = 0; from < documents.size(); from += DELETE_BATCH_SIZE) {
+                List<Map.Entry<String, String>> batch = documents.subList(from, Math.min(from + DELETE_BATCH_SIZE, documents.size()));
+                if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof QdrantClient nativeClient) {
+                    Points.Filter.Builder filter = Points.Filter.newBuilder();
+                    for (Map.Entry<String, String> document : batch) {
+                        filter.addShould(ConditionFactory.filter(Points.Filter.newBuilder()
+                                .addMust(ConditionFactory.matchKeyword("docId", document.getKey()))
+                                .addMustNot(ConditionFactory.matchKeyword("contentHash", document.getValue()))
+                                .build()));
+                    }
+                    nativeClient.deleteAsync(
+                            Points.DeletePoints.newBuilder()
+                                    .setCollectionName(COLLECTION_NAME)
+                                    .setPoints(Points.PointsSelector.newBuilder().setFilter(filter.build()).build())
+                                    .build()
+                    ).get();
+                } else if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof EmbeddedHnswVectorStore embeddedStore) {
+                    FilterExpressionBuilder builder = new FilterExpressionBuilder();
+                    FilterExpressionBuilder.Op filter = null;
+                    for (Map.Entry<String, String> document : batch) {
+                        FilterExpressionBuilder.Op stale = builder.and(builder.eq("docId", document.getKey()),
+                                builder.ne("contentHash", document.getValue()));
+                        filter = filter == null ? stale : builder.or(filter, stale);
+                    }
+                    embeddedStore.delete(filter.build());
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to delete stale chunks from " + store.getName() + " collection '" + COLLECTION_NAME + "'", e);
+        }
+    }
+
+    private void deleteByDocIds(VectorStore store, List<String> docIds) {
+        if (docIds.isEmpty()) {
+            return;
+        }
+        try {
+            if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof QdrantClient nativeClient) {
+                Points.Filter filter = Points.Filter.newBuilder()
+                        .addMust(ConditionFactory.matchKeywords("docId", docIds))
+                        .build();
+                nativeClient.deleteAsync(
+                        Points.DeletePoints.newBuilder()
+                                .setCollectionName(COLLECTION_NAME)
+                                .setPoints(Points.PointsSelector.newBuilder().setFilter(filter).build())
+                                .build()
+                ).get();
+            } else if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof MilvusClient milvusClient) {
+                R<?> response = milvusClient.delete(DeleteParam.newBuilder()
+                        .withCollectionName(COLLECTION_NAME)
+                        .withExpr("metadata[\"docId\"] in " + milvusStringList(docIds))
+                        .build());
+                if (response.getException() != null) {
+                    throw response.getException();
+                }
+            } else if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof EmbeddedHnswVectorStore embeddedStore) {
+                embeddedStore.delete(new FilterExpressionBuilder().in("docId", docIds.toArray()).build());
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to delete documents from " + store.getName() + " collection '" + COLLECTION_NAME + "'", e);
+        }
+    }
+
+    private Map<String, Object> parseMilvusMetadata(Object value) throws Exception {
+        if (value == null) {
+            return Map.of();
+        }
+        String json = value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : value.toString();
+        return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+        });
+    }
+
+    private static String milvusStringList(Collection<String> values) {
+        Set<String> distinct = new HashSet<>(values);
+        return distinct.stream()
+                .map(value -> "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+}
@@ -0,0 +1,28 @@
+package com.demo.qdrant_ollama.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published whenever the content of the vector store changes (initialization, re-ingest, sync), so that
+ * components holding derived state such as cached answers can drop it.
+ *
+ * @param docIds the documents that were added, changed or removed, or {@code null} if any document may have changed
+ */
+public record DocumentsChangedEvent(String reason, Set<String> docIds) {
+
+    public DocumentsChangedEvent(String reason) {
+        this(reason, null);
+    }
+
+    public DocumentsChangedEvent {
+        docIds = docIds != null ? Set.copyOf(docIds) : null;
+    }
+
+    /**
+     * Whether state derived from any of the given documents is outdated.
+     */
+    public boolean affects(Collection<String> documentIds) {
+        return docIds == null || documentIds.stream().anyMatch(docIds::contains);
+    }
+}
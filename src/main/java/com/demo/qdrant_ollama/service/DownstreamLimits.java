@@ -0,0 +1,53 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limits per downstream service. Request threads are virtual, so they are cheap to block, but
+ * Ollama and the vector database are not: these bulkheads keep the number of in-flight calls bounded. Generations
+ * are limited by the {@link GenerationScheduler}. Ingestion embeds through a bulkhead of its own, so a bulk ingest
+ * queues behind its own limit and never leaves searches without an embedding slot.
+ */
+@Component
+public class DownstreamLimits {
+
+    private final Bulkhead embedding;
+
+    private final Bulkhead ingestEmbedding;
+
+    private final Bulkhead vectorStore;
+
+    @Autowired
+    public DownstreamLimits(@Value("${downstream.ollama-embedding.max-concurrent:8}") int embeddingMaxConcurrent,
+                            @Value("${downstream.ollama-embedding.max-waiting:64}") int embeddingMaxWaiting,
+                            @Value("${downstream.ollama-embedding.max-wait:5s}") Duration embeddingMaxWait,
+                            @Value("${downstream.ollama-ingest-embedding.max-concurrent:2}") int ingestEmbeddingMaxConcurrent,
+                            @Value("${downstream.ollama-ingest-embedding.max-waiting:64}") int ingestEmbeddingMaxWaiting,
+                            @Value("${downstream.ollama-ingest-embedding.max-wait:60s}") Duration ingestEmbeddingMaxWait,
+                            @Value("${downstream.vector-store.max-concurrent:32}") int vectorStoreMaxConcurrent,
+                            @Value("${downstream.vector-store.max-waiting:256}") int vectorStoreMaxWaiting,
+                            @Value("${downstream.vector-store.max-wait:2s}") Duration vectorStoreMaxWait,
+                            MeterRegistry meterRegistry) {
+        this.embedding = new Bulkhead("ollama-embedding", embeddingMaxConcurrent, embeddingMaxWaiting, embeddingMaxWait, meterRegistry);
+        this.ingestEmbedding = new Bulkhead("ollama-ingest-embedding", ingestEmbeddingMaxConcurrent, ingestEmbeddingMaxWaiting,
+                ingestEmbeddingMaxWait, meterRegistry);
+        this.vectorStore = new Bulkhead("vector-store", vectorStoreMaxConcurrent, vectorStoreMaxWaiting, vectorStoreMaxWait, meterRegistry);
+    }
+
+    public Bulkhead embedding() {
+        return embedding;
+    }
+
+    public Bulkhead ingestEmbedding() {
+        return ingestEmbedding;
+    }
+
+    public Bulkhead vectorStore() {
+        return vectorStore;
+    }
+}
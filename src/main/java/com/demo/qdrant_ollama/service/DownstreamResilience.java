@@ -0,0 +1,105 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breakers per downstream service and the retry policy for idempotent reads. Complements
+ * {@link DownstreamLimits}: the bulkheads bound how many calls are in flight, the breakers stop calling a service
+ * that keeps failing. Embeddings and vector searches are retried, chat generation is not (too expensive to repeat).
+ * <p>
+ * Each vector store provider has a breaker and retry policy of its own ({@code vector-store-<provider>}), so a
+ * failing shadow store (see {@code vector-store.shadow.provider}) can't open the circuit of the primary one.
+ */
+@Component
+public class DownstreamResilience {
+
+    private final CircuitBreaker chat;
+
+    private final CircuitBreaker embedding;
+
+    private final RetryPolicy embeddingRetry;
+
+    private final Map<String, VectorStoreResilience> vectorStores = new ConcurrentHashMap<>();
+
+    private final double failureRateThreshold;
+
+    private final int windowSize;
+
+    private final int minimumCalls;
+
+    private final Duration openDuration;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public DownstreamResilience(@Value("${downstream.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+                                @Value("${downstream.circuit-breaker.window-size:20}") int windowSize,
+                                @Value("${downstream.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                @Value("${downstream.circuit-breaker.open-duration:30s}") Duration openDuration,
+                                @Value("${downstream.retry.max-attempts:3}") int maxAttempts,
+                                @Value("${downstream.retry.initial-backoff:50ms}") Duration initialBackoff,
+                                @Value("${downstream.retry.max-backoff:1s}") Duration maxBackoff,
+                                MeterRegistry meterRegistry) {
+        this.chat = new CircuitBreaker("ollama-chat", failureRateThreshold, windowSize, minimumCalls, openDuration, meterRegistry);
+        this.embedding = new CircuitBreaker("ollama-embedding", failureRateThreshold, windowSize, minimumCalls, openDuration, meterRegistry);
+        this.embeddingRetry = new RetryPolicy("ollama-embedding", maxAttempts, initialBackoff, maxBackoff, meterRegistry);
+        this.failureRateThreshold = failureRateThreshold;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public CircuitBreaker chat() {
+        return chat;
+    }
+
+    /**
+     * Retried embedding call behind the embedding circuit breaker; every attempt is recorded by the breaker.
+     */
+    public <T> T embeddingRead(Supplier<T> call) {
+        return embeddingRetry.execute(() -> embedding.execute(call));
+    }
+
+    /**
+     * Retried vector database read behind the circuit breaker of {@code provider}'s store.
+     */
+    public <T> T vectorStoreRead(String provider, Supplier<T> call) {
+        VectorStoreResilience store = vectorStore(provider);
+        return store.retry().execute(() -> store.breaker().execute(call));
+    }
+
+    public CircuitBreaker vectorStoreBreaker(String provider) {
+        return vectorStore(provider).breaker();
+    }
+
+    private VectorStoreResilience vectorStore(String provider) {
+        return vectorStores.computeIfAbsent(provider.toLowerCase(Locale.ROOT), key -> {
+            String name = "vector-store-" + key;
+            return new VectorStoreResilience(
+                    new CircuitBreaker(name, failureRateThreshold, windowSize, minimumCalls, openDuration, meterRegistry),
+                    new RetryPolicy(name, maxAttempts, initialBackoff, maxBackoff, meterRegistry));
+        });
+    }
+
+    private record VectorStoreResilience(CircuitBreaker breaker, RetryPolicy retry) {
+    }
+}
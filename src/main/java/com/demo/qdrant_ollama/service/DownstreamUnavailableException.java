@@ -0,0 +1,12 @@
+package com.demo.qdrant_ollama.service;
+
+/**
+ * A downstream call that was not attempted because the service is considered unavailable right now, either
+ * saturated ({@link BulkheadFullException}) or failing ({@link CircuitOpenException}). Callers degrade or answer 503.
+ */
+public class DownstreamUnavailableException extends RuntimeException {
+
+    public DownstreamUnavailableException(String message) {
+        super(message);
+    }
+}
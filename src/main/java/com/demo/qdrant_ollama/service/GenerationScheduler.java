@@ -0,0 +1,332 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits generations to the chat model, at most {@code max-concurrent} at a time, which should match Ollama's
+ * parallel slots ({@code OLLAMA_NUM_PARALLEL}): more would only queue inside Ollama, where nothing can be
+ * prioritized or shed.
+ * <p>
+ * Callers wait in one of two lanes. A free slot always goes to the oldest {@link Lane#INTERACTIVE} caller first;
+ * {@link Lane#BATCH} callers (batch searches) get the rest, and never more than {@code batch.max-concurrent} slots,
+ * so an interactive request finds a slot within one generation even while a large batch runs. Each lane has a
+ * deadline ({@code max-wait}, {@code batch.max-wait}): a caller still queued at its deadline is shed, and a caller
+ * whose expected wait (the queue ahead of it times the recent generation time, divided by the lane's slots)
+ * already exceeds the deadline is shed on arrival instead of queueing in vain. Shed calls fail with
+ * {@link BulkheadFullException}, so the search degrades to documents without an answer.
+ * <p>
+ * Per lane, {@code generation.queue.wait} records the time to get a slot and {@code generation.first.token} the
+ * time from arrival to the first answer token, queueing included; shed calls are counted in
+ * {@code generation.shed} by {@code reason}. The {@code downstream.*} metrics of the former chat bulkhead are kept.
+ */
+@Component
+public class GenerationScheduler {
+
+    public enum Lane {
+        INTERACTIVE, BATCH;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final String NAME = "ollama-chat";
+
+    // weight of the latest generation in the average used to estimate queue waits
+    private static final double AVERAGE_WEIGHT = 0.2;
+
+    private final int maxConcurrent;
+
+    private final int batchMaxConcurrent;
+
+    private final int maxWaiting;
+
+    private final Map<Lane, Long> maxWaitNanos = new EnumMap<>(Lane.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<Lane, ArrayDeque<Waiter>> queues = new EnumMap<>(Lane.class);
+
+    private final Map<Lane, Integer> active = new EnumMap<>(Lane.class);
+
+    private double averageGenerationNanos;
+
+    private long lastReleased = System.nanoTime();
+
+    private final Map<Lane, Timer> queueWait = new EnumMap<>(Lane.class);
+
+    private final Map<Lane, Timer> firstToken = new EnumMap<>(Lane.class);
+
+    private final Map<Lane, Counter> shedQueueFull = new EnumMap<>(Lane.class);
+
+    private final Map<Lane, Counter> shedDeadline = new EnumMap<>(Lane.class);
+
+    private final Counter rejected;
+
+    @Autowired
+    public GenerationScheduler(@Value("${downstream.ollama-chat.max-concurrent:4}") int maxConcurrent,
+                               @Value("${downstream.ollama-chat.max-waiting:32}") int maxWaiting,
+                               @Value("${downstream.ollama-chat.max-wait:10s}") Duration maxWait,
+                               @Value("${downstream.ollama-chat.batch.max-concurrent:2}") int batchMaxConcurrent,
+                               @Value("${downstream.ollama-chat.batch.max-wait:60s}") Duration batchMaxWait,
+                               MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.batchMaxConcurrent = Math.max(1, Math.min(batchMaxConcurrent, maxConcurrent));
+        this.maxWaiting = maxWaiting;
+        this.maxWaitNanos.put(Lane.INTERACTIVE, maxWait.toNanos());
+        this.maxWaitNanos.put(Lane.BATCH, batchMaxWait.toNanos());
+
+        this.rejected = Counter.builder("downstream.rejected").tag("downstream", NAME).register(meterRegistry);
+        Gauge.builder("downstream.active", this, scheduler -> scheduler.active(null)).tag("downstream", NAME).register(meterRegistry);
+        Gauge.builder("downstream.waiting", this, scheduler -> scheduler.waiting(null)).tag("downstream", NAME).register(meterRegistry);
+        for (Lane lane : Lane.values()) {
+            queues.put(lane, new ArrayDeque<>());
+            active.put(lane, 0);
+            queueWait.put(lane, Timer.builder("generation.queue.wait")
+                    .tag("lane", lane.tag())
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+            firstToken.put(lane, Timer.builder("generation.first.token")
+                    .tag("lane", lane.tag())
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+            shedQueueFull.put(lane, Counter.builder("generation.shed").tag("lane", lane.tag()).tag("reason", "queue_full").register(meterRegistry));
+            shedDeadline.put(lane, Counter.builder("generation.shed").tag("lane", lane.tag()).tag("reason", "deadline").register(meterRegistry));
+            Gauge.builder("generation.active", this, scheduler -> scheduler.active(lane)).tag("lane", lane.tag()).register(meterRegistry);
+            Gauge.builder("generation.waiting", this, scheduler -> scheduler.waiting(lane)).tag("lane", lane.tag()).register(meterRegistry);
+        }
+    }
+
+    /**
+     * Waits for a generation slot in {@code lane}; the returned slot must be closed once the generation has ended.
+     *
+     * @throws BulkheadFullException if the call is shed
+     */
+    public Slot acquire(Lane lane) {
+        long arrival = System.nanoTime();
+        long deadline = arrival + maxWaitNanos.get(lane);
+        lock.lock();
+        try {
+            if (queuedAhead(lane) == 0 && hasCapacity(lane)) {
+                return grant(lane, arrival);
+            }
+            if (waiting(null) >= maxWaiting) {
+                throw shed(lane, shedQueueFull);
+            }
+            if (estimatedWaitNanos(lane) > maxWaitNanos.get(lane)) {
+                throw shed(lane, shedDeadline);
+            }
+            Waiter waiter = new Waiter(deadline, lock.newCondition());
+            queues.get(lane).addLast(waiter);
+            try {
+                while (!waiter.granted) {
+                    long remaining = deadline - System.nanoTime();
+                    if (waiter.expired || remaining <= 0) {
+                        queues.get(lane).remove(waiter);
+                        throw shed(lane, shedDeadline);
+                    }
+                    waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (waiter.granted) {
+                    // the slot was handed over just before the interrupt, it goes to the next caller
+                    active.merge(lane, -1, Integer::sum);
+                    dispatch();
+                }
+                queues.get(lane).remove(waiter);
+                throw shed(lane, shedDeadline);
+            }
+            return new Slot(lane, arrival, waiter.grantedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A slot taken on arrival, without queueing.
+     */
+    private Slot grant(Lane lane, long arrival) {
+        active.merge(lane, 1, Integer::sum);
+        return new Slot(lane, arrival, arrival);
+    }
+
+    private boolean hasCapacity(Lane lane) {
+        return active(null) < maxConcurrent && (lane == Lane.INTERACTIVE || active.get(Lane.BATCH) < batchMaxConcurrent);
+    }
+
+    /**
+     * Callers that will be served before a new caller in {@code lane}.
+     */
+    private int queuedAhead(Lane lane) {
+        return lane == Lane.INTERACTIVE ? queues.get(Lane.INTERACTIVE).size() : waiting(null);
+    }
+
+    private long estimatedWaitNanos(Lane lane) {
+        int slots = lane == Lane.INTERACTIVE ? maxConcurrent : batchMaxConcurrent;
+        return (long) ((queuedAhead(lane) + 1) * averageGenerationNanos / slots);
+    }
+
+    private BulkheadFullException shed(Lane lane, Map<Lane, Counter> reason) {
+        reason.get(lane).increment();
+        rejected.increment();
+        return new BulkheadFullException(NAME + " (" + lane.tag() + " lane)");
+    }
+
+    private void release(Lane lane, long grantedAt) {
+        lock.lock();
+        try {
+            active.merge(lane, -1, Integer::sum);
+            lastReleased = System.nanoTime();
+            long generationNanos = lastReleased - grantedAt;
+            averageGenerationNanos = averageGenerationNanos == 0
+                    ? generationNanos
+                    : averageGenerationNanos + AVERAGE_WEIGHT * (generationNanos - averageGenerationNanos);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands free slots to the oldest interactive callers, then to batch callers; expired callers are skipped.
+     */
+    private void dispatch() {
+        long now = System.nanoTime();
+        for (Lane lane : Lane.values()) {
+            Iterator<Waiter> iterator = queues.get(lane).iterator();
+            while (iterator.hasNext() && hasCapacity(lane)) {
+                Waiter waiter = iterator.next();
+                iterator.remove();
+                if (waiter.deadline - now <= 0) {
+                    waiter.expired = true;
+                } else {
+                    waiter.granted = true;
+                    waiter.grantedAt = now;
+                    active.merge(lane, 1, Integer::sum);
+                }
+                waiter.condition.signal();
+            }
+        }
+    }
+
+    /**
+     * Whether no generation has run for at least {@code duration}.
+     */
+    public boolean idleFor(Duration duration) {
+        lock.lock();
+        try {
+            return active(null) == 0 && System.nanoTime() - lastReleased >= duration.toNanos();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int active(Lane lane) {
+        lock.lock();
+        try {
+            return lane != null ? active.get(lane) : active.get(Lane.INTERACTIVE) + active.get(Lane.BATCH);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int waiting(Lane lane) {
+        lock.lock();
+        try {
+            return lane != null ? queues.get(lane).size() : queues.get(Lane.INTERACTIVE).size() + queues.get(Lane.BATCH).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+
+        final long deadline;
+
+        final Condition condition;
+
+        boolean granted;
+
+        boolean expired;
+
+        long grantedAt;
+
+        Waiter(long deadline, Condition condition) {
+            this.deadline = deadline;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * A granted generation slot. Closing it more than once has no effect.
+     */
+    public final class Slot implements AutoCloseable {
+
+        private final Lane lane;
+
+        private final long arrival;
+
+        private final long grantedAt;
+
+        private boolean firstTokenRecorded;
+
+        private boolean closed;
+
+        private Slot(Lane lane, long arrival, long grantedAt) {
+            this.lane = lane;
+            this.arrival = arrival;
+            this.grantedAt = grantedAt;
+            queueWait.get(lane).record(grantedAt - arrival, TimeUnit.NANOSECONDS);
+        }
+
+        public Lane lane() {
+            return lane;
+        }
+
+        /**
+         * Records the time to the first token, when it arrives now.
+         */
+        public void firstToken() {
+            firstToken(System.nanoTime());
+        }
+
+        /**
+         * Records the time to the first token, for a generation whose tokens are only seen at the end.
+         *
+         * @param atNanos {@link System#nanoTime()} at which the first token was produced
+         */
+        public synchronized void firstToken(long atNanos) {
+            if (!firstTokenRecorded) {
+                firstTokenRecorded = true;
+                firstToken.get(lane).record(Math.max(0, atNanos - arrival), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release(lane, grantedAt);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.dto.IndexTuningReport;
+import com.demo.qdrant_ollama.dto.IndexTuningRequest;
+import com.demo.qdrant_ollama.vectorstore.NativeSearchVectorStore;
+import com.demo.qdrant_ollama.vectorstore.NativeVectorSearcher;
+import com.demo.qdrant_ollama.vectorstore.ShadowVectorStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures recall@k and latency of the vector index for a range of search parameters ({@code hnsw_ef},
+ * {@code nprobe} or {@code ef}) and recommends the cheapest one that reaches a target recall.
+ * <p>
+ * A random sample of stored vectors is used as queries. Their exact nearest neighbours are computed by streaming
+ * every stored vector once (brute force cosine), then each candidate value is measured against that ground truth.
+ * A query is a stored vector itself, which any index finds trivially, so it is left out of both its ground truth
+ * and its search results: recall@k counts the other k nearest vectors only.
+ * The scan is proportional to collection size times sample size, so it is meant to be run once after loading
+ * data, not per request.
+ */
+@Service
+public class IndexTuningService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexTuningService.class);
+
+    private static final int DEFAULT_SAMPLE_SIZE = 100;
+
+    private static final int MAX_SAMPLE_SIZE = 1000;
+
+    private static final int DEFAULT_K = 10;
+
+    private static final double DEFAULT_TARGET_RECALL = 0.95;
+
+    private final VectorStore vectorStore;
+
+    @Autowired
+    public IndexTuningService(@Qualifier("customVectorStore") VectorStore vectorStore) {
+        this.vectorStore = vectorStore;
+    }
+
+    public IndexTuningReport tune(IndexTuningRequest request) throws Exception {
+        // in shadow mode the primary serves the searches, so that's the index to tune
+        VectorStore vectorStore = this.vectorStore instanceof ShadowVectorStore shadowStore ? shadowStore.primary() : this.vectorStore;
+        if (!(vectorStore instanceof NativeSearchVectorStore nativeStore)) {
+            throw new IllegalArgumentException("Index tuning is not supported for " + vectorStore.getName());
+        }
+        int sampleSize = request == null || request.sampleSize() == null ? DEFAULT_SAMPLE_SIZE : request.sampleSize();
+        int k = request == null || request.k() == null ? DEFAULT_K : request.k();
+        double targetRecall = request == null || request.targetRecall() == null ? DEFAULT_TARGET_RECALL : request.targetRecall();
+        boolean apply = request != null && Boolean.TRUE.equals(request.apply());
+        if (sampleSize < 1 || sampleSize > MAX_SAMPLE_SIZE) {
+            throw new IllegalArgumentException("sampleSize must be between 1 and " + MAX_SAMPLE_SIZE);
+        }
+        if (k < 1 || targetRecall <= 0 || targetRecall > 1) {
+            throw new IllegalArgumentException("k must be positive and targetRecall in (0, 1]");
+        }
+
+        NativeVectorSearcher searcher = nativeStore.searcher();
+        if (searcher.searchParamName() == null) {
+            throw new IllegalArgumentException("The index of " + vectorStore.getName() + " has no search parameter to tune");
+        }
+        long exactStart = System.currentTimeMillis();
+        List<Query> queries = sampleVectors(searcher, sampleSize);
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("The collection is empty");
+        }
+        List<Set<String>> groundTruth = exactNeighbours(searcher, queries, k);
+        long exactSearchTimeMs = System.currentTimeMillis() - exactStart;
+
+        List<IndexTuningReport.Candidate> candidates = new ArrayList<>();
+        // one extra result per search makes up for the query itself
+        for (int value : searcher.searchParamCandidates(k + 1)) {
+            candidates.add(measure(searcher, queries, groundTruth, k, value));
+        }
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("No " + searcher.searchParamName() + " values to try for k=" + k);
+        }
+        int recommended = candidates.stream()
+                .filter(candidate -> candidate.recall() >= targetRecall)
+                .findFirst()
+                .orElseGet(() -> candidates.stream()
+                        .max((a, b) -> Double.compare(a.recall(), b.recall()))
+                        .orElseThrow())
+                .value();
+
+        int previous = nativeStore.searchParam();
+        if (apply) {
+            nativeStore.searchParam(recommended);
+            logger.info("Applied {}={} to {} searches (was {})", searcher.searchParamName(), recommended, vectorStore.getName(), previous);
+        }
+        return new IndexTuningReport(vectorStore.getName(), searcher.searchParamName(), queries.size(), k, targetRecall,
+                exactSearchTimeMs, candidates, recommended, previous, apply);
+    }
+
+    /**
+     * Reservoir sample over one pass of the collection, normalized for cosine scoring.
+     */
+    private static List<Query> sampleVectors(NativeVectorSearcher searcher, int sampleSize) throws Exception {
+        List<Query> sample = new ArrayList<>(sampleSize);
+        Random random = new Random(42);
+        long[] seen = {0};
+        searcher.forEachVector((id, vector) -> {
+            seen[0]++;
+            if (sample.size() < sampleSize) {
+                sample.add(new Query(id, normalize(vector)));
+            } else {
+                long slot = (long) (random.nextDouble() * seen[0]);
+                if (slot < sampleSize) {
+                    sample.set((int) slot, new Query(id, normalize(vector)));
+                }
+            }
+        });
+        return sample;
+    }
+
+    private static List<Set<String>> exactNeighbours(NativeVectorSearcher searcher, List<Query> queries, int k) throws Exception {
+        List<PriorityQueue<Hit>> heaps = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            heaps.add(new PriorityQueue<>(k + 1, (a, b) -> Float.compare(a.score(), b.score())));
+        }
+        searcher.forEachVector((id, vector) -> {
+            float[] normalized = normalize(vector);
+            for (int i = 0; i < queries.size(); i++) {
+                if (id.equals(queries.get(i).id())) {
+                    continue;
+                }
+                float score = dot(queries.get(i).vector(), normalized);
+                PriorityQueue<Hit> heap = heaps.get(i);
+                if (heap.size() < k) {
+                    heap.add(new Hit(id, score));
+                } else if (score > heap.peek().score()) {
+                    heap.poll();
+                    heap.add(new Hit(id, score));
+                }
+            }
+        });
+        List<Set<String>> neighbours = new ArrayList<>(heaps.size());
+        for (PriorityQueue<Hit> heap : heaps) {
+            Set<String> ids = new HashSet<>();
+            heap.forEach(hit -> ids.add(hit.id()));
+            neighbours.add(ids);
+        }
+        return neighbours;
+    }
+
+    private static IndexTuningReport.Candidate measure(NativeVectorSearcher searcher, List<Query> queries,
+                                                       List<Set<String>> groundTruth, int k, int value) throws Exception {
+        double[] latenciesMs = new double[queries.size()];
+        double recallSum = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            Query query = queries.get(i);
+            long start = System.nanoTime();
+            List<String> ids = searcher.searchIds(query.vector(), k + 1, value);
+            latenciesMs[i] = (System.nanoTime() - start) / 1_000_000.0;
+            recallSum += recall(ids.stream().filter(id -> !id.equals(query.id())).limit(k).toList(), groundTruth.get(i));
+        }
+        Arrays.sort(latenciesMs);
+        return new IndexTuningReport.Candidate(value, round(recallSum / queries.size()),
+                round(percentile(latenciesMs, 0.5)), round(percentile(latenciesMs, 0.95)));
+    }
+
+    /**
+     * Share of the exact neighbours among the results; 1 when there are none (a single stored vector).
+     */
+    static double recall(List<String> results, Set<String> expected) {
+        if (expected.isEmpty()) {
+            return 1;
+        }
+        return (double) results.stream().filter(expected::contains).count() / expected.size();
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, vector));
+        if (norm == 0) {
+            return vector;
+        }
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] / norm;
+        }
+        return normalized;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record Query(String id, float[] vector) {}
+
+    private record Hit(String id, float score) {}
+}
@@ -1,23 +1,37 @@
 package com.demo.qdrant_ollama.service;
 
+import com.demo.qdrant_ollama.ingest.DocumentChunker;
 import com.demo.qdrant_ollama.model.Document;
+import com.demo.qdrant_ollama.vectorstore.EmbeddedHnswVectorStore;
 import io.milvus.client.MilvusClient;
-import io.milvus.param.dml.DeleteParam;
+import io.milvus.common.clientenum.ConsistencyLevelEnum;
+import io.milvus.grpc.QueryResults;
+import io.milvus.param.R;
+import io.milvus.param.dml.QueryParam;
+import io.milvus.response.QueryResultsWrapper;
 import io.qdrant.client.QdrantClient;
-import io.qdrant.client.grpc.Points;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.Objects;
+import java.util.Properties;
 
 @Service
 public class MockDataService {
@@ -26,76 +40,154 @@ public class MockDataService {
 
     private final VectorStore vectorStore;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final DocumentChunker chunker;
+
+    private final DocumentSyncService documentSync;
+
+    private final StartupProgress progress;
+
+    @Value("${startup.seed-manifest-file:./data/seed-manifest.properties}")
+    private String seedManifestFile;
+
     @Autowired
-    public MockDataService(@Qualifier("customVectorStore") VectorStore vectorStore) {
+    public MockDataService(@Qualifier("customVectorStore") VectorStore vectorStore, ApplicationEventPublisher eventPublisher,
+                           DocumentChunker chunker, DocumentSyncService documentSync, StartupProgress progress) {
         this.vectorStore = vectorStore;
+        this.eventPublisher = eventPublisher;
+        this.chunker = chunker;
+        this.documentSync = documentSync;
+        this.progress = progress;
     }
 
-    @PostConstruct
-    public void initializeDataOnStartup() {
-        logger.info("Initializing application data...");
-        try {
-            initializeMockData();
-            logger.info("Application data initialized successfully");
-        } catch (Exception e) {
-            logger.error("Failed to initialize data: ", e);
+    /**
+     * @param intoEmptyCollection whether the collection held nothing before, so it now holds exactly the mock data
+     */
+    public record SeedResult(DocumentSyncService.SyncResult sync, boolean intoEmptyCollection) {
+    }
+
+    /**
+     * Seeds the mock data unless the seed manifest shows that the collection already holds this content: same
+     * content hash, same vector store and at least as many stored chunks (ingested documents add to them).
+     * <p>
+     * Seeding is an upsert: documents that are not part of the mock data, e.g. ingested from a file, are never
+     * deleted, and neither are documents that were dropped from the mock data.
+     *
+     * @return the result of the seeding, or {@code null} if it was skipped
+     */
+    public SeedResult seedIfNeeded() {
+        List<Document> documents = generateMockDocuments();
+        List<org.springframework.ai.document.Document> aiDocuments = convertToAIDocuments(documents);
+        String contentHash = contentHash(documents);
+
+        Properties manifest = readManifest();
+        long storedCount = countDocuments();
+        if (contentHash.equals(manifest.getProperty("contentHash"))
+                && vectorStore.getName().equals(manifest.getProperty("vectorStore"))
+                && storedCount >= aiDocuments.size()) {
+            logger.info("Collection already holds the mock data (content hash {}), skipping seeding", contentHash);
+            progress.update(StartupProgress.SEED_DATA, StartupProgress.State.SKIPPED, 100, "content unchanged");
+            return null;
         }
+
+        progress.update(StartupProgress.SEED_DATA, StartupProgress.State.RUNNING, 0, "synchronizing " + documents.size() + " documents");
+        DocumentSyncService.SyncResult result = initializeMockData(documents);
+        writeManifest(contentHash, aiDocuments.size());
+        progress.update(StartupProgress.SEED_DATA, StartupProgress.State.DONE, 100, "wrote " + result.chunksWritten() + " chunks");
+        return new SeedResult(result, storedCount == 0);
     }
 
-    public void initializeMockData() {
+    public DocumentSyncService.SyncResult initializeMockData() {
+        return initializeMockData(generateMockDocuments());
+    }
+
+    private DocumentSyncService.SyncResult initializeMockData(List<Document> documents) {
         logger.info("Initializing mock data in the vector store DB...");
 
-        // avoid adding duplicate documents by deleting existing ones
-        deleteAllDocuments();
+        // only new and changed documents are embedded; an upsert, so the rest of the collection is left alone
+        DocumentSyncService.SyncResult result = documentSync.upsert(documents);
+        if (result.changed()) {
+            eventPublisher.publishEvent(new DocumentsChangedEvent("mock data re-initialized"));
+        }
 
-        List<Document> documents = generateMockDocuments();
-        List<org.springframework.ai.document.Document> aiDocuments = convertToAIDocuments(documents);
+        logger.info("Mock data synchronized: {} added, {} updated, {} unchanged",
+                result.added(), result.updated(), result.unchanged());
+        return result;
+    }
 
-        vectorStore.add(aiDocuments);
+    private long countDocuments() {
+        String collectionName = "documents";
+        try {
+            if (vectorStore.getNativeClient().isPresent() && vectorStore.getNativeClient().get() instanceof QdrantClient nativeClient) {
+                return nativeClient.countAsync(collectionName).get();
+            } else if (vectorStore.getNativeClient().isPresent() && vectorStore.getNativeClient().get() instanceof MilvusClient milvusClient) {
+                R<QueryResults> response = milvusClient.query(QueryParam.newBuilder()
+                        .withCollectionName(collectionName)
+                        .withExpr("")
+                        .withOutFields(List.of("count(*)"))
+                        .withConsistencyLevel(ConsistencyLevelEnum.STRONG)
+                        .build());
+                if (response.getData() != null) {
+                    return ((Number) new QueryResultsWrapper(response.getData()).getRowRecords().get(0).get("count(*)")).longValue();
+                }
+            } else if (vectorStore.getNativeClient().isPresent() && vectorStore.getNativeClient().get() instanceof EmbeddedHnswVectorStore embeddedStore) {
+                return embeddedStore.size();
+            }
+        } catch (Exception e) {
+            logger.warn("Could not count documents in collection '{}'", collectionName, e);
+        }
+        return -1;
+    }
 
-        logger.info("Successfully added {} documents to the vector store", documents.size());
+    private Properties readManifest() {
+        Properties manifest = new Properties();
+        Path file = Path.of(seedManifestFile);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                manifest.load(reader);
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable seed manifest '{}'", file, e);
+            }
+        }
+        return manifest;
     }
 
-    private void deleteAllDocuments() {
-        String collectionName = "documents";
-        logger.info("Deleting all existing documents from collection '{}'...", collectionName);
-        vectorStore.getNativeClient();
-        if (vectorStore.getNativeClient().isPresent() && vectorStore.getNativeClient().get() instanceof QdrantClient nativeClient) {
-            try {
-                // create an empty filter to match all documents
-                Points.Filter filter = Points.Filter.newBuilder().build();
-
-                nativeClient.deleteAsync(
-                        Points.DeletePoints.newBuilder()
-                                .setCollectionName(collectionName)
-                                .setPoints(Points.PointsSelector.newBuilder().setFilter(filter).build())
-                                .build()
-                ).get();
-                logger.info("Successfully deleted all documents from the qdrant collection '{}'", collectionName);
-            } catch (InterruptedException | ExecutionException e) {
-                logger.error("Failed to delete document from qdrant collection '{}'", collectionName, e);
+    private void writeManifest(String contentHash, int documentCount) {
+        Properties manifest = new Properties();
+        manifest.setProperty("contentHash", contentHash);
+        manifest.setProperty("vectorStore", vectorStore.getName());
+        manifest.setProperty("documentCount", Integer.toString(documentCount));
+        Path file = Path.of(seedManifestFile);
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (Writer writer = Files.newBufferedWriter(file)) {
+                manifest.store(writer, "Mock data seeded into the vector store");
             }
-        } else if (vectorStore.getNativeClient().isPresent() && vectorStore.getNativeClient().get() instanceof MilvusClient milvusClient) {
-           try {
-               // For Milvus, we need to use a valid expression that matches all documents
-               // Since we don't know the exact field names, we'll try a few common approaches
-               DeleteParam deleteParam = DeleteParam.newBuilder()
-                       .withCollectionName(collectionName)
-                       .withExpr("doc_id != ''") // This should match all documents
-                       .build();
-               milvusClient.delete(deleteParam);
-               logger.info("Successfully deleted all documents from the milvus collection '{}'", collectionName);
-            } catch (Exception e) {
-                logger.error("Failed to delete documents from the milvus collection '{}'", collectionName, e);
-                // If the delete fails, we'll continue anyway - the new documents will be added
-                logger.info("Continuing with data initialization despite delete failure");
+        } catch (IOException e) {
+            logger.warn("Failed to write seed manifest '{}'", file, e);
+        }
+    }
+
+    private static String contentHash(List<Document> documents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // a new chunk layout has to be re-seeded even if the mock data didn't change
+            digest.update(DocumentChunker.CONTENT_HASH_VERSION.getBytes(StandardCharsets.UTF_8));
+            for (Document doc : documents) {
+                // createdAt is generated on every run and therefore not part of the content
+                String fields = String.join("\0", doc.id(), doc.title(), doc.content(), doc.category(),
+                        doc.author(), Objects.toString(doc.tags(), ""));
+                digest.update(fields.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
             }
-        } else {
-            logger.error("Vector store client not available. Cannot delete documents from collection '{}'", collectionName);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
-    private List<Document> generateMockDocuments() {
+    public List<Document> generateMockDocuments() {
         List<Document> documents = new ArrayList<>();
 
         // Technology Articles
@@ -217,15 +309,7 @@ public class MockDataService {
         List<org.springframework.ai.document.Document> aiDocuments = new ArrayList<>();
 
         for (Document doc : documents) {
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("title", doc.title());
-            metadata.put("category", doc.category());
-            metadata.put("author", doc.author());
-            metadata.put("tags", doc.tags());
-            metadata.put("createdAt", doc.createdAt().toString());
-
-            org.springframework.ai.document.Document aiDoc = new org.springframework.ai.document.Document(doc.content(), metadata);
-            aiDocuments.add(aiDoc);
+            aiDocuments.addAll(chunker.toAiDocuments(doc));
         }
 
         return aiDocuments;
@@ -0,0 +1,132 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.dto.SearchResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Builds the RAG prompt sent to the chat model from the user question and the retrieved chunks.
+ * <p>
+ * Ollama's prefill time grows with the prompt, so the context is budgeted: chunks are taken in retrieval order
+ * (best first) until {@code search.context.max-tokens} is used up, the last one truncated at a sentence boundary if
+ * enough budget is left for it. Chunks that are near-identical to an already included one (word-trigram Jaccard
+ * similarity of at least {@code search.context.dedup-similarity}, e.g. the same text ingested twice) are skipped.
+ * A chunk is cited as {@code [n]} with n its position in the search results, so skipped chunks leave gaps.
+ * <p>
+ * The instructions go into a system message that is identical for every request, and the per-request context and
+ * question follow it in the user message. Ollama keeps the KV cache of the last prompt per slot and reuses its
+ * longest common prefix, so the system prompt is evaluated once per slot rather than on every request; it must not
+ * contain anything that changes between requests.
+ */
+@Component
+public class PromptBuilder {
+
+    // a truncated chunk shorter than this carries too little to be worth its header
+    private static final int MIN_TRUNCATED_TOKENS = 48;
+
+    public static final String SYSTEM_PROMPT =
+            "Answer the question using only the context below. Cite sources as [n]. If the context is not sufficient, say so.";
+
+    private static final int SYSTEM_PROMPT_TOKENS = TokenEstimator.estimate(SYSTEM_PROMPT);
+
+    private final int maxContextTokens;
+
+    private final double dedupSimilarity;
+
+    @Autowired
+    public PromptBuilder(@Value("${search.context.max-tokens:1500}") int maxContextTokens,
+                         @Value("${search.context.dedup-similarity:0.9}") double dedupSimilarity) {
+        this.maxContextTokens = maxContextTokens;
+        this.dedupSimilarity = dedupSimilarity;
+    }
+
+    /**
+     * @param system          {@link #SYSTEM_PROMPT}
+     * @param text            the user message: context and question
+     * @param estimatedTokens estimate of the whole prompt, system prompt included, see {@link TokenEstimator}
+     * @param chunksUsed      retrieved chunks that made it into the context, fully or truncated
+     */
+    public record BuiltPrompt(String system, String text, int estimatedTokens, int chunksUsed, int chunksDropped) {
+    }
+
+    public BuiltPrompt build(String query, List<SearchResponse.DocumentResult> documents) {
+        StringBuilder prompt = new StringBuilder(query.length() + maxContextTokens * 4);
+        prompt.append("Context:\n");
+
+        int remaining = maxContextTokens;
+        int used = 0;
+        List<Set<Long>> includedShingles = new ArrayList<>();
+        for (int index = 0; index < documents.size(); index++) {
+            SearchResponse.DocumentResult document = documents.get(index);
+            if (remaining < MIN_TRUNCATED_TOKENS) {
+                break;
+            }
+            String content = document.content() == null ? "" : document.content();
+            Set<Long> shingles = shingles(content);
+            if (isDuplicate(shingles, includedShingles)) {
+                continue;
+            }
+            // numbered by position in the search results, so a citation still points at the right result when chunks are skipped
+            String header = "[" + (index + 1) + "] " + document.title() + "\n";
+            int headerTokens = TokenEstimator.estimate(header);
+            int contentTokens = TokenEstimator.estimate(content);
+            if (headerTokens + contentTokens > remaining) {
+                if (remaining - headerTokens < MIN_TRUNCATED_TOKENS) {
+                    // a shorter chunk further down may still fit
+                    continue;
+                }
+                content = TokenEstimator.truncate(content, remaining - headerTokens);
+                contentTokens = TokenEstimator.estimate(content);
+            }
+            prompt.append(header).append(content).append("\n\n");
+            remaining -= headerTokens + contentTokens;
+            includedShingles.add(shingles);
+            used++;
+        }
+
+        prompt.append("Question: ").append(query).append("\nAnswer:");
+        return new BuiltPrompt(SYSTEM_PROMPT, prompt.toString(), SYSTEM_PROMPT_TOKENS + TokenEstimator.estimate(prompt), used,
+                documents.size() - used);
+    }
+
+    private boolean isDuplicate(Set<Long> shingles, List<Set<Long>> included) {
+        if (shingles.isEmpty()) {
+            return false;
+        }
+        for (Set<Long> other : included) {
+            int intersection = 0;
+            for (Long shingle : shingles) {
+                if (other.contains(shingle)) {
+                    intersection++;
+                }
+            }
+            int union = shingles.size() + other.size() - intersection;
+            if (union > 0 && (double) intersection / union >= dedupSimilarity) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hashes of all word trigrams, case-insensitive.
+     */
+    private static Set<Long> shingles(String text) {
+        String[] words = text.toLowerCase(Locale.ROOT).split("\\W+");
+        Set<Long> shingles = new HashSet<>();
+        for (int i = 0; i + 2 < words.length; i++) {
+            long hash = words[i].hashCode();
+            hash = hash * 31 + words[i + 1].hashCode();
+            hash = hash * 31 + words[i + 2].hashCode();
+            shingles.add(hash);
+        }
+        return shingles;
+    }
+}
@@ -0,0 +1,51 @@
+package com.demo.qdrant_ollama.service;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges ranked result lists by reciprocal rank fusion: every document scores {@code sum(1 / (k + rank))} over
+ * the lists it appears in. Only ranks are used, so cosine similarities and BM25 scores don't need to be on the
+ * same scale. A document found by several retrievers keeps the version (and score) of the first list.
+ */
+final class ReciprocalRankFusion {
+
+    static final String RRF_SCORE = "rrfScore";
+
+    private ReciprocalRankFusion() {
+    }
+
+    @SafeVarargs
+    static List<Document> fuse(int k, int limit, List<Document>... rankings) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        Map<String, Double> scores = new HashMap<>();
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+                documents.putIfAbsent(document.getId(), document);
+                scores.merge(document.getId(), 1.0 / (k + rank + 1), Double::sum);
+            }
+        }
+        List<String> ids = new ArrayList<>(documents.keySet());
+        ids.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+
+        List<Document> fused = new ArrayList<>(Math.min(limit, ids.size()));
+        for (String id : ids.subList(0, Math.min(limit, ids.size()))) {
+            Document document = documents.get(id);
+            Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+            metadata.put(RRF_SCORE, scores.get(id));
+            fused.add(Document.builder()
+                    .id(document.getId())
+                    .text(document.getText())
+                    .metadata(metadata)
+                    .score(document.getScore())
+                    .build());
+        }
+        return fused;
+    }
+}
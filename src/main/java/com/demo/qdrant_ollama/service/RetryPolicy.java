@@ -0,0 +1,62 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retries failed idempotent calls with exponential backoff and full jitter: before attempt {@code n + 1} it sleeps
+ * a random time between 0 and {@code min(maxBackoff, initialBackoff * 2^(n-1))}, so callers that failed together
+ * don't retry together. Only for reads and other calls that can safely run twice.
+ * <p>
+ * Calls rejected locally ({@link DownstreamUnavailableException}) and client errors (4xx, invalid arguments) are
+ * not retried, another attempt would fail the same way.
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    private final Counter retries;
+
+    public RetryPolicy(String name, int maxAttempts, Duration initialBackoff, Duration maxBackoff, MeterRegistry meterRegistry) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.retries = Counter.builder("downstream.retries").tag("downstream", name).register(meterRegistry);
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                retries.increment();
+                long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+                try {
+                    TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    static boolean isRetryable(Throwable e) {
+        return !(e instanceof DownstreamUnavailableException)
+                && !(e instanceof IllegalArgumentException)
+                && !(e instanceof HttpClientErrorException);
+    }
+}
@@ -0,0 +1,51 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.dto.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Translates the filters of a search request into a portable {@link Filter.Expression}, which the vector store
+ * pushes down into its native query (Qdrant payload filter, Milvus boolean expression).
+ */
+final class SearchFilters {
+
+    private SearchFilters() {
+    }
+
+    /**
+     * @return the conjunction of all given filters, or {@code null} if there are none
+     */
+    static Filter.Expression toExpression(SearchRequest.Filters filters) {
+        if (filters == null) {
+            return null;
+        }
+        FilterExpressionBuilder builder = new FilterExpressionBuilder();
+        List<FilterExpressionBuilder.Op> conditions = new ArrayList<>();
+        if (filters.category() != null && !filters.category().isBlank()) {
+            conditions.add(builder.eq("category", filters.category()));
+        }
+        if (filters.author() != null && !filters.author().isBlank()) {
+            conditions.add(builder.eq("author", filters.author()));
+        }
+        List<String> tags = filters.tags() == null ? List.of() : filters.tags().stream()
+                .filter(tag -> tag != null && !tag.isBlank())
+                .map(String::strip)
+                .toList();
+        if (!tags.isEmpty()) {
+            // tags are stored as a list, IN matches documents carrying any of them
+            conditions.add(builder.in("tags", tags.toArray()));
+        }
+        if (conditions.isEmpty()) {
+            return null;
+        }
+        FilterExpressionBuilder.Op combined = conditions.getFirst();
+        for (FilterExpressionBuilder.Op condition : conditions.subList(1, conditions.size())) {
+            combined = builder.and(combined, condition);
+        }
+        return combined.build();
+    }
+}
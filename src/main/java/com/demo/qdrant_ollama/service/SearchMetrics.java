@@ -0,0 +1,118 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation of the search path: one {@code search.stage.duration} timer per stage with
+ * percentile histograms, plus document and token counters, all tagged with the vector store provider.
+ */
+@Component
+public class SearchMetrics {
+
+    public static final String EMBEDDING = "embedding";
+
+    public static final String BATCH_EMBEDDING = "batch_embedding";
+
+    public static final String VECTOR_SEARCH = "vector_search";
+
+    // runs concurrently with embedding and vector_search
+    public static final String LEXICAL_SEARCH = "lexical_search";
+
+    public static final String RERANK = "rerank";
+
+    public static final String RESULT_MAPPING = "result_mapping";
+
+    public static final String PROMPT_BUILD = "prompt_build";
+
+    public static final String LLM_FIRST_TOKEN = "llm_first_token";
+
+    public static final String LLM_GENERATION = "llm_generation";
+
+    private final MeterRegistry meterRegistry;
+
+    private final String provider;
+
+    private final boolean includeStageTimings;
+
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+
+    private final DistributionSummary documentsReturned;
+
+    private final Counter promptTokens;
+
+    private final Counter completionTokens;
+
+    @Autowired
+    public SearchMetrics(MeterRegistry meterRegistry,
+                         @Value("${vector-store.provider:qdrant}") String provider,
+                         @Value("${search.metrics.include-stage-timings:true}") boolean includeStageTimings) {
+        this.meterRegistry = meterRegistry;
+        this.provider = provider;
+        this.includeStageTimings = includeStageTimings;
+        this.documentsReturned = DistributionSummary.builder("search.documents.returned")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        this.promptTokens = Counter.builder("search.llm.tokens").tag("type", "prompt").tag("provider", provider).register(meterRegistry);
+        this.completionTokens = Counter.builder("search.llm.tokens").tag("type", "completion").tag("provider", provider).register(meterRegistry);
+    }
+
+    public <T> T time(SearchTrace trace, String stage, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            record(trace, stage, System.nanoTime() - start);
+        }
+    }
+
+    public void record(SearchTrace trace, String stage, long nanos) {
+        stageTimers.computeIfAbsent(stage, this::stageTimer).record(nanos, TimeUnit.NANOSECONDS);
+        if (trace != null) {
+            trace.add(stage, nanos);
+        }
+    }
+
+    public void recordDocuments(int count) {
+        documentsReturned.record(count);
+    }
+
+    public void recordUsage(Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        if (usage.getPromptTokens() != null) {
+            promptTokens.increment(usage.getPromptTokens());
+        }
+        if (usage.getCompletionTokens() != null) {
+            completionTokens.increment(usage.getCompletionTokens());
+        }
+    }
+
+    /**
+     * The per-stage breakdown to return with the response, or {@code null} if disabled.
+     */
+    public Map<String, Double> stageTimings(SearchTrace trace) {
+        return includeStageTimings ? trace.toMillis() : null;
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("search.stage.duration")
+                .tag("stage", stage)
+                .tag("provider", provider)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+}
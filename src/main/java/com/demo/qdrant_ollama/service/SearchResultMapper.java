@@ -0,0 +1,42 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.dto.SearchResponse;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Converts Spring AI documents returned by the vector store into API results.
+ */
+@Component
+public class SearchResultMapper {
+
+    public List<SearchResponse.DocumentResult> toDocumentResults(List<Document> documents) {
+        return documents.stream()
+                .map(doc -> new SearchResponse.DocumentResult(
+                        doc.getMetadata().getOrDefault("docId", doc.getId()).toString(),
+                        doc.getMetadata().getOrDefault("title", "Unknown Title").toString(),
+                        doc.getText(),
+                        doc.getMetadata().getOrDefault("category", "No Category").toString(),
+                        doc.getMetadata().getOrDefault("author", "Unknown Author").toString(),
+                        similarity(doc),
+                        doc.getMetadata().get("chunkIndex") instanceof Number chunkIndex ? chunkIndex.intValue() : null
+                ))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cosine similarity reported by the vector store; 0 for chunks only found by keyword search.
+     */
+    private static double similarity(Document doc) {
+        if (doc.getScore() != null) {
+            return doc.getScore();
+        }
+        if (doc.getMetadata().get("distance") instanceof Number distance) {
+            return 1 - distance.doubleValue();
+        }
+        return 0.0;
+    }
+}
@@ -2,18 +2,38 @@ package com.demo.qdrant_ollama.service;
 
 import com.demo.qdrant_ollama.dto.SearchRequest;
 import com.demo.qdrant_ollama.dto.SearchResponse;
+import com.demo.qdrant_ollama.lexical.LexicalIndex;
+import com.demo.qdrant_ollama.rerank.RerankStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Service
 public class SearchService {
@@ -22,80 +42,344 @@ public class SearchService {
 
     private final VectorStore vectorStore;
 
-    private final OllamaChatModel chatModel;
+    private final ChatModel chatModel;
 
-    private final MockDataService mockDataService;
+    private final AnswerCache answerCache;
+
+    private final DownstreamLimits downstreamLimits;
+
+    private final GenerationScheduler generationScheduler;
+
+    private final DownstreamResilience resilience;
+
+    private final SearchResultMapper resultMapper;
+
+    private final PromptBuilder promptBuilder;
+
+    private final SearchMetrics metrics;
+
+    private final LexicalIndex lexicalIndex;
+
+    private final RerankStage rerankStage;
+
+    private final double similarityThreshold;
+
+    // streaming callers wait for a generation slot here
+    private final Scheduler slotScheduler = Schedulers.fromExecutor(task -> Thread.ofVirtual().name("generation-slot").start(task));
 
     @Autowired
-    public SearchService(@Qualifier("customVectorStore") VectorStore vectorStore, OllamaChatModel chatModel, MockDataService mockDataService) {
+    public SearchService(@Qualifier("customVectorStore") VectorStore vectorStore, ChatModel chatModel, AnswerCache answerCache,
+                         DownstreamLimits downstreamLimits, GenerationScheduler generationScheduler, DownstreamResilience resilience,
+                         SearchResultMapper resultMapper, PromptBuilder promptBuilder,
+                         SearchMetrics metrics, LexicalIndex lexicalIndex, RerankStage rerankStage,
+                         @Value("${search.similarity-threshold:0.7}") double similarityThreshold) {
         this.vectorStore = vectorStore;
         this.chatModel = chatModel;
-        this.mockDataService = mockDataService;
+        this.answerCache = answerCache;
+        this.downstreamLimits = downstreamLimits;
+        this.generationScheduler = generationScheduler;
+        this.resilience = resilience;
+        this.resultMapper = resultMapper;
+        this.promptBuilder = promptBuilder;
+        this.metrics = metrics;
+        this.lexicalIndex = lexicalIndex;
+        this.rerankStage = rerankStage;
+        this.similarityThreshold = similarityThreshold;
     }
 
     public SearchResponse search(SearchRequest request) {
+        return search(request, GenerationScheduler.Lane.INTERACTIVE);
+    }
+
+    /**
+     * @param lane the {@link GenerationScheduler} lane the answer is generated in
+     */
+    public SearchResponse search(SearchRequest request, GenerationScheduler.Lane lane) {
         long startTime = System.currentTimeMillis();
+        SearchTrace trace = new SearchTrace();
         try {
-            // Perform similarity search using VectorStore with SearchRequest
-            org.springframework.ai.vectorstore.SearchRequest vectorSearchRequest =  org.springframework.ai.vectorstore.SearchRequest.builder().query(request.query())
-                    .topK(request.maxResults())
-                    .similarityThreshold(0.7) // Adjust the threshold as needed
-                    .build();
-            List<Document> similarDocuments = Optional.ofNullable(vectorStore.similaritySearch(vectorSearchRequest)).orElse(List.of());
-
-            logger.info("found similarDocuments size: {}", similarDocuments.size());
-
-            // Convert documents to DocumentResult
-            List<SearchResponse.DocumentResult> documentResults = similarDocuments.stream()
-                    .map(doc -> new SearchResponse.DocumentResult(
-                            doc.getId(),
-                            doc.getMetadata().getOrDefault("title", "Unknown Title").toString(),
-                            doc.getText(),
-                            doc.getMetadata().getOrDefault("category", "No Category").toString(),
-                            doc.getMetadata().getOrDefault("author", "Unknown Author").toString(),
-                            doc.getMetadata().containsKey("similarityScore")
-                                    ? ((Float) doc.getMetadata().get("similarityScore")).doubleValue()
-                                    : 1.0
-                    ))
-                    .collect(Collectors.toList());
-
-            // Generate AI response with context
-            String aiAnswer = generateAIResponse(request.query(), documentResults);
+            List<SearchResponse.DocumentResult> documentResults = findSimilarDocuments(request, trace);
+
+            // Generate AI response with context, or degrade to documents only when Ollama is saturated or failing
+            String aiAnswer = null;
+            boolean degraded = false;
+            try {
+                if (request.answerRequested()) {
+                    aiAnswer = generateAIResponse(request.query(), documentResults, trace, lane);
+                }
+            } catch (DownstreamUnavailableException e) {
+                logger.warn("Returning documents without an answer: {}", e.getMessage());
+                degraded = true;
+            }
 
             long searchTime = System.currentTimeMillis() - startTime;
-            return new SearchResponse(request.query(), aiAnswer, documentResults, searchTime);
+            return new SearchResponse(request.query(), aiAnswer, documentResults, searchTime, degraded, metrics.stageTimings(trace),
+                    trace.promptTokens());
+        } catch (DownstreamUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error during search: ", e);
             throw new RuntimeException("Search failed: " + e.getMessage());
         }
     }
 
-    private String generateAIResponse(String query, List<SearchResponse.DocumentResult> documents) {
-        StringBuilder contextBuilder = new StringBuilder();
-        contextBuilder.append("Based on the following relevant documents, please answer the user's question.\n\n");
-        contextBuilder.append("User Question: ").append(query).append("\n\n");
-        contextBuilder.append("Relevant Documents:\n");
-        for (int i = 0; i < documents.size(); i++) {
-            SearchResponse.DocumentResult doc = documents.get(i);
-            contextBuilder.append(i + 1).append(". ").append(doc.title()).append(" (by ").append(doc.author()).append(")\n");
-            contextBuilder.append("Category: ").append(doc.category()).append("\n");
-            contextBuilder.append("Content: ").append(doc.content()).append("\n");
-            contextBuilder.append("Similarity Score: ").append(doc.similarity()).append("\n\n");
+    /**
+     * Streams a search as server-sent events: one {@code documents} event with the retrieved documents,
+     * followed by one {@code token} event per generated answer chunk and a final {@code done} event.
+     * <p>
+     * The answer is pulled from {@link ChatModel#stream(Prompt)}, so demand from the client
+     * propagates to the Ollama connection, and cancelling the subscription (e.g. the client disconnects)
+     * closes that connection, which makes Ollama stop generating.
+     */
+    public Flux<ServerSentEvent<Object>> searchStream(SearchRequest request) {
+        long startTime = System.currentTimeMillis();
+        SearchTrace trace = new SearchTrace();
+        return Mono.fromCallable(() -> findSimilarDocuments(request, trace))
+                // the vector store client is blocking, keep it off the event loop
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(documentResults -> {
+                    List<String> documentIds = documentIds(documentResults);
+                    Flux<ServerSentEvent<Object>> tokens = !request.answerRequested()
+                            ? Flux.empty()
+                            : this.answerCache.lookup(request.query(), documentIds)
+                                    .map(answer -> Flux.just(event("token", answer)))
+                                    .orElseGet(() -> sharedOrStreamedAnswer(request.query(), documentResults, documentIds, trace));
+                    return Flux.concat(
+                            Mono.just(event("documents", documentResults)),
+                            tokens,
+                            Mono.fromSupplier(() -> event("done", doneEvent(System.currentTimeMillis() - startTime, trace))));
+                })
+                .doOnCancel(() -> logger.info("Client cancelled streaming search, stopping generation for query: {}", request.query()))
+                .onErrorResume(e -> {
+                    logger.error("Error during streaming search: ", e);
+                    return Flux.just(event("error", "Search failed: " + e.getMessage()));
+                });
+    }
+
+    /**
+     * Streams the answer, unless an identical request is already generating it: then its answer is sent in one piece
+     * once complete, or if that request fails or goes away, this one generates its own.
+     */
+    private Flux<ServerSentEvent<Object>> sharedOrStreamedAnswer(String query, List<SearchResponse.DocumentResult> documentResults,
+                                                                 List<String> documentIds, SearchTrace trace) {
+        return Flux.defer(() -> {
+            AnswerCache.Flight flight = this.answerCache.join(query, documentIds);
+            if (!flight.leader()) {
+                return Mono.fromFuture(flight.answer(), true)
+                        .map(answer -> event("token", answer))
+                        .onErrorResume(e -> streamAnswer(query, documentResults, trace, answer -> { }));
+            }
+            AtomicBoolean answered = new AtomicBoolean();
+            return streamAnswer(query, documentResults, trace, answer -> {
+                        answered.set(true);
+                        // caching embeds the query, which must not hold up the streaming thread
+                        Schedulers.boundedElastic().schedule(() -> flight.complete(answer));
+                    })
+                    .doFinally(signal -> {
+                        if (!answered.get()) {
+                            // degraded, failed or cancelled: the waiting requests generate their own answers
+                            flight.abandon(new IllegalStateException("Answer generation ended with " + signal));
+                        }
+                    });
+        });
+    }
+
+    /**
+     * @param onAnswer receives an answer that was streamed to completion
+     */
+    private Flux<ServerSentEvent<Object>> streamAnswer(String query, List<SearchResponse.DocumentResult> documentResults, SearchTrace trace,
+                                                       Consumer<String> onAnswer) {
+        return Flux.defer(() -> {
+            CircuitBreaker chatBreaker = this.resilience.chat();
+            if (!chatBreaker.tryAcquire()) {
+                logger.warn("Streaming documents without an answer: circuit breaker for {} is open", chatBreaker.name());
+                return Flux.just(event("degraded", "The answer was skipped because the language model is failing"));
+            }
+            // waiting for a slot blocks for up to max-wait, on a virtual thread rather than the one serving the stream
+            AtomicReference<GenerationScheduler.Slot> slot = new AtomicReference<>();
+            AtomicBoolean finished = new AtomicBoolean();
+            Mono<GenerationScheduler.Slot> granted = Mono.fromCallable(() -> {
+                        GenerationScheduler.Slot acquired = this.generationScheduler.acquire(GenerationScheduler.Lane.INTERACTIVE);
+                        slot.set(acquired);
+                        if (finished.get()) {
+                            // the client went away while this caller was queued
+                            acquired.close();
+                        }
+                        return acquired;
+                    })
+                    .subscribeOn(slotScheduler);
+            StringBuilder answer = new StringBuilder();
+            AtomicBoolean firstToken = new AtomicBoolean(true);
+            return granted.flatMapMany(acquired -> {
+                        Prompt prompt = buildPrompt(query, documentResults, trace);
+                        long llmStart = System.nanoTime();
+                        return this.chatModel.stream(prompt)
+                                // Ollama reports the token counts on the final chunk
+                                .doOnNext(chunk -> {
+                                    if (chunk.getMetadata() != null && chunk.getMetadata().getUsage() != null
+                                            && chunk.getMetadata().getUsage().getTotalTokens() != null && chunk.getMetadata().getUsage().getTotalTokens() > 0) {
+                                        recordUsage(chunk.getMetadata().getUsage(), trace);
+                                    }
+                                })
+                                .map(SearchService::tokenOf)
+                                .filter(token -> !token.isEmpty())
+                                .doOnNext(token -> {
+                                    if (firstToken.compareAndSet(true, false)) {
+                                        metrics.record(trace, SearchMetrics.LLM_FIRST_TOKEN, System.nanoTime() - llmStart);
+                                        acquired.firstToken();
+                                    }
+                                    answer.append(token);
+                                })
+                                // only answers that were streamed to completion are cached
+                                .doOnComplete(() -> {
+                                    chatBreaker.onSuccess();
+                                    metrics.record(trace, SearchMetrics.LLM_GENERATION, System.nanoTime() - llmStart);
+                                    onAnswer.accept(answer.toString());
+                                })
+                                .doOnError(e -> chatBreaker.onFailure())
+                                .map(token -> event("token", token));
+                    })
+                    .doOnCancel(chatBreaker::onIgnored)
+                    // released on completion, error and cancellation, also while the caller is still queued
+                    .doFinally(signal -> {
+                        finished.set(true);
+                        GenerationScheduler.Slot acquired = slot.get();
+                        if (acquired != null) {
+                            acquired.close();
+                        }
+                    })
+                    .onErrorResume(DownstreamUnavailableException.class, e -> {
+                        chatBreaker.onIgnored();
+                        logger.warn("Streaming documents without an answer: {}", e.getMessage());
+                        return Flux.just(event("degraded", "The answer was skipped because the language model is saturated"));
+                    });
+        });
+    }
+
+    /**
+     * Dense retrieval, and with hybrid search enabled BM25 retrieval in parallel, fused by reciprocal rank.
+     * Keyword hits (product codes, tags) don't have to pass the similarity threshold, but must contain a minimum share of
+     * the query's terms (see {@link com.demo.qdrant_ollama.lexical.Bm25Index}); both retrievers apply the request's filters.
+     * With reranking enabled, more candidates are retrieved and the reranker picks the {@code maxResults} best.
+     */
+    private List<SearchResponse.DocumentResult> findSimilarDocuments(SearchRequest request, SearchTrace trace) {
+        boolean hybrid = lexicalIndex.isEnabled();
+        boolean rerank = rerankStage.isEnabled();
+        Filter.Expression filter = SearchFilters.toExpression(request.filters());
+        int retained = rerank ? Math.max(request.maxResults(), rerankStage.candidates()) : request.maxResults();
+        int candidates = hybrid ? Math.max(retained, lexicalIndex.candidates()) : retained;
+        // the lexical index is in memory, it runs on its own virtual thread while the query is embedded and searched
+        CompletableFuture<List<Document>> lexicalSearch = hybrid
+                ? CompletableFuture.supplyAsync(
+                        () -> metrics.time(trace, SearchMetrics.LEXICAL_SEARCH, () -> lexicalIndex.search(request.query(), candidates, filter)),
+                        task -> Thread.ofVirtual().name("lexical-search").start(task))
+                : CompletableFuture.completedFuture(List.of());
+
+        // Perform similarity search using VectorStore with SearchRequest
+        org.springframework.ai.vectorstore.SearchRequest.Builder vectorSearchRequestBuilder =  org.springframework.ai.vectorstore.SearchRequest.builder().query(request.query())
+                .topK(candidates)
+                .similarityThreshold(similarityThreshold);
+        if (filter != null) {
+            // pushed down into the vector database query instead of filtering the results afterwards
+            vectorSearchRequestBuilder.filterExpression(filter);
+        }
+        org.springframework.ai.vectorstore.SearchRequest vectorSearchRequest = vectorSearchRequestBuilder.build();
+        // the query is embedded inside similaritySearch, the active trace lets the embedding model time it
+        long embeddingBefore = trace.nanos(SearchMetrics.EMBEDDING);
+        long searchStart = System.nanoTime();
+        List<Document> similarDocuments;
+        try (SearchTrace.Scope ignored = trace.activate()) {
+            similarDocuments = Optional.ofNullable(
+                    downstreamLimits.vectorStore().execute(() -> vectorStore.similaritySearch(vectorSearchRequest))).orElse(List.of());
         }
-        contextBuilder.append("Please provide a comprehensive answer based on the information from these documents. " +
-                "If the documents don't contain enough information to answer the question, please say so.");
+        long embeddingNanos = trace.nanos(SearchMetrics.EMBEDDING) - embeddingBefore;
+        metrics.record(trace, SearchMetrics.VECTOR_SEARCH, System.nanoTime() - searchStart - embeddingNanos);
+
+        List<Document> retrieved = hybrid
+                ? ReciprocalRankFusion.fuse(lexicalIndex.rrfK(), retained, similarDocuments, lexicalSearch.join())
+                : similarDocuments;
+        List<Document> documents = rerank
+                ? metrics.time(trace, SearchMetrics.RERANK, () -> rerankStage.rerank(request.query(), retrieved, request.maxResults()))
+                : retrieved;
+        metrics.recordDocuments(documents.size());
+
+        logger.info("found similarDocuments size: {}", documents.size());
+
+        // Convert documents to DocumentResult
+        return metrics.time(trace, SearchMetrics.RESULT_MAPPING, () -> resultMapper.toDocumentResults(documents));
+    }
 
+    private String generateAIResponse(String query, List<SearchResponse.DocumentResult> documents, SearchTrace trace,
+                                      GenerationScheduler.Lane lane) {
         // Integrate with Ollama via ChatClient
-        String prompt = contextBuilder.toString();
         try {
-            return this.chatModel.call(prompt);
+            return this.answerCache.getOrCompute(query, documentIds(documents), () -> {
+                Prompt prompt = buildPrompt(query, documents, trace);
+                // not retried, a second generation would double the cost of an already slow call
+                ChatResponse response = this.resilience.chat().execute(() -> {
+                    try (GenerationScheduler.Slot slot = this.generationScheduler.acquire(lane)) {
+                        ChatResponse generated = metrics.time(trace, SearchMetrics.LLM_GENERATION, () -> this.chatModel.call(prompt));
+                        // the answer arrives whole, its first token came out when Ollama started generating it
+                        if (generated.getMetadata() != null && generated.getMetadata().get("eval-duration") instanceof Duration evalDuration) {
+                            slot.firstToken(System.nanoTime() - evalDuration.toNanos());
+                        }
+                        return generated;
+                    }
+                });
+                if (response.getMetadata() != null && response.getMetadata().getUsage() != null) {
+                    recordUsage(response.getMetadata().getUsage(), trace);
+                }
+                return tokenOf(response);
+            });
+        } catch (DownstreamUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error generating AI response: ", e);
             return "Failed to generate AI response: " + e.getMessage();
         }
     }
 
-    public void initializeData() {
-        mockDataService.initializeMockData();
+    private Prompt buildPrompt(String query, List<SearchResponse.DocumentResult> documents, SearchTrace trace) {
+        PromptBuilder.BuiltPrompt prompt = metrics.time(trace, SearchMetrics.PROMPT_BUILD, () -> promptBuilder.build(query, documents));
+        logger.debug("Prompt uses {} of {} chunks, ~{} tokens", prompt.chunksUsed(), documents.size(), prompt.estimatedTokens());
+        trace.promptTokens(prompt.estimatedTokens());
+        // the system message comes first and never changes, so Ollama can reuse its KV cache
+        return new Prompt(List.of(new SystemMessage(prompt.system()), new UserMessage(prompt.text())));
+    }
+
+    private void recordUsage(Usage usage, SearchTrace trace) {
+        metrics.recordUsage(usage);
+        // Ollama's own count replaces the estimate
+        if (usage.getPromptTokens() != null && usage.getPromptTokens() > 0) {
+            trace.promptTokens(usage.getPromptTokens());
+        }
+    }
+
+    private static List<String> documentIds(List<SearchResponse.DocumentResult> documents) {
+        return documents.stream().map(SearchResponse.DocumentResult::id).toList();
+    }
+
+    private Map<String, Object> doneEvent(long searchTimeMs, SearchTrace trace) {
+        Map<String, Object> done = new LinkedHashMap<>();
+        done.put("searchTimeMs", searchTimeMs);
+        Map<String, Double> stageTimings = metrics.stageTimings(trace);
+        if (stageTimings != null) {
+            done.put("stageTimingsMs", stageTimings);
+        }
+        if (trace.promptTokens() != null) {
+            done.put("promptTokens", trace.promptTokens());
+        }
+        return done;
+    }
+
+    private static String tokenOf(ChatResponse chatResponse) {
+        if (chatResponse.getResult() == null || chatResponse.getResult().getOutput().getText() == null) {
+            return "";
+        }
+        return chatResponse.getResult().getOutput().getText();
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.<Object>builder().event(name).data(data).build();
     }
-}
\ No newline at end of file
+}
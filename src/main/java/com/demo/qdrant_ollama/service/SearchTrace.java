@@ -0,0 +1,68 @@
+package com.demo.qdrant_ollama.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-request record of the time spent in each search stage and of the prompt size.
+ * <p>
+ * Stages that run inside library code (the query embedding happens inside {@code VectorStore.similaritySearch})
+ * find the trace of the current request through {@link #current()} while it is {@link #activate() activated}.
+ */
+public final class SearchTrace {
+
+    private static final ThreadLocal<SearchTrace> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+
+    private volatile Integer promptTokens;
+
+    public static SearchTrace current() {
+        return CURRENT.get();
+    }
+
+    public Scope activate() {
+        SearchTrace previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public synchronized void add(String stage, long nanos) {
+        stageNanos.merge(stage, nanos, Long::sum);
+    }
+
+    public synchronized long nanos(String stage) {
+        return stageNanos.getOrDefault(stage, 0L);
+    }
+
+    public synchronized Map<String, Double> toMillis() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        // two decimals are enough to see sub-millisecond stages such as cached embeddings
+        stageNanos.forEach((stage, nanos) -> millis.put(stage, Math.round(nanos / 10_000.0) / 100.0));
+        return millis;
+    }
+
+    /**
+     * Tokens of the prompt sent to the chat model, the model's own count if it reported one, else an estimate;
+     * {@code null} if no prompt was sent.
+     */
+    public Integer promptTokens() {
+        return promptTokens;
+    }
+
+    public void promptTokens(int promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,136 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.config.MilvusCollectionInitializer;
+import com.demo.qdrant_ollama.config.QdrantCollectionInitializer;
+import com.demo.qdrant_ollama.lexical.LexicalIndex;
+import com.demo.qdrant_ollama.vectorstore.ShadowVectorStore;
+import io.milvus.client.MilvusServiceClient;
+import io.qdrant.client.QdrantClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the slow parts of startup (vector index build, mock data seeding, lexical index load) in the background once the
+ * application is up, so the HTTP port opens immediately. Progress is reported through {@link StartupProgress}.
+ */
+@Service
+public class StartupInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupInitializer.class);
+
+    private final VectorStore vectorStore;
+
+    private final MilvusCollectionInitializer milvusCollectionInitializer;
+
+    private final QdrantCollectionInitializer qdrantCollectionInitializer;
+
+    private final MockDataService mockDataService;
+
+    private final DocumentSyncService documentSync;
+
+    private final LexicalIndex lexicalIndex;
+
+    private final StartupProgress progress;
+
+    @Value("${startup.seed-mock-data:true}")
+    private boolean seedMockData;
+
+    @Autowired
+    public StartupInitializer(@Qualifier("customVectorStore") VectorStore vectorStore,
+                              MilvusCollectionInitializer milvusCollectionInitializer,
+                              QdrantCollectionInitializer qdrantCollectionInitializer,
+                              MockDataService mockDataService, DocumentSyncService documentSync, LexicalIndex lexicalIndex,
+                              StartupProgress progress) {
+        this.vectorStore = vectorStore;
+        this.milvusCollectionInitializer = milvusCollectionInitializer;
+        this.qdrantCollectionInitializer = qdrantCollectionInitializer;
+        this.mockDataService = mockDataService;
+        this.documentSync = documentSync;
+        this.lexicalIndex = lexicalIndex;
+        this.progress = progress;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeInBackground() {
+        Thread.ofVirtual().name("startup-initializer").start(this::initialize);
+    }
+
+    private void initialize() {
+        long startTime = System.currentTimeMillis();
+        VectorStore primary = vectorStore;
+        if (vectorStore instanceof ShadowVectorStore shadowStore) {
+            primary = shadowStore.primary();
+            // first, so the index progress left behind is the primary's; a shadow that isn't ready never blocks startup
+            try {
+                if (!initializeCollection(shadowStore.shadow())) {
+                    logger.warn("Shadow store is not ready, its writes and searches fail until it is");
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to initialize the shadow store: {}", e.getMessage());
+            }
+        }
+        if (!initializeCollection(primary)) {
+            logger.error("Skipping data seeding");
+            return;
+        }
+
+        MockDataService.SeedResult seeded = null;
+        if (seedMockData) {
+            try {
+                seeded = mockDataService.seedIfNeeded();
+            } catch (Exception e) {
+                logger.error("Failed to initialize data: ", e);
+                progress.update(StartupProgress.SEED_DATA, StartupProgress.State.FAILED, 0, e.getMessage());
+                return;
+            }
+        } else {
+            progress.update(StartupProgress.SEED_DATA, StartupProgress.State.SKIPPED, 100, "startup.seed-mock-data=false");
+        }
+
+        if (lexicalIndex.isEnabled() && seeded != null && seeded.intoEmptyCollection()) {
+            // the collection holds exactly the seeded documents, and every chunk written was indexed
+            progress.update(StartupProgress.LEXICAL_INDEX, StartupProgress.State.DONE, 100,
+                    seeded.sync().chunksWritten() + " chunks indexed while seeding");
+        } else if (lexicalIndex.isEnabled()) {
+            try {
+                progress.update(StartupProgress.LEXICAL_INDEX, StartupProgress.State.RUNNING, 0, "loading chunks");
+                int loaded = documentSync.loadLexicalIndex();
+                progress.update(StartupProgress.LEXICAL_INDEX, StartupProgress.State.DONE, 100, loaded + " chunks");
+            } catch (Exception e) {
+                // searches fall back to what the vector store finds, so this doesn't block readiness
+                logger.error("Failed to load the lexical index: ", e);
+                progress.update(StartupProgress.LEXICAL_INDEX, StartupProgress.State.SKIPPED, 100, "not loaded: " + e.getMessage());
+            }
+        } else {
+            progress.update(StartupProgress.LEXICAL_INDEX, StartupProgress.State.SKIPPED, 100, "search.hybrid.enabled=false");
+        }
+        logger.info("Background initialization finished in {} ms", System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * @return false if the collection is not ready and nothing should be written to it
+     */
+    private boolean initializeCollection(VectorStore store) {
+        if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof MilvusServiceClient milvusClient) {
+            if (!milvusCollectionInitializer.initialize(milvusClient)) {
+                logger.error("Milvus collection is not ready");
+                return false;
+            }
+        } else if (store.getNativeClient().isPresent() && store.getNativeClient().get() instanceof QdrantClient qdrantClient) {
+            if (!qdrantCollectionInitializer.initialize(qdrantClient)) {
+                logger.error("Qdrant collection is not ready");
+                return false;
+            }
+        } else {
+            progress.update(StartupProgress.VECTOR_INDEX, StartupProgress.State.SKIPPED, 100, "managed by " + store.getName());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.dto.ReadinessStatus;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Progress of the background startup phases (vector index build, data seeding, lexical index load, chat model load).
+ * <p>
+ * Also contributes the {@code startup} health indicator, which is part of the readiness group, so
+ * {@code /actuator/health/readiness} only reports UP once every phase has finished.
+ */
+@Component
+public class StartupProgress implements HealthIndicator {
+
+    public static final String VECTOR_INDEX = "vector-index";
+
+    public static final String SEED_DATA = "seed-data";
+
+    public static final String LEXICAL_INDEX = "lexical-index";
+
+    public static final String CHAT_MODEL = "chat-model";
+
+    public enum State { PENDING, RUNNING, DONE, SKIPPED, FAILED }
+
+    private final Map<String, ReadinessStatus.Phase> phases = new LinkedHashMap<>();
+
+    public StartupProgress() {
+        phases.put(VECTOR_INDEX, new ReadinessStatus.Phase(State.PENDING.name(), 0, null));
+        phases.put(SEED_DATA, new ReadinessStatus.Phase(State.PENDING.name(), 0, null));
+        phases.put(LEXICAL_INDEX, new ReadinessStatus.Phase(State.PENDING.name(), 0, null));
+        phases.put(CHAT_MODEL, new ReadinessStatus.Phase(State.PENDING.name(), 0, null));
+    }
+
+    public synchronized void update(String phase, State state, int progressPercent, String message) {
+        phases.put(phase, new ReadinessStatus.Phase(state.name(), progressPercent, message));
+    }
+
+    public synchronized ReadinessStatus status() {
+        boolean ready = phases.values().stream()
+                .allMatch(phase -> phase.state().equals(State.DONE.name()) || phase.state().equals(State.SKIPPED.name()));
+        return new ReadinessStatus(ready, Map.copyOf(phases));
+    }
+
+    @Override
+    public Health health() {
+        ReadinessStatus status = status();
+        return (status.ready() ? Health.up() : Health.outOfService())
+                .withDetails(status.phases())
+                .build();
+    }
+}
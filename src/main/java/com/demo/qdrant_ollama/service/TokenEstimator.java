@@ -0,0 +1,60 @@
+package com.demo.qdrant_ollama.service;
+
+/**
+ * Cheap estimate of the number of tokens a text takes in the chat model's context, used to fit retrieved chunks
+ * into a budget without running the model's tokenizer.
+ * <p>
+ * Every run of letters or digits counts one token per started four characters and every other non-whitespace
+ * character counts one token. For English prose BPE tokenizers usually need fewer, so the budget is rather under-
+ * than overrun, but this is not a bound: rare words, long numbers or non-Latin scripts can take more tokens.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        int tokens = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                run++;
+                continue;
+            }
+            tokens += (run + 3) / 4;
+            run = 0;
+            if (!Character.isWhitespace(c)) {
+                tokens++;
+            }
+        }
+        return tokens + (run + 3) / 4;
+    }
+
+    /**
+     * Longest prefix of {@code text} that fits into {@code maxTokens}, cut at a sentence end or else a word boundary.
+     */
+    public static String truncate(String text, int maxTokens) {
+        if (estimate(text) <= maxTokens) {
+            return text;
+        }
+        // binary search over the prefix length, then back off to a boundary
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (estimate(text.substring(0, middle)) <= maxTokens) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        String prefix = text.substring(0, low);
+        int sentenceEnd = Math.max(prefix.lastIndexOf(". "), Math.max(prefix.lastIndexOf("! "), prefix.lastIndexOf("? ")));
+        if (sentenceEnd > low / 2) {
+            return prefix.substring(0, sentenceEnd + 1);
+        }
+        int space = prefix.lastIndexOf(' ');
+        return space > 0 ? prefix.substring(0, space) : prefix;
+    }
+}
@@ -0,0 +1,492 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * In-process {@link VectorStore} backed by an {@link HnswIndex}, for running without an external vector database.
+ * <p>
+ * Vectors are kept off-heap, documents and metadata on the heap. Searches whose candidate set (all documents, or
+ * the documents matching the filter) is at most {@code exactSearchThreshold} are answered exactly by a scan,
+ * larger ones through the graph. With {@link Quantization#INT8} or {@link Quantization#BINARY} both first rank the
+ * candidates on quantized vectors and rescore the best {@code topK * rescoreFactor} with full precision. Updating a document adds a new node and hides the old one; hidden nodes are
+ * dropped when a snapshot with more hidden than live nodes is loaded.
+ * <p>
+ * The store is written to {@code snapshotFile} periodically when it changed and on {@link #close()}, and loaded
+ * from it when built.
+ */
+public class EmbeddedHnswVectorStore implements VectorStore, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedHnswVectorStore.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x484E5357; // "HNSW"
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    public enum Metric {
+        COSINE, DOT
+    }
+
+    public enum Quantization {
+        NONE, INT8, BINARY
+    }
+
+    private final EmbeddingModel embeddingModel;
+
+    private final ObjectMapper objectMapper;
+
+    private final Metric metric;
+
+    private final int dimensions;
+
+    private final int m;
+
+    private final int efConstruction;
+
+    private final int efSearch;
+
+    private final int exactSearchThreshold;
+
+    private final Quantization quantization;
+
+    private final int rescoreFactor;
+
+    private final Path snapshotFile;
+
+    private final ScheduledExecutorService snapshotScheduler;
+
+    // writers share the read side, a snapshot takes the write side to see a consistent store
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private final Map<Integer, StoredDocument> documents = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> ordinalsById = new ConcurrentHashMap<>();
+
+    private HnswIndex index;
+
+    private record StoredDocument(String id, String text, Map<String, Object> metadata) {
+    }
+
+    private EmbeddedHnswVectorStore(Builder builder) {
+        this.embeddingModel = builder.embeddingModel;
+        this.objectMapper = builder.objectMapper;
+        this.metric = builder.metric;
+        this.dimensions = builder.dimensions;
+        this.m = builder.m;
+        this.efConstruction = builder.efConstruction;
+        this.efSearch = builder.efSearch;
+        this.exactSearchThreshold = builder.exactSearchThreshold;
+        this.quantization = builder.quantization;
+        this.rescoreFactor = builder.rescoreFactor;
+        this.snapshotFile = builder.snapshotFile;
+        this.index = new HnswIndex(dimensions, m, efConstruction, quantization, rescoreFactor);
+
+        if (snapshotFile != null) {
+            load();
+            long intervalMillis = builder.snapshotInterval.toMillis();
+            this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("embedded-vector-store-snapshot").factory());
+            if (intervalMillis > 0) {
+                snapshotScheduler.scheduleWithFixedDelay(this::snapshotIfChanged, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            this.snapshotScheduler = null;
+        }
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel, ObjectMapper objectMapper) {
+        return new Builder(embeddingModel, objectMapper);
+    }
+
+    @Override
+    public void add(List<Document> documentsToAdd) {
+        if (documentsToAdd.isEmpty()) {
+            return;
+        }
+        List<float[]> vectors = embeddingModel.embed(documentsToAdd.stream().map(Document::getText).toList());
+
+        snapshotLock.readLock().lock();
+        try {
+            for (int i = 0; i < documentsToAdd.size(); i++) {
+                Document document = documentsToAdd.get(i);
+                int ordinal = index.add(normalize(vectors.get(i)));
+                documents.put(ordinal, new StoredDocument(document.getId(), document.getText(), new HashMap<>(document.getMetadata())));
+                Integer previous = ordinalsById.put(document.getId(), ordinal);
+                if (previous != null) {
+                    documents.remove(previous);
+                }
+            }
+            dirty.set(true);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        snapshotLock.readLock().lock();
+        try {
+            for (String id : idList) {
+                Integer ordinal = ordinalsById.remove(id);
+                if (ordinal != null) {
+                    documents.remove(ordinal);
+                }
+            }
+            dirty.set(true);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        snapshotLock.readLock().lock();
+        try {
+            documents.forEach((ordinal, document) -> {
+                if (FilterEvaluator.matches(filterExpression, document.metadata())) {
+                    ordinalsById.remove(document.id(), ordinal);
+                    documents.remove(ordinal);
+                }
+            });
+            dirty.set(true);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        float[] query = normalize(embeddingModel.embed(request.getQuery()));
+
+        IntPredicate accept = documents::containsKey;
+        int candidates = documents.size();
+        if (request.hasFilterExpression()) {
+            BitSet matches = new BitSet();
+            documents.forEach((ordinal, document) -> {
+                if (FilterEvaluator.matches(request.getFilterExpression(), document.metadata())) {
+                    matches.set(ordinal);
+                }
+            });
+            accept = ordinal -> matches.get(ordinal) && documents.containsKey(ordinal);
+            candidates = matches.cardinality();
+        }
+
+        List<HnswIndex.ScoredNode> hits = candidates <= exactSearchThreshold
+                ? index.exact(query, request.getTopK(), accept)
+                : index.search(query, request.getTopK(), efSearch, accept);
+
+        List<Document> results = new ArrayList<>(hits.size());
+        for (HnswIndex.ScoredNode hit : hits) {
+            StoredDocument document = documents.get(hit.node());
+            if (document == null || hit.score() < request.getSimilarityThreshold()) {
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>(document.metadata());
+            metadata.put("distance", 1 - hit.score());
+            results.add(Document.builder()
+                    .id(document.id())
+                    .text(document.text())
+                    .metadata(metadata)
+                    .score((double) hit.score())
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * All documents matching the filter (or all documents if it is null), without scores.
+     */
+    public List<Document> findAll(Filter.Expression filterExpression) {
+        List<Document> results = new ArrayList<>();
+        documents.values().forEach(document -> {
+            if (filterExpression == null || FilterEvaluator.matches(filterExpression, document.metadata())) {
+                results.add(Document.builder().id(document.id()).text(document.text()).metadata(new HashMap<>(document.metadata())).build());
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Visits every stored document, with its stored vector (normalized for cosine) or {@code null} if
+     * {@code withVectors} is false, without copying the store.
+     */
+    public void forEach(boolean withVectors, BiConsumer<Document, float[]> consumer) {
+        documents.forEach((ordinal, document) -> consumer.accept(
+                Document.builder().id(document.id()).text(document.text()).metadata(new HashMap<>(document.metadata())).build(),
+                withVectors ? index.vector(ordinal) : null));
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Off-heap memory held by the full-precision and quantized vectors.
+     */
+    public long offHeapBytes() {
+        return index.offHeapBytes();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getNativeClient() {
+        return Optional.of((T) this);
+    }
+
+    /**
+     * Writes the store to the snapshot file, replacing the previous snapshot atomically.
+     */
+    public void snapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        snapshotLock.writeLock().lock();
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                // vectors are written in native byte order
+                out.writeBoolean(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN);
+                out.writeUTF(metric.name());
+                index.writeTo(out);
+                out.writeInt(documents.size());
+                for (Map.Entry<Integer, StoredDocument> entry : documents.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    writeString(out, entry.getValue().id());
+                    writeString(out, entry.getValue().text());
+                    writeString(out, objectMapper.writeValueAsString(entry.getValue().metadata()));
+                }
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty.set(false);
+            logger.info("Wrote snapshot of {} documents to '{}'", documents.size(), snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to write vector store snapshot to '{}'", snapshotFile, e);
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+            snapshotIfChanged();
+        }
+        index.close();
+    }
+
+    private void snapshotIfChanged() {
+        if (dirty.get()) {
+            snapshot();
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION
+                    || in.readBoolean() != (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN)
+                    || !in.readUTF().equals(metric.name())) {
+                logger.warn("Ignoring vector store snapshot '{}' with unknown format or different metric", snapshotFile);
+                return;
+            }
+            HnswIndex loaded = HnswIndex.readFrom(in, quantization, rescoreFactor);
+            if (loaded.dimensions() != dimensions) {
+                logger.warn("Ignoring vector store snapshot '{}' with {} dimensions, expected {}", snapshotFile, loaded.dimensions(), dimensions);
+                loaded.close();
+                return;
+            }
+            int count = in.readInt();
+            Map<Integer, StoredDocument> loadedDocuments = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                int ordinal = in.readInt();
+                String id = readString(in);
+                String text = readString(in);
+                Map<String, Object> metadata = objectMapper.readValue(readString(in), new TypeReference<Map<String, Object>>() {
+                });
+                loadedDocuments.put(ordinal, new StoredDocument(id, text, metadata));
+            }
+
+            if (loadedDocuments.size() * 2 < loaded.size()) {
+                // more hidden than live nodes, rebuild the graph from the live vectors only
+                for (Map.Entry<Integer, StoredDocument> entry : loadedDocuments.entrySet()) {
+                    int ordinal = index.add(loaded.vector(entry.getKey()));
+                    documents.put(ordinal, entry.getValue());
+                    ordinalsById.put(entry.getValue().id(), ordinal);
+                }
+                loaded.close();
+                dirty.set(true);
+            } else {
+                index.close();
+                index = loaded;
+                documents.putAll(loadedDocuments);
+                loadedDocuments.forEach((ordinal, document) -> ordinalsById.put(document.id(), ordinal));
+            }
+            logger.info("Loaded {} documents from vector store snapshot '{}' in {} ms",
+                    documents.size(), snapshotFile, System.currentTimeMillis() - startTime);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load vector store snapshot from '{}', starting empty", snapshotFile, e);
+        }
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected an embedding with " + dimensions + " dimensions but got " + vector.length);
+        }
+        if (metric != Metric.COSINE) {
+            return vector;
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float[] normalized = new float[vector.length];
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static class Builder {
+
+        private final EmbeddingModel embeddingModel;
+
+        private final ObjectMapper objectMapper;
+
+        private Metric metric = Metric.COSINE;
+
+        private int dimensions = 1024;
+
+        private int m = 16;
+
+        private int efConstruction = 100;
+
+        private int efSearch = 64;
+
+        private int exactSearchThreshold = 1000;
+
+        private Quantization quantization = Quantization.NONE;
+
+        private int rescoreFactor = 4;
+
+        private Path snapshotFile;
+
+        private Duration snapshotInterval = Duration.ofSeconds(30);
+
+        private Builder(EmbeddingModel embeddingModel, ObjectMapper objectMapper) {
+            this.embeddingModel = embeddingModel;
+            this.objectMapper = objectMapper;
+        }
+
+        public Builder metric(Metric metric) {
+            this.metric = metric;
+            return this;
+        }
+
+        public Builder dimensions(int dimensions) {
+            this.dimensions = dimensions;
+            return this;
+        }
+
+        public Builder m(int m) {
+            this.m = m;
+            return this;
+        }
+
+        public Builder efConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        public Builder efSearch(int efSearch) {
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        public Builder exactSearchThreshold(int exactSearchThreshold) {
+            this.exactSearchThreshold = exactSearchThreshold;
+            return this;
+        }
+
+        public Builder quantization(Quantization quantization) {
+            this.quantization = quantization;
+            return this;
+        }
+
+        public Builder rescoreFactor(int rescoreFactor) {
+            this.rescoreFactor = rescoreFactor;
+            return this;
+        }
+
+        public Builder snapshotFile(Path snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        public Builder snapshotInterval(Duration snapshotInterval) {
+            this.snapshotInterval = snapshotInterval;
+            return this;
+        }
+
+        public EmbeddedHnswVectorStore build() {
+            return new EmbeddedHnswVectorStore(this);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Evaluates a portable {@link Filter.Expression} against the metadata of a document.
+ * <p>
+ * A list-valued metadata field (e.g. {@code tags}) matches {@code ==} if it contains the value and {@code in}
+ * if it contains any of the values, mirroring how Qdrant matches keyword arrays.
+ */
+public final class FilterEvaluator {
+
+    private FilterEvaluator() {
+    }
+
+    public static boolean matches(Filter.Expression expression, Map<String, Object> metadata) {
+        return switch (expression.type()) {
+            case AND -> matches(operand(expression.left()), metadata) && matches(operand(expression.right()), metadata);
+            case OR -> matches(operand(expression.left()), metadata) || matches(operand(expression.right()), metadata);
+            case NOT -> !matches(operand(expression.left()), metadata);
+            case EQ -> equalsAny(field(expression, metadata), List.of(value(expression)));
+            case NE -> !equalsAny(field(expression, metadata), List.of(value(expression)));
+            case IN -> equalsAny(field(expression, metadata), values(expression));
+            case NIN -> !equalsAny(field(expression, metadata), values(expression));
+            case GT -> inRange(expression, metadata, comparison -> comparison > 0);
+            case GTE -> inRange(expression, metadata, comparison -> comparison >= 0);
+            case LT -> inRange(expression, metadata, comparison -> comparison < 0);
+            case LTE -> inRange(expression, metadata, comparison -> comparison <= 0);
+            default -> throw new IllegalArgumentException("Unsupported filter expression type: " + expression.type());
+        };
+    }
+
+    static Filter.Expression operand(Filter.Operand operand) {
+        if (operand instanceof Filter.Group group) {
+            return group.content();
+        }
+        if (operand instanceof Filter.Expression expression) {
+            return expression;
+        }
+        throw new IllegalArgumentException("Expected a filter expression but got " + operand);
+    }
+
+    private static Object field(Filter.Expression expression, Map<String, Object> metadata) {
+        return metadata.get(key(expression));
+    }
+
+    /**
+     * Metadata key of a comparison, without the quotes the filter expression parser keeps.
+     */
+    static String key(Filter.Expression expression) {
+        if (!(expression.left() instanceof Filter.Key key)) {
+            throw new IllegalArgumentException("Expected a metadata key but got " + expression.left());
+        }
+        String name = key.key();
+        if (name.length() > 1 && (name.startsWith("\"") && name.endsWith("\"") || name.startsWith("'") && name.endsWith("'"))) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    static Object value(Filter.Expression expression) {
+        if (!(expression.right() instanceof Filter.Value value)) {
+            throw new IllegalArgumentException("Expected a value but got " + expression.right());
+        }
+        return value.value();
+    }
+
+    static Collection<?> values(Filter.Expression expression) {
+        Object value = value(expression);
+        return value instanceof Collection<?> collection ? collection : List.of(value);
+    }
+
+    private static boolean equalsAny(Object field, Collection<?> values) {
+        if (field instanceof Collection<?> fieldValues) {
+            return fieldValues.stream().anyMatch(fieldValue -> equalsAny(fieldValue, values));
+        }
+        return values.stream().anyMatch(value -> scalarEquals(field, value));
+    }
+
+    private static boolean scalarEquals(Object field, Object value) {
+        if (field instanceof Number a && value instanceof Number b) {
+            return Double.compare(a.doubleValue(), b.doubleValue()) == 0;
+        }
+        return Objects.equals(field, value) || field != null && value != null && field.toString().equals(value.toString());
+    }
+
+    private static boolean inRange(Filter.Expression expression, Map<String, Object> metadata, IntPredicate accept) {
+        Object field = field(expression, metadata);
+        // a missing field satisfies no range condition
+        return field != null && accept.test(compare(field, value(expression)));
+    }
+
+    private static int compare(Object field, Object value) {
+        if (field instanceof Number a && value instanceof Number b) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        return field.toString().compareTo(value.toString());
+    }
+}
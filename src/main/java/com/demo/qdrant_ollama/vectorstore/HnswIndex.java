@@ -0,0 +1,426 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph (Malkov &amp; Yashunin) over vectors held in {@link OffHeapVectors}.
+ * Similarity is the dot product, callers normalize vectors for cosine similarity.
+ * <p>
+ * Inserts are concurrent: a new vector is allocated and, later, linked under the write lock, but the expensive
+ * neighbour search in between runs under the read lock, in parallel with searches and other inserts.
+ * Nodes are never removed; callers filter deleted ordinals out through the {@code accept} predicate.
+ * <p>
+ * With {@link QuantizedVectors} searches traverse the graph and scan using the quantized vectors, and rescore
+ * the best {@code k * rescoreFactor} candidates with the full-precision vectors. The graph itself is always
+ * built with full precision.
+ */
+final class HnswIndex implements AutoCloseable {
+
+    private static final int[] NO_NEIGHBORS = new int[0];
+
+    private static final Comparator<ScoredNode> BEST_FIRST = Comparator.comparingDouble(ScoredNode::score).reversed();
+
+    private static final Comparator<ScoredNode> WORST_FIRST = Comparator.comparingDouble(ScoredNode::score);
+
+    private final OffHeapVectors vectors;
+
+    private final QuantizedVectors quantized;
+
+    private final int rescoreFactor;
+
+    private final int m;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ordinal -> level -> neighbour ordinals
+    private int[][][] neighbors = new int[1024][][];
+
+    private int size;
+
+    private int entryPoint = -1;
+
+    private int maxLevel = -1;
+
+    record ScoredNode(int node, float score) {
+    }
+
+    @FunctionalInterface
+    interface NodeScorer {
+
+        float score(int node);
+    }
+
+    HnswIndex(int dimensions, int m, int efConstruction, EmbeddedHnswVectorStore.Quantization quantization, int rescoreFactor) {
+        this.vectors = new OffHeapVectors(dimensions);
+        this.quantized = QuantizedVectors.create(quantization, dimensions);
+        this.rescoreFactor = rescoreFactor;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int dimensions() {
+        return vectors.dimensions();
+    }
+
+    long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return vectors.offHeapBytes() + (quantized != null ? quantized.offHeapBytes() : 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    float[] vector(int ordinal) {
+        lock.readLock().lock();
+        try {
+            return vectors.get(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a vector and returns its ordinal.
+     */
+    int add(float[] vector) {
+        int level = (int) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelMultiplier);
+        int ordinal = allocate(vector, level);
+
+        int[][] selected;
+        lock.readLock().lock();
+        try {
+            selected = findNeighbors(vector, level);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (entryPoint != -1 && selected[0].length == 0) {
+                // the graph was empty during the search, but a concurrent insert has been linked since
+                selected = findNeighbors(vector, level);
+            }
+            link(ordinal, selected);
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = ordinal;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return ordinal;
+    }
+
+    /**
+     * Approximate top-{@code k} search. Nodes rejected by {@code accept} are traversed but not returned.
+     */
+    List<ScoredNode> search(float[] query, int k, int ef, IntPredicate accept) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint == -1) {
+                return List.of();
+            }
+            NodeScorer scorer = firstPassScorer(query);
+            ScoredNode entry = new ScoredNode(entryPoint, scorer.score(entryPoint));
+            for (int level = maxLevel; level > 0; level--) {
+                entry = searchLayer(scorer, List.of(entry), 1, level, node -> true).getFirst();
+            }
+            List<ScoredNode> results = searchLayer(scorer, List.of(entry), Math.max(ef, candidateCount(k)), 0, accept);
+            return rescore(results, query, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact top-{@code k} search over all accepted nodes.
+     */
+    List<ScoredNode> exact(float[] query, int k, IntPredicate accept) {
+        lock.readLock().lock();
+        try {
+            NodeScorer scorer = firstPassScorer(query);
+            int candidates = candidateCount(k);
+            PriorityQueue<ScoredNode> results = new PriorityQueue<>(WORST_FIRST);
+            for (int node = 0; node < size; node++) {
+                if (!accept.test(node)) {
+                    continue;
+                }
+                float score = scorer.score(node);
+                if (results.size() < candidates) {
+                    results.add(new ScoredNode(node, score));
+                } else if (score > results.peek().score()) {
+                    results.poll();
+                    results.add(new ScoredNode(node, score));
+                }
+            }
+            return rescore(sorted(results), query, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(vectors.dimensions());
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < size; node++) {
+                out.write(vectors.getBytes(node));
+                out.writeInt(neighbors[node].length);
+                for (int[] levelNeighbors : neighbors[node]) {
+                    out.writeInt(levelNeighbors.length);
+                    for (int neighbor : levelNeighbors) {
+                        out.writeInt(neighbor);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo}; the quantized vectors are rebuilt, so the quantization may differ
+     * from the one the index was written with.
+     */
+    static HnswIndex readFrom(DataInputStream in, EmbeddedHnswVectorStore.Quantization quantization, int rescoreFactor) throws IOException {
+        int dimensions = in.readInt();
+        HnswIndex index = new HnswIndex(dimensions, in.readInt(), in.readInt(), quantization, rescoreFactor);
+        int size = in.readInt();
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        index.neighbors = new int[Math.max(size, 1024)][][];
+        byte[] vector = new byte[dimensions * Float.BYTES];
+        for (int node = 0; node < size; node++) {
+            in.readFully(vector);
+            index.vectors.setBytes(node, vector);
+            if (index.quantized != null) {
+                index.quantized.set(node, index.vectors.get(node));
+            }
+            int[][] levels = new int[in.readInt()][];
+            for (int level = 0; level < levels.length; level++) {
+                levels[level] = new int[in.readInt()];
+                for (int i = 0; i < levels[level].length; i++) {
+                    levels[level][i] = in.readInt();
+                }
+            }
+            index.neighbors[node] = levels;
+        }
+        index.size = size;
+        return index;
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            vectors.close();
+            if (quantized != null) {
+                quantized.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int allocate(float[] vector, int level) {
+        lock.writeLock().lock();
+        try {
+            int ordinal = size++;
+            if (ordinal == neighbors.length) {
+                neighbors = Arrays.copyOf(neighbors, neighbors.length * 2);
+            }
+            vectors.set(ordinal, vector);
+            if (quantized != null) {
+                quantized.set(ordinal, vector);
+            }
+            int[][] levels = new int[level + 1][];
+            Arrays.fill(levels, NO_NEIGHBORS);
+            neighbors[ordinal] = levels;
+            return ordinal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int[][] findNeighbors(float[] vector, int level) {
+        int[][] selected = new int[level + 1][];
+        Arrays.fill(selected, NO_NEIGHBORS);
+        if (entryPoint == -1) {
+            return selected;
+        }
+        NodeScorer scorer = node -> vectors.dot(node, vector);
+        ScoredNode entry = new ScoredNode(entryPoint, scorer.score(entryPoint));
+        for (int l = maxLevel; l > level; l--) {
+            entry = searchLayer(scorer, List.of(entry), 1, l, node -> true).getFirst();
+        }
+        List<ScoredNode> entries = List.of(entry);
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<ScoredNode> candidates = searchLayer(scorer, entries, efConstruction, l, node -> true);
+            selected[l] = selectNeighbors(candidates, m);
+            entries = candidates;
+        }
+        return selected;
+    }
+
+    private void link(int ordinal, int[][] selected) {
+        for (int level = 0; level < selected.length; level++) {
+            neighbors[ordinal][level] = selected[level];
+            for (int neighbor : selected[level]) {
+                connect(neighbor, ordinal, level);
+            }
+        }
+    }
+
+    private void connect(int node, int newNeighbor, int level) {
+        int[] current = neighbors[node][level];
+        int maxNeighbors = level == 0 ? 2 * m : m;
+        if (current.length < maxNeighbors) {
+            int[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = newNeighbor;
+            neighbors[node][level] = grown;
+            return;
+        }
+        List<ScoredNode> candidates = new ArrayList<>(current.length + 1);
+        for (int neighbor : current) {
+            candidates.add(new ScoredNode(neighbor, vectors.dot(node, neighbor)));
+        }
+        candidates.add(new ScoredNode(newNeighbor, vectors.dot(node, newNeighbor)));
+        candidates.sort(BEST_FIRST);
+        neighbors[node][level] = selectNeighbors(candidates, maxNeighbors);
+    }
+
+    /**
+     * Neighbour selection heuristic: a candidate is kept if it is closer to the base node than to any neighbour
+     * kept so far, which keeps links spread out in all directions. Pruned candidates fill the remaining slots.
+     */
+    private int[] selectNeighbors(List<ScoredNode> candidates, int count) {
+        int[] selected = new int[Math.min(count, candidates.size())];
+        int selectedCount = 0;
+        List<ScoredNode> pruned = new ArrayList<>();
+        for (ScoredNode candidate : candidates) {
+            if (selectedCount == selected.length) {
+                break;
+            }
+            boolean diverse = true;
+            for (int i = 0; i < selectedCount; i++) {
+                if (vectors.dot(candidate.node(), selected[i]) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[selectedCount++] = candidate.node();
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (int i = 0; selectedCount < selected.length && i < pruned.size(); i++) {
+            selected[selectedCount++] = pruned.get(i).node();
+        }
+        return selected;
+    }
+
+    /**
+     * Best-first search of one layer, returning up to {@code ef} accepted nodes ordered best first.
+     */
+    private List<ScoredNode> searchLayer(NodeScorer scorer, List<ScoredNode> entries, int ef, int level, IntPredicate accept) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<ScoredNode> candidates = new PriorityQueue<>(BEST_FIRST);
+        PriorityQueue<ScoredNode> results = new PriorityQueue<>(WORST_FIRST);
+        for (ScoredNode entry : entries) {
+            visited.set(entry.node());
+            candidates.add(entry);
+            if (accept.test(entry.node())) {
+                results.add(entry);
+            }
+        }
+        while (results.size() > ef) {
+            results.poll();
+        }
+
+        while (!candidates.isEmpty()) {
+            ScoredNode current = candidates.poll();
+            if (results.size() >= ef && current.score() < results.peek().score()) {
+                break;
+            }
+            for (int neighbor : neighbors[current.node()][level]) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float score = scorer.score(neighbor);
+                if (results.size() < ef || score > results.peek().score()) {
+                    ScoredNode scored = new ScoredNode(neighbor, score);
+                    candidates.add(scored);
+                    if (accept.test(neighbor)) {
+                        results.add(scored);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        return sorted(results);
+    }
+
+    private NodeScorer firstPassScorer(float[] query) {
+        return quantized != null ? quantized.scorer(query) : node -> vectors.dot(node, query);
+    }
+
+    private int candidateCount(int k) {
+        return quantized != null ? k * rescoreFactor : k;
+    }
+
+    /**
+     * Replaces first-pass scores by full-precision scores and keeps the best {@code k}.
+     */
+    private List<ScoredNode> rescore(List<ScoredNode> candidates, float[] query, int k) {
+        if (quantized == null) {
+            return candidates.subList(0, Math.min(k, candidates.size()));
+        }
+        List<ScoredNode> rescored = new ArrayList<>(candidates.size());
+        for (ScoredNode candidate : candidates) {
+            rescored.add(new ScoredNode(candidate.node(), vectors.dot(candidate.node(), query)));
+        }
+        rescored.sort(BEST_FIRST);
+        return rescored.subList(0, Math.min(k, rescored.size()));
+    }
+
+    private static List<ScoredNode> sorted(PriorityQueue<ScoredNode> results) {
+        List<ScoredNode> sorted = new ArrayList<>(results);
+        sorted.sort(BEST_FIRST);
+        return sorted;
+    }
+}
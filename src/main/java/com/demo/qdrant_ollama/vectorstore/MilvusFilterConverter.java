@@ -0,0 +1,74 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Translates a portable {@link Filter.Expression} into a Milvus boolean expression over the {@code metadata} JSON
+ * field.
+ * <p>
+ * Spring AI's converter compares array fields like scalars ({@code metadata["tags"] == "ai"}), which never matches
+ * a JSON array. Fields in {@link #ARRAY_FIELDS} are matched with {@code json_contains} / {@code json_contains_any}
+ * instead, mirroring how Qdrant matches keyword arrays.
+ */
+public final class MilvusFilterConverter {
+
+    // metadata fields stored as JSON arrays, see DocumentChunker
+    public static final Set<String> ARRAY_FIELDS = Set.of("tags");
+
+    private MilvusFilterConverter() {
+    }
+
+    public static String toExpression(Filter.Expression expression) {
+        switch (expression.type()) {
+            case AND:
+                return "(" + nested(expression.left()) + " and " + nested(expression.right()) + ")";
+            case OR:
+                return "(" + nested(expression.left()) + " or " + nested(expression.right()) + ")";
+            case NOT:
+                return "not (" + nested(expression.left()) + ")";
+            default:
+                break;
+        }
+        String key = FilterEvaluator.key(expression);
+        String field = "metadata[" + literal(key) + "]";
+        boolean array = ARRAY_FIELDS.contains(key);
+        return switch (expression.type()) {
+            case EQ -> array
+                    ? "json_contains(" + field + ", " + literal(FilterEvaluator.value(expression)) + ")"
+                    : field + " == " + literal(FilterEvaluator.value(expression));
+            case NE -> array
+                    ? "not json_contains(" + field + ", " + literal(FilterEvaluator.value(expression)) + ")"
+                    : field + " != " + literal(FilterEvaluator.value(expression));
+            case IN -> array
+                    ? "json_contains_any(" + field + ", " + list(FilterEvaluator.values(expression)) + ")"
+                    : field + " in " + list(FilterEvaluator.values(expression));
+            case NIN -> array
+                    ? "not json_contains_any(" + field + ", " + list(FilterEvaluator.values(expression)) + ")"
+                    : field + " not in " + list(FilterEvaluator.values(expression));
+            case GT -> field + " > " + literal(FilterEvaluator.value(expression));
+            case GTE -> field + " >= " + literal(FilterEvaluator.value(expression));
+            case LT -> field + " < " + literal(FilterEvaluator.value(expression));
+            case LTE -> field + " <= " + literal(FilterEvaluator.value(expression));
+            default -> throw new IllegalArgumentException("Unsupported filter expression type: " + expression.type());
+        };
+    }
+
+    private static String nested(Filter.Operand operand) {
+        return toExpression(FilterEvaluator.operand(operand));
+    }
+
+    private static String list(Collection<?> values) {
+        return values.stream().map(MilvusFilterConverter::literal).collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private static String literal(Object value) {
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return "\"" + value.toString().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
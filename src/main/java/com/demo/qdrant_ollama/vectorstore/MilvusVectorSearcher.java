@@ -0,0 +1,155 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import com.demo.qdrant_ollama.config.VectorIndexProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.milvus.client.MilvusClient;
+import io.milvus.grpc.SearchResults;
+import io.milvus.orm.iterator.QueryIterator;
+import io.milvus.param.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.dml.QueryIteratorParam;
+import io.milvus.param.dml.SearchParam;
+import io.milvus.response.QueryResultsWrapper;
+import io.milvus.response.SearchResultsWrapper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Searches the Milvus {@code documents} collection with an explicit {@code nprobe} (IVF indexes) or {@code ef}
+ * (HNSW), depending on the configured index type. Filters are translated by {@link MilvusFilterConverter}.
+ */
+public class MilvusVectorSearcher implements NativeVectorSearcher {
+
+    private static final String COLLECTION_NAME = "documents";
+
+    private static final String VECTOR_FIELD = "embedding";
+
+    private static final long PAGE_SIZE = 256;
+
+    private final MilvusClient client;
+
+    private final VectorIndexProperties.Milvus properties;
+
+    private final ObjectMapper objectMapper;
+
+    public MilvusVectorSearcher(MilvusClient client, VectorIndexProperties.Milvus properties, ObjectMapper objectMapper) {
+        this.client = client;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String searchParamName() {
+        return properties.searchParamName();
+    }
+
+    @Override
+    public List<Integer> searchParamCandidates(int k) {
+        return properties.searchParamCandidates(k);
+    }
+
+    @Override
+    public List<Document> search(float[] vector, int topK, double similarityThreshold, Filter.Expression filter,
+                                 int searchParam) throws Exception {
+        SearchResultsWrapper results = search(vector, topK, searchParam,
+                filter != null ? MilvusFilterConverter.toExpression(filter) : null, List.of("content", "metadata"));
+        List<Document> documents = new ArrayList<>();
+        for (SearchResultsWrapper.IDScore hit : results.getIDScore(0)) {
+            // COSINE scores are similarities, the threshold is applied client side like Spring AI's MilvusVectorStore does
+            if (hit.getScore() < similarityThreshold) {
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>(parseMetadata(hit.get("metadata")));
+            metadata.put("distance", 1 - hit.getScore());
+            documents.add(Document.builder()
+                    .id(hit.getStrID())
+                    .text(String.valueOf(hit.get("content")))
+                    .metadata(metadata)
+                    .score((double) hit.getScore())
+                    .build());
+        }
+        return documents;
+    }
+
+    @Override
+    public List<String> searchIds(float[] vector, int topK, int searchParam) throws Exception {
+        return search(vector, topK, searchParam, null, List.of()).getIDScore(0).stream()
+                .map(SearchResultsWrapper.IDScore::getStrID)
+                .toList();
+    }
+
+    @Override
+    public void forEachVector(BiConsumer<String, float[]> consumer) throws Exception {
+        R<QueryIterator> iteratorResponse = client.queryIterator(QueryIteratorParam.newBuilder()
+                .withCollectionName(COLLECTION_NAME)
+                .withExpr("doc_id != ''")
+                .withOutFields(List.of("doc_id", VECTOR_FIELD))
+                .withBatchSize(PAGE_SIZE)
+                .build());
+        if (iteratorResponse.getException() != null) {
+            throw iteratorResponse.getException();
+        }
+        QueryIterator iterator = iteratorResponse.getData();
+        try {
+            List<QueryResultsWrapper.RowRecord> page;
+            while (!(page = iterator.next()).isEmpty()) {
+                for (QueryResultsWrapper.RowRecord record : page) {
+                    @SuppressWarnings("unchecked")
+                    List<Float> values = (List<Float>) record.get(VECTOR_FIELD);
+                    float[] vector = new float[values.size()];
+                    for (int i = 0; i < vector.length; i++) {
+                        vector[i] = values.get(i);
+                    }
+                    consumer.accept(record.get("doc_id").toString(), vector);
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
+    private SearchResultsWrapper search(float[] vector, int topK, int searchParam, String expression,
+                                        List<String> outFields) throws Exception {
+        List<Float> values = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            values.add(value);
+        }
+        if ("ef".equals(properties.searchParamName())) {
+            // Milvus rejects an ef below topK
+            searchParam = Math.max(searchParam, topK);
+        }
+        SearchParam.Builder request = SearchParam.newBuilder()
+                .withCollectionName(COLLECTION_NAME)
+                .withVectorFieldName(VECTOR_FIELD)
+                .withFloatVectors(List.of(values))
+                .withTopK(topK)
+                .withMetricType(MetricType.COSINE)
+                .withParams(properties.searchParamName() != null ? "{\"" + properties.searchParamName() + "\":" + searchParam + "}" : "{}")
+                .withOutFields(outFields);
+        if (expression != null) {
+            request.withExpr(expression);
+        }
+        R<SearchResults> response = client.search(request.build());
+        if (response.getException() != null) {
+            throw response.getException();
+        }
+        return new SearchResultsWrapper(response.getData().getResults());
+    }
+
+    private Map<String, Object> parseMetadata(Object value) throws Exception {
+        if (value == null) {
+            return Map.of();
+        }
+        String json = value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : value.toString();
+        return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+        });
+    }
+}
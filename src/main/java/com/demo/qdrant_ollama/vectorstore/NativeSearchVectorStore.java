@@ -0,0 +1,98 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Runs similarity searches through a {@link NativeVectorSearcher}, so the configured (or tuned) search parameter
+ * is applied to every query and filters are pushed down natively; writes and deletes go to the Spring AI vector
+ * store.
+ * <p>
+ * {@link #getNativeClient()} returns the delegate's client, so code that talks to the database directly keeps
+ * working unchanged.
+ */
+public class NativeSearchVectorStore implements VectorStore {
+
+    private final VectorStore delegate;
+
+    private final EmbeddingModel embeddingModel;
+
+    private final NativeVectorSearcher searcher;
+
+    private volatile int searchParam;
+
+    public NativeSearchVectorStore(VectorStore delegate, EmbeddingModel embeddingModel, NativeVectorSearcher searcher,
+                                   int searchParam) {
+        this.delegate = delegate;
+        this.embeddingModel = embeddingModel;
+        this.searcher = searcher;
+        this.searchParam = searchParam;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        delegate.add(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        delegate.delete(idList);
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        delegate.delete(filterExpression);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        // embedded through the same model as the delegate, so timing, caching and precomputed batch vectors still apply
+        return similaritySearch(request, embeddingModel.embed(request.getQuery()));
+    }
+
+    /**
+     * Searches with an already embedded query, e.g. one that is searched in several stores.
+     */
+    public List<Document> similaritySearch(SearchRequest request, float[] vector) {
+        try {
+            return searcher.search(vector, request.getTopK(), request.getSimilarityThreshold(),
+                    request.hasFilterExpression() ? request.getFilterExpression() : null, searchParam);
+        } catch (RuntimeException e) {
+            // e.g. an open circuit, which callers answer with 503 rather than a failed search
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while searching", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Similarity search failed", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return delegate.getNativeClient();
+    }
+
+    public NativeVectorSearcher searcher() {
+        return searcher;
+    }
+
+    public int searchParam() {
+        return searchParam;
+    }
+
+    public void searchParam(int searchParam) {
+        this.searchParam = searchParam;
+    }
+}
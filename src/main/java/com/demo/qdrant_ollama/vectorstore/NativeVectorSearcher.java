@@ -0,0 +1,40 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Searches a vector database through its native client with an explicit search-time accuracy parameter
+ * ({@code hnsw_ef} for Qdrant, {@code nprobe} or {@code ef} for Milvus), which Spring AI's vector stores don't expose,
+ * and with metadata filters translated into the database's own filter language.
+ */
+public interface NativeVectorSearcher {
+
+    /**
+     * Name of the search-time accuracy parameter, for reports and logs, or {@code null} if the index has none.
+     */
+    String searchParamName();
+
+    /**
+     * Parameter values worth trying for {@code k} results, cheapest first.
+     */
+    List<Integer> searchParamCandidates(int k);
+
+    /**
+     * @param filter pushed down into the native query, may be null
+     */
+    List<Document> search(float[] vector, int topK, double similarityThreshold, Filter.Expression filter, int searchParam) throws Exception;
+
+    /**
+     * Ids of the {@code topK} nearest vectors, without payload.
+     */
+    List<String> searchIds(float[] vector, int topK, int searchParam) throws Exception;
+
+    /**
+     * Streams every stored vector with its id, page by page.
+     */
+    void forEachVector(BiConsumer<String, float[]> consumer) throws Exception;
+}
@@ -0,0 +1,74 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Fixed-dimension {@code float} vectors stored off-heap, addressed by ordinal, so a large index costs no heap
+ * and no per-vector object. Not thread-safe: {@link HnswIndex} guards all access.
+ */
+final class OffHeapVectors implements AutoCloseable {
+
+    private final int dimensions;
+
+    private final SegmentPages pages;
+
+    OffHeapVectors(int dimensions) {
+        this.dimensions = dimensions;
+        this.pages = new SegmentPages((long) dimensions * Float.BYTES);
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    void set(int ordinal, float[] vector) {
+        MemorySegment.copy(vector, 0, pages.pageForWrite(ordinal), ValueLayout.JAVA_FLOAT, pages.offset(ordinal), dimensions);
+    }
+
+    void setBytes(int ordinal, byte[] bytes) {
+        MemorySegment.copy(bytes, 0, pages.pageForWrite(ordinal), ValueLayout.JAVA_BYTE, pages.offset(ordinal), bytes.length);
+    }
+
+    float[] get(int ordinal) {
+        float[] vector = new float[dimensions];
+        MemorySegment.copy(pages.page(ordinal), ValueLayout.JAVA_FLOAT, pages.offset(ordinal), vector, 0, dimensions);
+        return vector;
+    }
+
+    byte[] getBytes(int ordinal) {
+        return pages.page(ordinal).asSlice(pages.offset(ordinal), (long) dimensions * Float.BYTES).toArray(ValueLayout.JAVA_BYTE);
+    }
+
+    float dot(int ordinal, float[] query) {
+        MemorySegment page = pages.page(ordinal);
+        long base = pages.offset(ordinal);
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            sum += page.get(ValueLayout.JAVA_FLOAT, base + (long) i * Float.BYTES) * query[i];
+        }
+        return sum;
+    }
+
+    float dot(int a, int b) {
+        MemorySegment pageA = pages.page(a);
+        MemorySegment pageB = pages.page(b);
+        long baseA = pages.offset(a);
+        long baseB = pages.offset(b);
+        float sum = 0;
+        for (int i = 0; i < dimensions; i++) {
+            long delta = (long) i * Float.BYTES;
+            sum += pageA.get(ValueLayout.JAVA_FLOAT, baseA + delta) * pageB.get(ValueLayout.JAVA_FLOAT, baseB + delta);
+        }
+        return sum;
+    }
+
+    long offHeapBytes() {
+        return pages.offHeapBytes();
+    }
+
+    @Override
+    public void close() {
+        pages.close();
+    }
+}
@@ -0,0 +1,80 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import io.qdrant.client.ConditionFactory;
+import io.qdrant.client.grpc.Points;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+
+/**
+ * Translates a portable {@link Filter.Expression} into a Qdrant payload filter. Metadata is stored as top-level
+ * payload fields; keyword conditions on an array field (e.g. {@code tags}) match if any element matches.
+ */
+public final class QdrantFilterConverter {
+
+    private QdrantFilterConverter() {
+    }
+
+    public static Points.Filter toFilter(Filter.Expression expression) {
+        switch (expression.type()) {
+            case AND:
+                return Points.Filter.newBuilder()
+                        .addMust(nested(expression.left()))
+                        .addMust(nested(expression.right()))
+                        .build();
+            case OR:
+                return Points.Filter.newBuilder()
+                        .addShould(nested(expression.left()))
+                        .addShould(nested(expression.right()))
+                        .build();
+            case NOT:
+                return Points.Filter.newBuilder().addMustNot(nested(expression.left())).build();
+            default:
+                break;
+        }
+        String key = FilterEvaluator.key(expression);
+        return switch (expression.type()) {
+            case EQ -> Points.Filter.newBuilder().addMust(match(key, FilterEvaluator.value(expression))).build();
+            case NE -> Points.Filter.newBuilder().addMustNot(match(key, FilterEvaluator.value(expression))).build();
+            case IN -> Points.Filter.newBuilder().addMust(matchAny(key, FilterEvaluator.values(expression))).build();
+            case NIN -> Points.Filter.newBuilder().addMustNot(matchAny(key, FilterEvaluator.values(expression))).build();
+            case GT -> range(key, Points.Range.newBuilder().setGt(number(expression)));
+            case GTE -> range(key, Points.Range.newBuilder().setGte(number(expression)));
+            case LT -> range(key, Points.Range.newBuilder().setLt(number(expression)));
+            case LTE -> range(key, Points.Range.newBuilder().setLte(number(expression)));
+            default -> throw new IllegalArgumentException("Unsupported filter expression type: " + expression.type());
+        };
+    }
+
+    private static Points.Condition nested(Filter.Operand operand) {
+        return ConditionFactory.filter(toFilter(FilterEvaluator.operand(operand)));
+    }
+
+    private static Points.Condition match(String key, Object value) {
+        if (value instanceof Boolean bool) {
+            return ConditionFactory.match(key, bool);
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return ConditionFactory.match(key, ((Number) value).longValue());
+        }
+        return ConditionFactory.matchKeyword(key, value.toString());
+    }
+
+    private static Points.Condition matchAny(String key, Collection<?> values) {
+        if (!values.isEmpty() && values.stream().allMatch(value -> value instanceof Integer || value instanceof Long)) {
+            return ConditionFactory.matchValues(key, values.stream().map(value -> ((Number) value).longValue()).toList());
+        }
+        return ConditionFactory.matchKeywords(key, values.stream().map(Object::toString).toList());
+    }
+
+    private static Points.Filter range(String key, Points.Range.Builder range) {
+        return Points.Filter.newBuilder().addMust(ConditionFactory.range(key, range.build())).build();
+    }
+
+    private static double number(Filter.Expression expression) {
+        if (!(FilterEvaluator.value(expression) instanceof Number number)) {
+            throw new IllegalArgumentException("Range conditions need a numeric value, got " + FilterEvaluator.value(expression));
+        }
+        return number.doubleValue();
+    }
+}
@@ -0,0 +1,57 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import io.qdrant.client.grpc.JsonWithInt;
+import org.springframework.ai.document.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts Qdrant point payloads written by Spring AI's QdrantVectorStore back into documents.
+ */
+public final class QdrantPayloads {
+
+    // payload key of the document text, as written by Spring AI's QdrantVectorStore
+    public static final String CONTENT_KEY = "doc_content";
+
+    private QdrantPayloads() {
+    }
+
+    /**
+     * @param score similarity of a search hit, or {@code null} for points that were not searched for
+     */
+    public static Document toDocument(String id, Map<String, JsonWithInt.Value> payload, Float score) {
+        Map<String, Object> metadata = new HashMap<>();
+        String content = null;
+        for (Map.Entry<String, JsonWithInt.Value> entry : payload.entrySet()) {
+            if (CONTENT_KEY.equals(entry.getKey())) {
+                content = entry.getValue().getStringValue();
+            } else if (entry.getValue().getKindCase() != JsonWithInt.Value.KindCase.NULL_VALUE) {
+                // Document metadata doesn't allow null values
+                metadata.put(entry.getKey(), toJava(entry.getValue()));
+            }
+        }
+        Document.Builder builder = Document.builder().id(id).text(content);
+        if (score != null) {
+            metadata.put("distance", 1 - score);
+            builder.score(score.doubleValue());
+        }
+        return builder.metadata(metadata).build();
+    }
+
+    public static Object toJava(JsonWithInt.Value value) {
+        return switch (value.getKindCase()) {
+            case STRING_VALUE -> value.getStringValue();
+            case INTEGER_VALUE -> value.getIntegerValue();
+            case DOUBLE_VALUE -> value.getDoubleValue();
+            case BOOL_VALUE -> value.getBoolValue();
+            case LIST_VALUE -> value.getListValue().getValuesList().stream().map(QdrantPayloads::toJava).toList();
+            case STRUCT_VALUE -> {
+                Map<String, Object> struct = new HashMap<>();
+                value.getStructValue().getFieldsMap().forEach((key, field) -> struct.put(key, toJava(field)));
+                yield struct;
+            }
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.WithPayloadSelectorFactory;
+import io.qdrant.client.WithVectorsSelectorFactory;
+import io.qdrant.client.grpc.Points;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Searches the Qdrant {@code documents} collection with an explicit {@code hnsw_ef}. When the collection is
+ * quantized, {@code oversampling} times more candidates are taken from the quantized vectors and rescored with
+ * the original ones.
+ */
+public class QdrantVectorSearcher implements NativeVectorSearcher {
+
+    private static final String COLLECTION_NAME = "documents";
+
+    private static final int PAGE_SIZE = 256;
+
+    private final QdrantClient client;
+
+    private final boolean quantized;
+
+    private final double oversampling;
+
+    public QdrantVectorSearcher(QdrantClient client, boolean quantized, double oversampling) {
+        this.client = client;
+        this.quantized = quantized;
+        this.oversampling = oversampling;
+    }
+
+    @Override
+    public String searchParamName() {
+        return "hnsw_ef";
+    }
+
+    @Override
+    public List<Integer> searchParamCandidates(int k) {
+        // Qdrant uses max(hnsw_ef, limit) as beam width, smaller values behave like ef = k
+        return List.of(16, 32, 64, 128, 256, 512).stream().filter(ef -> ef >= k).toList();
+    }
+
+    @Override
+    public List<Document> search(float[] vector, int topK, double similarityThreshold, Filter.Expression filter,
+                                 int searchParam) throws Exception {
+        Points.SearchPoints.Builder request = searchRequest(vector, topK, searchParam)
+                .setWithPayload(WithPayloadSelectorFactory.enable(true));
+        if (similarityThreshold > 0) {
+            request.setScoreThreshold((float) similarityThreshold);
+        }
+        if (filter != null) {
+            request.setFilter(QdrantFilterConverter.toFilter(filter));
+        }
+        List<Document> documents = new ArrayList<>();
+        for (Points.ScoredPoint point : client.searchAsync(request.build()).get()) {
+            documents.add(QdrantPayloads.toDocument(point.getId().getUuid(), point.getPayloadMap(), point.getScore()));
+        }
+        return documents;
+    }
+
+    @Override
+    public List<String> searchIds(float[] vector, int topK, int searchParam) throws Exception {
+        return client.searchAsync(searchRequest(vector, topK, searchParam)
+                        .setWithPayload(WithPayloadSelectorFactory.enable(false))
+                        .build()).get().stream()
+                .map(point -> point.getId().getUuid())
+                .toList();
+    }
+
+    @Override
+    public void forEachVector(BiConsumer<String, float[]> consumer) throws Exception {
+        Points.ScrollPoints.Builder request = Points.ScrollPoints.newBuilder()
+                .setCollectionName(COLLECTION_NAME)
+                .setLimit(PAGE_SIZE)
+                .setWithPayload(WithPayloadSelectorFactory.enable(false))
+                .setWithVectors(WithVectorsSelectorFactory.enable(true));
+        while (true) {
+            Points.ScrollResponse response = client.scrollAsync(request.build()).get();
+            for (Points.RetrievedPoint point : response.getResultList()) {
+                List<Float> values = point.getVectors().getVector().getDataList();
+                float[] vector = new float[values.size()];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = values.get(i);
+                }
+                consumer.accept(point.getId().getUuid(), vector);
+            }
+            if (!response.hasNextPageOffset()) {
+                return;
+            }
+            request.setOffset(response.getNextPageOffset());
+        }
+    }
+
+    private Points.SearchPoints.Builder searchRequest(float[] vector, int topK, int hnswEf) {
+        Points.SearchParams.Builder params = Points.SearchParams.newBuilder().setHnswEf(hnswEf);
+        if (quantized) {
+            params.setQuantization(Points.QuantizationSearchParams.newBuilder()
+                    .setRescore(true)
+                    .setOversampling(oversampling)
+                    .build());
+        }
+        Points.SearchPoints.Builder request = Points.SearchPoints.newBuilder()
+                .setCollectionName(COLLECTION_NAME)
+                .setLimit(topK)
+                .setParams(params.build());
+        for (float value : vector) {
+            request.addVector(value);
+        }
+        return request;
+    }
+}
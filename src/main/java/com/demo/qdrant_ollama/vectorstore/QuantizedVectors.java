@@ -0,0 +1,140 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Compressed copy of the vectors of an {@link HnswIndex}, used for a cheap first pass whose best candidates are
+ * then rescored with the full-precision vectors.
+ * <ul>
+ *     <li>{@code INT8}: one signed byte per dimension plus a per-vector scale (4x smaller), scored by an integer
+ *     dot product with the query quantized the same way</li>
+ *     <li>{@code BINARY}: one sign bit per dimension (32x smaller), scored by Hamming distance</li>
+ * </ul>
+ * Not thread-safe: {@link HnswIndex} guards all access.
+ */
+abstract sealed class QuantizedVectors implements AutoCloseable {
+
+    protected final int dimensions;
+
+    protected final SegmentPages pages;
+
+    private QuantizedVectors(int dimensions, long entryBytes) {
+        this.dimensions = dimensions;
+        this.pages = new SegmentPages(entryBytes);
+    }
+
+    /**
+     * @return the quantized vectors, or {@code null} for {@link EmbeddedHnswVectorStore.Quantization#NONE}
+     */
+    static QuantizedVectors create(EmbeddedHnswVectorStore.Quantization quantization, int dimensions) {
+        return switch (quantization) {
+            case NONE -> null;
+            case INT8 -> new Int8(dimensions);
+            case BINARY -> new Binary(dimensions);
+        };
+    }
+
+    abstract void set(int ordinal, float[] vector);
+
+    /**
+     * Approximate similarity of every node to {@code query}, only meaningful for ranking.
+     */
+    abstract HnswIndex.NodeScorer scorer(float[] query);
+
+    long offHeapBytes() {
+        return pages.offHeapBytes();
+    }
+
+    @Override
+    public void close() {
+        pages.close();
+    }
+
+    static final class Int8 extends QuantizedVectors {
+
+        private Int8(int dimensions) {
+            super(dimensions, Float.BYTES + dimensions);
+        }
+
+        @Override
+        void set(int ordinal, float[] vector) {
+            float maxAbs = 0;
+            for (float value : vector) {
+                maxAbs = Math.max(maxAbs, Math.abs(value));
+            }
+            float scale = maxAbs == 0 ? 0 : maxAbs / 127;
+            MemorySegment page = pages.pageForWrite(ordinal);
+            long base = pages.offset(ordinal);
+            page.set(ValueLayout.JAVA_FLOAT_UNALIGNED, base, scale);
+            for (int i = 0; i < dimensions; i++) {
+                page.set(ValueLayout.JAVA_BYTE, base + Float.BYTES + i, scale == 0 ? 0 : (byte) Math.round(vector[i] / scale));
+            }
+        }
+
+        @Override
+        HnswIndex.NodeScorer scorer(float[] query) {
+            // the query is quantized as well, so the inner loop is an integer dot product
+            float maxAbs = 0;
+            for (float value : query) {
+                maxAbs = Math.max(maxAbs, Math.abs(value));
+            }
+            float queryScale = maxAbs == 0 ? 0 : maxAbs / 127;
+            byte[] queryCodes = new byte[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                queryCodes[i] = queryScale == 0 ? 0 : (byte) Math.round(query[i] / queryScale);
+            }
+            return node -> {
+                MemorySegment page = pages.page(node);
+                long base = pages.offset(node);
+                long codes = base + Float.BYTES;
+                int sum = 0;
+                for (int i = 0; i < dimensions; i++) {
+                    sum += page.get(ValueLayout.JAVA_BYTE, codes + i) * queryCodes[i];
+                }
+                return sum * queryScale * page.get(ValueLayout.JAVA_FLOAT_UNALIGNED, base);
+            };
+        }
+    }
+
+    static final class Binary extends QuantizedVectors {
+
+        private final int words;
+
+        private Binary(int dimensions) {
+            super(dimensions, (long) ((dimensions + 63) / 64) * Long.BYTES);
+            this.words = (dimensions + 63) / 64;
+        }
+
+        @Override
+        void set(int ordinal, float[] vector) {
+            long[] bits = bits(vector);
+            MemorySegment.copy(bits, 0, pages.pageForWrite(ordinal), ValueLayout.JAVA_LONG, pages.offset(ordinal), words);
+        }
+
+        @Override
+        HnswIndex.NodeScorer scorer(float[] query) {
+            long[] queryBits = bits(query);
+            return node -> {
+                MemorySegment page = pages.page(node);
+                long base = pages.offset(node);
+                int hamming = 0;
+                for (int i = 0; i < words; i++) {
+                    hamming += Long.bitCount(page.get(ValueLayout.JAVA_LONG, base + (long) i * Long.BYTES) ^ queryBits[i]);
+                }
+                // same ordering as the angle estimate cos(pi * hamming / dimensions)
+                return 1 - 2f * hamming / dimensions;
+            };
+        }
+
+        private long[] bits(float[] vector) {
+            long[] bits = new long[words];
+            for (int i = 0; i < dimensions; i++) {
+                if (vector[i] > 0) {
+                    bits[i / 64] |= 1L << (i % 64);
+                }
+            }
+            return bits;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import com.demo.qdrant_ollama.service.DownstreamResilience;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link NativeVectorSearcher} decorator that retries failed searches and fails fast while the vector store's
+ * circuit breaker is open. It wraps the searcher rather than the vector store, so a failing embedding call
+ * doesn't count against the vector database. The breaker and retry policy are those of the searcher's provider.
+ */
+public class ResilientVectorSearcher implements NativeVectorSearcher {
+
+    private final NativeVectorSearcher delegate;
+
+    private final DownstreamResilience resilience;
+
+    private final String provider;
+
+    public ResilientVectorSearcher(NativeVectorSearcher delegate, DownstreamResilience resilience, String provider) {
+        this.delegate = delegate;
+        this.resilience = resilience;
+        this.provider = provider;
+    }
+
+    @Override
+    public String searchParamName() {
+        return delegate.searchParamName();
+    }
+
+    @Override
+    public List<Integer> searchParamCandidates(int k) {
+        return delegate.searchParamCandidates(k);
+    }
+
+    @Override
+    public List<Document> search(float[] vector, int topK, double similarityThreshold, Filter.Expression filter, int searchParam)
+            throws Exception {
+        return read(() -> delegate.search(vector, topK, similarityThreshold, filter, searchParam));
+    }
+
+    @Override
+    public List<String> searchIds(float[] vector, int topK, int searchParam) throws Exception {
+        return read(() -> delegate.searchIds(vector, topK, searchParam));
+    }
+
+    @Override
+    public void forEachVector(BiConsumer<String, float[]> consumer) throws Exception {
+        // pages are handed to the consumer as they arrive, a retry would hand them over twice
+        delegate.forEachVector(consumer);
+    }
+
+    private <T> T read(Callable<T> call) throws Exception {
+        try {
+            return resilience.vectorStoreRead(provider, () -> {
+                try {
+                    return call.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    if (e instanceof InterruptedException) {
+                        // keeps the retry from sleeping
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new CheckedFailure(e);
+                }
+            });
+        } catch (CheckedFailure e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    // carries the native clients' checked exceptions (e.g. ExecutionException) through the retry and breaker
+    private static final class CheckedFailure extends RuntimeException {
+
+        CheckedFailure(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Fixed-size entries stored off-heap in pages of {@value #ENTRIES_PER_PAGE} entries, allocated from a shared
+ * {@link Arena} as they are needed. Not thread-safe: {@link HnswIndex} guards all access.
+ */
+final class SegmentPages implements AutoCloseable {
+
+    static final int ENTRIES_PER_PAGE = 4096;
+
+    private final long entryBytes;
+
+    private final Arena arena = Arena.ofShared();
+
+    private MemorySegment[] pages = new MemorySegment[0];
+
+    SegmentPages(long entryBytes) {
+        this.entryBytes = entryBytes;
+    }
+
+    /**
+     * The page holding {@code ordinal}, allocating pages up to it if needed.
+     */
+    MemorySegment pageForWrite(int ordinal) {
+        int pageIndex = ordinal / ENTRIES_PER_PAGE;
+        if (pageIndex >= pages.length) {
+            MemorySegment[] grown = new MemorySegment[pageIndex + 1];
+            System.arraycopy(pages, 0, grown, 0, pages.length);
+            for (int i = pages.length; i < grown.length; i++) {
+                grown[i] = arena.allocate(ENTRIES_PER_PAGE * entryBytes, Long.BYTES);
+            }
+            pages = grown;
+        }
+        return pages[pageIndex];
+    }
+
+    MemorySegment page(int ordinal) {
+        return pages[ordinal / ENTRIES_PER_PAGE];
+    }
+
+    long offset(int ordinal) {
+        return (ordinal % ENTRIES_PER_PAGE) * entryBytes;
+    }
+
+    long offHeapBytes() {
+        return (long) pages.length * ENTRIES_PER_PAGE * entryBytes;
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
@@ -0,0 +1,215 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import com.demo.qdrant_ollama.embedding.PrecomputedEmbeddings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a second vector store alongside the primary one, so a migration can be validated on live traffic before
+ * switching {@code vector-store.provider}.
+ * <p>
+ * Writes and deletes go to both stores; the shadow reuses the vectors embedded for the primary, and a failing
+ * shadow write is logged and counted but never fails the request. Searches are answered by the primary alone; a
+ * {@code sampleRate} fraction of them is repeated against the shadow in the background with the same query
+ * vector, on a bounded pool that drops comparisons instead of queueing without limit.
+ * <p>
+ * Per-store latency is recorded as {@code vector.store.search.duration} (tags {@code provider} and {@code role}),
+ * the share of the primary's hits the shadow also returned (recall@k against the primary) as
+ * {@code vector.store.shadow.overlap}, and the comparisons by outcome as {@code vector.store.shadow.requests}.
+ */
+public class ShadowVectorStore implements VectorStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShadowVectorStore.class);
+
+    private final VectorStore primary;
+
+    private final VectorStore shadow;
+
+    private final String shadowProvider;
+
+    private final EmbeddingModel embeddingModel;
+
+    private final double sampleRate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer primaryLatency;
+
+    private final Timer shadowLatency;
+
+    private final DistributionSummary overlap;
+
+    private final Counter completed;
+
+    private final Counter failed;
+
+    private final Counter dropped;
+
+    private final Counter failedWrites;
+
+    public ShadowVectorStore(VectorStore primary, String primaryProvider, VectorStore shadow, String shadowProvider,
+                             EmbeddingModel embeddingModel, double sampleRate, int maxConcurrent, int queueCapacity,
+                             MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.shadow = shadow;
+        this.shadowProvider = shadowProvider;
+        this.embeddingModel = embeddingModel;
+        this.sampleRate = sampleRate;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, "shadow-search-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // idle comparison threads go away, the pool needs no shutdown
+        executor.allowCoreThreadTimeOut(true);
+        this.primaryLatency = latencyTimer(meterRegistry, primaryProvider, "primary");
+        this.shadowLatency = latencyTimer(meterRegistry, shadowProvider, "shadow");
+        this.overlap = DistributionSummary.builder("vector.store.shadow.overlap")
+                .tag("provider", shadowProvider)
+                .publishPercentiles(0.05, 0.5, 0.95)
+                .register(meterRegistry);
+        this.completed = outcomeCounter(meterRegistry, "vector.store.shadow.requests", "completed");
+        this.failed = outcomeCounter(meterRegistry, "vector.store.shadow.requests", "failed");
+        this.dropped = outcomeCounter(meterRegistry, "vector.store.shadow.requests", "dropped");
+        this.failedWrites = outcomeCounter(meterRegistry, "vector.store.shadow.writes", "failed");
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        // the vectors embedded for the primary are recorded, so the shadow doesn't embed every chunk again
+        Map<String, float[]> embeddings = new HashMap<>();
+        try (PrecomputedEmbeddings.Scope scope = PrecomputedEmbeddings.record(embeddings)) {
+            primary.add(documents);
+            mirror("add", () -> shadow.add(documents));
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        primary.delete(idList);
+        mirror("delete", () -> shadow.delete(idList));
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        primary.delete(filterExpression);
+        mirror("delete", () -> shadow.delete(filterExpression));
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        // embedded once, the shadow search reuses the vector
+        float[] vector = embeddingModel.embed(request.getQuery());
+        long start = System.nanoTime();
+        List<Document> results = search(primary, request, vector);
+        primaryLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            compare(request, vector, results);
+        }
+        return results;
+    }
+
+    private void compare(SearchRequest request, float[] vector, List<Document> primaryResults) {
+        Set<String> primaryIds = primaryResults.stream().map(Document::getId).collect(Collectors.toSet());
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    List<Document> shadowResults = search(shadow, request, vector);
+                    shadowLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (!primaryIds.isEmpty()) {
+                        long found = shadowResults.stream().map(Document::getId).distinct().filter(primaryIds::contains).count();
+                        overlap.record((double) found / primaryIds.size());
+                    }
+                    completed.increment();
+                } catch (Exception e) {
+                    failed.increment();
+                    logger.debug("Shadow search on {} failed", shadowProvider, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the shadow is slower than the traffic, comparisons are sampled anyway
+            dropped.increment();
+        }
+    }
+
+    private static List<Document> search(VectorStore store, SearchRequest request, float[] vector) {
+        if (store instanceof NativeSearchVectorStore nativeStore) {
+            return nativeStore.similaritySearch(request, vector);
+        }
+        try (PrecomputedEmbeddings.Scope scope = PrecomputedEmbeddings.activate(Map.of(request.getQuery(), vector))) {
+            return store.similaritySearch(request);
+        }
+    }
+
+    /**
+     * Applies a write to the shadow store; a failure is logged and counted, the primary stays authoritative.
+     */
+    public void mirror(String operation, Runnable write) {
+        try {
+            write.run();
+        } catch (Exception e) {
+            failedWrites.increment();
+            logger.warn("Shadow {} on {} failed, the stores have diverged until the next sync: {}", operation, shadowProvider,
+                    e.getMessage());
+        }
+    }
+
+    public VectorStore primary() {
+        return primary;
+    }
+
+    public VectorStore shadow() {
+        return shadow;
+    }
+
+    /**
+     * Both names, so a seed manifest written without the shadow doesn't match and the next seeding backfills it.
+     */
+    @Override
+    public String getName() {
+        return primary.getName() + "+" + shadow.getName();
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return primary.getNativeClient();
+    }
+
+    private static Timer latencyTimer(MeterRegistry meterRegistry, String provider, String role) {
+        return Timer.builder("vector.store.search.duration")
+                .tag("provider", provider)
+                .tag("role", role)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String name, String outcome) {
+        return Counter.builder(name).tag("outcome", outcome).register(meterRegistry);
+    }
+}
@@ -0,0 +1,85 @@
+package com.demo.qdrant_ollama.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The Ollama client against a local stub server.
+ */
+class ClientConfigTests {
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private volatile Duration responseDelay = Duration.ZERO;
+
+    @BeforeEach
+    void startStubServer() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/api/tags", exchange -> {
+            try {
+                Thread.sleep(responseDelay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"models\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void callsGoThroughThePooledClient() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OllamaApi ollamaApi = new ClientConfig().ollamaApi(properties(Duration.ofSeconds(5)), meterRegistry);
+
+        assertThat(ollamaApi.listModels().models()).isEmpty();
+        assertThat(meterRegistry.get("client.pool.connections").tag("client", "ollama").gauge().value()).isEqualTo(4);
+        assertThat(meterRegistry.get("client.pool.active").tag("client", "ollama").gauge().value()).isZero();
+    }
+
+    @Test
+    void stalledCallFailsAfterTheReadTimeout() {
+        responseDelay = Duration.ofSeconds(3);
+        OllamaApi ollamaApi = new ClientConfig().ollamaApi(properties(Duration.ofMillis(200)), new SimpleMeterRegistry());
+
+        long start = System.nanoTime();
+        assertThatThrownBy(ollamaApi::listModels).isInstanceOf(ResourceAccessException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    private ClientProperties properties(Duration readTimeout) {
+        ClientProperties.Ollama ollama = new ClientProperties.Ollama("http://localhost:" + server.getAddress().getPort(),
+                4, Duration.ofSeconds(1), Duration.ofSeconds(1), readTimeout, Duration.ofSeconds(30));
+        return new ClientProperties(null, null, ollama);
+    }
+}
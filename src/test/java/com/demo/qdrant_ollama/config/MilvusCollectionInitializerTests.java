@@ -0,0 +1,50 @@
+package com.demo.qdrant_ollama.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.milvus.grpc.IndexDescription;
+import io.milvus.grpc.KeyValuePair;
+import io.milvus.param.IndexType;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MilvusCollectionInitializerTests {
+
+    @Test
+    void buildParametersThatDifferFromTheConfigurationAreReported() {
+        MilvusCollectionInitializer initializer = initializer(IndexType.HNSW);
+
+        IndexDescription index = index(param("index_type", "HNSW"), param("M", "16"), param("efConstruction", "100"));
+
+        assertThat(initializer.changedIndexParams(index)).containsExactly("efConstruction 100 -> 200");
+    }
+
+    @Test
+    void buildParametersReportedAsOneJsonObjectAreCompared() {
+        MilvusCollectionInitializer initializer = initializer(IndexType.IVF_FLAT);
+
+        assertThat(initializer.changedIndexParams(index(param("index_type", "IVF_FLAT"), param("params", "{\"nlist\":\"128\"}"))))
+                .isEmpty();
+        assertThat(initializer.changedIndexParams(index(param("index_type", "IVF_FLAT"), param("params", "{\"nlist\":64}"))))
+                .containsExactly("nlist 64 -> 128");
+        // nothing to compare with, the index is kept
+        assertThat(initializer.changedIndexParams(index(param("index_type", "IVF_FLAT")))).isEmpty();
+    }
+
+    private static MilvusCollectionInitializer initializer(IndexType indexType) {
+        VectorIndexProperties.Milvus milvus = new VectorIndexProperties.Milvus(2, indexType, 128, 16, 8, 16, 200, 16, 64, false);
+        return new MilvusCollectionInitializer(null, new VectorIndexProperties("milvus", null, milvus, null), new ObjectMapper());
+    }
+
+    private static IndexDescription index(KeyValuePair... params) {
+        IndexDescription.Builder index = IndexDescription.newBuilder().setIndexName("embedding_index");
+        for (KeyValuePair param : params) {
+            index.addParams(param);
+        }
+        return index.build();
+    }
+
+    private static KeyValuePair param(String key, String value) {
+        return KeyValuePair.newBuilder().setKey(key).setValue(value).build();
+    }
+}
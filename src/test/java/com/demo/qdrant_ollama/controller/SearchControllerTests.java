@@ -0,0 +1,135 @@
+package com.demo.qdrant_ollama.controller;
+
+import com.demo.qdrant_ollama.config.RerankProperties;
+import com.demo.qdrant_ollama.dto.SearchRequest;
+import com.demo.qdrant_ollama.dto.SearchResponse;
+import com.demo.qdrant_ollama.lexical.LexicalIndex;
+import com.demo.qdrant_ollama.rerank.RerankStage;
+import com.demo.qdrant_ollama.rerank.Reranker;
+import com.demo.qdrant_ollama.service.AnswerCache;
+import com.demo.qdrant_ollama.service.CircuitBreaker;
+import com.demo.qdrant_ollama.service.DownstreamLimits;
+import com.demo.qdrant_ollama.service.DownstreamResilience;
+import com.demo.qdrant_ollama.service.GenerationScheduler;
+import com.demo.qdrant_ollama.service.PromptBuilder;
+import com.demo.qdrant_ollama.service.SearchMetrics;
+import com.demo.qdrant_ollama.service.SearchResultMapper;
+import com.demo.qdrant_ollama.service.SearchService;
+import com.demo.qdrant_ollama.vectorstore.EmbeddedHnswVectorStore;
+import com.demo.qdrant_ollama.vectorstore.NativeSearchVectorStore;
+import com.demo.qdrant_ollama.vectorstore.NativeVectorSearcher;
+import com.demo.qdrant_ollama.vectorstore.ResilientVectorSearcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchControllerTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DownstreamResilience resilience = new DownstreamResilience(50, 2, 2, Duration.ofSeconds(30),
+            1, Duration.ofMillis(1), Duration.ofMillis(1), meterRegistry);
+
+    @Test
+    void anOpenVectorStoreCircuitIsAnsweredWith503() {
+        EmbeddingModel embeddingModel = new ConstantEmbeddingModel();
+        NativeSearchVectorStore vectorStore = new NativeSearchVectorStore(
+                EmbeddedHnswVectorStore.builder(embeddingModel, new ObjectMapper()).dimensions(2).build(), embeddingModel,
+                new ResilientVectorSearcher(new UnreachableSearcher(), resilience, "qdrant"), 64);
+        CircuitBreaker breaker = resilience.vectorStoreBreaker("qdrant");
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> breaker.execute(() -> {
+                throw new IllegalStateException("qdrant down");
+            })).isInstanceOf(IllegalStateException.class);
+        }
+        SearchController controller = new SearchController(searchService(vectorStore, embeddingModel), null, null, null, null, null);
+
+        ResponseEntity<SearchResponse> response = controller.search(new SearchRequest("What is machine learning?", 3, false, null));
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    private SearchService searchService(NativeSearchVectorStore vectorStore, EmbeddingModel embeddingModel) {
+        SearchMetrics searchMetrics = new SearchMetrics(meterRegistry, "qdrant", true);
+        RerankProperties rerankProperties = new RerankProperties(false, "onnx", 20, 8, 0, Duration.ofSeconds(1),
+                new RerankProperties.Onnx("", "", 256));
+        return new SearchService(
+                vectorStore,
+                null,
+                new AnswerCache(embeddingModel, false, 0.05, 1000, Duration.ofHours(1), meterRegistry),
+                new DownstreamLimits(8, 64, Duration.ofSeconds(5), 2, 64, Duration.ofSeconds(60), 32, 256, Duration.ofSeconds(2),
+                        meterRegistry),
+                new GenerationScheduler(4, 32, Duration.ofSeconds(10), 2, Duration.ofSeconds(60), meterRegistry),
+                resilience,
+                new SearchResultMapper(),
+                new PromptBuilder(1500, 0.9),
+                searchMetrics,
+                new LexicalIndex(false, 20, 60, 1.2f, 0.75f, 0.5f, meterRegistry),
+                new RerankStage(rerankProperties, (Reranker) null, meterRegistry),
+                0.7);
+    }
+
+    private static class ConstantEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            return new EmbeddingResponse(request.getInstructions().stream()
+                    .map(text -> new Embedding(new float[]{1, 0}, 0))
+                    .toList());
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+
+    /**
+     * Fails the test if a search gets past the open circuit.
+     */
+    private static class UnreachableSearcher implements NativeVectorSearcher {
+
+        @Override
+        public String searchParamName() {
+            return "hnsw_ef";
+        }
+
+        @Override
+        public List<Integer> searchParamCandidates(int k) {
+            return List.of(64);
+        }
+
+        @Override
+        public List<Document> search(float[] vector, int topK, double similarityThreshold, Filter.Expression filter,
+                                     int searchParam) {
+            throw new AssertionError("searched through an open circuit");
+        }
+
+        @Override
+        public List<String> searchIds(float[] vector, int topK, int searchParam) {
+            throw new AssertionError("searched through an open circuit");
+        }
+
+        @Override
+        public void forEachVector(BiConsumer<String, float[]> consumer) {
+        }
+    }
+}
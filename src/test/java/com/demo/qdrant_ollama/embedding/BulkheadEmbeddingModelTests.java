@@ -0,0 +1,55 @@
+package com.demo.qdrant_ollama.embedding;
+
+import com.demo.qdrant_ollama.service.Bulkhead;
+import com.demo.qdrant_ollama.service.BulkheadFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadEmbeddingModelTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void ingestionEmbedsInItsOwnBulkhead() {
+        // no slots for queries, so only calls routed to the ingestion bulkhead get through
+        Bulkhead queries = new Bulkhead("ollama-embedding", 0, 0, Duration.ZERO, meterRegistry);
+        Bulkhead ingestion = new Bulkhead("ollama-ingest-embedding", 1, 0, Duration.ZERO, meterRegistry);
+        EmbeddingModel model = new CoalescingEmbeddingModel(new BulkheadEmbeddingModel(new LengthEmbeddingModel(), queries, ingestion),
+                Duration.ofMillis(5), 16, meterRegistry);
+
+        assertThatThrownBy(() -> model.embed("query")).isInstanceOf(BulkheadFullException.class);
+        try (IngestEmbeddings.Scope scope = IngestEmbeddings.activate()) {
+            assertThat(model.embed("chunk")).containsExactly(5);
+            assertThat(model.embed(List.of("a", "bb"))).hasSize(2);
+        }
+        assertThatThrownBy(() -> model.embed(List.of("a", "bb"))).isInstanceOf(BulkheadFullException.class);
+        assertThat(meterRegistry.get("downstream.rejected").tag("downstream", "ollama-ingest-embedding").counter().count()).isZero();
+    }
+
+    private static class LengthEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<String> texts = request.getInstructions();
+            return new EmbeddingResponse(texts.stream()
+                    .map(text -> new Embedding(new float[]{text.length()}, texts.indexOf(text)))
+                    .toList());
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
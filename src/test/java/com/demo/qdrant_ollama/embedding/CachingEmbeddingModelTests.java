@@ -0,0 +1,97 @@
+package com.demo.qdrant_ollama.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingEmbeddingModelTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void onlyMissingTextsAreSentToTheDelegate() {
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        EmbeddingCache cache = new EmbeddingCache(true, 100, Duration.ofHours(1), "", new SimpleMeterRegistry());
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, cache, "test-model");
+
+        float[] first = model.embed("What is  machine learning?");
+        List<float[]> batch = model.embed(List.of("What is machine learning? ", "Quantum computing"));
+
+        assertThat(batch.get(0)).isEqualTo(first);
+        assertThat(delegate.embeddedTexts).containsExactly("What is  machine learning?", "Quantum computing");
+    }
+
+    @Test
+    void ingestionBypassesTheCache() {
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        EmbeddingCache cache = new EmbeddingCache(true, 100, Duration.ofHours(1), "", new SimpleMeterRegistry());
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, cache, "test-model");
+
+        try (IngestEmbeddings.Scope scope = IngestEmbeddings.activate()) {
+            model.embed(List.of("Chunk one", "Chunk two"));
+            model.embed(List.of("Chunk one"));
+        }
+
+        assertThat(delegate.embeddedTexts).containsExactly("Chunk one", "Chunk two", "Chunk one");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        EmbeddingCache cache = new EmbeddingCache(true, 2, Duration.ofHours(1), "", new SimpleMeterRegistry());
+        cache.put("m", "a", new float[]{1});
+        cache.put("m", "b", new float[]{2});
+        cache.get("m", "a");
+        cache.put("m", "c", new float[]{3});
+
+        assertThat(cache.get("m", "a")).isNotNull();
+        assertThat(cache.get("m", "b")).isNull();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void survivesRestartThroughPersistenceFile() {
+        String file = tempDir.resolve("cache.bin").toString();
+        EmbeddingCache cache = new EmbeddingCache(true, 100, Duration.ofHours(1), file, new SimpleMeterRegistry());
+        cache.put("m", "hello", new float[]{0.25f, -1.5f, 3f});
+        cache.persist();
+
+        EmbeddingCache restarted = new EmbeddingCache(true, 100, Duration.ofHours(1), file, new SimpleMeterRegistry());
+        restarted.load();
+
+        assertThat(restarted.get("m", "hello")).containsExactly(0.25f, -1.5f, 3f);
+    }
+
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+
+        private final List<String> embeddedTexts = new ArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddedTexts.add(text);
+                embeddings.add(new Embedding(new float[]{text.length()}, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
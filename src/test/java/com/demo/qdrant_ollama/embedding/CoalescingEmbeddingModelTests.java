@@ -0,0 +1,96 @@
+package com.demo.qdrant_ollama.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoalescingEmbeddingModelTests {
+
+    @Test
+    void concurrentQueriesShareOneDelegateCall() throws Exception {
+        RecordingEmbeddingModel delegate = new RecordingEmbeddingModel();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // the window is far longer than the test, the batch is sent because it fills up
+        CoalescingEmbeddingModel model = new CoalescingEmbeddingModel(delegate, Duration.ofSeconds(30), 4, meterRegistry);
+
+        List<String> queries = List.of("a", "bb", "ccc", "dddd");
+        List<Future<float[]>> vectors = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String query : queries) {
+                vectors.add(executor.submit(() -> model.embed(query)));
+            }
+            for (int i = 0; i < queries.size(); i++) {
+                assertThat(vectors.get(i).get()).containsExactly(queries.get(i).length());
+            }
+        }
+
+        assertThat(delegate.calls).hasSize(1);
+        assertThat(delegate.calls.getFirst()).containsExactlyInAnyOrderElementsOf(queries);
+        assertThat(meterRegistry.get("embedding.batch.size").summary().max()).isEqualTo(4);
+    }
+
+    @Test
+    void loneQueryIsSentAfterTheWindowAndBatchesPassThrough() {
+        RecordingEmbeddingModel delegate = new RecordingEmbeddingModel();
+        CoalescingEmbeddingModel model = new CoalescingEmbeddingModel(delegate, Duration.ofMillis(5), 16, new SimpleMeterRegistry());
+
+        assertThat(model.embed("hello")).containsExactly(5);
+        assertThat(model.embed(List.of("x", "yy"))).hasSize(2);
+
+        assertThat(delegate.calls).containsExactly(List.of("hello"), List.of("x", "yy"));
+    }
+
+    @Test
+    void failureReachesEveryCallerOfTheBatch() throws Exception {
+        EmbeddingModel failing = new RecordingEmbeddingModel() {
+            @Override
+            public EmbeddingResponse call(EmbeddingRequest request) {
+                throw new IllegalStateException("ollama down");
+            }
+        };
+        CoalescingEmbeddingModel model = new CoalescingEmbeddingModel(failing, Duration.ofSeconds(30), 2, new SimpleMeterRegistry());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<float[]> first = executor.submit(() -> model.embed("a"));
+            Future<float[]> second = executor.submit(() -> model.embed("b"));
+            for (Future<float[]> vector : List.of(first, second)) {
+                assertThatThrownBy(vector::get).hasRootCauseMessage("ollama down");
+            }
+        }
+    }
+
+    private static class RecordingEmbeddingModel implements EmbeddingModel {
+
+        private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            calls.add(List.copyOf(request.getInstructions()));
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(new float[]{text.length()}, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.demo.qdrant_ollama.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChunkFormatTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<StoredChunk> chunks = List.of(
+            new StoredChunk("a", "Router setup – XR-500", Map.of("doc_id", "doc-a", "chunk_index", 0), new float[]{0.25f, -1.5f, 3e-7f}),
+            new StoredChunk("b", "", Map.of(), null));
+
+    @Test
+    void chunksSurviveARoundTripInEitherFormat() throws IOException {
+        for (ChunkFormat format : ChunkFormat.values()) {
+            List<StoredChunk> read = readAll(write(format, true), format);
+
+            assertThat(read).hasSize(2);
+            for (int i = 0; i < chunks.size(); i++) {
+                assertThat(read.get(i).id()).isEqualTo(chunks.get(i).id());
+                assertThat(read.get(i).content()).isEqualTo(chunks.get(i).content());
+                assertThat(read.get(i).metadata()).isEqualTo(chunks.get(i).metadata());
+                assertThat(read.get(i).vector()).isEqualTo(chunks.get(i).vector());
+            }
+        }
+    }
+
+    @Test
+    void aBinaryExportWithoutEndMarkerIsRejected() throws IOException {
+        byte[] complete = write(ChunkFormat.BINARY, true);
+        byte[] unfinished = write(ChunkFormat.BINARY, false);
+
+        assertThat(unfinished).hasSize(complete.length - 1);
+        assertThatThrownBy(() -> readAll(unfinished, ChunkFormat.BINARY)).hasMessageContaining("truncated");
+        assertThatThrownBy(() -> readAll(Arrays.copyOf(complete, complete.length / 2), ChunkFormat.BINARY))
+                .hasMessageContaining("truncated");
+    }
+
+    @Test
+    void formatsAreResolvedByNameOrExtension() {
+        assertThat(ChunkFormat.of(null)).isEqualTo(ChunkFormat.NDJSON);
+        assertThat(ChunkFormat.of("jsonl")).isEqualTo(ChunkFormat.NDJSON);
+        assertThat(ChunkFormat.of("BIN")).isEqualTo(ChunkFormat.BINARY);
+        assertThat(ChunkFormat.of(null, Path.of("/data/documents.bin"))).isEqualTo(ChunkFormat.BINARY);
+        assertThat(ChunkFormat.of("", Path.of("documents.ndjson"))).isEqualTo(ChunkFormat.NDJSON);
+        assertThatThrownBy(() -> ChunkFormat.of("parquet")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private byte[] write(ChunkFormat format, boolean finish) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ChunkWriter writer = ChunkWriter.open(out, format, objectMapper)) {
+            for (StoredChunk chunk : chunks) {
+                writer.write(chunk);
+            }
+            if (finish) {
+                writer.finish();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private List<StoredChunk> readAll(byte[] bytes, ChunkFormat format) throws IOException {
+        List<StoredChunk> read = new ArrayList<>();
+        try (ChunkReader reader = ChunkReader.open(new ByteArrayInputStream(bytes), format, objectMapper)) {
+            reader.forEachRemaining(read::add);
+        }
+        return read;
+    }
+}
@@ -0,0 +1,32 @@
+package com.demo.qdrant_ollama.ingest;
+
+import com.demo.qdrant_ollama.dto.IngestionRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestionServiceTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void onlyFilesInsideTheIngestDirectoryAreRead() throws Exception {
+        Path ingestDir = Files.createDirectories(tempDir.resolve("ingest"));
+        Files.writeString(tempDir.resolve("secret.jsonl"), "{}");
+        IngestionService service = new IngestionService(null, null, null, null, new SimpleMeterRegistry(), ingestDir);
+
+        assertThat(service.resolve("corpus/part-1.jsonl")).isEqualTo(ingestDir.resolve("corpus/part-1.jsonl"));
+        assertThatThrownBy(() -> service.start(new IngestionRequest("../secret.jsonl", null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.start(new IngestionRequest(tempDir.resolve("secret.jsonl").toString(), null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.status("any")).isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package com.demo.qdrant_ollama.lexical;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Bm25IndexTests {
+
+    @Test
+    void ranksExactKeywordAndTagMatchesFirst() {
+        Bm25Index index = new Bm25Index(1.2f, 0.75f, 0.5f);
+        index.upsert(List.of(
+                chunk("a", "doc-a", "Router setup", "Configure the XR-500 router for a small office network.", "networking"),
+                chunk("b", "doc-b", "Office networks", "Small office networks need a router and a switch.", "networking, office"),
+                chunk("c", "doc-c", "Healthy breakfast", "Oatmeal and fruit make a good start into the day.", "nutrition")));
+
+        assertThat(index.search("xr-500", 3)).extracting(hit -> hit.document().getId()).containsExactly("a");
+        // the compound token is indexed with its parts as well
+        assertThat(index.search("XR 500", 3)).extracting(hit -> hit.document().getId()).containsExactly("a");
+        assertThat(index.search("nutrition", 3)).extracting(hit -> hit.document().getId()).containsExactly("c");
+        assertThat(index.search("office router", 3)).extracting(hit -> hit.document().getId()).containsExactlyInAnyOrder("a", "b");
+        assertThat(index.search("quantum", 3)).isEmpty();
+    }
+
+    @Test
+    void stopwordsDontMatchAndHitsNeedEnoughOfTheQueryTerms() {
+        Bm25Index index = new Bm25Index(1.2f, 0.75f, 0.5f);
+        index.upsert(List.of(
+                chunk("a", "doc-a", "Router setup", "Configure the XR-500 router for a small office network.", null),
+                chunk("b", "doc-b", "Healthy breakfast", "Oatmeal is the best start into the day.", null)));
+
+        assertThat(index.search("what is the", 3)).isEmpty();
+        // only "office" of four terms
+        assertThat(index.search("quantum office entanglement theory", 3)).isEmpty();
+        assertThat(index.search("how do I configure the office router", 3)).extracting(hit -> hit.document().getId()).containsExactly("a");
+
+        Bm25Index anyTerm = new Bm25Index(1.2f, 0.75f, 0);
+        anyTerm.upsert(List.of(chunk("a", "doc-a", "Router setup", "office", null)));
+        assertThat(anyTerm.search("quantum office entanglement theory", 3)).hasSize(1);
+    }
+
+    @Test
+    void upsertReplacesAndDeleteRemovesChunks() {
+        Bm25Index index = new Bm25Index(1.2f, 0.75f, 0.5f);
+        index.upsert(List.of(
+                chunk("a", "doc-a", "First", "alpha beta", null),
+                chunk("b", "doc-b", "Second", "gamma delta", null)));
+
+        index.upsert(List.of(chunk("a", "doc-a", "First", "epsilon", null)));
+        assertThat(index.search("alpha", 5)).isEmpty();
+        assertThat(index.search("epsilon", 5)).extracting(hit -> hit.document().getId()).containsExactly("a");
+
+        index.deleteWhere("docId", List.of("doc-b"));
+        assertThat(index.search("gamma", 5)).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void compactionKeepsResults() {
+        Bm25Index index = new Bm25Index(1.2f, 0.75f, 0.5f);
+        List<Document> chunks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            chunks.add(chunk("c" + i, "doc-" + i, "Chunk " + i, "common text with code-" + i, List.of("tag" + (i % 10))));
+        }
+        index.upsert(chunks);
+        long postingsBytes = index.postingsBytes();
+        // rewriting every chunk tombstones all previous versions, which triggers compactions along the way
+        for (int round = 0; round < 3; round++) {
+            index.upsert(chunks);
+        }
+
+        assertThat(index.size()).isEqualTo(1000);
+        assertThat(index.postingsBytes()).isLessThan(postingsBytes * 2);
+        assertThat(index.search("code-123", 1)).extracting(hit -> hit.document().getId()).containsExactly("c123");
+        assertThat(index.search("tag7", 200)).hasSize(100);
+    }
+
+    private static Document chunk(String id, String docId, String title, String content, Object tags) {
+        Map<String, Object> metadata = new HashMap<>(Map.of("docId", docId, "title", title));
+        if (tags != null) {
+            metadata.put("tags", tags);
+        }
+        return new Document(id, content, metadata);
+    }
+}
@@ -0,0 +1,68 @@
+package com.demo.qdrant_ollama.rerank;
+
+import com.demo.qdrant_ollama.config.RerankProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RerankStageTests {
+
+    private final List<Document> candidates = List.of(
+            chunk("a", "Healthy breakfast", "Oatmeal and fruit make a good start into the day."),
+            chunk("b", "Cloud computing", "Servers are rented by the hour."),
+            chunk("c", "Machine learning", "Machine learning models learn from examples."),
+            chunk("d", "Deep learning", "Neural networks are a family of machine learning models."));
+
+    @Test
+    void keepsTheBestScoredCandidates() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RerankStage stage = new RerankStage(properties(3, Duration.ofSeconds(5)), new StubReranker(), meterRegistry);
+
+        List<Document> reranked = stage.rerank("machine learning models", candidates, 2);
+
+        assertThat(reranked).extracting(Document::getId).containsExactly("c", "d");
+        assertThat(reranked.get(0).getMetadata()).containsKey(RerankStage.RERANK_SCORE);
+        assertThat(meterRegistry.counter("search.rerank.fallbacks", "cause", "timeout").count()).isZero();
+    }
+
+    @Test
+    void fallsBackToRetrievalOrderWhenOverBudget() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Reranker slowReranker = new Reranker() {
+            @Override
+            public float[] score(String query, List<String> passages) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new float[passages.size()];
+            }
+
+            @Override
+            public String name() {
+                return "slow";
+            }
+        };
+        RerankStage stage = new RerankStage(properties(2, Duration.ofMillis(50)), slowReranker, meterRegistry);
+
+        List<Document> reranked = stage.rerank("machine learning models", candidates, 2);
+
+        assertThat(reranked).extracting(Document::getId).containsExactly("a", "b");
+        assertThat(meterRegistry.counter("search.rerank.fallbacks", "cause", "timeout").count()).isEqualTo(1);
+    }
+
+    private static RerankProperties properties(int batchSize, Duration budget) {
+        return new RerankProperties(true, "stub", 20, batchSize, 2, budget, new RerankProperties.Onnx("", "", 256));
+    }
+
+    private static Document chunk(String id, String title, String text) {
+        return Document.builder().id(id).text(text).metadata(Map.of("title", title)).build();
+    }
+}
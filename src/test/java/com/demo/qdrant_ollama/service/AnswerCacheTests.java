@@ -0,0 +1,167 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnswerCacheTests {
+
+    private static final List<String> DOCUMENTS = List.of("doc-1", "doc-2");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AnswerCache cache = new AnswerCache(new KeywordEmbeddingModel(), true, 0.05, 100, Duration.ofHours(1), meterRegistry);
+
+    @Test
+    void exactAndSemanticallyCloseQueriesHitTheCache() {
+        cache.put("How do I reset the router?", DOCUMENTS, "Hold the button.");
+
+        assertThat(cache.lookup("how do I  reset the router?", DOCUMENTS)).contains("Hold the button.");
+        // same embedding, different wording
+        assertThat(cache.lookup("Router reset, how?", DOCUMENTS)).contains("Hold the button.");
+        // same query, other documents retrieved
+        assertThat(cache.lookup("How do I reset the router?", List.of("doc-2", "doc-1"))).isEmpty();
+        assertThat(cache.lookup("How do I update the firmware?", DOCUMENTS)).isEmpty();
+    }
+
+    @Test
+    void changedDocumentsInvalidateTheCache() {
+        cache.put("How do I reset the router?", DOCUMENTS, "Hold the button.");
+
+        cache.onDocumentsChanged(new DocumentsChangedEvent("sync"));
+
+        assertThat(cache.lookup("How do I reset the router?", DOCUMENTS)).isEmpty();
+    }
+
+    @Test
+    void anAnswerGeneratedAgainstOldDocumentsIsNotCached() {
+        AnswerCache.Flight flight = cache.join("How do I reset the router?", DOCUMENTS);
+        cache.onDocumentsChanged(new DocumentsChangedEvent("sync"));
+        flight.complete("Hold the button.");
+
+        assertThat(flight.answer()).isCompletedWithValue("Hold the button.");
+        assertThat(cache.lookup("How do I reset the router?", DOCUMENTS)).isEmpty();
+    }
+
+    @Test
+    void changesToSomeDocumentsOnlyDropTheAnswersBuiltFromThem() {
+        cache.put("How do I reset the router?", DOCUMENTS, "Hold the button.");
+        cache.put("How do I update the firmware?", List.of("doc-3"), "Use the app.");
+        AnswerCache.Flight affected = cache.join("Router reset, how?", List.of("doc-2"));
+        AnswerCache.Flight unaffected = cache.join("Where is the firmware?", List.of("doc-3"));
+
+        cache.onDocumentsChanged(new DocumentsChangedEvent("ingestion", Set.of("doc-2")));
+        affected.complete("Hold the button.");
+        unaffected.complete("In the app.");
+
+        assertThat(cache.lookup("How do I reset the router?", DOCUMENTS)).isEmpty();
+        assertThat(cache.lookup("Router reset, how?", List.of("doc-2"))).isEmpty();
+        assertThat(cache.lookup("How do I update the firmware?", List.of("doc-3"))).contains("Use the app.");
+        assertThat(cache.lookup("Where is the firmware?", List.of("doc-3"))).contains("In the app.");
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneGeneration() throws Exception {
+        AtomicInteger generations = new AtomicInteger();
+        List<Future<String>> answers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 2; i++) {
+                answers.add(executor.submit(() -> cache.getOrCompute("How do I reset the router?", DOCUMENTS, () -> {
+                    generations.incrementAndGet();
+                    awaitSharedGenerations(1);
+                    return "Hold the button.";
+                })));
+            }
+            for (Future<String> answer : answers) {
+                assertThat(answer.get()).isEqualTo("Hold the button.");
+            }
+        }
+
+        assertThat(generations.get()).isEqualTo(1);
+    }
+
+    @Test
+    void aCallerThatMissedAJustFinishedGenerationDoesNotStartAnother() {
+        // both callers looked the answer up before either generated it
+        assertThat(cache.lookup("How do I reset the router?", DOCUMENTS)).isEmpty();
+        AnswerCache.Flight first = cache.join("How do I reset the router?", DOCUMENTS);
+        first.complete("Hold the button.");
+
+        AnswerCache.Flight second = cache.join("How do I reset the router?", DOCUMENTS);
+
+        assertThat(first.leader()).isTrue();
+        assertThat(second.leader()).isFalse();
+        assertThat(second.answer()).isCompletedWithValue("Hold the button.");
+    }
+
+    @Test
+    void anAbandonedGenerationLetsTheNextCallerLead() {
+        AnswerCache.Flight first = cache.join("How do I reset the router?", DOCUMENTS);
+        AnswerCache.Flight waiting = cache.join("How do I reset the router?", DOCUMENTS);
+
+        first.abandon(new IllegalStateException("client went away"));
+
+        assertThat(waiting.leader()).isFalse();
+        assertThat(waiting.answer()).isCompletedExceptionally();
+        assertThat(cache.join("How do I reset the router?", DOCUMENTS).leader()).isTrue();
+    }
+
+    private void awaitSharedGenerations(int count) {
+        for (int i = 0; i < 500; i++) {
+            if (meterRegistry.get("search.answer-cache.shared-generations").counter().count() >= count) {
+                return;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new AssertionError("expected " + count + " callers to share the generation");
+    }
+
+    /**
+     * Embeds a query by the topic it mentions, so different wordings of one question are identical.
+     */
+    private static class KeywordEmbeddingModel implements EmbeddingModel {
+
+        private static final Map<String, float[]> TOPICS = Map.of(
+                "reset", new float[]{1, 0, 0},
+                "firmware", new float[]{0, 1, 0});
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                float[] vector = TOPICS.entrySet().stream()
+                        .filter(topic -> text.toLowerCase().contains(topic.getKey()))
+                        .map(Map.Entry::getValue)
+                        .findFirst()
+                        .orElse(new float[]{0, 0, 1});
+                embeddings.add(new Embedding(vector, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(org.springframework.ai.document.Document document) {
+            return embed(document.getText());
+        }
+    }
+}
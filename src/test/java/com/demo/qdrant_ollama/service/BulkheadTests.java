@@ -0,0 +1,52 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void aReleasedSlotGoesToTheQueuedCallerBeforeANewOne() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead("ollama-embedding", 1, 10, Duration.ofSeconds(5), meterRegistry);
+        List<String> served = new CopyOnWriteArrayList<>();
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        Thread queued = Thread.ofVirtual().start(() -> bulkhead.execute(() -> served.add("queued")));
+        awaitWaiting(1);
+
+        bulkhead.release();
+        bulkhead.execute(() -> served.add("new"));
+        queued.join();
+
+        assertThat(served).containsExactly("queued", "new");
+    }
+
+    @Test
+    void callersBeyondTheQueueAreRejected() {
+        Bulkhead bulkhead = new Bulkhead("ollama-embedding", 1, 0, Duration.ofSeconds(5), meterRegistry);
+        assertThat(bulkhead.tryAcquire()).isTrue();
+
+        assertThatThrownBy(() -> bulkhead.execute(() -> "late")).isInstanceOf(BulkheadFullException.class);
+        bulkhead.release();
+        assertThat(bulkhead.execute(() -> "next")).isEqualTo("next");
+        assertThat(meterRegistry.get("downstream.rejected").tag("downstream", "ollama-embedding").counter().count()).isEqualTo(1);
+    }
+
+    private void awaitWaiting(int callers) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (meterRegistry.get("downstream.waiting").tag("downstream", "ollama-embedding").gauge().value() == callers) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("expected " + callers + " waiting callers");
+    }
+}
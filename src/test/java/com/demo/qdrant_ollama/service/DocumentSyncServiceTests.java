@@ -0,0 +1,171 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.embedding.PrecomputedEmbeddingModel;
+import com.demo.qdrant_ollama.export.CollectionScanner;
+import com.demo.qdrant_ollama.ingest.DocumentChunker;
+import com.demo.qdrant_ollama.lexical.LexicalIndex;
+import com.demo.qdrant_ollama.model.Document;
+import com.demo.qdrant_ollama.vectorstore.EmbeddedHnswVectorStore;
+import com.demo.qdrant_ollama.vectorstore.ShadowVectorStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocumentSyncServiceTests {
+
+    private static final String LONG_BETA = "Beta is long enough to be split into several chunks, its last words are stale.";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+
+    private final EmbeddedHnswVectorStore store = EmbeddedHnswVectorStore.builder(embeddingModel, objectMapper)
+            .dimensions(4)
+            .build();
+
+    private final LexicalIndex lexicalIndex = new LexicalIndex(true, 20, 60, 1.2f, 0.75f, 0.5f, new SimpleMeterRegistry());
+
+    private final DocumentSyncService sync = new DocumentSyncService(store, new DocumentChunker(40, 10), objectMapper,
+            lexicalIndex, new CollectionScanner(objectMapper));
+
+    @Test
+    void onlyNewAndChangedDocumentsAreWrittenAndTheRestIsDeleted() {
+        sync.sync(List.of(document("a", "Alpha text"), document("b", LONG_BETA), document("c", "Gamma text")));
+        assertThat(chunksByDocId().get("b")).hasSize(3);
+        // written before chunks carried a docId
+        store.add(List.of(new org.springframework.ai.document.Document("legacy", "Unversioned text", Map.of())));
+        embeddingModel.texts.clear();
+
+        DocumentSyncService.SyncResult result = sync.sync(List.of(
+                document("a", "Alpha text"), document("b", "Beta is short now"), document("d", "Delta text")));
+
+        assertThat(result).isEqualTo(new DocumentSyncService.SyncResult(1, 1, 1, 1, 2));
+        assertThat(embeddingModel.texts).containsExactlyInAnyOrder("Beta is short now", "Delta text");
+        Map<String, List<org.springframework.ai.document.Document>> chunks = chunksByDocId();
+        assertThat(chunks.keySet()).containsExactlyInAnyOrder("a", "b", "d");
+        // the new version overwrote the first chunk, the two chunks past its end are gone
+        assertThat(chunks.get("b")).extracting(org.springframework.ai.document.Document::getText).containsExactly("Beta is short now");
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(lexicalIndex.search("stale", 5, null)).isEmpty();
+        assertThat(lexicalIndex.search("gamma", 5, null)).isEmpty();
+        assertThat(lexicalIndex.search("short", 5, null)).hasSize(1);
+    }
+
+    @Test
+    void reIngestingAChangedDocumentLeavesNoChunksOfTheOldVersion() {
+        sync.upsert(List.of(document("b", LONG_BETA)));
+
+        DocumentSyncService.SyncResult result = sync.upsert(List.of(document("b", "Beta is short now"), document("c", "Gamma text")));
+
+        assertThat(result).isEqualTo(new DocumentSyncService.SyncResult(1, 1, 0, 0, 2));
+        assertThat(chunksByDocId().get("b")).extracting(org.springframework.ai.document.Document::getText).containsExactly("Beta is short now");
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(lexicalIndex.search("stale", 5, null)).isEmpty();
+    }
+
+    @Test
+    void aFailedWriteLeavesThePreviousVersionInPlace() {
+        sync.sync(List.of(document("b", LONG_BETA)));
+        embeddingModel.failing = true;
+
+        assertThatThrownBy(() -> sync.upsert(List.of(document("b", "Beta is short now")))).isInstanceOf(IllegalStateException.class);
+
+        assertThat(chunksByDocId().get("b")).hasSize(3);
+        assertThat(lexicalIndex.search("stale", 5, null)).hasSize(1);
+    }
+
+    @Test
+    void aDocumentWhoseChunksDisagreeOnTheContentHashIsRewritten() {
+        sync.upsert(List.of(document("b", LONG_BETA)));
+        // the first chunk was left behind by an interrupted write of another version, the others are read after it
+        List<org.springframework.ai.document.Document> chunks = new ArrayList<>(chunksByDocId().get("b"));
+        org.springframework.ai.document.Document first = chunks.getFirst();
+        Map<String, Object> metadata = new HashMap<>(first.getMetadata());
+        metadata.put("contentHash", "previous");
+        chunks.set(0, new org.springframework.ai.document.Document(first.getId(), first.getText(), metadata));
+        store.delete(chunks.stream().map(org.springframework.ai.document.Document::getId).toList());
+        store.add(chunks);
+
+        DocumentSyncService.SyncResult result = sync.upsert(List.of(document("b", LONG_BETA)));
+
+        assertThat(result).isEqualTo(new DocumentSyncService.SyncResult(0, 1, 0, 0, 3));
+        assertThat(chunksByDocId().get("b")).extracting(stored -> stored.getMetadata().get("contentHash"))
+                .containsOnly(DocumentChunker.contentHash(document("b", LONG_BETA)));
+    }
+
+    @Test
+    void theShadowIsBackfilledFromThePrimaryWithOnlyTheDocumentsItLacks() {
+        EmbeddingModel precomputed = new PrecomputedEmbeddingModel(embeddingModel);
+        EmbeddedHnswVectorStore primary = EmbeddedHnswVectorStore.builder(precomputed, objectMapper).dimensions(4).build();
+        EmbeddedHnswVectorStore shadow = EmbeddedHnswVectorStore.builder(precomputed, objectMapper).dimensions(4).build();
+        new DocumentSyncService(primary, new DocumentChunker(40, 10), objectMapper, lexicalIndex, new CollectionScanner(objectMapper))
+                .sync(List.of(document("a", "Alpha text"), document("b", LONG_BETA)));
+        DocumentSyncService shadowSync = new DocumentSyncService(
+                new ShadowVectorStore(primary, "qdrant", shadow, "milvus", precomputed, 0, 1, 10, new SimpleMeterRegistry()),
+                new DocumentChunker(40, 10), objectMapper, lexicalIndex, new CollectionScanner(objectMapper));
+        embeddingModel.texts.clear();
+
+        shadowSync.upsert(List.of(document("c", "Gamma text")));
+        // an upsert only backfills the documents of its batch
+        assertThat(chunksByDocId(shadow).keySet()).containsExactly("c");
+
+        shadowSync.sync(List.of(document("a", "Alpha text"), document("b", LONG_BETA), document("c", "Gamma text")));
+
+        assertThat(chunksByDocId(shadow).keySet()).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(chunksByDocId(shadow).get("b")).hasSize(3);
+        // copied with the primary's vectors, only the new document was embedded
+        assertThat(embeddingModel.texts).containsExactly("Gamma text");
+    }
+
+    private Map<String, List<org.springframework.ai.document.Document>> chunksByDocId() {
+        return chunksByDocId(store);
+    }
+
+    private static Map<String, List<org.springframework.ai.document.Document>> chunksByDocId(EmbeddedHnswVectorStore store) {
+        return store.findAll(null).stream()
+                .collect(Collectors.groupingBy(chunk -> String.valueOf(chunk.getMetadata().get("docId"))));
+    }
+
+    private static Document document(String id, String content) {
+        return new Document(id, "Title " + id, content, "Technology", "Author", "tag");
+    }
+
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+
+        final List<String> texts = new CopyOnWriteArrayList<>();
+
+        volatile boolean failing;
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            if (failing) {
+                throw new IllegalStateException("Ollama unavailable");
+            }
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                texts.add(text);
+                embeddings.add(new Embedding(new float[]{text.length(), 1, 0, 0}, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(org.springframework.ai.document.Document document) {
+            return embed(document.getText());
+        }
+    }
+}
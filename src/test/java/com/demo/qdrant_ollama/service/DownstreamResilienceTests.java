@@ -0,0 +1,69 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownstreamResilienceTests {
+
+    @Test
+    void opensOnFailuresAndClosesAfterSuccessfulTrial() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", 50, 4, 4, Duration.ofMillis(50), new SimpleMeterRegistry());
+
+        breaker.execute(() -> "ok");
+        breaker.execute(() -> "ok");
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> breaker.execute(() -> {
+                throw new IllegalStateException("down");
+            })).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.execute(() -> "ok")).isInstanceOf(CircuitOpenException.class);
+
+        Thread.sleep(60);
+        assertThat(breaker.tryAcquire()).isTrue();
+        // only one trial call while half-open
+        assertThat(breaker.tryAcquire()).isFalse();
+        breaker.onSuccess();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void localRejectionsDontCountAsFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 50, 2, 2, Duration.ofSeconds(30), new SimpleMeterRegistry());
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> breaker.execute(() -> {
+                throw new BulkheadFullException("test");
+            })).isInstanceOf(BulkheadFullException.class);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void retriesTransientFailuresButNotRejections() {
+        RetryPolicy retry = new RetryPolicy("test", 3, Duration.ofMillis(1), Duration.ofMillis(5), new SimpleMeterRegistry());
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retry.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("flaky");
+            }
+            return "ok";
+        });
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(3);
+
+        attempts.set(0);
+        assertThatThrownBy(() -> retry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new CircuitOpenException("test");
+        })).isInstanceOf(CircuitOpenException.class);
+        assertThat(attempts).hasValue(1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.demo.qdrant_ollama.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GenerationSchedulerTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void interactiveCallersAreServedBeforeBatchCallersThatQueuedEarlier() throws InterruptedException {
+        GenerationScheduler scheduler = new GenerationScheduler(1, 10, Duration.ofSeconds(5), 1, Duration.ofSeconds(5), meterRegistry);
+        List<GenerationScheduler.Lane> served = new CopyOnWriteArrayList<>();
+        GenerationScheduler.Slot running = scheduler.acquire(GenerationScheduler.Lane.INTERACTIVE);
+
+        Thread batch = Thread.ofVirtual().start(() -> serve(scheduler, GenerationScheduler.Lane.BATCH, served));
+        awaitWaiting(1);
+        Thread interactive = Thread.ofVirtual().start(() -> serve(scheduler, GenerationScheduler.Lane.INTERACTIVE, served));
+        awaitWaiting(2);
+        running.close();
+        batch.join();
+        interactive.join();
+
+        assertThat(served).containsExactly(GenerationScheduler.Lane.INTERACTIVE, GenerationScheduler.Lane.BATCH);
+        assertThat(meterRegistry.get("generation.queue.wait").tag("lane", "batch").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void batchCallersLeaveSlotsForInteractiveOnesAndAreShedAtTheirDeadline() {
+        GenerationScheduler scheduler = new GenerationScheduler(2, 10, Duration.ofSeconds(5), 1, Duration.ofMillis(50), meterRegistry);
+        GenerationScheduler.Slot batch = scheduler.acquire(GenerationScheduler.Lane.BATCH);
+
+        assertThatThrownBy(() -> scheduler.acquire(GenerationScheduler.Lane.BATCH)).isInstanceOf(BulkheadFullException.class);
+        // the second slot is still free for an interactive caller
+        try (GenerationScheduler.Slot interactive = scheduler.acquire(GenerationScheduler.Lane.INTERACTIVE)) {
+            assertThat(interactive.lane()).isEqualTo(GenerationScheduler.Lane.INTERACTIVE);
+        }
+        batch.close();
+        assertThat(meterRegistry.get("generation.shed").tag("lane", "batch").tag("reason", "deadline").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void callersThatCannotBeServedInTimeAreShedOnArrival() throws InterruptedException {
+        GenerationScheduler scheduler = new GenerationScheduler(1, 10, Duration.ofMillis(100), 1, Duration.ofSeconds(5), meterRegistry);
+        GenerationScheduler.Slot slow = scheduler.acquire(GenerationScheduler.Lane.INTERACTIVE);
+        Thread.sleep(300);
+        slow.close();
+        GenerationScheduler.Slot running = scheduler.acquire(GenerationScheduler.Lane.INTERACTIVE);
+
+        // generations take ~300ms, one more caller could not get the slot within 100ms
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> scheduler.acquire(GenerationScheduler.Lane.INTERACTIVE)).isInstanceOf(BulkheadFullException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(50));
+        running.close();
+
+        SimpleMeterRegistry fullRegistry = new SimpleMeterRegistry();
+        GenerationScheduler full = new GenerationScheduler(1, 0, Duration.ofSeconds(5), 1, Duration.ofSeconds(5), fullRegistry);
+        try (GenerationScheduler.Slot ignored = full.acquire(GenerationScheduler.Lane.INTERACTIVE)) {
+            assertThatThrownBy(() -> full.acquire(GenerationScheduler.Lane.INTERACTIVE)).isInstanceOf(BulkheadFullException.class);
+        }
+        assertThat(fullRegistry.get("generation.shed").tag("lane", "interactive").tag("reason", "queue_full").counter().count()).isEqualTo(1);
+    }
+
+    private static void serve(GenerationScheduler scheduler, GenerationScheduler.Lane lane, List<GenerationScheduler.Lane> served) {
+        try (GenerationScheduler.Slot ignored = scheduler.acquire(lane)) {
+            served.add(lane);
+        }
+    }
+
+    private void awaitWaiting(int callers) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (meterRegistry.get("downstream.waiting").tag("downstream", "ollama-chat").gauge().value() == callers) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("expected " + callers + " waiting callers");
+    }
+}
@@ -0,0 +1,115 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.dto.IndexTuningReport;
+import com.demo.qdrant_ollama.dto.IndexTuningRequest;
+import com.demo.qdrant_ollama.vectorstore.EmbeddedHnswVectorStore;
+import com.demo.qdrant_ollama.vectorstore.NativeSearchVectorStore;
+import com.demo.qdrant_ollama.vectorstore.NativeVectorSearcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndexTuningServiceTests {
+
+    private final PartlyExactSearcher searcher = new PartlyExactSearcher(15);
+
+    private final NativeSearchVectorStore store = new NativeSearchVectorStore(
+            EmbeddedHnswVectorStore.builder(null, new ObjectMapper()).dimensions(2).build(), null, searcher, 16);
+
+    private final IndexTuningService service = new IndexTuningService(store);
+
+    @Test
+    void recallCountsTheExactNeighboursAmongTheResults() {
+        assertThat(IndexTuningService.recall(List.of("a", "b", "x", "y"), Set.of("a", "b", "c", "d"))).isEqualTo(0.5);
+        assertThat(IndexTuningService.recall(List.of(), Set.of())).isEqualTo(1.0);
+    }
+
+    @Test
+    void theQueryItselfIsNeitherExpectedNorCountedAsFound() throws Exception {
+        IndexTuningReport report = service.tune(new IndexTuningRequest(15, 4, 0.7, true));
+
+        // each search finds the query first, then as many of its true neighbours as the parameter allows
+        assertThat(report.candidates()).extracting(IndexTuningReport.Candidate::value).containsExactly(1, 2, 4, 8);
+        assertThat(report.candidates()).extracting(IndexTuningReport.Candidate::recall).containsExactly(0.0, 0.25, 0.75, 1.0);
+        assertThat(report.recommended()).isEqualTo(4);
+        assertThat(report.previous()).isEqualTo(16);
+        assertThat(store.searchParam()).isEqualTo(4);
+    }
+
+    @Test
+    void withoutACandidateReachingTheTargetTheBestRecallIsRecommended() throws Exception {
+        searcher.candidates = List.of(1, 2, 4);
+
+        IndexTuningReport report = service.tune(new IndexTuningRequest(15, 4, 1.0, false));
+
+        assertThat(report.recommended()).isEqualTo(4);
+        assertThat(report.applied()).isFalse();
+        assertThat(store.searchParam()).isEqualTo(16);
+    }
+
+    /**
+     * An index whose search parameter is the number of exact nearest neighbours it returns (the query itself
+     * first, as it is stored); the remaining results are the farthest vectors.
+     */
+    private static class PartlyExactSearcher implements NativeVectorSearcher {
+
+        private final Map<String, float[]> vectors = new LinkedHashMap<>();
+
+        List<Integer> candidates = List.of(1, 2, 4, 8);
+
+        PartlyExactSearcher(int size) {
+            // unevenly spaced angles, so no two neighbours of a vector are equally close
+            for (int i = 0; i < size; i++) {
+                double angle = 0.01 * i * i;
+                vectors.put("v" + i, new float[]{(float) Math.cos(angle), (float) Math.sin(angle)});
+            }
+        }
+
+        @Override
+        public String searchParamName() {
+            return "exact";
+        }
+
+        @Override
+        public List<Integer> searchParamCandidates(int k) {
+            return candidates;
+        }
+
+        @Override
+        public List<Document> search(float[] vector, int topK, double similarityThreshold, Filter.Expression filter,
+                                     int searchParam) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> searchIds(float[] vector, int topK, int searchParam) {
+            List<String> byScore = vectors.keySet().stream()
+                    .sorted(Comparator.comparingDouble((String id) -> dot(vector, vectors.get(id))).reversed())
+                    .toList();
+            int exact = Math.min(searchParam, topK);
+            List<String> ids = new ArrayList<>(byScore.subList(0, exact));
+            ids.addAll(byScore.reversed().subList(0, topK - exact));
+            return ids;
+        }
+
+        @Override
+        public void forEachVector(BiConsumer<String, float[]> consumer) {
+            vectors.forEach(consumer);
+        }
+
+        private static double dot(float[] a, float[] b) {
+            return a[0] * b[0] + a[1] * b[1];
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.demo.qdrant_ollama.service;
+
+import com.demo.qdrant_ollama.dto.SearchResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromptBuilderTests {
+
+    // 14 estimated tokens per sentence, 5 per "[n] Title" header
+    private static final String ROUTER = guide("router", 6);
+
+    private static final String MODEM = guide("modem", 6);
+
+    @Test
+    void chunksAreAddedUntilTheBudgetIsUsedAndTheLastOneIsCutAtASentence() {
+        PromptBuilder builder = new PromptBuilder(255, 0.9);
+
+        PromptBuilder.BuiltPrompt prompt = builder.build("How do I reset it?",
+                List.of(result("Router", ROUTER), result("Modem", MODEM), result("Switch", guide("switch", 20))));
+
+        assertThat(prompt.system()).isEqualTo(PromptBuilder.SYSTEM_PROMPT);
+        assertThat(prompt.chunksUsed()).isEqualTo(3);
+        assertThat(prompt.chunksDropped()).isEqualTo(0);
+        assertThat(prompt.text()).startsWith("Context:\n[1] Router\n" + ROUTER + "\n\n[2] Modem\n" + MODEM + "\n\n");
+        // 255 - 2 * 89 leaves 77 tokens: the third header and five and a half of its sentences
+        assertThat(prompt.text()).contains("[3] Switch\n" + guide("switch", 5) + "\n\n");
+        assertThat(prompt.text()).endsWith("Question: How do I reset it?\nAnswer:");
+        assertThat(prompt.estimatedTokens())
+                .isEqualTo(TokenEstimator.estimate(PromptBuilder.SYSTEM_PROMPT) + TokenEstimator.estimate(prompt.text()));
+    }
+
+    @Test
+    void aChunkThatWouldBeCutTooShortIsSkippedForAShorterOneFurtherDown() {
+        // after the first chunk 49 tokens are left: not enough for 48 tokens of the second one plus its header
+        PromptBuilder builder = new PromptBuilder(138, 0.9);
+
+        PromptBuilder.BuiltPrompt prompt = builder.build("How do I reset it?",
+                List.of(result("Router", ROUTER), result("Modem", MODEM), result("Switch", guide("switch", 3))));
+
+        assertThat(prompt.chunksUsed()).isEqualTo(2);
+        assertThat(prompt.chunksDropped()).isEqualTo(1);
+        assertThat(prompt.text()).doesNotContain("Modem");
+        // citations keep the position in the search results
+        assertThat(prompt.text()).contains("[1] Router\n", "[3] Switch\n" + guide("switch", 3));
+    }
+
+    @Test
+    void nearDuplicateChunksAreSkipped() {
+        PromptBuilder builder = new PromptBuilder(1500, 0.9);
+
+        PromptBuilder.BuiltPrompt prompt = builder.build("How do I reset it?",
+                List.of(result("Router", ROUTER), result("Router (copy)", ROUTER + " See the FAQ."), result("Modem", MODEM)));
+
+        assertThat(prompt.chunksUsed()).isEqualTo(2);
+        assertThat(prompt.text()).doesNotContain("[2]", "Router (copy)");
+        assertThat(prompt.text()).contains("[3] Modem\n" + MODEM);
+    }
+
+    private static String guide(String device, int sentences) {
+        return IntStream.rangeClosed(1, sentences)
+                .mapToObj(i -> "The " + device + " guide, part " + i + ", covers step " + i + ".")
+                .collect(Collectors.joining(" "));
+    }
+
+    private static SearchResponse.DocumentResult result(String title, String content) {
+        return new SearchResponse.DocumentResult(title.toLowerCase(), title, content, "Technology", "Author", 0.9, 0);
+    }
+}
@@ -0,0 +1,30 @@
+package com.demo.qdrant_ollama.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenEstimatorTests {
+
+    @Test
+    void wordsCountPerStartedFourCharactersAndPunctuationPerCharacter() {
+        assertThat(TokenEstimator.estimate("")).isEqualTo(0);
+        assertThat(TokenEstimator.estimate("abcd")).isEqualTo(1);
+        assertThat(TokenEstimator.estimate("abcde")).isEqualTo(2);
+        // Hello (2) , (1) world (2) ! (1)
+        assertThat(TokenEstimator.estimate("Hello, world!")).isEqualTo(6);
+        assertThat(TokenEstimator.estimate("XR-500  router")).isEqualTo(5);
+    }
+
+    @Test
+    void truncationEndsAtASentenceOrElseAWord() {
+        String text = "The router restarts. Hold the reset button for ten seconds until the lights flash.";
+        assertThat(TokenEstimator.truncate(text, 100)).isEqualTo(text);
+
+        assertThat(TokenEstimator.truncate(text, 9)).isEqualTo("The router restarts.");
+        // no sentence end in the second half of the prefix, cut at the last whole word
+        String words = TokenEstimator.truncate("Hold the reset button for ten seconds until the lights flash", 8);
+        assertThat(words).isEqualTo("Hold the reset button for ten");
+        assertThat(TokenEstimator.estimate(words)).isLessThanOrEqualTo(8);
+    }
+}
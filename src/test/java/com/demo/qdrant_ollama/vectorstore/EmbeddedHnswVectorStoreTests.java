@@ -0,0 +1,156 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class EmbeddedHnswVectorStoreTests {
+
+    private static final int DIMENSIONS = 32;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void findsFiltersAndDeletesDocuments() {
+        EmbeddedHnswVectorStore store = EmbeddedHnswVectorStore.builder(new RandomEmbeddingModel(), new ObjectMapper())
+                .dimensions(DIMENSIONS)
+                .build();
+        store.add(List.of(
+                document("a", "Machine learning basics", "Technology"),
+                document("b", "Climate change and ecosystems", "Science"),
+                document("c", "Deep learning with neural networks", "Technology")));
+
+        List<Document> results = store.similaritySearch(SearchRequest.builder().query("Climate change and ecosystems").topK(1).build());
+        assertThat(results).extracting(Document::getId).containsExactly("b");
+        assertThat(results.getFirst().getScore()).isCloseTo(1.0, offset(1e-5));
+
+        List<Document> filtered = store.similaritySearch(SearchRequest.builder().query("Climate change and ecosystems").topK(3)
+                .filterExpression(new FilterExpressionBuilder().eq("category", "Technology").build()).build());
+        assertThat(filtered).extracting(Document::getId).containsExactlyInAnyOrder("a", "c");
+
+        store.delete(List.of("b"));
+        store.delete(new FilterExpressionBuilder().eq("category", "Technology").build());
+        assertThat(store.size()).isZero();
+        assertThat(store.similaritySearch(SearchRequest.builder().query("Climate change and ecosystems").topK(3).build())).isEmpty();
+    }
+
+    @Test
+    void graphSearchHasHighRecallAgainstExactSearch() {
+        EmbeddedHnswVectorStore graph = EmbeddedHnswVectorStore.builder(new RandomEmbeddingModel(), new ObjectMapper())
+                .dimensions(DIMENSIONS)
+                .efSearch(100)
+                .exactSearchThreshold(0)
+                .build();
+        EmbeddedHnswVectorStore exact = EmbeddedHnswVectorStore.builder(new RandomEmbeddingModel(), new ObjectMapper())
+                .dimensions(DIMENSIONS)
+                .exactSearchThreshold(Integer.MAX_VALUE)
+                .build();
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            documents.add(document("doc-" + i, "document " + i, "c" + (i % 5)));
+        }
+        graph.add(documents);
+        exact.add(documents);
+
+        int found = 0;
+        int expected = 0;
+        for (int q = 0; q < 50; q++) {
+            SearchRequest request = SearchRequest.builder().query("query " + q).topK(10).build();
+            Set<String> truth = new HashSet<>(exact.similaritySearch(request).stream().map(Document::getId).toList());
+            expected += truth.size();
+            found += (int) graph.similaritySearch(request).stream().filter(document -> truth.contains(document.getId())).count();
+        }
+        assertThat((double) found / expected).isGreaterThan(0.9);
+    }
+
+    @Test
+    void quantizedSearchRescoresWithFullPrecision() {
+        for (EmbeddedHnswVectorStore.Quantization quantization : List.of(EmbeddedHnswVectorStore.Quantization.INT8, EmbeddedHnswVectorStore.Quantization.BINARY)) {
+            EmbeddedHnswVectorStore store = EmbeddedHnswVectorStore.builder(new RandomEmbeddingModel(), new ObjectMapper())
+                    .dimensions(DIMENSIONS)
+                    .quantization(quantization)
+                    .exactSearchThreshold(0)
+                    .build();
+            List<Document> documents = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                documents.add(document("doc-" + i, "document " + i, "c" + (i % 5)));
+            }
+            store.add(documents);
+
+            List<Document> results = store.similaritySearch(SearchRequest.builder().query("document 42").topK(3).build());
+            assertThat(results.getFirst().getId()).isEqualTo("doc-42");
+            // scores come from the full-precision vectors, not the quantized ones
+            assertThat(results.getFirst().getScore()).isCloseTo(1.0, offset(1e-5));
+            store.close();
+        }
+    }
+
+    @Test
+    void survivesRestartThroughSnapshot() {
+        Path snapshot = tempDir.resolve("store.snapshot");
+        EmbeddedHnswVectorStore store = EmbeddedHnswVectorStore.builder(new RandomEmbeddingModel(), new ObjectMapper())
+                .dimensions(DIMENSIONS)
+                .snapshotFile(snapshot)
+                .build();
+        store.add(List.of(document("a", "Machine learning basics", "Technology"), document("b", "Quantum computing", "Science")));
+        store.close();
+
+        EmbeddedHnswVectorStore restarted = EmbeddedHnswVectorStore.builder(new RandomEmbeddingModel(), new ObjectMapper())
+                .dimensions(DIMENSIONS)
+                .snapshotFile(snapshot)
+                .build();
+        List<Document> results = restarted.similaritySearch(SearchRequest.builder().query("Quantum computing").topK(1).build());
+        assertThat(restarted.size()).isEqualTo(2);
+        assertThat(results).extracting(Document::getId).containsExactly("b");
+        assertThat(results.getFirst().getMetadata()).containsEntry("category", "Science");
+        restarted.close();
+    }
+
+    private static Document document(String id, String text, String category) {
+        return Document.builder().id(id).text(text).metadata(Map.of("category", category)).build();
+    }
+
+    /**
+     * Deterministic pseudo-random vector per text.
+     */
+    private static class RandomEmbeddingModel implements EmbeddingModel {
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                Random random = new Random(text.hashCode());
+                float[] vector = new float[DIMENSIONS];
+                for (int i = 0; i < DIMENSIONS; i++) {
+                    vector[i] = (float) random.nextGaussian();
+                }
+                embeddings.add(new Embedding(vector, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MilvusFilterConverterTests {
+
+    private static final FilterExpressionBuilder b = new FilterExpressionBuilder();
+
+    static Stream<Arguments> expressions() {
+        return Stream.of(
+                Arguments.of("scalar eq", b.eq("category", "Technology"),
+                        "metadata[\"category\"] == \"Technology\""),
+                Arguments.of("scalar ne", b.ne("category", "Technology"),
+                        "metadata[\"category\"] != \"Technology\""),
+                Arguments.of("scalar in", b.in("category", "Technology", "Science"),
+                        "metadata[\"category\"] in [\"Technology\", \"Science\"]"),
+                Arguments.of("scalar nin", b.nin("category", "Technology"),
+                        "metadata[\"category\"] not in [\"Technology\"]"),
+                Arguments.of("array eq", b.eq("tags", "ai"),
+                        "json_contains(metadata[\"tags\"], \"ai\")"),
+                Arguments.of("array ne", b.ne("tags", "ai"),
+                        "not json_contains(metadata[\"tags\"], \"ai\")"),
+                Arguments.of("array in", b.in("tags", "ai", "machine-learning"),
+                        "json_contains_any(metadata[\"tags\"], [\"ai\", \"machine-learning\"])"),
+                Arguments.of("array nin", b.nin("tags", "ai"),
+                        "not json_contains_any(metadata[\"tags\"], [\"ai\"])"),
+                Arguments.of("quote in value", b.eq("author", "Tim \"The Toolman\" O'Brien"),
+                        "metadata[\"author\"] == \"Tim \\\"The Toolman\\\" O'Brien\""),
+                Arguments.of("backslash in value", b.in("tags", "C:\\data"),
+                        "json_contains_any(metadata[\"tags\"], [\"C:\\\\data\"])"),
+                Arguments.of("numbers and booleans", b.and(b.gte("year", 2020), b.eq("draft", false)),
+                        "(metadata[\"year\"] >= 2020 and metadata[\"draft\"] == false)"),
+                Arguments.of("category, author and tags",
+                        b.and(b.and(b.eq("category", "Technology"), b.eq("author", "Dr. Sarah Chen")), b.in("tags", "ai", "ml")),
+                        "((metadata[\"category\"] == \"Technology\" and metadata[\"author\"] == \"Dr. Sarah Chen\")"
+                                + " and json_contains_any(metadata[\"tags\"], [\"ai\", \"ml\"]))"),
+                Arguments.of("or and not", b.or(b.eq("category", "Science"), b.not(b.eq("tags", "draft"))),
+                        "(metadata[\"category\"] == \"Science\" or not (json_contains(metadata[\"tags\"], \"draft\")))"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("expressions")
+    void translatesToAMilvusExpression(String name, FilterExpressionBuilder.Op filter, String expected) {
+        assertThat(MilvusFilterConverter.toExpression(filter.build())).isEqualTo(expected);
+    }
+}
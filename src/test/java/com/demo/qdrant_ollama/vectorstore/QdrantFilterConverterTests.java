@@ -0,0 +1,78 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import io.qdrant.client.ConditionFactory;
+import io.qdrant.client.grpc.Points;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QdrantFilterConverterTests {
+
+    private static final FilterExpressionBuilder b = new FilterExpressionBuilder();
+
+    static Stream<Arguments> expressions() {
+        return Stream.of(
+                Arguments.of("keyword eq", b.eq("category", "Technology"),
+                        must(ConditionFactory.matchKeyword("category", "Technology"))),
+                Arguments.of("keyword ne", b.ne("category", "Technology"),
+                        Points.Filter.newBuilder().addMustNot(ConditionFactory.matchKeyword("category", "Technology")).build()),
+                // a keyword condition on an array matches if any element matches
+                Arguments.of("array eq", b.eq("tags", "ai"),
+                        must(ConditionFactory.matchKeyword("tags", "ai"))),
+                Arguments.of("array in", b.in("tags", "ai", "machine-learning"),
+                        must(ConditionFactory.matchKeywords("tags", List.of("ai", "machine-learning")))),
+                Arguments.of("array nin", b.nin("tags", "ai"),
+                        Points.Filter.newBuilder().addMustNot(ConditionFactory.matchKeywords("tags", List.of("ai"))).build()),
+                // payload values are sent as they are, nothing to escape
+                Arguments.of("quote in value", b.eq("author", "Tim \"The Toolman\" O'Brien"),
+                        must(ConditionFactory.matchKeyword("author", "Tim \"The Toolman\" O'Brien"))),
+                Arguments.of("integer eq", b.eq("chunkIndex", 2),
+                        must(ConditionFactory.match("chunkIndex", 2L))),
+                Arguments.of("integer in", b.in("chunkIndex", 0, 1),
+                        must(ConditionFactory.matchValues("chunkIndex", List.of(0L, 1L)))),
+                Arguments.of("boolean eq", b.eq("draft", false),
+                        must(ConditionFactory.match("draft", false))),
+                Arguments.of("range", b.gte("year", 2020),
+                        must(ConditionFactory.range("year", Points.Range.newBuilder().setGte(2020).build()))),
+                Arguments.of("category, author and tags",
+                        b.and(b.and(b.eq("category", "Technology"), b.eq("author", "Dr. Sarah Chen")), b.in("tags", "ai", "ml")),
+                        Points.Filter.newBuilder()
+                                .addMust(ConditionFactory.filter(Points.Filter.newBuilder()
+                                        .addMust(ConditionFactory.filter(must(ConditionFactory.matchKeyword("category", "Technology"))))
+                                        .addMust(ConditionFactory.filter(must(ConditionFactory.matchKeyword("author", "Dr. Sarah Chen"))))
+                                        .build()))
+                                .addMust(ConditionFactory.filter(must(ConditionFactory.matchKeywords("tags", List.of("ai", "ml")))))
+                                .build()),
+                Arguments.of("or and not", b.or(b.eq("category", "Science"), b.not(b.eq("tags", "draft"))),
+                        Points.Filter.newBuilder()
+                                .addShould(ConditionFactory.filter(must(ConditionFactory.matchKeyword("category", "Science"))))
+                                .addShould(ConditionFactory.filter(Points.Filter.newBuilder()
+                                        .addMustNot(ConditionFactory.filter(must(ConditionFactory.matchKeyword("tags", "draft"))))
+                                        .build()))
+                                .build()));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("expressions")
+    void translatesToAQdrantFilter(String name, FilterExpressionBuilder.Op filter, Points.Filter expected) {
+        assertThat(QdrantFilterConverter.toFilter(filter.build())).isEqualTo(expected);
+    }
+
+    @Test
+    void rangesNeedANumber() {
+        assertThatThrownBy(() -> QdrantFilterConverter.toFilter(b.gt("year", "2020").build()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Points.Filter must(Points.Condition condition) {
+        return Points.Filter.newBuilder().addMust(condition).build();
+    }
+}
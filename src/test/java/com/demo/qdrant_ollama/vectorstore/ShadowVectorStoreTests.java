@@ -0,0 +1,203 @@
+package com.demo.qdrant_ollama.vectorstore;
+
+import com.demo.qdrant_ollama.embedding.PrecomputedEmbeddingModel;
+import com.demo.qdrant_ollama.service.CircuitBreaker;
+import com.demo.qdrant_ollama.service.DownstreamResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShadowVectorStoreTests {
+
+    @Test
+    void searchesAreAnsweredByThePrimaryAndComparedWithTheShadow() throws Exception {
+        CountingEmbeddingModel counting = new CountingEmbeddingModel();
+        EmbeddingModel embeddingModel = new PrecomputedEmbeddingModel(counting);
+        StubVectorStore primary = new StubVectorStore(embeddingModel, List.of("a", "b"));
+        StubVectorStore shadow = new StubVectorStore(embeddingModel, List.of("a", "c"));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ShadowVectorStore store = new ShadowVectorStore(primary, "qdrant", shadow, "milvus", embeddingModel, 1.0, 1, 10, meterRegistry);
+
+        List<Document> results = store.similaritySearch(SearchRequest.builder().query("query").topK(2).build());
+
+        assertThat(results).extracting(Document::getId).containsExactly("a", "b");
+        awaitCount(meterRegistry, "completed", 1);
+        assertThat(meterRegistry.get("vector.store.shadow.overlap").summary().max()).isEqualTo(0.5);
+        assertThat(meterRegistry.get("vector.store.search.duration").tag("role", "shadow").timer().count()).isEqualTo(1);
+        // the shadow search reused the primary's query vector
+        assertThat(counting.texts).containsExactly("query");
+    }
+
+    @Test
+    void writesAreMirroredWithoutEmbeddingTwiceAndShadowFailuresAreTolerated() {
+        CountingEmbeddingModel counting = new CountingEmbeddingModel();
+        EmbeddingModel embeddingModel = new PrecomputedEmbeddingModel(counting);
+        StubVectorStore primary = new StubVectorStore(embeddingModel, List.of());
+        StubVectorStore shadow = new StubVectorStore(embeddingModel, List.of());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ShadowVectorStore store = new ShadowVectorStore(primary, "qdrant", shadow, "milvus", embeddingModel, 0, 1, 10, meterRegistry);
+
+        store.add(List.of(new Document("1", "first", Map.of()), new Document("2", "second", Map.of())));
+        assertThat(primary.added).containsExactly("1", "2");
+        assertThat(shadow.added).containsExactly("1", "2");
+        assertThat(counting.texts).containsExactly("first", "second");
+
+        shadow.failing = true;
+        store.delete(List.of("1"));
+        assertThat(primary.added).containsExactly("2");
+        assertThat(shadow.added).containsExactly("1", "2");
+        assertThat(meterRegistry.get("vector.store.shadow.writes").tag("outcome", "failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void failingShadowSearchesDontOpenThePrimaryCircuit() throws Exception {
+        EmbeddingModel embeddingModel = new PrecomputedEmbeddingModel(new CountingEmbeddingModel());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DownstreamResilience resilience = new DownstreamResilience(50, 4, 2, Duration.ofSeconds(30), 1,
+                Duration.ofMillis(1), Duration.ofMillis(1), meterRegistry);
+        VectorStore primary = new NativeSearchVectorStore(new StubVectorStore(embeddingModel, List.of()), embeddingModel,
+                new ResilientVectorSearcher(new StubSearcher(false), resilience, "qdrant"), 0);
+        VectorStore shadow = new NativeSearchVectorStore(new StubVectorStore(embeddingModel, List.of()), embeddingModel,
+                new ResilientVectorSearcher(new StubSearcher(true), resilience, "milvus"), 0);
+        ShadowVectorStore store = new ShadowVectorStore(primary, "qdrant", shadow, "milvus", embeddingModel, 1.0, 1, 10, meterRegistry);
+
+        for (int i = 0; i < 4; i++) {
+            store.similaritySearch(SearchRequest.builder().query("query " + i).topK(1).build());
+        }
+        awaitCount(meterRegistry, "failed", 2);
+
+        assertThat(resilience.vectorStoreBreaker("milvus").state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(resilience.vectorStoreBreaker("qdrant").state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(store.similaritySearch(SearchRequest.builder().query("query").topK(1).build()))
+                .extracting(Document::getId).containsExactly("a");
+    }
+
+    private static void awaitCount(SimpleMeterRegistry meterRegistry, String outcome, int count) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            if (meterRegistry.get("vector.store.shadow.requests").tag("outcome", outcome).counter().count() >= count) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("no " + outcome + " shadow search");
+    }
+
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+
+        final List<String> texts = new CopyOnWriteArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                texts.add(text);
+                embeddings.add(new Embedding(new float[]{text.length()}, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return 1;
+        }
+    }
+
+    // embeds like the Spring AI stores do and returns fixed hits
+    private static class StubVectorStore implements VectorStore {
+
+        final List<String> added = new CopyOnWriteArrayList<>();
+
+        private final EmbeddingModel embeddingModel;
+
+        private final List<String> hits;
+
+        volatile boolean failing;
+
+        StubVectorStore(EmbeddingModel embeddingModel, List<String> hits) {
+            this.embeddingModel = embeddingModel;
+            this.hits = hits;
+        }
+
+        @Override
+        public void add(List<Document> documents) {
+            embeddingModel.embed(documents.stream().map(Document::getText).toList());
+            documents.forEach(document -> added.add(document.getId()));
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+            if (failing) {
+                throw new IllegalStateException("unavailable");
+            }
+            added.removeAll(idList);
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            embeddingModel.embed(request.getQuery());
+            return hits.stream().map(id -> new Document(id, id, Map.of())).toList();
+        }
+    }
+
+    // a native searcher that returns one hit or, for an unavailable database, fails
+    private static class StubSearcher implements NativeVectorSearcher {
+
+        private final boolean failing;
+
+        StubSearcher(boolean failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public String searchParamName() {
+            return null;
+        }
+
+        @Override
+        public List<Integer> searchParamCandidates(int k) {
+            return List.of(0);
+        }
+
+        @Override
+        public List<Document> search(float[] vector, int topK, double similarityThreshold, Filter.Expression filter, int searchParam) {
+            if (failing) {
+                throw new IllegalStateException("unavailable");
+            }
+            return List.of(new Document("a", "a", Map.of()));
+        }
+
+        @Override
+        public List<String> searchIds(float[] vector, int topK, int searchParam) {
+            return search(vector, topK, 0, null, searchParam).stream().map(Document::getId).toList();
+        }
+
+        @Override
+        public void forEachVector(BiConsumer<String, float[]> consumer) {
+        }
+    }
+}
@@ -0,0 +1,107 @@
+#!/bin/bash
+
+# Measures the time from launch to the first successful GET /api/search/health per startup mode:
+#   jvm        java -jar on the boot jar
+#   aot-cache  extracted jar with the JDK AOT cache (./gradlew aotCache -PvectorStoreProvider=<provider>)
+#   native     GraalVM native image (./gradlew nativeCompile -Pnative -PvectorStoreProvider=<provider>)
+# Usage: ./startup_benchmark.sh [runs] [modes...]   e.g. ./startup_benchmark.sh 5 jvm aot-cache native
+# Modes whose artifact is missing are built first. The AOT cache is trained with and the native image wired for one
+# provider at build time, so both are rebuilt when they were built for another one than PROVIDER (default qdrant),
+# which all modes run with. Needs GNU date for millisecond timestamps.
+
+RUNS=${1:-5}
+shift
+MODES=${@:-jvm aot-cache native}
+PROVIDER=${PROVIDER:-qdrant}
+PORT=${PORT:-18080}
+HEALTH_URL="http://localhost:$PORT/api/search/health"
+ARGS="--vector-store.provider=$PROVIDER --server.port=$PORT --startup.seed-mock-data=false"
+
+now_ms() {
+    date +%s%3N
+}
+
+rss_kb() {
+    if [ -r "/proc/$1/status" ]; then
+        awk '/VmRSS/ {print $2}' "/proc/$1/status"
+    else
+        ps -o rss= -p "$1" | tr -d ' '
+    fi
+}
+
+# whether $1 exists and was built for PROVIDER, as recorded in $1.provider
+built_for_provider() {
+    [ -e "$1" ] && [ "$(cat "$1.provider" 2>/dev/null)" = "$PROVIDER" ]
+}
+
+# prints the command line of a mode, building its artifact when needed
+command_for() {
+    case "$1" in
+        jvm)
+            [ -n "$(ls build/libs/*.jar 2>/dev/null | grep -v plain)" ] || ./gradlew -q bootJar >&2 || return 1
+            echo "java ${JAVA_OPTS} -jar $(ls build/libs/*.jar | grep -v plain | head -n 1)"
+            ;;
+        aot-cache)
+            if ! built_for_provider build/fast-start/app.aot; then
+                ./gradlew -q aotCache -PvectorStoreProvider="$PROVIDER" >&2 || return 1
+                echo "$PROVIDER" > build/fast-start/app.aot.provider
+            fi
+            echo "java ${JAVA_OPTS} -XX:AOTCache=build/fast-start/app.aot -jar $(ls build/fast-start/*.jar | head -n 1)"
+            ;;
+        native)
+            if ! built_for_provider build/native/nativeCompile/qdrant-ollama; then
+                ./gradlew -q nativeCompile -Pnative -PvectorStoreProvider="$PROVIDER" >&2 || return 1
+                echo "$PROVIDER" > build/native/nativeCompile/qdrant-ollama.provider
+            fi
+            echo "build/native/nativeCompile/qdrant-ollama"
+            ;;
+        *)
+            echo "unknown mode $1" >&2
+            return 1
+            ;;
+    esac
+}
+
+printf "\n%-10s %4s %18s %10s\n" "mode" "run" "first health (ms)" "RSS (MB)"
+for mode in $MODES; do
+    cmd=$(command_for "$mode")
+    if [ -z "$cmd" ]; then
+        echo "❌ could not build $mode"
+        continue
+    fi
+    total=0
+    succeeded=0
+    for run in $(seq 1 "$RUNS"); do
+        log=$(mktemp)
+        start=$(now_ms)
+        $cmd $ARGS > "$log" 2>&1 &
+        pid=$!
+
+        elapsed=""
+        for _ in $(seq 1 6000); do
+            if curl -sf -o /dev/null "$HEALTH_URL"; then
+                elapsed=$(( $(now_ms) - start ))
+                break
+            fi
+            if ! kill -0 "$pid" 2>/dev/null; then
+                break
+            fi
+            sleep 0.01
+        done
+        if [ -z "$elapsed" ]; then
+            echo "❌ $mode did not answer, see $log"
+            kill "$pid" 2>/dev/null
+            continue
+        fi
+
+        rss=$(rss_kb "$pid")
+        printf "%-10s %4s %18s %10s\n" "$mode" "$run" "$elapsed" "$((rss / 1024))"
+        total=$((total + elapsed))
+        succeeded=$((succeeded + 1))
+
+        kill "$pid"
+        wait "$pid" 2>/dev/null
+        rm -f "$log"
+    done
+    [ "$succeeded" -gt 0 ] && printf "%-10s %4s %18s\n" "$mode" "avg" "$((total / succeeded))"
+done
@@ -0,0 +1,67 @@
+#!/bin/bash
+
+# Measures startup time, resident memory and threads of the application per vector store provider.
+# Usage: ./startup_footprint.sh [runs] [providers...]   e.g. ./startup_footprint.sh 3 qdrant milvus embedded
+# The vector databases don't have to be running: clients connect lazily and collection setup runs in the background.
+
+RUNS=${1:-3}
+shift
+PROVIDERS=${@:-qdrant milvus embedded}
+PORT=${PORT:-18080}
+SETTLE_SECONDS=${SETTLE_SECONDS:-5}
+
+echo "🔨 Building the application jar..."
+./gradlew -q bootJar || exit 1
+JAR=$(ls build/libs/*.jar | grep -v plain | head -n 1)
+
+rss_kb() {
+    if [ -r "/proc/$1/status" ]; then
+        awk '/VmRSS/ {print $2}' "/proc/$1/status"
+    else
+        ps -o rss= -p "$1" | tr -d ' '
+    fi
+}
+
+thread_count() {
+    if [ -d "/proc/$1/task" ]; then
+        ls "/proc/$1/task" | wc -l | tr -d ' '
+    else
+        ps -M -p "$1" | tail -n +2 | wc -l | tr -d ' '
+    fi
+}
+
+printf "\n%-10s %4s %12s %10s %8s\n" "provider" "run" "startup (s)" "RSS (MB)" "threads"
+for provider in $PROVIDERS; do
+    for run in $(seq 1 "$RUNS"); do
+        log=$(mktemp)
+        java ${JAVA_OPTS} -jar "$JAR" --vector-store.provider="$provider" --server.port="$PORT" \
+            --startup.seed-mock-data=false > "$log" 2>&1 &
+        pid=$!
+
+        # "Started QdrantOllamaApplication in 2.345 seconds (process running for 2.789)"
+        started=""
+        for _ in $(seq 1 120); do
+            started=$(grep -o "process running for [0-9.]*" "$log" | awk '{print $4}')
+            [ -n "$started" ] && break
+            if ! kill -0 "$pid" 2>/dev/null; then
+                break
+            fi
+            sleep 0.5
+        done
+        if [ -z "$started" ]; then
+            echo "❌ $provider did not start, see $log"
+            kill "$pid" 2>/dev/null
+            continue
+        fi
+
+        # background initialization (collection setup, lexical index) settles before memory is sampled
+        sleep "$SETTLE_SECONDS"
+        rss=$(rss_kb "$pid")
+        threads=$(thread_count "$pid")
+        printf "%-10s %4s %12s %10s %8s\n" "$provider" "$run" "$started" "$((rss / 1024))" "$threads"
+
+        kill "$pid"
+        wait "$pid" 2>/dev/null
+        rm -f "$log"
+    done
+done